@@ -145,7 +145,7 @@ public class AfterSaleService {
         // 3. CAS更新状态
         boolean updated = afterSaleRepository.casApprove(asNo, request.getApprovedBy(), afterSale.getVersion());
         if (!updated) {
-            throw new BizException(ErrorCode.CONCURRENT_UPDATE, "并发更新，请重试");
+            throw new BizException(ErrorCode.DB_OPTIMISTIC_LOCK, "并发更新，请重试");
         }
 
         // 4. 记录状态流转
@@ -197,7 +197,7 @@ public class AfterSaleService {
         boolean updated = afterSaleRepository.casReject(asNo, request.getRejectReason(), 
                 request.getApprovedBy(), afterSale.getVersion());
         if (!updated) {
-            throw new BizException(ErrorCode.CONCURRENT_UPDATE, "并发更新，请重试");
+            throw new BizException(ErrorCode.DB_OPTIMISTIC_LOCK, "并发更新，请重试");
         }
 
         // 4. 记录状态流转
@@ -230,7 +230,7 @@ public class AfterSaleService {
 
         // 2. 检查用户权限
         if (!afterSale.getUserId().equals(userId)) {
-            throw new BizException(ErrorCode.FORBIDDEN, "无权操作此售后单");
+            throw new BizException(ErrorCode.PERMISSION_DENIED, "无权操作此售后单");
         }
 
         // 3. 检查状态机
@@ -243,7 +243,7 @@ public class AfterSaleService {
         // 4. CAS更新状态
         boolean updated = afterSaleRepository.casCancel(asNo, afterSale.getVersion());
         if (!updated) {
-            throw new BizException(ErrorCode.CONCURRENT_UPDATE, "并发更新，请重试");
+            throw new BizException(ErrorCode.DB_OPTIMISTIC_LOCK, "并发更新，请重试");
         }
 
         // 5. 记录状态流转
@@ -1,10 +1,13 @@
 package com.yuge.aftersales.domain.statemachine;
 
 import com.yuge.aftersales.domain.enums.AfterSaleStatus;
+import com.yuge.platform.infra.statemachine.IllegalTransitionException;
+import com.yuge.platform.infra.statemachine.StateMachine;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 售后状态机
@@ -16,6 +19,8 @@ import java.util.*;
  * APPROVED -> REFUNDING (发起退款)
  * REFUNDING -> REFUNDED (退款成功)
  * REFUNDING -> APPROVED (退款失败，可重试)
+ *
+ * 转换表由 platform-infra 表驱动状态机引擎编译
  */
 public class AfterSaleStateMachine {
 
@@ -39,27 +44,18 @@ public class AfterSaleStateMachine {
     /**
      * 状态转换定义
      */
-    private static final Map<AfterSaleStatus, Map<Event, AfterSaleStatus>> TRANSITIONS = new HashMap<>();
-
-    static {
-        // APPLIED状态的转换
-        Map<Event, AfterSaleStatus> appliedTransitions = new HashMap<>();
-        appliedTransitions.put(Event.APPROVE, AfterSaleStatus.APPROVED);
-        appliedTransitions.put(Event.REJECT, AfterSaleStatus.REJECTED);
-        appliedTransitions.put(Event.CANCEL, AfterSaleStatus.CANCELED);
-        TRANSITIONS.put(AfterSaleStatus.APPLIED, appliedTransitions);
-
-        // APPROVED状态的转换
-        Map<Event, AfterSaleStatus> approvedTransitions = new HashMap<>();
-        approvedTransitions.put(Event.START_REFUND, AfterSaleStatus.REFUNDING);
-        TRANSITIONS.put(AfterSaleStatus.APPROVED, approvedTransitions);
-
-        // REFUNDING状态的转换
-        Map<Event, AfterSaleStatus> refundingTransitions = new HashMap<>();
-        refundingTransitions.put(Event.REFUND_SUCCESS, AfterSaleStatus.REFUNDED);
-        refundingTransitions.put(Event.REFUND_FAILED, AfterSaleStatus.APPROVED); // 退款失败回到APPROVED可重试
-        TRANSITIONS.put(AfterSaleStatus.REFUNDING, refundingTransitions);
-    }
+    private static final StateMachine<AfterSaleStatus, Event, Void> MACHINE =
+            StateMachine.<AfterSaleStatus, Event, Void>builder("aftersale", AfterSaleStatus.class, Event.class)
+                    // APPLIED状态的转换
+                    .transition(AfterSaleStatus.APPLIED, Event.APPROVE, AfterSaleStatus.APPROVED)
+                    .transition(AfterSaleStatus.APPLIED, Event.REJECT, AfterSaleStatus.REJECTED)
+                    .transition(AfterSaleStatus.APPLIED, Event.CANCEL, AfterSaleStatus.CANCELED)
+                    // APPROVED状态的转换
+                    .transition(AfterSaleStatus.APPROVED, Event.START_REFUND, AfterSaleStatus.REFUNDING)
+                    // REFUNDING状态的转换
+                    .transition(AfterSaleStatus.REFUNDING, Event.REFUND_SUCCESS, AfterSaleStatus.REFUNDED)
+                    .transition(AfterSaleStatus.REFUNDING, Event.REFUND_FAILED, AfterSaleStatus.APPROVED) // 退款失败回到APPROVED可重试
+                    .build();
 
     /**
      * 检查状态转换是否合法
@@ -69,8 +65,7 @@ public class AfterSaleStateMachine {
      * @return 是否合法
      */
     public static boolean canTransition(AfterSaleStatus currentStatus, Event event) {
-        Map<Event, AfterSaleStatus> transitions = TRANSITIONS.get(currentStatus);
-        return transitions != null && transitions.containsKey(event);
+        return MACHINE.canFire(currentStatus, event);
     }
 
     /**
@@ -81,11 +76,7 @@ public class AfterSaleStateMachine {
      * @return 目标状态，如果转换不合法返回null
      */
     public static AfterSaleStatus getNextStatus(AfterSaleStatus currentStatus, Event event) {
-        Map<Event, AfterSaleStatus> transitions = TRANSITIONS.get(currentStatus);
-        if (transitions == null) {
-            return null;
-        }
-        return transitions.get(event);
+        return MACHINE.nextState(currentStatus, event);
     }
 
     /**
@@ -97,12 +88,12 @@ public class AfterSaleStateMachine {
      * @throws IllegalStateException 如果转换不合法
      */
     public static AfterSaleStatus transition(AfterSaleStatus currentStatus, Event event) {
-        AfterSaleStatus nextStatus = getNextStatus(currentStatus, event);
-        if (nextStatus == null) {
+        try {
+            return MACHINE.fire(currentStatus, event);
+        } catch (IllegalTransitionException e) {
             throw new IllegalStateException(
                     String.format("Invalid state transition: %s + %s", currentStatus, event));
         }
-        return nextStatus;
     }
 
     /**
@@ -112,10 +103,6 @@ public class AfterSaleStateMachine {
      * @return 可用事件列表
      */
     public static List<Event> getAvailableEvents(AfterSaleStatus currentStatus) {
-        Map<Event, AfterSaleStatus> transitions = TRANSITIONS.get(currentStatus);
-        if (transitions == null) {
-            return Collections.emptyList();
-        }
-        return new ArrayList<>(transitions.keySet());
+        return new ArrayList<>(MACHINE.availableEvents(currentStatus));
     }
 }
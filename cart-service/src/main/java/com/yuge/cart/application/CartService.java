@@ -53,7 +53,7 @@ public class CartService {
                 .qty(request.getQty())
                 .skuAttrs(request.getSkuAttrs())
                 .categoryId(request.getCategoryId())
-                .warehouseId(request.getWarehouseId() != null ? request.getWarehouseId() : 1L)
+                .warehouseId(request.getWarehouseId())
                 .checked(true)
                 .build();
 
@@ -294,7 +294,7 @@ public class CartService {
         List<InventoryClient.StockQuery> stockQueries = checkoutItems.stream()
                 .map(item -> InventoryClient.StockQuery.builder()
                         .skuId(item.getSkuId())
-                        .warehouseId(item.getWarehouseId() != null ? item.getWarehouseId() : 1L)
+                        .warehouseId(item.getWarehouseId())
                         .requestQty(item.getQty())
                         .build())
                 .collect(Collectors.toList());
@@ -309,7 +309,7 @@ public class CartService {
         
         for (CartItem item : checkoutItems) {
             InventoryClient.StockInfo stockInfo = stockMap.get(item.getSkuId());
-            boolean sufficient = stockInfo != null && stockInfo.getSufficient();
+            boolean sufficient = stockInfo != null && Boolean.TRUE.equals(stockInfo.getSufficient());
             
             if (!sufficient) {
                 allStockSufficient = false;
@@ -319,7 +319,7 @@ public class CartService {
                     .skuId(item.getSkuId())
                     .warehouseId(item.getWarehouseId())
                     .requestQty(item.getQty())
-                    .availableQty(stockInfo != null ? stockInfo.getAvailableQty() : 0)
+                    .availableQty(availableQty(stockInfo))
                     .sufficient(sufficient)
                     .message(sufficient ? "库存充足" : "库存不足")
                     .build());
@@ -472,13 +472,20 @@ public class CartService {
                             .linePayableAmount(linePayable)
                             .skuAttrs(item.getSkuAttrs())
                             .warehouseId(item.getWarehouseId())
-                            .stockSufficient(stockInfo != null && stockInfo.getSufficient())
-                            .availableQty(stockInfo != null ? stockInfo.getAvailableQty() : 0)
+                            .stockSufficient(stockInfo != null && Boolean.TRUE.equals(stockInfo.getSufficient()))
+                            .availableQty(availableQty(stockInfo))
                             .build();
                 })
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 可用库存（库存服务未返回或降级结果缺少数量时为0，避免拆箱NPE）
+     */
+    private static int availableQty(InventoryClient.StockInfo stockInfo) {
+        return stockInfo != null ? Objects.requireNonNullElse(stockInfo.getAvailableQty(), 0) : 0;
+    }
+
     private List<CheckoutResponse.PromotionHit> convertPromotionHits(
             List<PricingClient.LockResult.PromotionHit> hits) {
         if (hits == null) return new ArrayList<>();
@@ -67,7 +67,7 @@ public class CartItem implements Serializable {
     private Long categoryId;
 
     /**
-     * 仓库ID（默认仓库）
+     * 仓库ID（为空表示下单时由库存服务分配仓库）
      */
     private Long warehouseId;
 
@@ -1,50 +1,111 @@
 package com.yuge.cart.infrastructure.client.impl;
 
 import com.yuge.cart.infrastructure.client.InventoryClient;
-import lombok.RequiredArgsConstructor;
+import com.yuge.platform.infra.common.Result;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 库存服务客户端实现
- * 实际生产环境应使用Feign或其他RPC框架
+ *
+ * 调用 POST /inventory/availability/batch，一次请求查询所有SKU（服务端一次Redis MGET）
+ *
+ * 降级：库存服务超时/异常时返回"充足"，不阻断结算；
+ * 真正的防超卖由下单后的库存预留（Redis Lua原子预扣）保证
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class InventoryClientImpl implements InventoryClient {
 
+    private static final ParameterizedTypeReference<Result<List<StockInfo>>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
     @Value("${service.inventory.url:http://localhost:8082}")
     private String inventoryServiceUrl;
 
+    private final RestTemplate restTemplate;
+
+    public InventoryClientImpl(@Qualifier("inventoryRestTemplate") RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
     /**
      * 批量查询可售库存
-     * 注：这里简化实现，实际应调用inventory-service的API
      */
     @Override
     public List<StockInfo> queryAvailableStock(List<StockQuery> queries) {
-        List<StockInfo> results = new ArrayList<>();
-        
+        if (queries == null || queries.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            String url = inventoryServiceUrl + "/inventory/availability/batch";
+
+            List<Map<String, Object>> items = new ArrayList<>(queries.size());
+            for (StockQuery query : queries) {
+                Map<String, Object> map = new HashMap<>();
+                map.put("skuId", query.getSkuId());
+                map.put("warehouseId", query.getWarehouseId());
+                map.put("requestQty", query.getRequestQty());
+                items.add(map);
+            }
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("items", items);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+
+            ResponseEntity<Result<List<StockInfo>>> response =
+                    restTemplate.exchange(url, HttpMethod.POST, entity, RESPONSE_TYPE);
+
+            Result<List<StockInfo>> body = response.getBody();
+            if (response.getStatusCode().is2xxSuccessful() && body != null
+                    && body.isSuccess() && body.getData() != null) {
+                log.debug("[InventoryClient] queryAvailableStock, queries={}, costMs={}",
+                        queries.size(), System.currentTimeMillis() - startTime);
+                return body.getData();
+            }
+
+            log.warn("[InventoryClient] queryAvailableStock unexpected response, status={}, code={}, message={}",
+                    response.getStatusCode(), body != null ? body.getCode() : null,
+                    body != null ? body.getMessage() : null);
+        } catch (Exception e) {
+            log.warn("[InventoryClient] queryAvailableStock failed, queries={}, costMs={}, error={}",
+                    queries.size(), System.currentTimeMillis() - startTime, e.getMessage());
+        }
+        return degrade(queries);
+    }
+
+    /**
+     * 降级结果：可用库存未知，视为充足（可用数量按请求数量返回）
+     */
+    private List<StockInfo> degrade(List<StockQuery> queries) {
+        List<StockInfo> results = new ArrayList<>(queries.size());
         for (StockQuery query : queries) {
-            // TODO: 实际应调用 GET /inventory/{warehouseId}/{skuId}/available
-            // 这里模拟返回充足库存
             results.add(StockInfo.builder()
                     .skuId(query.getSkuId())
                     .warehouseId(query.getWarehouseId())
                     .requestQty(query.getRequestQty())
-                    .availableQty(999) // 模拟数据
+                    .availableQty(query.getRequestQty() != null ? query.getRequestQty() : 0)
                     .sufficient(true)
                     .build());
         }
-        
-        log.debug("[InventoryClient] queryAvailableStock, queries={}, results={}", 
-                queries.size(), results.size());
-        
         return results;
     }
 }
@@ -3,11 +3,17 @@ package com.yuge.cart.infrastructure.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 /**
  * 购物车服务配置
  */
@@ -15,6 +21,7 @@ import org.springframework.web.client.RestTemplate;
 public class CartConfig {
 
     @Bean
+    @Primary
     public RestTemplate restTemplate() {
         SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
         factory.setConnectTimeout(5000);
@@ -22,6 +29,23 @@ public class CartConfig {
         return new RestTemplate(factory);
     }
 
+    /**
+     * 库存服务专用客户端
+     * JDK HttpClient 复用长连接（连接池），超时时间较短，避免结算被库存服务拖慢
+     */
+    @Bean
+    public RestTemplate inventoryRestTemplate(
+            @Value("${service.inventory.connect-timeout-ms:300}") long connectTimeoutMs,
+            @Value("${service.inventory.read-timeout-ms:800}") long readTimeoutMs) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return new RestTemplate(factory);
+    }
+
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -281,6 +281,48 @@ class CartServiceTest {
         assertEquals("部分商品库存不足", response.getFailReason());
     }
 
+    @Test
+    @DisplayName("结算-库存结果缺少可用数量时按0返回，不抛NPE")
+    void checkout_stockWithoutAvailableQty_shouldNotThrow() {
+        // Arrange
+        Long userId = 1001L;
+        CheckoutRequest request = new CheckoutRequest();
+
+        CartItem item = createCartItem(10001L, "测试商品", BigDecimal.valueOf(99.00), 2);
+        item.setChecked(true);
+        item.setWarehouseId(1L);
+
+        when(cartRedisService.getAll(anyString())).thenReturn(Collections.singletonList(item));
+
+        InventoryClient.StockInfo stockInfo = InventoryClient.StockInfo.builder()
+                .skuId(10001L)
+                .warehouseId(1L)
+                .requestQty(2)
+                .sufficient(true)
+                .build();
+        when(inventoryClient.queryAvailableStock(anyList())).thenReturn(Collections.singletonList(stockInfo));
+
+        PricingClient.LockResult lockResult = PricingClient.LockResult.builder()
+                .success(true)
+                .priceLockNo("PL202401011000001234")
+                .signature("sha256...")
+                .signVersion(1)
+                .originalAmount(BigDecimal.valueOf(198.00))
+                .totalDiscount(BigDecimal.ZERO)
+                .payableAmount(BigDecimal.valueOf(198.00))
+                .expireAt(LocalDateTime.now().plusMinutes(15))
+                .build();
+        when(pricingClient.lock(any())).thenReturn(lockResult);
+
+        // Act
+        CheckoutResponse response = cartService.checkout(userId, null, request);
+
+        // Assert
+        assertTrue(response.getCanOrder());
+        assertEquals(0, response.getStockCheckResults().get(0).getAvailableQty());
+        assertEquals(0, response.getItems().get(0).getAvailableQty());
+    }
+
     @Test
     @DisplayName("结算-没有选中商品应抛异常")
     void checkout_noCheckedItems_shouldThrowException() {
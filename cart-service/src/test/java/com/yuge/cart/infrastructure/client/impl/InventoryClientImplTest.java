@@ -0,0 +1,81 @@
+package com.yuge.cart.infrastructure.client.impl;
+
+import com.yuge.cart.infrastructure.client.InventoryClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 库存服务客户端单元测试 - 超时/异常时的降级结果
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class InventoryClientImplTest {
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private InventoryClientImpl inventoryClient;
+
+    @BeforeEach
+    void setUp() {
+        inventoryClient = new InventoryClientImpl(restTemplate);
+        ReflectionTestUtils.setField(inventoryClient, "inventoryServiceUrl", "http://localhost:8082");
+    }
+
+    @Test
+    @DisplayName("库存服务超时时降级为充足，可用数量按请求数量返回")
+    void queryAvailableStock_timeout_shouldDegrade() {
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class),
+                any(ParameterizedTypeReference.class)))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+
+        List<InventoryClient.StockInfo> results = inventoryClient.queryAvailableStock(List.of(
+                query(10001L, 3), query(10002L, null)));
+
+        assertEquals(2, results.size());
+        assertEquals(10001L, results.get(0).getSkuId());
+        assertTrue(results.get(0).getSufficient());
+        assertEquals(3, results.get(0).getAvailableQty());
+        assertEquals(0, results.get(1).getAvailableQty());
+    }
+
+    @Test
+    @DisplayName("响应体为空时同样降级")
+    void queryAvailableStock_emptyBody_shouldDegrade() {
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class),
+                any(ParameterizedTypeReference.class)))
+                .thenReturn(ResponseEntity.ok().build());
+
+        List<InventoryClient.StockInfo> results = inventoryClient.queryAvailableStock(List.of(query(10001L, 2)));
+
+        assertTrue(results.get(0).getSufficient());
+        assertEquals(2, results.get(0).getAvailableQty());
+    }
+
+    private static InventoryClient.StockQuery query(Long skuId, Integer requestQty) {
+        return InventoryClient.StockQuery.builder()
+                .skuId(skuId)
+                .warehouseId(1L)
+                .requestQty(requestQty)
+                .build();
+    }
+}
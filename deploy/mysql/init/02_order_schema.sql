@@ -1,5 +1,6 @@
 -- =============================================
 -- 订单服务数据表 - order-service
+-- 分库部署（order.sharding.enabled=true）时每个分库执行同一脚本
 -- =============================================
 
 SET NAMES utf8mb4;
@@ -26,7 +27,7 @@ CREATE TABLE `t_order` (
     PRIMARY KEY (`id`),
     UNIQUE KEY `uk_order_no` (`order_no`),
     UNIQUE KEY `uk_user_client_request` (`user_id`, `client_request_id`),
-    KEY `idx_user_id` (`user_id`),
+    KEY `idx_user_created` (`user_id`, `created_at`, `id`),
     KEY `idx_status` (`status`),
     KEY `idx_created_at` (`created_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单主表';
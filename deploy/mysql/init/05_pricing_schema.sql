@@ -13,15 +13,16 @@ CREATE TABLE `t_price_lock` (
     `id` BIGINT NOT NULL COMMENT '主键ID',
     `price_lock_no` VARCHAR(32) NOT NULL COMMENT '价格锁编号（唯一）',
     `user_id` BIGINT NOT NULL COMMENT '用户ID',
-    `status` VARCHAR(32) NOT NULL DEFAULT 'LOCKED' COMMENT '状态: LOCKED/USED/EXPIRED/CANCELED',
+    `status` VARCHAR(32) NOT NULL DEFAULT 'LOCKED' COMMENT '状态: LOCKED/RESERVED/USED/EXPIRED/CANCELED',
     `original_amount` DECIMAL(12,2) NOT NULL COMMENT '商品原价总额',
     `total_discount` DECIMAL(12,2) NOT NULL DEFAULT 0.00 COMMENT '优惠总额',
     `payable_amount` DECIMAL(12,2) NOT NULL COMMENT '应付金额',
-    `snapshot_json` MEDIUMTEXT NOT NULL COMMENT '锁价快照（JSON）',
-    `allocation_json` MEDIUMTEXT NOT NULL COMMENT '分摊明细（JSON）',
+    `snapshot_json` MEDIUMTEXT COMMENT '锁价快照（JSON，sign_version=1）',
+    `allocation_json` MEDIUMTEXT COMMENT '分摊明细（JSON，sign_version=1）',
+    `snapshot_bin` MEDIUMBLOB COMMENT '锁价快照（二进制，含分摊明细，sign_version=2）',
     `coupon_nos_json` TEXT COMMENT '使用的优惠券编号列表（JSON）',
     `signature` VARCHAR(128) NOT NULL COMMENT '签名（防篡改）',
-    `sign_version` INT NOT NULL DEFAULT 1 COMMENT '签名版本',
+    `sign_version` INT NOT NULL DEFAULT 1 COMMENT '签名版本: 1-JSON快照+SHA256, 2-二进制快照+HMAC',
     `locked_at` DATETIME NOT NULL COMMENT '锁定时间',
     `expire_at` DATETIME NOT NULL COMMENT '过期时间',
     `used_at` DATETIME COMMENT '使用时间',
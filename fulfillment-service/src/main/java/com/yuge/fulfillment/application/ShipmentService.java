@@ -4,10 +4,12 @@ import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yuge.fulfillment.domain.entity.Shipment;
 import com.yuge.fulfillment.domain.entity.Waybill;
+import com.yuge.fulfillment.domain.enums.ShipmentEvent;
 import com.yuge.fulfillment.domain.enums.ShipmentStatus;
 import com.yuge.fulfillment.domain.event.ShipmentCreatedEvent;
 import com.yuge.fulfillment.domain.event.ShipmentDeliveredEvent;
 import com.yuge.fulfillment.domain.event.ShipmentShippedEvent;
+import com.yuge.fulfillment.domain.statemachine.ShipmentStateMachine;
 import com.yuge.fulfillment.infrastructure.repository.ShipmentRepository;
 import com.yuge.fulfillment.infrastructure.repository.WaybillRepository;
 import com.yuge.platform.infra.mq.BaseEvent;
@@ -107,7 +109,7 @@ public class ShipmentService {
         }
 
         // 状态检查
-        if (!currentStatus.canShip()) {
+        if (!ShipmentStateMachine.canTransition(currentStatus, ShipmentEvent.SHIP)) {
             log.warn("[ShipmentService] Cannot ship, shipmentNo={}, currentStatus={}", shipmentNo, currentStatus);
             throw new IllegalStateException("当前状态不允许发货: " + currentStatus.getDesc());
         }
@@ -170,7 +172,7 @@ public class ShipmentService {
         }
 
         // 状态检查
-        if (!currentStatus.canDeliver()) {
+        if (!ShipmentStateMachine.canTransition(currentStatus, ShipmentEvent.DELIVER)) {
             log.warn("[ShipmentService] Cannot deliver, shipmentNo={}, currentStatus={}", shipmentNo, currentStatus);
             throw new IllegalStateException("当前状态不允许签收: " + currentStatus.getDesc());
         }
@@ -46,18 +46,4 @@ public enum ShipmentStatus {
     public boolean isTerminal() {
         return this == DELIVERED;
     }
-
-    /**
-     * 判断是否可以发货
-     */
-    public boolean canShip() {
-        return this == CREATED;
-    }
-
-    /**
-     * 判断是否可以签收
-     */
-    public boolean canDeliver() {
-        return this == SHIPPED;
-    }
 }
@@ -0,0 +1,58 @@
+package com.yuge.fulfillment.domain.statemachine;
+
+import com.yuge.fulfillment.domain.enums.ShipmentEvent;
+import com.yuge.fulfillment.domain.enums.ShipmentStatus;
+import com.yuge.platform.infra.statemachine.IllegalTransitionException;
+import com.yuge.platform.infra.statemachine.StateMachine;
+
+import java.util.Set;
+
+/**
+ * 发货单状态机
+ *
+ * 状态流转：
+ * CREATED -> SHIPPED (发货)
+ * SHIPPED -> DELIVERED (签收)
+ *
+ * 转换表由 platform-infra 表驱动状态机引擎编译
+ */
+public class ShipmentStateMachine {
+
+    private static final StateMachine<ShipmentStatus, ShipmentEvent, Void> MACHINE =
+            StateMachine.<ShipmentStatus, ShipmentEvent, Void>builder(
+                            "shipment", ShipmentStatus.class, ShipmentEvent.class)
+                    .transition(ShipmentStatus.CREATED, ShipmentEvent.SHIP, ShipmentStatus.SHIPPED)
+                    .transition(ShipmentStatus.SHIPPED, ShipmentEvent.DELIVER, ShipmentStatus.DELIVERED)
+                    .build();
+
+    private ShipmentStateMachine() {
+    }
+
+    /**
+     * 检查状态转换是否合法
+     */
+    public static boolean canTransition(ShipmentStatus currentStatus, ShipmentEvent event) {
+        return MACHINE.canFire(currentStatus, event);
+    }
+
+    /**
+     * 执行状态转换
+     *
+     * @throws IllegalStateException 如果转换不合法
+     */
+    public static ShipmentStatus transition(ShipmentStatus currentStatus, ShipmentEvent event) {
+        try {
+            return MACHINE.fire(currentStatus, event);
+        } catch (IllegalTransitionException e) {
+            throw new IllegalStateException(
+                    String.format("Invalid state transition: %s + %s", currentStatus, event));
+        }
+    }
+
+    /**
+     * 获取当前状态可用的事件
+     */
+    public static Set<ShipmentEvent> getAvailableEvents(ShipmentStatus currentStatus) {
+        return MACHINE.availableEvents(currentStatus);
+    }
+}
@@ -1,5 +1,7 @@
 package com.yuge.inventory.api;
 
+import com.yuge.inventory.api.dto.AvailabilityResponse;
+import com.yuge.inventory.api.dto.BatchAvailabilityRequest;
 import com.yuge.inventory.api.dto.InventoryResponse;
 import com.yuge.inventory.api.dto.ReservationResponse;
 import com.yuge.inventory.application.InventoryService;
@@ -7,16 +9,20 @@ import com.yuge.inventory.domain.entity.Inventory;
 import com.yuge.inventory.domain.entity.InventoryReservation;
 import com.yuge.inventory.domain.enums.ReservationStatus;
 import com.yuge.inventory.infrastructure.redis.InventoryRedisService;
+import com.yuge.inventory.infrastructure.redis.InventoryRedisService.ReserveItem;
 import com.yuge.platform.infra.common.Result;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -33,8 +39,10 @@ public class InventoryController {
     private final InventoryRedisService redisService;
 
     /**
-     * 查询库存
+     * 查询库存明细（DB + Redis对比，运维/后台使用）
      * GET /inventory/{skuId}?warehouseId=1
+     *
+     * 商品详情/购物车等展示场景请使用 /{skuId}/availability 或 /availability/batch
      */
     @GetMapping("/{skuId}")
     public Result<InventoryResponse> getInventory(
@@ -64,7 +72,30 @@ public class InventoryController {
                 .updatedAt(inventory.getUpdatedAt())
                 .build();
 
-        return Result.ok(response);
+        return Result.success(response);
+    }
+
+    /**
+     * 查询可售库存（展示用，走本地缓存，不访问DB）
+     * GET /inventory/{skuId}/availability?warehouseId=1
+     */
+    @GetMapping("/{skuId}/availability")
+    public Result<AvailabilityResponse> getAvailability(
+            @PathVariable Long skuId,
+            @RequestParam(required = false, defaultValue = "1") Long warehouseId) {
+
+        Integer availableQty = inventoryService.getAvailableQty(skuId, warehouseId);
+        if (availableQty == null) {
+            return Result.fail("404", "库存记录不存在");
+        }
+
+        AvailabilityResponse response = AvailabilityResponse.builder()
+                .skuId(skuId)
+                .warehouseId(warehouseId)
+                .availableQty(availableQty)
+                .sufficient(availableQty > 0)
+                .build();
+        return Result.success(response);
     }
 
     /**
@@ -93,7 +124,45 @@ public class InventoryController {
                 })
                 .collect(Collectors.toList());
 
-        return Result.ok(responses);
+        return Result.success(responses);
+    }
+
+    /**
+     * 批量查询可售库存
+     * POST /inventory/availability/batch
+     *
+     * 一次 Redis MGET 返回所有SKU的可用库存，供购物车结算等场景使用；
+     * 未指定仓库时返回所有仓库可用库存之和（内存索引）
+     */
+    @PostMapping("/availability/batch")
+    public Result<List<AvailabilityResponse>> batchGetAvailability(
+            @Valid @RequestBody BatchAvailabilityRequest request) {
+
+        List<ReserveItem> items = request.getItems().stream()
+                .map(item -> ReserveItem.builder()
+                        .skuId(item.getSkuId())
+                        .warehouseId(item.getWarehouseId())
+                        .qty(item.getRequestQty() != null ? item.getRequestQty() : 0)
+                        .build())
+                .collect(Collectors.toList());
+
+        List<Integer> availableQtys = inventoryService.batchGetAvailableQty(items);
+
+        List<AvailabilityResponse> responses = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            ReserveItem item = items.get(i);
+            int available = availableQtys.get(i) != null ? availableQtys.get(i) : 0;
+            responses.add(AvailabilityResponse.builder()
+                    .skuId(item.getSkuId())
+                    .warehouseId(item.getWarehouseId())
+                    .availableQty(available)
+                    .requestQty(item.getQty())
+                    .sufficient(available > 0 && available >= item.getQty())
+                    .build());
+        }
+
+        log.debug("[InventoryController] batchGetAvailability, itemCount={}", items.size());
+        return Result.success(responses);
     }
 
     /**
@@ -110,7 +179,7 @@ public class InventoryController {
                 .map(this::toReservationResponse)
                 .collect(Collectors.toList());
 
-        return Result.ok(responses);
+        return Result.success(responses);
     }
 
     /**
@@ -126,7 +195,7 @@ public class InventoryController {
 
         try {
             inventoryService.syncInventoryToRedis(skuId, warehouseId);
-            return Result.ok("同步成功");
+            return Result.success("同步成功");
         } catch (Exception e) {
             log.error("[InventoryController] syncInventory failed, skuId={}, error={}", 
                     skuId, e.getMessage(), e);
@@ -148,7 +217,7 @@ public class InventoryController {
         try {
             boolean success = inventoryService.releaseReservation(orderNo, reason);
             if (success) {
-                return Result.ok("释放成功");
+                return Result.success("释放成功");
             } else {
                 return Result.fail("404", "未找到可释放的预留记录");
             }
@@ -170,7 +239,7 @@ public class InventoryController {
         try {
             boolean success = inventoryService.confirmReservation(orderNo);
             if (success) {
-                return Result.ok("确认成功");
+                return Result.success("确认成功");
             } else {
                 return Result.fail("404", "未找到可确认的预留记录");
             }
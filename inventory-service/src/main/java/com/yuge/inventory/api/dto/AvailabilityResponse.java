@@ -0,0 +1,41 @@
+package com.yuge.inventory.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 可售库存响应DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityResponse {
+
+    /**
+     * SKU ID
+     */
+    private Long skuId;
+
+    /**
+     * 仓库ID
+     */
+    private Long warehouseId;
+
+    /**
+     * 可用库存（Redis，未同步时为0）
+     */
+    private Integer availableQty;
+
+    /**
+     * 需求数量
+     */
+    private Integer requestQty;
+
+    /**
+     * 是否充足
+     */
+    private Boolean sufficient;
+}
@@ -0,0 +1,40 @@
+package com.yuge.inventory.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量可售库存查询请求
+ */
+@Data
+public class BatchAvailabilityRequest {
+
+    /**
+     * 查询项（单次最多200个）
+     */
+    @NotEmpty(message = "查询列表不能为空")
+    @Size(max = 200, message = "单次最多查询200个SKU")
+    @Valid
+    private List<Item> items;
+
+    @Data
+    public static class Item {
+        @NotNull(message = "SKU ID不能为空")
+        private Long skuId;
+
+        /**
+         * 仓库ID（为空表示所有仓库合计）
+         */
+        private Long warehouseId;
+
+        /**
+         * 需求数量（可选，用于判断是否充足）
+         */
+        private Integer requestQty;
+    }
+}
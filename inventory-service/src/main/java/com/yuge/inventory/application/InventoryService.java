@@ -5,6 +5,11 @@ import com.yuge.inventory.domain.entity.InventoryReservation;
 import com.yuge.inventory.domain.entity.InventoryTxn;
 import com.yuge.inventory.domain.enums.ReservationStatus;
 import com.yuge.inventory.domain.enums.StockErrorCode;
+import com.yuge.inventory.domain.allocation.WarehouseAllocator;
+import com.yuge.inventory.domain.allocation.WarehouseAllocator.AllocationResult;
+import com.yuge.inventory.infrastructure.cache.AvailabilityNearCache;
+import com.yuge.inventory.infrastructure.cache.WarehouseStockIndex;
+import com.yuge.inventory.infrastructure.expiry.ReservationExpiryScheduler;
 import com.yuge.inventory.infrastructure.redis.InventoryRedisService;
 import com.yuge.inventory.infrastructure.redis.InventoryRedisService.ReserveItem;
 import com.yuge.inventory.infrastructure.redis.InventoryRedisService.ReserveResult;
@@ -21,7 +26,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -29,8 +37,8 @@ import java.util.Optional;
  * 
  * 核心流程：
  * 1. TryReserve: Redis Lua原子预扣 -> 落库reservation（幂等）
- * 2. Confirm: 更新reservation状态 -> 更新DB库存
- * 3. Release: 更新reservation状态 -> Redis归还 -> 更新DB库存
+ * 2. Confirm: 更新reservation状态 -> 更新DB库存（整单一条条件更新）
+ * 3. Release: 更新reservation状态 -> Redis归还 -> 更新DB库存（整单一条条件更新）
  */
 @Slf4j
 @Service
@@ -46,6 +54,11 @@ public class InventoryService {
     private final InventoryRepository inventoryRepository;
     private final InventoryReservationRepository reservationRepository;
     private final InventoryTxnRepository txnRepository;
+    private final ReservationExpiryScheduler expiryScheduler;
+    private final AvailabilityNearCache nearCache;
+    private final WarehouseStockIndex stockIndex;
+
+    private final WarehouseAllocator warehouseAllocator = new WarehouseAllocator();
 
     /**
      * 尝试预留库存（单个SKU）
@@ -158,6 +171,9 @@ public class InventoryService {
             );
             txnRepository.save(txn);
 
+            // 7. 登记过期时间（事务提交后入时间轮）
+            expiryScheduler.schedule(orderNo, reservation.getExpireAt());
+
             log.info("[InventoryService] tryReserve success, orderNo={}, skuId={}, qty={}", 
                     orderNo, skuId, qty);
             return ReserveResponse.success(orderNo, "预留成功");
@@ -265,6 +281,9 @@ public class InventoryService {
                 txnRepository.saveBatch(txns);
             }
 
+            // 5. 登记过期时间（按订单一条，事务提交后入时间轮）
+            expiryScheduler.schedule(orderNo, expireAt);
+
             log.info("[InventoryService] tryBatchReserve success, orderNo={}, itemCount={}", 
                     orderNo, items.size());
             return ReserveResponse.success(orderNo, "批量预留成功");
@@ -278,13 +297,105 @@ public class InventoryService {
         }
     }
 
+    /**
+     * 分配仓库并批量预留
+     *
+     * 流程：
+     * 1. 幂等：订单已有预留时直接返回已有的仓库分配（重试不会重新分配到其他仓库）
+     * 2. 指定了仓库的行按原仓库预留，未指定的行由 WarehouseAllocator 基于内存索引分配（不访问DB）
+     * 3. 所有仓库的预留合并为一次 tryBatchReserve（一次Redis Lua）
+     * 4. 因索引滞后导致库存不足时，按SKU刷新索引后重新分配一次
+     *
+     * @param items warehouseId 为空表示由系统分配
+     * @return 成功时 items 为实际预留的仓库明细
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public ReserveResponse allocateAndReserve(String orderNo, List<ReserveItem> items) {
+        List<InventoryReservation> existing = reservationRepository.findByOrderNo(orderNo);
+        if (!existing.isEmpty() && existing.stream().allMatch(r -> r.isReserved() || r.isConfirmed())) {
+            log.info("[InventoryService] allocateAndReserve idempotent, orderNo={}", orderNo);
+            ReserveResponse response = ReserveResponse.success(orderNo, "已预留（幂等）");
+            response.setItems(existing.stream()
+                    .map(r -> ReserveItem.builder()
+                            .skuId(r.getSkuId())
+                            .warehouseId(r.getWarehouseId())
+                            .qty(r.getQty())
+                            .build())
+                    .toList());
+            return response;
+        }
+
+        ReserveResponse response = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<ReserveItem> allocated = allocate(items);
+            if (allocated == null) {
+                response = ReserveResponse.fail(orderNo, StockErrorCode.INSUFFICIENT_STOCK, "库存不足（仓库分配失败）");
+            } else {
+                response = tryBatchReserve(orderNo, allocated);
+                response.setItems(allocated);
+                if (response.isSuccess()) {
+                    return response;
+                }
+            }
+            if (response.getErrorCode() != StockErrorCode.INSUFFICIENT_STOCK) {
+                return response;
+            }
+            // 索引可能滞后，刷新后重试一次
+            stockIndex.refresh(items.stream().map(ReserveItem::getSkuId).distinct().toList());
+        }
+        return response;
+    }
+
+    /**
+     * 仓库分配：指定仓库的行保持不变，其余行按内存索引分配
+     *
+     * @return null 表示库存不足
+     */
+    private List<ReserveItem> allocate(List<ReserveItem> items) {
+        List<ReserveItem> result = new ArrayList<>();
+        Map<Long, Integer> unassigned = new LinkedHashMap<>();
+        for (ReserveItem item : items) {
+            if (item.getWarehouseId() != null) {
+                result.add(item);
+            } else {
+                unassigned.merge(item.getSkuId(), item.getQty(), Integer::sum);
+            }
+        }
+        if (unassigned.isEmpty()) {
+            return result;
+        }
+
+        List<WarehouseAllocator.Line> lines = new ArrayList<>(unassigned.size());
+        unassigned.forEach((skuId, qty) -> lines.add(new WarehouseAllocator.Line(skuId, qty)));
+
+        long startNanos = System.nanoTime();
+        AllocationResult allocation = warehouseAllocator.allocate(lines, stockIndex::getWarehouses);
+        log.debug("[InventoryService] allocate, lines={}, success={}, costUs={}",
+                lines.size(), allocation.isSuccess(), (System.nanoTime() - startNanos) / 1000);
+
+        if (!allocation.isSuccess()) {
+            log.info("[InventoryService] allocate insufficient, shortSkuId={}", allocation.getShortSkuId());
+            return null;
+        }
+        for (WarehouseAllocator.Allocation a : allocation.getAllocations()) {
+            result.add(ReserveItem.builder()
+                    .skuId(a.getSkuId())
+                    .warehouseId(a.getWarehouseId())
+                    .qty(a.getQty())
+                    .build());
+        }
+        return result;
+    }
+
     /**
      * 确认预留（订单支付成功后调用）
      * 
      * 流程：
-     * 1. 更新reservation状态为CONFIRMED
-     * 2. 更新DB库存（reserved减少）
-     * 3. 记录流水
+     * 1. 整单reservation状态一次更新为CONFIRMED（以状态为守卫，不比较version）
+     * 2. 整单DB库存一次条件更新（reserved减少，守卫 reserved_qty >= qty）
+     * 3. 一次查询读取后像，批量记录流水
+     * 
+     * DB往返固定5次（与SKU数无关）
      */
     @Transactional(rollbackFor = Exception.class)
     public boolean confirmReservation(String orderNo) {
@@ -305,50 +416,45 @@ public class InventoryService {
             return false;
         }
 
-        List<InventoryTxn> txns = new ArrayList<>();
+        // 更新reservation状态
+        if (!transitReservations(orderNo, reservations, ReservationStatus.CONFIRMED)) {
+            return true;
+        }
 
-        for (InventoryReservation reservation : reservations) {
-            // 更新reservation状态
-            boolean updated = reservationRepository.casUpdateStatus(
-                    reservation.getId(),
-                    ReservationStatus.RESERVED,
-                    ReservationStatus.CONFIRMED,
-                    reservation.getVersion()
-            );
+        // 更新DB库存
+        List<ReserveItem> items = toLocationItems(reservations);
+        int affected = inventoryRepository.batchConfirm(items);
+        if (affected < items.size()) {
+            log.error("[InventoryService] confirmReservation reserved_qty guard failed, need reconcile, " +
+                    "orderNo={}, expected={}, affected={}", orderNo, items.size(), affected);
+        }
 
-            if (!updated) {
-                log.warn("[InventoryService] confirmReservation CAS failed, orderNo={}, skuId={}",
-                        orderNo, reservation.getSkuId());
+        // 记录流水
+        Map<String, Inventory> afterImages = findAfterImages(items);
+        List<InventoryTxn> txns = new ArrayList<>(items.size());
+        for (ReserveItem item : items) {
+            Inventory after = afterImages.get(locationKey(item.getSkuId(), item.getWarehouseId()));
+            if (after == null) {
                 continue;
             }
-
-            // 更新DB库存
-            Inventory inventory = inventoryRepository.findBySkuIdAndWarehouseId(
-                    reservation.getSkuId(), reservation.getWarehouseId()).orElse(null);
-            if (inventory != null) {
-                inventoryRepository.casConfirm(reservation.getSkuId(), reservation.getWarehouseId(),
-                        reservation.getQty(), inventory.getVersion());
-
-                // 记录流水
-                Inventory updated2 = inventoryRepository.findBySkuIdAndWarehouseId(
-                        reservation.getSkuId(), reservation.getWarehouseId()).orElse(inventory);
-                txns.add(InventoryTxn.buildConfirmTxn(
-                        IdUtil.fastSimpleUUID(),
-                        orderNo,
-                        reservation.getSkuId(),
-                        reservation.getWarehouseId(),
-                        reservation.getQty(),
-                        updated2.getAvailableQty(),
-                        updated2.getReservedQty(),
-                        TraceContext.getTraceId()
-                ));
-            }
+            txns.add(InventoryTxn.buildConfirmTxn(
+                    IdUtil.fastSimpleUUID(),
+                    orderNo,
+                    item.getSkuId(),
+                    item.getWarehouseId(),
+                    item.getQty(),
+                    after.getAvailableQty(),
+                    after.getReservedQty(),
+                    TraceContext.getTraceId()
+            ));
         }
 
         if (!txns.isEmpty()) {
             txnRepository.saveBatch(txns);
         }
 
+        expiryScheduler.cancel(orderNo);
+
         log.info("[InventoryService] confirmReservation success, orderNo={}", orderNo);
         return true;
     }
@@ -357,10 +463,12 @@ public class InventoryService {
      * 释放预留（订单取消或超时）
      * 
      * 流程：
-     * 1. 更新reservation状态为RELEASED
+     * 1. 整单reservation状态一次更新为RELEASED（以状态为守卫，不比较version）
      * 2. Redis归还库存
-     * 3. 更新DB库存（available增加，reserved减少）
-     * 4. 记录流水
+     * 3. 整单DB库存一次条件更新（available增加，reserved减少，守卫 reserved_qty >= qty）
+     * 4. 一次查询读取后像，批量记录流水
+     * 
+     * DB往返固定5次（与SKU数无关）
      */
     @Transactional(rollbackFor = Exception.class)
     public boolean releaseReservation(String orderNo, String reason) {
@@ -381,65 +489,124 @@ public class InventoryService {
             return false;
         }
 
-        List<InventoryTxn> txns = new ArrayList<>();
-        List<ReserveItem> releaseItems = new ArrayList<>();
+        // 更新reservation状态
+        if (!transitReservations(orderNo, reservations, ReservationStatus.RELEASED)) {
+            return true;
+        }
 
-        for (InventoryReservation reservation : reservations) {
-            // 更新reservation状态
-            boolean updated = reservationRepository.casUpdateStatus(
-                    reservation.getId(),
-                    ReservationStatus.RESERVED,
-                    ReservationStatus.RELEASED,
-                    reservation.getVersion()
-            );
+        List<ReserveItem> items = toLocationItems(reservations);
+
+        // Redis批量释放
+        redisService.batchRelease(orderNo, items);
 
-            if (!updated) {
-                log.warn("[InventoryService] releaseReservation CAS failed, orderNo={}, skuId={}",
-                        orderNo, reservation.getSkuId());
+        // 更新DB库存
+        int affected = inventoryRepository.batchRelease(items);
+        if (affected < items.size()) {
+            log.error("[InventoryService] releaseReservation reserved_qty guard failed, need reconcile, " +
+                    "orderNo={}, expected={}, affected={}", orderNo, items.size(), affected);
+        }
+
+        // 记录流水
+        Map<String, Inventory> afterImages = findAfterImages(items);
+        List<InventoryTxn> txns = new ArrayList<>(items.size());
+        for (ReserveItem item : items) {
+            Inventory after = afterImages.get(locationKey(item.getSkuId(), item.getWarehouseId()));
+            if (after == null) {
                 continue;
             }
+            txns.add(InventoryTxn.buildReleaseTxn(
+                    IdUtil.fastSimpleUUID(),
+                    orderNo,
+                    item.getSkuId(),
+                    item.getWarehouseId(),
+                    item.getQty(),
+                    after.getAvailableQty(),
+                    after.getReservedQty(),
+                    reason,
+                    TraceContext.getTraceId()
+            ));
+        }
 
-            releaseItems.add(ReserveItem.builder()
+        if (!txns.isEmpty()) {
+            txnRepository.saveBatch(txns);
+        }
+
+        expiryScheduler.cancel(orderNo);
+
+        log.info("[InventoryService] releaseReservation success, orderNo={}", orderNo);
+        return true;
+    }
+
+    /**
+     * 整单更新预留状态（RESERVED -> newStatus）
+     * 
+     * 一条UPDATE以 status = RESERVED 为守卫，行锁保证并发的确认/释放只有一个生效；
+     * 更新行数与读取到的预留数不一致说明读取后状态已变化，抛异常回滚由调用方重试
+     *
+     * @return false 表示已被并发请求处理
+     */
+    private boolean transitReservations(String orderNo, List<InventoryReservation> reservations,
+                                        ReservationStatus newStatus) {
+        int updated = reservationRepository.batchUpdateStatusByOrderNo(
+                orderNo, ReservationStatus.RESERVED, newStatus);
+        if (updated == 0) {
+            log.warn("[InventoryService] transitReservations concurrently handled, orderNo={}, newStatus={}",
+                    orderNo, newStatus);
+            return false;
+        }
+        if (updated != reservations.size()) {
+            throw new IllegalStateException("预留状态并发变更, orderNo=" + orderNo
+                    + ", expected=" + reservations.size() + ", updated=" + updated);
+        }
+        return true;
+    }
+
+    /**
+     * 预留记录转为库存位置明细（同一库存位置合并数量，保证批量条件更新中每行只出现一次）
+     */
+    private List<ReserveItem> toLocationItems(List<InventoryReservation> reservations) {
+        List<ReserveItem> items = new ArrayList<>(reservations.size());
+        for (InventoryReservation reservation : reservations) {
+            items.add(ReserveItem.builder()
                     .skuId(reservation.getSkuId())
                     .warehouseId(reservation.getWarehouseId())
                     .qty(reservation.getQty())
                     .build());
-
-            // 更新DB库存
-            Inventory inventory = inventoryRepository.findBySkuIdAndWarehouseId(
-                    reservation.getSkuId(), reservation.getWarehouseId()).orElse(null);
-            if (inventory != null) {
-                inventoryRepository.casRelease(reservation.getSkuId(), reservation.getWarehouseId(),
-                        reservation.getQty(), inventory.getVersion());
-
-                // 记录流水
-                Inventory updated2 = inventoryRepository.findBySkuIdAndWarehouseId(
-                        reservation.getSkuId(), reservation.getWarehouseId()).orElse(inventory);
-                txns.add(InventoryTxn.buildReleaseTxn(
-                        IdUtil.fastSimpleUUID(),
-                        orderNo,
-                        reservation.getSkuId(),
-                        reservation.getWarehouseId(),
-                        reservation.getQty(),
-                        updated2.getAvailableQty(),
-                        updated2.getReservedQty(),
-                        reason,
-                        TraceContext.getTraceId()
-                ));
-            }
         }
+        return mergeByLocation(items);
+    }
 
-        // Redis批量释放
-        if (!releaseItems.isEmpty()) {
-            redisService.batchRelease(orderNo, releaseItems);
+    private List<ReserveItem> mergeByLocation(List<ReserveItem> items) {
+        Map<String, ReserveItem> merged = new LinkedHashMap<>();
+        for (ReserveItem item : items) {
+            merged.merge(locationKey(item.getSkuId(), item.getWarehouseId()),
+                    ReserveItem.builder()
+                            .skuId(item.getSkuId())
+                            .warehouseId(item.getWarehouseId())
+                            .qty(item.getQty())
+                            .build(),
+                    (a, b) -> {
+                        a.setQty(a.getQty() + b.getQty());
+                        return a;
+                    });
         }
+        return new ArrayList<>(merged.values());
+    }
 
-        if (!txns.isEmpty()) {
-            txnRepository.saveBatch(txns);
+    /**
+     * 读取条件更新后的后像
+     * MySQL 无 UPDATE ... RETURNING，本事务已持有这些行的行锁，一次查询读到的即为本次更新后的值
+     */
+    private Map<String, Inventory> findAfterImages(List<ReserveItem> items) {
+        Map<String, Inventory> result = new HashMap<>();
+        for (Inventory inventory : inventoryRepository.findByLocations(items)) {
+            result.put(locationKey(inventory.getSkuId(), inventory.getWarehouseId()), inventory);
         }
+        return result;
+    }
 
-        log.info("[InventoryService] releaseReservation success, orderNo={}", orderNo);
-        return true;
+    private String locationKey(Long skuId, Long warehouseId) {
+        return skuId + ":" + warehouseId;
     }
 
     /**
@@ -449,6 +616,59 @@ public class InventoryService {
         return inventoryRepository.findBySkuIdAndWarehouseId(skuId, warehouseId);
     }
 
+    /**
+     * 查询可售库存（本地缓存 -> Redis）
+     *
+     * @return 可用库存，null表示Redis中不存在
+     */
+    public Integer getAvailableQty(Long skuId, Long warehouseId) {
+        Integer cached = nearCache.get(warehouseId, skuId);
+        if (cached != null) {
+            return cached;
+        }
+        Integer available = redisService.getAvailableQty(warehouseId, skuId);
+        nearCache.put(warehouseId, skuId, available);
+        return available;
+    }
+
+    /**
+     * 批量查询可售库存（本地缓存命中的直接返回，未命中的一次Redis MGET）
+     *
+     * @param items 查询项（warehouseId/skuId），warehouseId为空时返回所有仓库合计
+     * @return 与入参顺序一致的可用库存，null表示Redis中不存在
+     */
+    public List<Integer> batchGetAvailableQty(List<ReserveItem> items) {
+        List<Integer> results = new ArrayList<>(items.size());
+        List<Integer> missIndexes = new ArrayList<>();
+        List<ReserveItem> missItems = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            ReserveItem item = items.get(i);
+            if (item.getWarehouseId() == null) {
+                // 未指定仓库：所有仓库合计（内存索引）
+                results.add(stockIndex.getWarehouses(item.getSkuId()).isEmpty()
+                        ? null : stockIndex.getTotalAvailable(item.getSkuId()));
+                continue;
+            }
+            Integer cached = nearCache.get(item.getWarehouseId(), item.getSkuId());
+            results.add(cached);
+            if (cached == null) {
+                missIndexes.add(i);
+                missItems.add(item);
+            }
+        }
+
+        if (!missItems.isEmpty()) {
+            List<Integer> loaded = redisService.batchGetAvailableQty(missItems);
+            for (int i = 0; i < missItems.size(); i++) {
+                ReserveItem item = missItems.get(i);
+                Integer available = loaded.get(i);
+                results.set(missIndexes.get(i), available);
+                nearCache.put(item.getWarehouseId(), item.getSkuId(), available);
+            }
+        }
+        return results;
+    }
+
     /**
      * 查询SKU所有仓库库存
      */
@@ -491,73 +711,94 @@ public class InventoryService {
         log.info("[InventoryService] refundRestore start, orderNo={}, asNo={}, skuId={}, warehouseId={}, qty={}",
                 orderNo, asNo, skuId, warehouseId, qty);
 
-        // 1. 查询库存
-        Inventory inventory = inventoryRepository.findBySkuIdAndWarehouseId(skuId, warehouseId)
-                .orElse(null);
-        
-        if (inventory == null) {
-            log.warn("[InventoryService] refundRestore inventory not found, skuId={}, warehouseId={}", 
-                    skuId, warehouseId);
-            return false;
-        }
+        int restored = doRefundRestore(orderNo, asNo, List.of(ReserveItem.builder()
+                .skuId(skuId)
+                .warehouseId(warehouseId)
+                .qty(qty)
+                .build()));
 
-        // 2. CAS更新DB库存（available增加）
-        boolean dbUpdated = inventoryRepository.casRefundRestore(skuId, warehouseId, qty, inventory.getVersion());
-        if (!dbUpdated) {
-            log.warn("[InventoryService] refundRestore DB CAS failed, skuId={}, warehouseId={}", skuId, warehouseId);
-            // 重试一次
-            inventory = inventoryRepository.findBySkuIdAndWarehouseId(skuId, warehouseId).orElse(inventory);
-            dbUpdated = inventoryRepository.casRefundRestore(skuId, warehouseId, qty, inventory.getVersion());
-            if (!dbUpdated) {
-                log.error("[InventoryService] refundRestore DB CAS failed after retry, skuId={}", skuId);
-                return false;
-            }
-        }
-
-        // 3. 同步Redis库存（增加available）
-        redisService.restoreAvailable(warehouseId, skuId, qty);
-
-        // 4. 记录流水
-        Inventory updatedInventory = inventoryRepository.findBySkuIdAndWarehouseId(skuId, warehouseId)
-                .orElse(inventory);
-        InventoryTxn txn = InventoryTxn.buildRefundRestoreTxn(
-                IdUtil.fastSimpleUUID(),
-                orderNo,
-                skuId,
-                warehouseId,
-                qty,
-                updatedInventory.getAvailableQty(),
-                updatedInventory.getReservedQty(),
-                asNo,
-                TraceContext.getTraceId()
-        );
-        txnRepository.save(txn);
-
-        log.info("[InventoryService] refundRestore success, orderNo={}, asNo={}, skuId={}, qty={}",
-                orderNo, asNo, skuId, qty);
-        return true;
+        log.info("[InventoryService] refundRestore {}, orderNo={}, asNo={}, skuId={}, qty={}",
+                restored > 0 ? "success" : "failed", orderNo, asNo, skuId, qty);
+        return restored > 0;
     }
 
     /**
      * 批量退款回补库存
+     * 
+     * 整个售后单一条条件更新（available只增不减，无需version比较，不会因并发冲突重试）
      */
     @Transactional(rollbackFor = Exception.class)
     public boolean batchRefundRestore(String orderNo, String asNo, List<RefundRestoreItem> items) {
         log.info("[InventoryService] batchRefundRestore start, orderNo={}, asNo={}, itemCount={}",
                 orderNo, asNo, items.size());
 
+        List<ReserveItem> restoreItems = new ArrayList<>(items.size());
         for (RefundRestoreItem item : items) {
-            boolean success = refundRestore(orderNo, asNo, item.getSkuId(), item.getWarehouseId(), item.getQty());
-            if (!success) {
-                log.warn("[InventoryService] batchRefundRestore partial failed, skuId={}", item.getSkuId());
-                // 继续处理其他SKU，不中断
-            }
+            restoreItems.add(ReserveItem.builder()
+                    .skuId(item.getSkuId())
+                    .warehouseId(item.getWarehouseId())
+                    .qty(item.getQty())
+                    .build());
+        }
+        int restored = doRefundRestore(orderNo, asNo, restoreItems);
+        if (restored < items.size()) {
+            // 继续处理其他SKU，不中断
+            log.warn("[InventoryService] batchRefundRestore partial failed, orderNo={}, asNo={}, restored={}/{}",
+                    orderNo, asNo, restored, items.size());
         }
 
         log.info("[InventoryService] batchRefundRestore completed, orderNo={}, asNo={}", orderNo, asNo);
         return true;
     }
 
+    /**
+     * 退款回补：一次条件更新 + 一次后像查询 + 一次流水批量写入
+     *
+     * @return 成功回补的库存位置数（库存记录不存在的位置跳过）
+     */
+    private int doRefundRestore(String orderNo, String asNo, List<ReserveItem> items) {
+        List<ReserveItem> merged = mergeByLocation(items);
+
+        // 1. 条件更新DB库存（available增加）
+        int affected = inventoryRepository.batchRefundRestore(merged);
+        if (affected == 0) {
+            log.warn("[InventoryService] refundRestore inventory not found, orderNo={}, asNo={}", orderNo, asNo);
+            return 0;
+        }
+
+        Map<String, Inventory> afterImages = findAfterImages(merged);
+        List<InventoryTxn> txns = new ArrayList<>(merged.size());
+        for (ReserveItem item : merged) {
+            Inventory after = afterImages.get(locationKey(item.getSkuId(), item.getWarehouseId()));
+            if (after == null) {
+                log.warn("[InventoryService] refundRestore inventory not found, skuId={}, warehouseId={}",
+                        item.getSkuId(), item.getWarehouseId());
+                continue;
+            }
+
+            // 2. 同步Redis库存（增加available）
+            redisService.restoreAvailable(item.getWarehouseId(), item.getSkuId(), item.getQty());
+
+            // 3. 记录流水
+            txns.add(InventoryTxn.buildRefundRestoreTxn(
+                    IdUtil.fastSimpleUUID(),
+                    orderNo,
+                    item.getSkuId(),
+                    item.getWarehouseId(),
+                    item.getQty(),
+                    after.getAvailableQty(),
+                    after.getReservedQty(),
+                    asNo,
+                    TraceContext.getTraceId()
+            ));
+        }
+
+        if (!txns.isEmpty()) {
+            txnRepository.saveBatch(txns);
+        }
+        return txns.size();
+    }
+
     /**
      * 退款回补明细
      */
@@ -583,6 +824,10 @@ public class InventoryService {
         private String orderNo;
         private String message;
         private StockErrorCode errorCode;
+        /**
+         * 实际预留明细（含分配的仓库）
+         */
+        private List<ReserveItem> items;
 
         public static ReserveResponse success(String orderNo, String message) {
             return ReserveResponse.builder()
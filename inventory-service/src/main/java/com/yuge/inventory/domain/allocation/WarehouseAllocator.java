@@ -0,0 +1,217 @@
+package com.yuge.inventory.domain.allocation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 多仓分配器
+ *
+ * 目标：包裹数最少（尽量单仓发货），其次优先库存更充足的仓库，结果确定（同输入同输出）
+ *
+ * 策略：
+ * 1. 存在能满足整单的仓库时，选择整单发货后剩余库存最多的仓库（平局取仓库ID小的）
+ * 2. 否则逐行分配：
+ *    a. 已选仓库能满足该行，直接使用（不增加包裹）
+ *    b. 否则选择能满足该行、且能满足剩余行数最多的仓库
+ *    c. 都不能满足时拆分：先用已选仓库，再按可用库存从多到少补齐
+ * 3. 总量不足时返回失败及不足的SKU
+ *
+ * 纯内存计算，不访问DB/Redis；库存来源由调用方提供（见 WarehouseStockIndex）
+ */
+public class WarehouseAllocator {
+
+    /**
+     * 分配
+     *
+     * @param lines      订单行（同一SKU只出现一次）
+     * @param stockLookup skuId -> (warehouseId -> 可用库存)
+     */
+    public AllocationResult allocate(List<Line> lines, Function<Long, Map<Long, Integer>> stockLookup) {
+        // 复制一份库存，分配过程中扣减
+        Map<Long, Map<Long, Integer>> stock = new HashMap<>();
+        for (Line line : lines) {
+            stock.put(line.getSkuId(), new HashMap<>(stockLookup.apply(line.getSkuId())));
+        }
+
+        // 1. 单仓满足整单
+        Long singleWarehouse = findSingleWarehouse(lines, stock);
+        if (singleWarehouse != null) {
+            List<Allocation> allocations = new ArrayList<>(lines.size());
+            for (Line line : lines) {
+                allocations.add(new Allocation(line.getSkuId(), singleWarehouse, line.getQty()));
+            }
+            return AllocationResult.success(allocations);
+        }
+
+        // 2. 逐行分配（数量大的行优先，更难满足）
+        List<Line> sorted = new ArrayList<>(lines);
+        sorted.sort(Comparator.comparingInt(Line::getQty).reversed().thenComparing(Line::getSkuId));
+
+        Set<Long> usedWarehouses = new LinkedHashSet<>();
+        List<Allocation> allocations = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            Line line = sorted.get(i);
+            Map<Long, Integer> warehouses = stock.get(line.getSkuId());
+
+            Long warehouseId = pickFullWarehouse(line, warehouses, usedWarehouses, sorted.subList(i + 1, sorted.size()), stock);
+            if (warehouseId != null) {
+                allocations.add(new Allocation(line.getSkuId(), warehouseId, line.getQty()));
+                warehouses.merge(warehouseId, -line.getQty(), Integer::sum);
+                usedWarehouses.add(warehouseId);
+                continue;
+            }
+
+            List<Allocation> split = split(line, warehouses, usedWarehouses);
+            if (split == null) {
+                return AllocationResult.fail(line.getSkuId());
+            }
+            for (Allocation allocation : split) {
+                warehouses.merge(allocation.getWarehouseId(), -allocation.getQty(), Integer::sum);
+                usedWarehouses.add(allocation.getWarehouseId());
+            }
+            allocations.addAll(split);
+        }
+        return AllocationResult.success(allocations);
+    }
+
+    private Long findSingleWarehouse(List<Line> lines, Map<Long, Map<Long, Integer>> stock) {
+        Long best = null;
+        long bestRemaining = -1;
+        for (Long warehouseId : stock.get(lines.get(0).getSkuId()).keySet()) {
+            long remaining = 0;
+            boolean satisfied = true;
+            for (Line line : lines) {
+                int available = stock.get(line.getSkuId()).getOrDefault(warehouseId, 0);
+                if (available < line.getQty()) {
+                    satisfied = false;
+                    break;
+                }
+                remaining += available - line.getQty();
+            }
+            if (satisfied && (remaining > bestRemaining
+                    || (remaining == bestRemaining && warehouseId < best))) {
+                best = warehouseId;
+                bestRemaining = remaining;
+            }
+        }
+        return best;
+    }
+
+    private Long pickFullWarehouse(Line line, Map<Long, Integer> warehouses, Set<Long> usedWarehouses,
+                                   List<Line> remainingLines, Map<Long, Map<Long, Integer>> stock) {
+        for (Long used : usedWarehouses) {
+            if (warehouses.getOrDefault(used, 0) >= line.getQty()) {
+                return used;
+            }
+        }
+
+        Long best = null;
+        int bestCoverage = -1;
+        int bestAvailable = -1;
+        for (Map.Entry<Long, Integer> entry : warehouses.entrySet()) {
+            Long warehouseId = entry.getKey();
+            int available = entry.getValue();
+            if (available < line.getQty()) {
+                continue;
+            }
+            int coverage = 0;
+            for (Line other : remainingLines) {
+                if (stock.get(other.getSkuId()).getOrDefault(warehouseId, 0) >= other.getQty()) {
+                    coverage++;
+                }
+            }
+            if (coverage > bestCoverage
+                    || (coverage == bestCoverage && available > bestAvailable)
+                    || (coverage == bestCoverage && available == bestAvailable && warehouseId < best)) {
+                best = warehouseId;
+                bestCoverage = coverage;
+                bestAvailable = available;
+            }
+        }
+        return best;
+    }
+
+    private List<Allocation> split(Line line, Map<Long, Integer> warehouses, Set<Long> usedWarehouses) {
+        List<Map.Entry<Long, Integer>> candidates = new ArrayList<>(warehouses.entrySet());
+        candidates.removeIf(entry -> entry.getValue() <= 0);
+        candidates.sort((a, b) -> {
+            boolean aUsed = usedWarehouses.contains(a.getKey());
+            boolean bUsed = usedWarehouses.contains(b.getKey());
+            if (aUsed != bUsed) {
+                return aUsed ? -1 : 1;
+            }
+            int byQty = Integer.compare(b.getValue(), a.getValue());
+            return byQty != 0 ? byQty : Long.compare(a.getKey(), b.getKey());
+        });
+
+        List<Allocation> result = new ArrayList<>();
+        int remaining = line.getQty();
+        for (Map.Entry<Long, Integer> candidate : candidates) {
+            int take = Math.min(remaining, candidate.getValue());
+            result.add(new Allocation(line.getSkuId(), candidate.getKey(), take));
+            remaining -= take;
+            if (remaining == 0) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 订单行
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long skuId;
+        private int qty;
+    }
+
+    /**
+     * 分配明细
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Allocation {
+        private Long skuId;
+        private Long warehouseId;
+        private int qty;
+    }
+
+    /**
+     * 分配结果
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AllocationResult {
+        private boolean success;
+        private List<Allocation> allocations;
+        /**
+         * 库存不足的SKU
+         */
+        private Long shortSkuId;
+
+        public static AllocationResult success(List<Allocation> allocations) {
+            return new AllocationResult(true, allocations, null);
+        }
+
+        public static AllocationResult fail(Long shortSkuId) {
+            return new AllocationResult(false, List.of(), shortSkuId);
+        }
+    }
+}
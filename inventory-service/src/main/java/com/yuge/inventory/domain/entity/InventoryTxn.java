@@ -12,6 +12,8 @@ import java.time.LocalDateTime;
 /**
  * 库存流水实体
  * 记录所有库存变动，用于审计和问题排查
+ *
+ * 只存储变化量和变更后数量，变更前数量由 after - delta 计算
  */
 @Data
 @TableName("t_inventory_txn")
@@ -85,6 +87,26 @@ public class InventoryTxn implements Serializable {
      */
     private LocalDateTime createdAt;
 
+    /**
+     * 变更前可用库存
+     */
+    public Integer getAvailableBefore() {
+        if (availableAfter == null || deltaAvailable == null) {
+            return null;
+        }
+        return availableAfter - deltaAvailable;
+    }
+
+    /**
+     * 变更前预留库存
+     */
+    public Integer getReservedBefore() {
+        if (reservedAfter == null || deltaReserved == null) {
+            return null;
+        }
+        return reservedAfter - deltaReserved;
+    }
+
     /**
      * 获取原因枚举
      */
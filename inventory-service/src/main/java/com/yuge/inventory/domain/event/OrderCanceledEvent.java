@@ -0,0 +1,48 @@
+package com.yuge.inventory.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单取消事件（从order-service接收）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderCanceledEvent {
+
+    /**
+     * 事件ID
+     */
+    private String eventId;
+
+    /**
+     * 订单号
+     */
+    private String orderNo;
+
+    /**
+     * 取消原因
+     */
+    private String cancelReason;
+
+    /**
+     * 操作人
+     */
+    private String operator;
+
+    /**
+     * 事件时间
+     */
+    private LocalDateTime eventTime;
+
+    /**
+     * 追踪ID
+     */
+    private String traceId;
+}
@@ -0,0 +1,153 @@
+package com.yuge.inventory.infrastructure.cache;
+
+import com.yuge.inventory.infrastructure.redis.InventoryRedisService;
+import com.yuge.inventory.infrastructure.redis.InventoryRedisService.StockChange;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 可售库存本地缓存（Near Cache）
+ *
+ * 设计：
+ * 1. 缓存 Redis 中的可用库存，短TTL兜底（默认2秒）
+ * 2. 预留/释放/同步的 Lua 脚本会 PUBLISH inv:changed，各实例收到后立即失效对应条目
+ * 3. 低库存（<= low-stock-threshold）不缓存，每次直读Redis，避免展示超卖
+ * 4. 条目数超过上限时先清理过期条目，仍满则不再写入（只影响命中率，不影响正确性）
+ *
+ * 注意：缓存只用于展示类读接口，预留扣减始终以 Redis Lua 为准
+ */
+@Slf4j
+@Component
+public class AvailabilityNearCache {
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 是否启用本地缓存
+     */
+    @Value("${inventory.near-cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 缓存TTL（毫秒）
+     */
+    @Value("${inventory.near-cache.ttl-ms:2000}")
+    private long ttlMs;
+
+    /**
+     * 最大条目数
+     */
+    @Value("${inventory.near-cache.max-size:100000}")
+    private int maxSize;
+
+    /**
+     * 低库存阈值：可用库存不超过该值时不缓存
+     */
+    @Value("${inventory.near-cache.low-stock-threshold:10}")
+    private int lowStockThreshold;
+
+    public AvailabilityNearCache(RedisMessageListenerContainer listenerContainer) {
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        listenerContainer.addMessageListener((message, pattern) -> {
+            StockChange change = StockChange.parse(new String(message.getBody(), StandardCharsets.UTF_8));
+            if (change != null) {
+                invalidate(change.getWarehouseId(), change.getSkuId());
+            }
+        }, new ChannelTopic(InventoryRedisService.CHANGED_CHANNEL));
+        log.info("[AvailabilityNearCache] Initialized, ttlMs={}, maxSize={}, lowStockThreshold={}",
+                ttlMs, maxSize, lowStockThreshold);
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @return 可用库存，null表示未命中
+     */
+    public Integer get(Long warehouseId, Long skuId) {
+        if (!enabled) {
+            return null;
+        }
+        String key = buildKey(warehouseId, skuId);
+        Entry entry = cache.get(key);
+        if (entry == null || entry.expireAtMs < System.currentTimeMillis()) {
+            if (entry != null) {
+                cache.remove(key, entry);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.availableQty;
+    }
+
+    /**
+     * 写入缓存（低库存/不存在不缓存）
+     */
+    public void put(Long warehouseId, Long skuId, Integer availableQty) {
+        if (!enabled || availableQty == null || availableQty <= lowStockThreshold) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (cache.size() >= maxSize) {
+            cache.values().removeIf(entry -> entry.expireAtMs < now);
+            if (cache.size() >= maxSize) {
+                return;
+            }
+        }
+        cache.put(buildKey(warehouseId, skuId), new Entry(availableQty, now + ttlMs));
+    }
+
+    /**
+     * 失效缓存
+     */
+    public void invalidate(Long warehouseId, Long skuId) {
+        cache.remove(buildKey(warehouseId, skuId));
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private String buildKey(Long warehouseId, Long skuId) {
+        return warehouseId + ":" + skuId;
+    }
+
+    private static final class Entry {
+        private final int availableQty;
+        private final long expireAtMs;
+
+        private Entry(int availableQty, long expireAtMs) {
+            this.availableQty = availableQty;
+            this.expireAtMs = expireAtMs;
+        }
+    }
+}
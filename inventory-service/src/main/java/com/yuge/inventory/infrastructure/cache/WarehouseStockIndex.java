@@ -0,0 +1,168 @@
+package com.yuge.inventory.infrastructure.cache;
+
+import com.yuge.inventory.domain.entity.Inventory;
+import com.yuge.inventory.infrastructure.redis.InventoryRedisService;
+import com.yuge.inventory.infrastructure.redis.InventoryRedisService.ReserveItem;
+import com.yuge.inventory.infrastructure.redis.InventoryRedisService.StockChange;
+import com.yuge.inventory.infrastructure.repository.InventoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 仓库库存内存索引（SKU -> 仓库 -> 可用库存）
+ *
+ * 数据来源：
+ * 1. 启动时按主键分页加载所有库存位置，再批量 MGET Redis 取可用库存
+ * 2. 预留/释放/同步 Lua 脚本发布的 inv:changed 消息携带最新可用库存，收到后直接更新
+ * 3. 定时全量刷新，修复 Pub/Sub 丢消息或乱序造成的偏差
+ *
+ * 索引只作为仓库分配的参考，最终扣减以 Redis Lua 原子预扣为准；
+ * 分配后预扣失败时调用 refresh 按SKU重新加载再分配
+ */
+@Slf4j
+@Component
+public class WarehouseStockIndex {
+
+    private final InventoryRepository inventoryRepository;
+    private final InventoryRedisService redisService;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Map<Long, Map<Long, Integer>> index = new ConcurrentHashMap<>();
+
+    /**
+     * 加载时每页条数
+     */
+    @Value("${inventory.allocation.index-page-size:1000}")
+    private int pageSize;
+
+    public WarehouseStockIndex(InventoryRepository inventoryRepository,
+                               InventoryRedisService redisService,
+                               RedisMessageListenerContainer listenerContainer) {
+        this.inventoryRepository = inventoryRepository;
+        this.redisService = redisService;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            StockChange change = StockChange.parse(new String(message.getBody(), StandardCharsets.UTF_8));
+            if (change != null) {
+                apply(change.getSkuId(), change.getWarehouseId(), change.getAvailableQty());
+            }
+        }, new ChannelTopic(InventoryRedisService.CHANGED_CHANNEL));
+        reload();
+    }
+
+    /**
+     * 全量刷新
+     */
+    @Scheduled(fixedDelayString = "${inventory.allocation.index-refresh-ms:300000}",
+            initialDelayString = "${inventory.allocation.index-refresh-ms:300000}")
+    public void reload() {
+        long startTime = System.currentTimeMillis();
+        int total = 0;
+        Long afterId = 0L;
+        List<Inventory> page;
+        try {
+            do {
+                page = inventoryRepository.findLocationsAfterId(afterId, pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                loadFromRedis(page);
+                total += page.size();
+                afterId = page.get(page.size() - 1).getId();
+            } while (page.size() == pageSize);
+
+            log.info("[WarehouseStockIndex] Reloaded, locations={}, skus={}, costMs={}",
+                    total, index.size(), System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("[WarehouseStockIndex] Reload failed, loaded={}, error={}", total, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按SKU从Redis重新加载（分配结果预扣失败后调用）
+     */
+    public void refresh(Collection<Long> skuIds) {
+        List<ReserveItem> keys = new ArrayList<>();
+        for (Long skuId : skuIds) {
+            Map<Long, Integer> warehouses = index.get(skuId);
+            if (warehouses == null) {
+                continue;
+            }
+            for (Long warehouseId : warehouses.keySet()) {
+                keys.add(ReserveItem.builder().skuId(skuId).warehouseId(warehouseId).build());
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<Integer> values = redisService.batchGetAvailableQty(keys);
+        for (int i = 0; i < keys.size(); i++) {
+            apply(keys.get(i).getSkuId(), keys.get(i).getWarehouseId(), values.get(i));
+        }
+    }
+
+    /**
+     * 获取SKU在各仓库的可用库存（只读快照）
+     */
+    public Map<Long, Integer> getWarehouses(Long skuId) {
+        Map<Long, Integer> warehouses = index.get(skuId);
+        return warehouses != null ? Collections.unmodifiableMap(warehouses) : Collections.emptyMap();
+    }
+
+    /**
+     * 获取SKU所有仓库可用库存之和
+     */
+    public int getTotalAvailable(Long skuId) {
+        int total = 0;
+        for (Integer qty : getWarehouses(skuId).values()) {
+            total += qty;
+        }
+        return total;
+    }
+
+    /**
+     * 更新单个库存位置（null表示Redis中不存在，从索引移除）
+     */
+    public void apply(Long skuId, Long warehouseId, Integer availableQty) {
+        if (availableQty == null) {
+            Map<Long, Integer> warehouses = index.get(skuId);
+            if (warehouses != null) {
+                warehouses.remove(warehouseId);
+            }
+            return;
+        }
+        index.computeIfAbsent(skuId, k -> new ConcurrentHashMap<>(4)).put(warehouseId, availableQty);
+    }
+
+    private void loadFromRedis(List<Inventory> locations) {
+        List<ReserveItem> keys = new ArrayList<>(locations.size());
+        for (Inventory inventory : locations) {
+            keys.add(ReserveItem.builder()
+                    .skuId(inventory.getSkuId())
+                    .warehouseId(inventory.getWarehouseId())
+                    .build());
+        }
+        List<Integer> values = redisService.batchGetAvailableQty(keys);
+        for (int i = 0; i < keys.size(); i++) {
+            apply(keys.get(i).getSkuId(), keys.get(i).getWarehouseId(), values.get(i));
+        }
+    }
+}
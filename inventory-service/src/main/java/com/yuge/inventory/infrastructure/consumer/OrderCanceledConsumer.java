@@ -0,0 +1,60 @@
+package com.yuge.inventory.infrastructure.consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.inventory.application.InventoryService;
+import com.yuge.inventory.domain.event.OrderCanceledEvent;
+import com.yuge.platform.infra.mq.BaseEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
+import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 订单取消事件消费者 - 释放库存预留
+ *
+ * 订单取消（用户取消、支付超时自动取消）后立即释放预留，不等待 ReservationTimeoutTask；
+ * releaseReservation 以预留状态为守卫，重复消费幂等
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@RocketMQMessageListener(
+        topic = "ORDER_TOPIC",
+        selectorExpression = "ORDER_CANCELED",
+        consumerGroup = "inventory-order-canceled-group"
+)
+public class OrderCanceledConsumer implements RocketMQListener<MessageExt> {
+
+    private final InventoryService inventoryService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void onMessage(MessageExt messageExt) {
+        OrderCanceledEvent event;
+        try {
+            String body = new String(messageExt.getBody(), StandardCharsets.UTF_8);
+            BaseEvent baseEvent = objectMapper.readValue(body, BaseEvent.class);
+            event = objectMapper.readValue(baseEvent.getPayload(), OrderCanceledEvent.class);
+        } catch (Exception e) {
+            log.error("[OrderCanceledConsumer] Failed to parse message, msgId={}", messageExt.getMsgId(), e);
+            return;
+        }
+
+        String orderNo = event.getOrderNo();
+        log.info("[OrderCanceledConsumer] Releasing reservation, orderNo={}, reason={}, reconsumeTimes={}",
+                orderNo, event.getCancelReason(), messageExt.getReconsumeTimes());
+        try {
+            // 订单在预留前取消时没有预留记录，返回false，迟到的预留由 ReservationTimeoutTask 兜底
+            boolean released = inventoryService.releaseReservation(orderNo, "ORDER_CANCELED");
+            log.info("[OrderCanceledConsumer] Reservation release done, orderNo={}, released={}", orderNo, released);
+        } catch (Exception e) {
+            log.error("[OrderCanceledConsumer] Failed to release reservation, orderNo={}, error={}",
+                    orderNo, e.getMessage(), e);
+            throw new RuntimeException("Failed to release reservation for canceled order", e);
+        }
+    }
+}
@@ -34,7 +34,7 @@ import java.util.stream.Collectors;
  * 
  * 消费 OrderCreated 事件，执行库存预留：
  * 1. 幂等检查（t_mq_consume_log）
- * 2. 调用 InventoryService.tryBatchReserve
+ * 2. 调用 InventoryService.allocateAndReserve（未指定仓库的行由多仓分配器选仓）
  * 3. 成功发布 StockReserved 事件
  * 4. 失败发布 StockReserveFailed 事件
  */
@@ -53,11 +53,6 @@ public class OrderCreatedConsumer implements RocketMQListener<MessageExt> {
     private static final String STOCK_RESERVED_TAG = "STOCK_RESERVED";
     private static final String STOCK_RESERVE_FAILED_TAG = "STOCK_RESERVE_FAILED";
 
-    /**
-     * 默认仓库ID（实际场景应根据用户地址、库存分布等选择仓库）
-     */
-    private static final Long DEFAULT_WAREHOUSE_ID = 1L;
-
     private final MqConsumeLogRepository mqConsumeLogRepository;
     private final InventoryService inventoryService;
     private final ProducerTemplate producerTemplate;
@@ -151,17 +146,20 @@ public class OrderCreatedConsumer implements RocketMQListener<MessageExt> {
         log.info("[OrderCreatedConsumer] Processing stock reserve, orderNo={}, itemCount={}",
                 orderNo, items.size());
 
-        // 构建预留项
+        // 构建预留项（warehouseId为空时由库存服务分配仓库）
         List<ReserveItem> reserveItems = items.stream()
                 .map(item -> ReserveItem.builder()
                         .skuId(item.getSkuId())
-                        .warehouseId(item.getWarehouseId() != null ? item.getWarehouseId() : DEFAULT_WAREHOUSE_ID)
+                        .warehouseId(item.getWarehouseId())
                         .qty(item.getQty())
                         .build())
                 .collect(Collectors.toList());
 
-        // 调用库存服务预留
-        ReserveResponse response = inventoryService.tryBatchReserve(orderNo, reserveItems);
+        // 分配仓库并预留
+        ReserveResponse response = inventoryService.allocateAndReserve(orderNo, reserveItems);
+        if (response.getItems() != null) {
+            reserveItems = response.getItems();
+        }
 
         long costMs = System.currentTimeMillis() - startTime;
 
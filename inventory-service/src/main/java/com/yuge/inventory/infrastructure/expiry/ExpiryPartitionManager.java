@@ -0,0 +1,195 @@
+package com.yuge.inventory.infrastructure.expiry;
+
+import com.yuge.platform.infra.lease.RedisLeaseService;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 预留过期分区归属管理
+ *
+ * 设计：
+ * 1. 订单号按 CRC32(orderNo) % 1024 落到固定槽位，分区 = 槽位 % partitions（partitions 不超过 1024）；
+ *    槽位与预留表生成列 expiry_slot 一致，重建时按槽位走索引查询，不需要对每行计算 CRC32
+ * 2. 每个分区通过 Redis 租约（SET NX PX）归属到唯一实例，定期续约
+ * 3. 存活实例登记在 ZSET 中，每个实例最多持有 ceil(partitions / 存活实例数) 个分区，
+ *    扩容后多出的分区主动归还，由新实例接管，实现水平扩展
+ */
+@Slf4j
+@Component
+public class ExpiryPartitionManager {
+
+    private static final String LEASE_KEY_PREFIX = "inv:expiry:partition:";
+    private static final String MEMBERS_KEY = "inv:expiry:members";
+
+    /**
+     * 槽位数，与 t_inventory_reservation.expiry_slot 的取模一致
+     */
+    public static final int SLOTS = 1024;
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisLeaseService leaseService;
+
+    /**
+     * 实例标识
+     */
+    @Getter
+    private final String instanceId;
+
+    /**
+     * 当前实例持有的分区
+     */
+    private final Set<Integer> ownedPartitions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 分区总数（所有实例必须一致）
+     */
+    @Getter
+    @Value("${inventory.reservation.expiry.partitions:16}")
+    private int partitions;
+
+    /**
+     * 租约时长（秒）
+     */
+    @Value("${inventory.reservation.expiry.lease-seconds:30}")
+    private int leaseSeconds;
+
+    public ExpiryPartitionManager(StringRedisTemplate redisTemplate, RedisLeaseService leaseService) {
+        this.redisTemplate = redisTemplate;
+        this.leaseService = leaseService;
+        this.instanceId = RedisLeaseService.newHolderId();
+    }
+
+    /**
+     * 计算订单所属分区
+     */
+    public int partitionOf(String orderNo) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(orderNo.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc32.getValue() % SLOTS % partitions);
+    }
+
+    /**
+     * 分区包含的槽位
+     */
+    public List<Integer> slotsOf(int partition) {
+        List<Integer> slots = new ArrayList<>(SLOTS / partitions + 1);
+        for (int slot = partition; slot < SLOTS; slot += partitions) {
+            slots.add(slot);
+        }
+        return slots;
+    }
+
+    /**
+     * 当前实例是否持有分区
+     */
+    public boolean owns(int partition) {
+        return ownedPartitions.contains(partition);
+    }
+
+    /**
+     * 当前实例是否负责该订单
+     */
+    public boolean ownsOrder(String orderNo) {
+        return owns(partitionOf(orderNo));
+    }
+
+    public Set<Integer> getOwnedPartitions() {
+        return Collections.unmodifiableSet(ownedPartitions);
+    }
+
+    /**
+     * 续约并重新平衡分区
+     *
+     * @return 本轮新获得/失去的分区
+     */
+    public Assignment rebalance() {
+        long now = System.currentTimeMillis();
+        long leaseMs = TimeUnit.SECONDS.toMillis(leaseSeconds);
+
+        // 1. 登记心跳并清理失联实例
+        redisTemplate.opsForZSet().add(MEMBERS_KEY, instanceId, now);
+        redisTemplate.opsForZSet().removeRangeByScore(MEMBERS_KEY, 0, now - leaseMs);
+        Long liveCount = redisTemplate.opsForZSet().zCard(MEMBERS_KEY);
+        int live = liveCount == null || liveCount < 1 ? 1 : liveCount.intValue();
+        int quota = (partitions + live - 1) / live;
+
+        List<Integer> acquired = new ArrayList<>();
+        List<Integer> lost = new ArrayList<>();
+
+        // 2. 续约已持有分区
+        for (Integer partition : new ArrayList<>(ownedPartitions)) {
+            if (!leaseService.renew(leaseKey(partition), instanceId, leaseMs)) {
+                ownedPartitions.remove(partition);
+                lost.add(partition);
+            }
+        }
+
+        // 3. 超出配额的分区主动归还
+        for (Integer partition : new ArrayList<>(ownedPartitions)) {
+            if (ownedPartitions.size() <= quota) {
+                break;
+            }
+            release(partition);
+            lost.add(partition);
+        }
+
+        // 4. 抢占空闲分区直到达到配额
+        for (int partition = 0; partition < partitions && ownedPartitions.size() < quota; partition++) {
+            if (ownedPartitions.contains(partition)) {
+                continue;
+            }
+            if (leaseService.tryAcquire(leaseKey(partition), instanceId, leaseMs)) {
+                ownedPartitions.add(partition);
+                acquired.add(partition);
+            }
+        }
+
+        if (!acquired.isEmpty() || !lost.isEmpty()) {
+            log.info("[ExpiryPartition] Rebalanced, instanceId={}, live={}, quota={}, acquired={}, lost={}, owned={}",
+                    instanceId, live, quota, acquired, lost, ownedPartitions);
+        }
+        return new Assignment(acquired, lost);
+    }
+
+    /**
+     * 归还所有分区（实例下线）
+     */
+    public void releaseAll() {
+        for (Integer partition : new ArrayList<>(ownedPartitions)) {
+            release(partition);
+        }
+        redisTemplate.opsForZSet().remove(MEMBERS_KEY, instanceId);
+        log.info("[ExpiryPartition] All partitions released, instanceId={}", instanceId);
+    }
+
+    private void release(Integer partition) {
+        ownedPartitions.remove(partition);
+        leaseService.release(leaseKey(partition), instanceId);
+    }
+
+    private String leaseKey(int partition) {
+        return LEASE_KEY_PREFIX + partition;
+    }
+
+    /**
+     * 分区变更结果
+     */
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    public static class Assignment {
+        private List<Integer> acquired;
+        private List<Integer> lost;
+    }
+}
@@ -0,0 +1,175 @@
+package com.yuge.inventory.infrastructure.expiry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 分层时间轮
+ *
+ * 结构：
+ * 1. 第0层每格 tickMs，共 wheelSize 格；第 i 层每格 = 第 i-1 层整圈时长
+ * 2. 超出当前层范围的任务放入上层（按需创建），到期前逐层降级
+ * 3. 每个 key 只保留最新的到期时间，取消/重排采用惰性删除
+ *
+ * 触发精度：到期时间之后的一个 tick 内触发（不会提前触发）
+ *
+ * 注意：非线程安全，调用方需保证由单一线程驱动（见 ReservationExpiryScheduler）
+ */
+public class HierarchicalTimingWheel {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final Level root;
+
+    /**
+     * key -> 当前有效的到期时间（用于惰性删除）
+     */
+    private final Map<String, Long> deadlines = new HashMap<>();
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("tickMs must be > 0 and wheelSize must be > 1");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.root = new Level(tickMs, startMs - (startMs % tickMs));
+    }
+
+    /**
+     * 添加（或重排）任务
+     *
+     * @param key        任务键（订单号）
+     * @param deadlineMs 到期时间（毫秒时间戳）
+     * @return false 表示已到期，调用方应立即处理
+     */
+    public boolean add(String key, long deadlineMs) {
+        // 向上取整一个tick，保证不提前触发
+        long internalDeadline = deadlineMs + tickMs;
+        Entry entry = new Entry(key, internalDeadline);
+        if (!root.add(entry)) {
+            deadlines.remove(key);
+            return false;
+        }
+        deadlines.put(key, internalDeadline);
+        return true;
+    }
+
+    /**
+     * 取消任务
+     */
+    public boolean cancel(String key) {
+        return deadlines.remove(key) != null;
+    }
+
+    /**
+     * 按条件批量取消任务（如分区被其他实例接管）
+     */
+    public int cancelIf(Predicate<String> predicate) {
+        int before = deadlines.size();
+        deadlines.keySet().removeIf(predicate);
+        return before - deadlines.size();
+    }
+
+    /**
+     * 推进时间轮到 nowMs，回调所有到期的任务
+     */
+    public void advance(long nowMs, Consumer<String> onExpired) {
+        List<Entry> flushed = new ArrayList<>();
+        while (root.currentTime + tickMs <= nowMs) {
+            long time = root.currentTime + tickMs;
+            // 先推进所有对齐的层，再统一重新插入，保证降级时各层时间一致
+            for (Level level = root; level != null; level = level.overflow) {
+                if (time % level.tick != 0) {
+                    break;
+                }
+                level.currentTime = time;
+                level.drainBucket(time, flushed);
+            }
+            for (Entry entry : flushed) {
+                if (!isLive(entry)) {
+                    continue;
+                }
+                if (!root.add(entry)) {
+                    deadlines.remove(entry.key);
+                    onExpired.accept(entry.key);
+                }
+            }
+            flushed.clear();
+        }
+    }
+
+    /**
+     * 当前有效任务数
+     */
+    public int size() {
+        return deadlines.size();
+    }
+
+    public boolean contains(String key) {
+        return deadlines.containsKey(key);
+    }
+
+    private boolean isLive(Entry entry) {
+        Long deadline = deadlines.get(entry.key);
+        return deadline != null && deadline == entry.deadline;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final long deadline;
+
+        private Entry(String key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+
+    private final class Level {
+        private final long tick;
+        private final long interval;
+        private final List<Entry>[] buckets;
+        private long currentTime;
+        private Level overflow;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tick, long currentTime) {
+            this.tick = tick;
+            this.interval = tick * wheelSize;
+            this.buckets = new List[wheelSize];
+            this.currentTime = currentTime;
+        }
+
+        private boolean add(Entry entry) {
+            if (entry.deadline < currentTime + tick) {
+                return false;
+            }
+            if (entry.deadline < currentTime + interval) {
+                int index = (int) ((entry.deadline / tick) % wheelSize);
+                List<Entry> bucket = buckets[index];
+                if (bucket == null) {
+                    bucket = new ArrayList<>();
+                    buckets[index] = bucket;
+                }
+                bucket.add(entry);
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(interval, currentTime - (currentTime % interval));
+            }
+            return overflow.add(entry);
+        }
+
+        private void drainBucket(long time, List<Entry> out) {
+            int index = (int) ((time / tick) % wheelSize);
+            List<Entry> bucket = buckets[index];
+            if (bucket != null && !bucket.isEmpty()) {
+                out.addAll(bucket);
+                bucket.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.yuge.inventory.infrastructure.expiry;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.yuge.inventory.application.InventoryService;
+import com.yuge.inventory.domain.entity.InventoryReservation;
+import com.yuge.inventory.infrastructure.repository.InventoryReservationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 预留过期调度器（时间轮驱动，替代DB轮询）
+ *
+ * 流程：
+ * 1. 预留成功（事务提交后）按订单登记到期时间：本实例持有分区则直接入轮，否则经 Redis Pub/Sub 转发给分区持有者
+ * 2. 启动/获得分区时从DB按分区重建（每个订单一条，取最早过期时间）
+ * 3. 时间轮到期后按订单聚合，分批交给释放线程，每个订单调用一次 releaseReservation（内部一次 batchRelease 归还全部SKU）
+ * 4. 确认/释放时取消登记；远端实例未及时取消时，释放逻辑本身幂等
+ *
+ * 兜底：ReservationTimeoutTask 仍可低频开启，覆盖 Pub/Sub 丢消息等极端情况
+ */
+@Slf4j
+@Component
+public class ReservationExpiryScheduler {
+
+    private static final String FEED_CHANNEL = "inv:expiry:feed";
+    private static final String RELEASE_REASON = "预留超时自动释放";
+    private static final long CANCEL_MARK = -1L;
+
+    private final InventoryReservationRepository reservationRepository;
+    private final InventoryService inventoryService;
+    private final ExpiryPartitionManager partitionManager;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 时间轮上的操作统一由ticker线程执行
+     */
+    private final Queue<Consumer<HierarchicalTimingWheel>> commands = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 入轮时已到期、等待派发的订单（仅ticker线程访问）
+     */
+    private final List<String> pendingDue = new ArrayList<>();
+
+    /**
+     * 是否启用时间轮过期调度
+     */
+    @Value("${inventory.reservation.expiry.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 时间轮刻度（毫秒）
+     */
+    @Value("${inventory.reservation.expiry.tick-ms:100}")
+    private long tickMs;
+
+    /**
+     * 每层格数
+     */
+    @Value("${inventory.reservation.expiry.wheel-size:512}")
+    private int wheelSize;
+
+    /**
+     * 每批释放的订单数
+     */
+    @Value("${inventory.reservation.expiry.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 重建时每页订单数
+     */
+    @Value("${inventory.reservation.expiry.rebuild-page-size:500}")
+    private int rebuildPageSize;
+
+    /**
+     * 释放失败后的重试延迟（毫秒）
+     */
+    @Value("${inventory.reservation.expiry.retry-delay-ms:10000}")
+    private long retryDelayMs;
+
+    private HierarchicalTimingWheel wheel;
+    private ScheduledExecutorService ticker;
+    private ExecutorService releaseExecutor;
+
+    public ReservationExpiryScheduler(InventoryReservationRepository reservationRepository,
+                                      @Lazy InventoryService inventoryService,
+                                      ExpiryPartitionManager partitionManager,
+                                      StringRedisTemplate redisTemplate,
+                                      RedisMessageListenerContainer listenerContainer) {
+        this.reservationRepository = reservationRepository;
+        this.inventoryService = inventoryService;
+        this.partitionManager = partitionManager;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("[ReservationExpiry] Timing wheel disabled");
+            return;
+        }
+        int partitions = partitionManager.getPartitions();
+        if (partitions <= 0 || partitions > ExpiryPartitionManager.SLOTS) {
+            throw new IllegalArgumentException("partitions must be in (0, " + ExpiryPartitionManager.SLOTS + "]");
+        }
+        wheel = new HierarchicalTimingWheel(tickMs, wheelSize, System.currentTimeMillis());
+        releaseExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory("inv-expiry-release-", true));
+        ticker = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("inv-expiry-ticker-", true));
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+
+        listenerContainer.addMessageListener((message, pattern) ->
+                onFeedMessage(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(FEED_CHANNEL));
+
+        // 立即执行一次分区分配并重建
+        rebalance();
+        log.info("[ReservationExpiry] Timing wheel started, instanceId={}, tickMs={}, wheelSize={}, partitions={}",
+                partitionManager.getInstanceId(), tickMs, wheelSize, partitionManager.getPartitions());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        ticker.shutdownNow();
+        releaseExecutor.shutdown();
+        try {
+            partitionManager.releaseAll();
+        } catch (Exception e) {
+            log.warn("[ReservationExpiry] Release partitions on shutdown failed, error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 登记预留到期时间（事务提交后生效）
+     */
+    public void schedule(String orderNo, LocalDateTime expireAt) {
+        if (!enabled || expireAt == null) {
+            return;
+        }
+        long deadline = expireAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        runAfterCommit(() -> route(orderNo, deadline));
+    }
+
+    /**
+     * 取消预留到期登记（确认/释放后）
+     */
+    public void cancel(String orderNo) {
+        if (!enabled) {
+            return;
+        }
+        runAfterCommit(() -> route(orderNo, CANCEL_MARK));
+    }
+
+    /**
+     * 续约并重新分配分区：新获得的分区从DB重建，失去的分区从时间轮移除
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.expiry.rebalance-interval-ms:10000}")
+    public void rebalance() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ExpiryPartitionManager.Assignment assignment = partitionManager.rebalance();
+            if (!assignment.getLost().isEmpty()) {
+                List<Integer> lost = assignment.getLost();
+                commands.add(w -> w.cancelIf(orderNo -> lost.contains(partitionManager.partitionOf(orderNo))));
+            }
+            for (Integer partition : assignment.getAcquired()) {
+                rebuildPartition(partition);
+            }
+        } catch (Exception e) {
+            log.error("[ReservationExpiry] Rebalance failed, error={}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按分区从DB重建时间轮（逐槽位键集分页，每个查询都走 idx_status_slot_order）
+     */
+    private void rebuildPartition(int partition) {
+        long startTime = System.currentTimeMillis();
+        int total = 0;
+        for (int slot : partitionManager.slotsOf(partition)) {
+            String afterOrderNo = null;
+            List<InventoryReservation> page;
+            do {
+                page = reservationRepository.findReservedOrdersBySlot(slot, afterOrderNo, rebuildPageSize);
+                for (InventoryReservation reservation : page) {
+                    long deadline = reservation.getExpireAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                    String orderNo = reservation.getOrderNo();
+                    commands.add(w -> addOrFire(w, orderNo, deadline));
+                }
+                total += page.size();
+                if (!page.isEmpty()) {
+                    afterOrderNo = page.get(page.size() - 1).getOrderNo();
+                }
+            } while (page.size() == rebuildPageSize);
+        }
+
+        log.info("[ReservationExpiry] Partition rebuilt, partition={}, orders={}, costMs={}",
+                partition, total, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 时间轮驱动（ticker线程）
+     */
+    private void tick() {
+        try {
+            Consumer<HierarchicalTimingWheel> command;
+            while ((command = commands.poll()) != null) {
+                command.accept(wheel);
+            }
+            List<String> due = new ArrayList<>();
+            // 入轮时已到期的（如重建时已过期）直接派发
+            due.addAll(pendingDue);
+            pendingDue.clear();
+            wheel.advance(System.currentTimeMillis(), due::add);
+
+            for (int from = 0; from < due.size(); from += batchSize) {
+                List<String> batch = new ArrayList<>(due.subList(from, Math.min(from + batchSize, due.size())));
+                releaseExecutor.execute(() -> releaseBatch(batch));
+            }
+        } catch (Exception e) {
+            log.error("[ReservationExpiry] Tick failed, error={}", e.getMessage(), e);
+        }
+    }
+
+    private void addOrFire(HierarchicalTimingWheel w, String orderNo, long deadline) {
+        if (!partitionManager.ownsOrder(orderNo)) {
+            return;
+        }
+        if (!w.add(orderNo, deadline)) {
+            pendingDue.add(orderNo);
+        }
+    }
+
+    /**
+     * 批量释放到期订单（释放线程）
+     */
+    private void releaseBatch(List<String> orderNos) {
+        long startTime = System.currentTimeMillis();
+        int released = 0;
+        for (String orderNo : orderNos) {
+            // 分区可能已被其他实例接管
+            if (!partitionManager.ownsOrder(orderNo)) {
+                continue;
+            }
+            try {
+                if (inventoryService.releaseReservation(orderNo, RELEASE_REASON)) {
+                    released++;
+                }
+            } catch (Exception e) {
+                log.error("[ReservationExpiry] Release failed, will retry, orderNo={}, error={}",
+                        orderNo, e.getMessage(), e);
+                long retryAt = System.currentTimeMillis() + retryDelayMs;
+                commands.add(w -> addOrFire(w, orderNo, retryAt));
+            }
+        }
+        log.info("[ReservationExpiry] Batch released, orders={}, released={}, costMs={}",
+                orderNos.size(), released, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 路由登记/取消：本实例持有分区直接处理，否则广播给分区持有者
+     */
+    private void route(String orderNo, long deadline) {
+        if (partitionManager.ownsOrder(orderNo)) {
+            apply(orderNo, deadline);
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(FEED_CHANNEL, orderNo + "|" + deadline);
+        } catch (Exception e) {
+            log.warn("[ReservationExpiry] Publish feed failed, orderNo={}, error={}", orderNo, e.getMessage());
+        }
+    }
+
+    private void onFeedMessage(String body) {
+        int sep = body.lastIndexOf('|');
+        if (sep <= 0) {
+            return;
+        }
+        String orderNo = body.substring(0, sep);
+        if (partitionManager.ownsOrder(orderNo)) {
+            apply(orderNo, Long.parseLong(body.substring(sep + 1)));
+        }
+    }
+
+    private void apply(String orderNo, long deadline) {
+        if (deadline == CANCEL_MARK) {
+            commands.add(w -> w.cancel(orderNo));
+        } else {
+            commands.add(w -> addOrFire(w, orderNo, deadline));
+        }
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
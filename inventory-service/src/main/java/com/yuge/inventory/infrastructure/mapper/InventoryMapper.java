@@ -2,6 +2,7 @@ package com.yuge.inventory.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yuge.inventory.domain.entity.Inventory;
+import com.yuge.inventory.infrastructure.redis.InventoryRedisService.ReserveItem;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -35,6 +36,13 @@ public interface InventoryMapper extends BaseMapper<Inventory> {
     @Select("SELECT * FROM t_inventory WHERE warehouse_id = #{warehouseId} AND deleted = 0")
     List<Inventory> findByWarehouseId(@Param("warehouseId") Long warehouseId);
 
+    /**
+     * 按主键分页查询库存位置（用于构建仓库库存索引）
+     */
+    @Select("SELECT id, sku_id, warehouse_id FROM t_inventory WHERE deleted = 0 AND id > #{afterId} " +
+            "ORDER BY id ASC LIMIT #{limit}")
+    List<Inventory> findLocationsAfterId(@Param("afterId") Long afterId, @Param("limit") int limit);
+
     /**
      * CAS更新库存（预留：available减少，reserved增加）
      */
@@ -51,33 +59,60 @@ public interface InventoryMapper extends BaseMapper<Inventory> {
                    @Param("version") int version);
 
     /**
-     * CAS更新库存（确认：reserved减少）
+     * 按库存位置批量查询（条件更新后读取后像）
      */
-    @Update("UPDATE t_inventory SET " +
-            "reserved_qty = reserved_qty - #{qty}, " +
+    @Select("<script>" +
+            "SELECT * FROM t_inventory WHERE deleted = 0 AND (sku_id, warehouse_id) IN " +
+            "<foreach collection='items' item='i' open='(' separator=',' close=')'>" +
+            "(#{i.skuId}, #{i.warehouseId})" +
+            "</foreach>" +
+            "</script>")
+    List<Inventory> findByLocations(@Param("items") List<ReserveItem> items);
+
+    /**
+     * 批量确认（reserved减少），一条语句覆盖整单
+     * 不比较version，以 reserved_qty >= qty 作为守卫条件，行锁串行化并发写
+     */
+    @Update("<script>" +
+            "UPDATE t_inventory SET " +
+            "reserved_qty = reserved_qty - CASE " +
+            "<foreach collection='items' item='i'>" +
+            "WHEN sku_id = #{i.skuId} AND warehouse_id = #{i.warehouseId} THEN #{i.qty} " +
+            "</foreach>" +
+            "ELSE 0 END, " +
             "version = version + 1, " +
             "updated_at = NOW() " +
-            "WHERE sku_id = #{skuId} AND warehouse_id = #{warehouseId} " +
-            "AND version = #{version} AND reserved_qty >= #{qty} AND deleted = 0")
-    int casConfirm(@Param("skuId") Long skuId, 
-                   @Param("warehouseId") Long warehouseId,
-                   @Param("qty") int qty, 
-                   @Param("version") int version);
+            "WHERE deleted = 0 AND " +
+            "<foreach collection='items' item='i' open='(' separator=' OR ' close=')'>" +
+            "(sku_id = #{i.skuId} AND warehouse_id = #{i.warehouseId} AND reserved_qty &gt;= #{i.qty})" +
+            "</foreach>" +
+            "</script>")
+    int batchConfirm(@Param("items") List<ReserveItem> items);
 
     /**
-     * CAS更新库存（释放：available增加，reserved减少）
+     * 批量释放（available增加，reserved减少），一条语句覆盖整单
+     * 不比较version，以 reserved_qty >= qty 作为守卫条件
      */
-    @Update("UPDATE t_inventory SET " +
-            "available_qty = available_qty + #{qty}, " +
-            "reserved_qty = reserved_qty - #{qty}, " +
+    @Update("<script>" +
+            "UPDATE t_inventory SET " +
+            "available_qty = available_qty + CASE " +
+            "<foreach collection='items' item='i'>" +
+            "WHEN sku_id = #{i.skuId} AND warehouse_id = #{i.warehouseId} THEN #{i.qty} " +
+            "</foreach>" +
+            "ELSE 0 END, " +
+            "reserved_qty = reserved_qty - CASE " +
+            "<foreach collection='items' item='i'>" +
+            "WHEN sku_id = #{i.skuId} AND warehouse_id = #{i.warehouseId} THEN #{i.qty} " +
+            "</foreach>" +
+            "ELSE 0 END, " +
             "version = version + 1, " +
             "updated_at = NOW() " +
-            "WHERE sku_id = #{skuId} AND warehouse_id = #{warehouseId} " +
-            "AND version = #{version} AND reserved_qty >= #{qty} AND deleted = 0")
-    int casRelease(@Param("skuId") Long skuId, 
-                   @Param("warehouseId") Long warehouseId,
-                   @Param("qty") int qty, 
-                   @Param("version") int version);
+            "WHERE deleted = 0 AND " +
+            "<foreach collection='items' item='i' open='(' separator=' OR ' close=')'>" +
+            "(sku_id = #{i.skuId} AND warehouse_id = #{i.warehouseId} AND reserved_qty &gt;= #{i.qty})" +
+            "</foreach>" +
+            "</script>")
+    int batchRelease(@Param("items") List<ReserveItem> items);
 
     /**
      * 直接更新可用库存（用于同步场景）
@@ -92,16 +127,22 @@ public interface InventoryMapper extends BaseMapper<Inventory> {
                            @Param("availableQty") int availableQty);
 
     /**
-     * CAS更新库存（退款回补：available增加）
+     * 批量退款回补（available增加），一条语句覆盖整个售后单
+     * 只增不减，无需守卫条件和version比较
      */
-    @Update("UPDATE t_inventory SET " +
-            "available_qty = available_qty + #{qty}, " +
+    @Update("<script>" +
+            "UPDATE t_inventory SET " +
+            "available_qty = available_qty + CASE " +
+            "<foreach collection='items' item='i'>" +
+            "WHEN sku_id = #{i.skuId} AND warehouse_id = #{i.warehouseId} THEN #{i.qty} " +
+            "</foreach>" +
+            "ELSE 0 END, " +
             "version = version + 1, " +
             "updated_at = NOW() " +
-            "WHERE sku_id = #{skuId} AND warehouse_id = #{warehouseId} " +
-            "AND version = #{version} AND deleted = 0")
-    int casRefundRestore(@Param("skuId") Long skuId, 
-                         @Param("warehouseId") Long warehouseId,
-                         @Param("qty") int qty, 
-                         @Param("version") int version);
+            "WHERE deleted = 0 AND (sku_id, warehouse_id) IN " +
+            "<foreach collection='items' item='i' open='(' separator=',' close=')'>" +
+            "(#{i.skuId}, #{i.warehouseId})" +
+            "</foreach>" +
+            "</script>")
+    int batchRefundRestore(@Param("items") List<ReserveItem> items);
 }
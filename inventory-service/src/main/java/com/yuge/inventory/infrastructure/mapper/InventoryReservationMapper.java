@@ -50,6 +50,18 @@ public interface InventoryReservationMapper extends BaseMapper<InventoryReservat
     List<InventoryReservation> findExpiredReservations(@Param("now") LocalDateTime now, 
                                                         @Param("limit") int limit);
 
+    /**
+     * 按槽位查询仍处于预留状态的订单及其最早过期时间（用于时间轮重建）
+     * 槽位为生成列 expiry_slot = CRC32(order_no) % 1024，走 idx_status_slot_order 按order_no键集分页
+     */
+    @Select("SELECT order_no, MIN(expire_at) AS expire_at FROM t_inventory_reservation " +
+            "WHERE status = 'RESERVED' AND expiry_slot = #{slot} AND order_no > #{afterOrderNo} " +
+            "AND expire_at IS NOT NULL AND deleted = 0 " +
+            "GROUP BY order_no ORDER BY order_no ASC LIMIT #{limit}")
+    List<InventoryReservation> findReservedOrdersBySlot(@Param("slot") int slot,
+                                                        @Param("afterOrderNo") String afterOrderNo,
+                                                        @Param("limit") int limit);
+
     /**
      * CAS更新预留状态
      */
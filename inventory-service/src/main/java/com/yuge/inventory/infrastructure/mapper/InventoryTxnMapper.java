@@ -2,11 +2,14 @@ package com.yuge.inventory.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yuge.inventory.domain.entity.InventoryTxn;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 库存流水Mapper
@@ -15,13 +18,27 @@ import java.util.List;
 public interface InventoryTxnMapper extends BaseMapper<InventoryTxn> {
 
     /**
-     * 根据订单号查询流水
+     * 多行批量插入（一条INSERT写入多行，id/createdAt由调用方填充）
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_inventory_txn (id, txn_id, order_no, sku_id, warehouse_id, delta_available, " +
+            "delta_reserved, available_after, reserved_after, reason, remark, trace_id, created_at) VALUES " +
+            "<foreach collection='list' item='t' separator=','>" +
+            "(#{t.id}, #{t.txnId}, #{t.orderNo}, #{t.skuId}, #{t.warehouseId}, #{t.deltaAvailable}, " +
+            "#{t.deltaReserved}, #{t.availableAfter}, #{t.reservedAfter}, #{t.reason}, #{t.remark}, " +
+            "#{t.traceId}, #{t.createdAt})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<InventoryTxn> txns);
+
+    /**
+     * 根据订单号查询流水（各分区 idx_order_no）
      */
     @Select("SELECT * FROM t_inventory_txn WHERE order_no = #{orderNo} ORDER BY created_at DESC")
     List<InventoryTxn> findByOrderNo(@Param("orderNo") String orderNo);
 
     /**
-     * 根据SKU和仓库查询流水
+     * 根据SKU和仓库查询流水（idx_sku_warehouse_created 有序，无需filesort）
      */
     @Select("SELECT * FROM t_inventory_txn " +
             "WHERE sku_id = #{skuId} AND warehouse_id = #{warehouseId} " +
@@ -35,4 +52,63 @@ public interface InventoryTxnMapper extends BaseMapper<InventoryTxn> {
      */
     @Select("SELECT * FROM t_inventory_txn WHERE txn_id = #{txnId}")
     InventoryTxn findByTxnId(@Param("txnId") String txnId);
+
+    // ==================== 分区维护 ====================
+
+    /**
+     * 查询流水表当前分区及上界（按边界升序），name/lessThan，pmax 的上界为 MAXVALUE
+     */
+    @Select("SELECT PARTITION_NAME AS name, PARTITION_DESCRIPTION AS lessThan FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 't_inventory_txn' " +
+            "AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION")
+    List<Map<String, Object>> listPartitions();
+
+    /**
+     * 拆分 pmax，一条语句追加多个月分区（pmax 中的数据只搬迁一次）
+     */
+    @Update("<script>" +
+            "ALTER TABLE t_inventory_txn REORGANIZE PARTITION pmax INTO (" +
+            "<foreach collection='partitions' item='p'>" +
+            "PARTITION ${p.name} VALUES LESS THAN ('${p.lessThan}'), " +
+            "</foreach>" +
+            "PARTITION pmax VALUES LESS THAN (MAXVALUE))" +
+            "</script>")
+    void addPartitions(@Param("partitions") List<Map<String, String>> partitions);
+
+    /**
+     * 创建归档表（与流水表结构一致，不分区）
+     */
+    @Update("CREATE TABLE IF NOT EXISTS ${archiveTable} LIKE t_inventory_txn")
+    void createArchiveTable(@Param("archiveTable") String archiveTable);
+
+    /**
+     * 表的分区数（未分区为0）
+     */
+    @Select("SELECT COUNT(*) FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = #{table} AND PARTITION_NAME IS NOT NULL")
+    int countPartitions(@Param("table") String table);
+
+    @Update("ALTER TABLE ${archiveTable} REMOVE PARTITIONING")
+    void removeArchivePartitioning(@Param("archiveTable") String archiveTable);
+
+    /**
+     * 归档表是否已有数据（上次交换后未删除分区）
+     */
+    @Select("SELECT COUNT(*) FROM (SELECT 1 FROM ${archiveTable} LIMIT 1) t")
+    int archiveHasRows(@Param("archiveTable") String archiveTable);
+
+    /**
+     * 分区是否有数据
+     */
+    @Select("SELECT COUNT(*) FROM (SELECT 1 FROM t_inventory_txn PARTITION (${partition}) LIMIT 1) t")
+    int partitionHasRows(@Param("partition") String partition);
+
+    /**
+     * 交换分区到归档表（仅元数据操作，与数据量无关）
+     */
+    @Update("ALTER TABLE t_inventory_txn EXCHANGE PARTITION ${partition} WITH TABLE ${archiveTable}")
+    void exchangePartition(@Param("partition") String partition, @Param("archiveTable") String archiveTable);
+
+    @Update("ALTER TABLE t_inventory_txn DROP PARTITION ${partition}")
+    void dropPartition(@Param("partition") String partition);
 }
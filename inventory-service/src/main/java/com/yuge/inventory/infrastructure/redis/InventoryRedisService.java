@@ -21,6 +21,12 @@ public class InventoryRedisService {
 
     private static final String INV_KEY_PREFIX = "inv:";
     private static final String RESERVED_KEY_PREFIX = "inv:reserved:";
+
+    /**
+     * 库存变更通知频道（消息体：{warehouseId}:{skuId}:{available}，key被删除时不带available），
+     * Lua脚本内同样使用该频道
+     */
+    public static final String CHANGED_CHANNEL = "inv:changed";
     
     /**
      * 幂等标记默认过期时间（秒）- 24小时
@@ -273,12 +279,40 @@ public class InventoryRedisService {
         }
     }
 
+    /**
+     * 批量查询Redis中的可用库存（一次MGET，单次网络往返）
+     *
+     * @param items 查询项（仅使用 warehouseId/skuId）
+     * @return 与入参顺序一致的可用库存，null表示不存在
+     */
+    public List<Integer> batchGetAvailableQty(List<ReserveItem> items) {
+        List<String> keys = new ArrayList<>(items.size());
+        for (ReserveItem item : items) {
+            keys.add(buildInvKey(item.getWarehouseId(), item.getSkuId()));
+        }
+
+        List<Integer> results = new ArrayList<>(items.size());
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            for (int i = 0; i < keys.size(); i++) {
+                String value = values != null ? values.get(i) : null;
+                results.add(value != null ? Integer.parseInt(value) : null);
+            }
+        } catch (Exception e) {
+            log.error("[InventoryRedisService] batchGetAvailableQty failed, keyCount={}, error={}",
+                    keys.size(), e.getMessage(), e);
+            throw e;
+        }
+        return results;
+    }
+
     /**
      * 删除库存缓存
      */
     public void deleteInventoryCache(Long warehouseId, Long skuId) {
         String invKey = buildInvKey(warehouseId, skuId);
         redisTemplate.delete(invKey);
+        publishChanged(warehouseId, skuId, null);
     }
 
     /**
@@ -293,6 +327,7 @@ public class InventoryRedisService {
         try {
             // 使用INCRBY原子增加库存
             Long newValue = redisTemplate.opsForValue().increment(invKey, qty);
+            publishChanged(warehouseId, skuId, newValue);
             log.info("[InventoryRedisService] restoreAvailable success, warehouseId={}, skuId={}, qty={}, newAvailable={}",
                     warehouseId, skuId, qty, newValue);
         } catch (Exception e) {
@@ -302,6 +337,19 @@ public class InventoryRedisService {
         }
     }
 
+    /**
+     * 发布库存变更通知（Lua脚本之外的写操作使用）
+     */
+    private void publishChanged(Long warehouseId, Long skuId, Long available) {
+        try {
+            String message = warehouseId + ":" + skuId + (available != null ? ":" + available : "");
+            redisTemplate.convertAndSend(CHANGED_CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("[InventoryRedisService] publishChanged failed, warehouseId={}, skuId={}, error={}",
+                    warehouseId, skuId, e.getMessage());
+        }
+    }
+
     /**
      * 构建库存key
      */
@@ -367,6 +415,38 @@ public class InventoryRedisService {
         return ReserveResult.error("未知结果: " + result);
     }
 
+    /**
+     * 库存变更通知
+     */
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    public static class StockChange {
+        private Long warehouseId;
+        private Long skuId;
+        /**
+         * 最新可用库存，null表示key已删除
+         */
+        private Integer availableQty;
+
+        /**
+         * 解析通知消息：{warehouseId}:{skuId}[:{available}]
+         *
+         * @return 格式不正确时返回null
+         */
+        public static StockChange parse(String message) {
+            String[] parts = message.split(":");
+            if (parts.length < 2) {
+                return null;
+            }
+            try {
+                Integer available = parts.length > 2 ? Integer.valueOf(parts[2]) : null;
+                return new StockChange(Long.valueOf(parts[0]), Long.valueOf(parts[1]), available);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
     /**
      * 预留项
      */
@@ -2,6 +2,7 @@ package com.yuge.inventory.infrastructure.repository;
 
 import com.yuge.inventory.domain.entity.Inventory;
 import com.yuge.inventory.infrastructure.mapper.InventoryMapper;
+import com.yuge.inventory.infrastructure.redis.InventoryRedisService.ReserveItem;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
@@ -40,6 +41,13 @@ public class InventoryRepository {
         return inventoryMapper.findByWarehouseId(warehouseId);
     }
 
+    /**
+     * 按主键分页查询库存位置（仅 id/skuId/warehouseId）
+     */
+    public List<Inventory> findLocationsAfterId(Long afterId, int limit) {
+        return inventoryMapper.findLocationsAfterId(afterId != null ? afterId : 0L, limit);
+    }
+
     /**
      * 保存库存
      */
@@ -60,19 +68,40 @@ public class InventoryRepository {
     }
 
     /**
-     * CAS确认库存
+     * 按库存位置批量查询
      */
-    public boolean casConfirm(Long skuId, Long warehouseId, int qty, int version) {
-        int affected = inventoryMapper.casConfirm(skuId, warehouseId, qty, version);
-        return affected > 0;
+    public List<Inventory> findByLocations(List<ReserveItem> items) {
+        if (items.isEmpty()) {
+            return List.of();
+        }
+        return inventoryMapper.findByLocations(items);
     }
 
     /**
-     * CAS释放库存
+     * 批量确认库存（items中同一库存位置只能出现一次）
+     *
+     * @return 实际更新的行数（小于items数量说明部分行守卫条件不满足）
      */
-    public boolean casRelease(Long skuId, Long warehouseId, int qty, int version) {
-        int affected = inventoryMapper.casRelease(skuId, warehouseId, qty, version);
-        return affected > 0;
+    public int batchConfirm(List<ReserveItem> items) {
+        return items.isEmpty() ? 0 : inventoryMapper.batchConfirm(items);
+    }
+
+    /**
+     * 批量释放库存（items中同一库存位置只能出现一次）
+     *
+     * @return 实际更新的行数
+     */
+    public int batchRelease(List<ReserveItem> items) {
+        return items.isEmpty() ? 0 : inventoryMapper.batchRelease(items);
+    }
+
+    /**
+     * 批量退款回补库存（items中同一库存位置只能出现一次）
+     *
+     * @return 实际更新的行数（小于items数量说明部分库存位置不存在）
+     */
+    public int batchRefundRestore(List<ReserveItem> items) {
+        return items.isEmpty() ? 0 : inventoryMapper.batchRefundRestore(items);
     }
 
     /**
@@ -50,6 +50,13 @@ public class InventoryReservationRepository {
         return reservationMapper.findExpiredReservations(LocalDateTime.now(), limit);
     }
 
+    /**
+     * 按槽位分页查询预留中的订单（orderNo + 最早过期时间）
+     */
+    public List<InventoryReservation> findReservedOrdersBySlot(int slot, String afterOrderNo, int limit) {
+        return reservationMapper.findReservedOrdersBySlot(slot, afterOrderNo != null ? afterOrderNo : "", limit);
+    }
+
     /**
      * 保存预留记录
      */
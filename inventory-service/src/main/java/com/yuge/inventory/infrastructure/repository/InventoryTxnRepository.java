@@ -1,36 +1,57 @@
 package com.yuge.inventory.infrastructure.repository;
 
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.yuge.inventory.domain.entity.InventoryTxn;
 import com.yuge.inventory.infrastructure.mapper.InventoryTxnMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
  * 库存流水仓储
+ *
+ * 流水表按月分区、只追加：写入统一走多行INSERT，id 使用雪花ID保证按时间递增追加
  */
 @Slf4j
 @Repository
 @RequiredArgsConstructor
 public class InventoryTxnRepository {
 
+    /**
+     * 单条INSERT最多写入行数（控制SQL长度）
+     */
+    private static final int MAX_ROWS_PER_INSERT = 500;
+
     private final InventoryTxnMapper txnMapper;
 
     /**
      * 保存流水
      */
     public void save(InventoryTxn txn) {
-        txnMapper.insert(txn);
+        saveBatch(List.of(txn));
     }
 
     /**
-     * 批量保存流水
+     * 批量保存流水（多行INSERT，每条最多 MAX_ROWS_PER_INSERT 行）
      */
     public void saveBatch(List<InventoryTxn> txns) {
+        if (txns == null || txns.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
         for (InventoryTxn txn : txns) {
-            txnMapper.insert(txn);
+            if (txn.getId() == null) {
+                txn.setId(IdWorker.getId());
+            }
+            if (txn.getCreatedAt() == null) {
+                txn.setCreatedAt(now);
+            }
+        }
+        for (int from = 0; from < txns.size(); from += MAX_ROWS_PER_INSERT) {
+            txnMapper.insertBatch(txns.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, txns.size())));
         }
     }
 
@@ -0,0 +1,229 @@
+package com.yuge.inventory.infrastructure.task;
+
+import com.yuge.inventory.infrastructure.mapper.InventoryTxnMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 库存流水分区维护任务
+ *
+ * 功能：
+ * 1. 提前创建未来月份的分区（拆分 pmax），保证写入永远落在月分区
+ *    从最高有界分区的上界（初始表为 p_init 的上界）逐月补齐，不跳月，避免一个分区吞下多个月的数据；
+ *    所有新分区在一条 REORGANIZE 语句中创建，pmax 中已有的数据只搬迁一次
+ * 2. 超过保留期的月分区通过 EXCHANGE PARTITION 换出到 t_inventory_txn_archive_{yyyyMM}，再 DROP PARTITION
+ *    交换只修改元数据，耗时与数据量无关；归档表可独立导出/迁移到冷存储
+ *    归档可重入：归档表已是非分区表时不再去分区；上次交换成功但未删除分区时只删除空分区
+ *
+ * 配置：
+ * - inventory.txn.partition.enabled: 是否启用（默认false）
+ * - inventory.txn.partition.ahead-months: 提前创建的月份数（默认3）
+ * - inventory.txn.partition.retention-months: 在线保留的月份数（默认6）
+ * - inventory.txn.partition.cron: 执行周期（默认每天03:30）
+ *
+ * 多实例通过 Redis 锁保证同一时间只有一个实例执行DDL
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InventoryTxnPartitionTask {
+
+    private static final String LOCK_KEY = "inv:txn:partition:lock";
+    private static final String ARCHIVE_TABLE_PREFIX = "t_inventory_txn_archive_";
+    private static final Pattern MONTH_PARTITION = Pattern.compile("^p(\\d{6})$");
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final InventoryTxnMapper txnMapper;
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * 是否启用分区维护
+     */
+    @Value("${inventory.txn.partition.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 提前创建的月份数
+     */
+    @Value("${inventory.txn.partition.ahead-months:3}")
+    private int aheadMonths;
+
+    /**
+     * 在线保留的月份数
+     */
+    @Value("${inventory.txn.partition.retention-months:6}")
+    private int retentionMonths;
+
+    /**
+     * 启动时执行一次，确保当月及未来分区存在
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    /**
+     * 定时维护分区
+     */
+    @Scheduled(cron = "${inventory.txn.partition.cron:0 30 3 * * ?}")
+    public void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, "1", 10, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("[InventoryTxnPartitionTask] Another instance is maintaining partitions, skip");
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            List<PartitionBound> partitions = txnMapper.listPartitions().stream()
+                    .map(InventoryTxnPartitionTask::toPartitionBound)
+                    .collect(Collectors.toList());
+            RotationPlan plan = planRotation(partitions, YearMonth.now(), aheadMonths, retentionMonths);
+
+            if (!plan.getToAdd().isEmpty()) {
+                List<Map<String, String>> toAdd = new ArrayList<>();
+                for (YearMonth month : plan.getToAdd()) {
+                    toAdd.add(Map.of("name", partitionName(month),
+                            "lessThan", month.plusMonths(1).atDay(1).toString()));
+                }
+                txnMapper.addPartitions(toAdd);
+                log.info("[InventoryTxnPartitionTask] Partitions added, from={}, to={}",
+                        plan.getToAdd().get(0), plan.getToAdd().get(plan.getToAdd().size() - 1));
+            }
+
+            for (String partition : plan.getToArchive()) {
+                archivePartition(partition);
+            }
+
+            log.info("[InventoryTxnPartitionTask] Maintenance completed, added={}, archived={}, costMs={}",
+                    plan.getToAdd().size(), plan.getToArchive().size(), System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("[InventoryTxnPartitionTask] Maintenance failed, error={}", e.getMessage(), e);
+        } finally {
+            redisTemplate.delete(LOCK_KEY);
+        }
+    }
+
+    /**
+     * 归档分区：交换到同结构的非分区表后删除空分区
+     *
+     * CREATE TABLE ... LIKE 会复制分区定义，只有归档表仍是分区表时才去分区（对非分区表执行会报 1505）。
+     * 归档表已有数据说明上次交换已完成、删除分区失败，此时再交换会把数据换回分区，只能删除空分区
+     */
+    void archivePartition(String partition) {
+        String archiveTable = ARCHIVE_TABLE_PREFIX + partition.substring(1);
+        txnMapper.createArchiveTable(archiveTable);
+        if (txnMapper.countPartitions(archiveTable) > 0) {
+            txnMapper.removeArchivePartitioning(archiveTable);
+        }
+        if (txnMapper.archiveHasRows(archiveTable) > 0) {
+            if (txnMapper.partitionHasRows(partition) > 0) {
+                log.error("[InventoryTxnPartitionTask] Archive table and partition both have rows, skip, partition={}, archiveTable={}",
+                        partition, archiveTable);
+                return;
+            }
+            txnMapper.dropPartition(partition);
+            log.info("[InventoryTxnPartitionTask] Exchanged partition dropped, partition={}, archiveTable={}",
+                    partition, archiveTable);
+            return;
+        }
+        txnMapper.exchangePartition(partition, archiveTable);
+        txnMapper.dropPartition(partition);
+        log.info("[InventoryTxnPartitionTask] Partition archived, partition={}, archiveTable={}",
+                partition, archiveTable);
+    }
+
+    /**
+     * 计算分区变更计划
+     *
+     * @param partitions      当前分区及上界（按边界升序）
+     * @param current         当前月份
+     * @param aheadMonths     提前创建的月份数
+     * @param retentionMonths 在线保留的月份数
+     */
+    static RotationPlan planRotation(List<PartitionBound> partitions, YearMonth current,
+                                     int aheadMonths, int retentionMonths) {
+        LocalDate highestBound = null;
+        List<String> toArchive = new ArrayList<>();
+        YearMonth archiveBefore = current.minusMonths(retentionMonths);
+
+        for (PartitionBound partition : partitions) {
+            if (partition.getLessThan() != null
+                    && (highestBound == null || partition.getLessThan().isAfter(highestBound))) {
+                highestBound = partition.getLessThan();
+            }
+            Matcher matcher = MONTH_PARTITION.matcher(partition.getName());
+            if (matcher.matches() && YearMonth.parse(matcher.group(1), MONTH_FORMAT).isBefore(archiveBefore)) {
+                toArchive.add(partition.getName());
+            }
+        }
+
+        // 只能在最高有界分区之后追加（REORGANIZE pmax），从其上界所在月份起逐月补齐
+        List<YearMonth> toAdd = new ArrayList<>();
+        YearMonth next = highestBound == null ? current : YearMonth.from(highestBound);
+        YearMonth last = current.plusMonths(aheadMonths);
+        for (YearMonth month = next; !month.isAfter(last); month = month.plusMonths(1)) {
+            toAdd.add(month);
+        }
+        return new RotationPlan(toAdd, toArchive);
+    }
+
+    static String partitionName(YearMonth month) {
+        return "p" + month.format(MONTH_FORMAT);
+    }
+
+    /**
+     * 解析 information_schema 的分区描述：RANGE COLUMNS 为 '2026-01-01'，pmax 为 MAXVALUE
+     */
+    static PartitionBound toPartitionBound(Map<String, Object> row) {
+        String name = String.valueOf(row.get("name"));
+        Object description = row.get("lessThan");
+        if (description == null || "MAXVALUE".equalsIgnoreCase(description.toString().trim())) {
+            return new PartitionBound(name, null);
+        }
+        String value = description.toString().replace("'", "").trim();
+        return new PartitionBound(name, LocalDate.parse(value.substring(0, 10)));
+    }
+
+    /**
+     * 分区及其上界（VALUES LESS THAN），pmax 的上界为 null
+     */
+    @Data
+    @AllArgsConstructor
+    static class PartitionBound {
+        private String name;
+        private LocalDate lessThan;
+    }
+
+    /**
+     * 分区变更计划
+     */
+    @Data
+    @AllArgsConstructor
+    static class RotationPlan {
+        private List<YearMonth> toAdd;
+        private List<String> toArchive;
+    }
+}
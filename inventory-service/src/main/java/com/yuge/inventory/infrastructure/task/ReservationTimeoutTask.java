@@ -9,14 +9,19 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * 预留超时释放任务
+ * 预留超时释放任务（兜底扫描）
  * 
  * 功能：
  * 1. 定时扫描已过期的预留记录
- * 2. 自动释放过期预留，归还库存
+ * 2. 自动释放过期预留，归还库存（按订单去重，每个订单只释放一次）
+ * 
+ * 说明：常规过期由 ReservationExpiryScheduler（时间轮）触发，本任务仅作为低频兜底，
+ * 覆盖跨实例通知丢失等极端情况
  * 
  * 配置：
  * - inventory.reservation.timeout.enabled: 是否启用（默认false）
@@ -75,27 +80,34 @@ public class ReservationTimeoutTask {
 
                 log.info("[ReservationTimeoutTask] Found {} expired reservations", expiredReservations.size());
 
-                // 按订单号分组释放
+                // 按订单号分组：同一订单的多个SKU只需释放一次
+                Map<String, InventoryReservation> byOrder = new LinkedHashMap<>();
                 for (InventoryReservation reservation : expiredReservations) {
+                    if (shouldRelease(reservation)) {
+                        byOrder.putIfAbsent(reservation.getOrderNo(), reservation);
+                    }
+                }
+
+                int batchReleased = 0;
+                for (String orderNo : byOrder.keySet()) {
                     try {
-                        // 检查是否需要释放（可扩展：调用订单服务检查订单状态）
-                        if (shouldRelease(reservation)) {
-                            boolean released = inventoryService.releaseReservation(
-                                    reservation.getOrderNo(), 
-                                    "预留超时自动释放"
-                            );
-                            if (released) {
-                                totalReleased++;
-                                log.info("[ReservationTimeoutTask] Released reservation, orderNo={}, skuId={}",
-                                        reservation.getOrderNo(), reservation.getSkuId());
-                            }
+                        boolean released = inventoryService.releaseReservation(orderNo, "预留超时自动释放");
+                        if (released) {
+                            batchReleased++;
+                            log.info("[ReservationTimeoutTask] Released reservation, orderNo={}", orderNo);
                         }
                     } catch (Exception e) {
                         totalFailed++;
-                        log.error("[ReservationTimeoutTask] Failed to release reservation, orderNo={}, skuId={}, error={}",
-                                reservation.getOrderNo(), reservation.getSkuId(), e.getMessage(), e);
+                        log.error("[ReservationTimeoutTask] Failed to release reservation, orderNo={}, error={}",
+                                orderNo, e.getMessage(), e);
                     }
                 }
+                totalReleased += batchReleased;
+
+                // 本批没有任何进展（均失败），避免反复扫描同一批记录
+                if (batchReleased == 0) {
+                    break;
+                }
 
             } while (!expiredReservations.isEmpty());
 
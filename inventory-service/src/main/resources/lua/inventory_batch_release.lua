@@ -14,6 +14,8 @@
     返回值:
     0: 幂等标记不存在（可能已释放或未预留）
     1: 释放成功
+
+    变更通知：库存变化后 PUBLISH inv:changed {warehouseId}:{skuId}:{available}，用于各实例本地缓存失效/库存索引更新
 --]]
 
 local skuCount = tonumber(ARGV[1])
@@ -47,6 +49,9 @@ for i = 1, skuCount do
             local qty = tonumber(ARGV[i + 1])
             local newAvailable = available + qty
             redis.call('SET', invKey, newAvailable)
+
+            -- 变更通知（去掉 "inv:" 前缀，附带最新可用库存）
+            redis.call('PUBLISH', 'inv:changed', string.sub(invKey, 5) .. ':' .. newAvailable)
         end
         
         redis.call('DEL', reservedKey)
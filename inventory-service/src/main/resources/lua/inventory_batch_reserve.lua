@@ -17,6 +17,8 @@
     -2: 库存key不存在（返回格式: "-2:{skuIndex}"）
     0: 已经预留过（幂等返回）
     1: 预留成功
+
+    变更通知：库存变化后 PUBLISH inv:changed {warehouseId}:{skuId}:{available}，用于各实例本地缓存失效/库存索引更新
 --]]
 
 local skuCount = tonumber(ARGV[1])
@@ -58,6 +60,9 @@ for i = 1, skuCount do
     
     local reservedKey = KEYS[skuCount + i]
     redis.call('SETEX', reservedKey, expireSeconds, item.qty)
+
+    -- 变更通知（去掉 "inv:" 前缀，附带最新可用库存）
+    redis.call('PUBLISH', 'inv:changed', string.sub(item.key, 5) .. ':' .. newAvailable)
 end
 
 return "1"
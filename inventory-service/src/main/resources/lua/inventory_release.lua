@@ -15,6 +15,8 @@
     -1: 幂等标记不存在（可能已释放或未预留）
     -2: 库存key不存在
     >0: 释放成功，返回归还后的可用库存
+
+    变更通知：库存变化后 PUBLISH inv:changed {warehouseId}:{skuId}:{available}，用于各实例本地缓存失效/库存索引更新
 --]]
 
 -- 检查幂等标记是否存在
@@ -45,4 +47,7 @@ redis.call('SET', invKey, newAvailable)
 -- 删除幂等标记
 redis.call('DEL', reservedKey)
 
+-- 变更通知（去掉 "inv:" 前缀，附带最新可用库存）
+redis.call('PUBLISH', 'inv:changed', string.sub(invKey, 5) .. ':' .. newAvailable)
+
 return newAvailable
@@ -17,6 +17,8 @@
     -2: 库存key不存在
     0: 已经预留过（幂等返回）
     >0: 预留成功，返回扣减后的可用库存
+
+    变更通知：库存变化后 PUBLISH inv:changed {warehouseId}:{skuId}:{available}，用于各实例本地缓存失效/库存索引更新
 --]]
 
 -- 检查是否已经预留过（幂等）
@@ -52,4 +54,7 @@ redis.call('SET', invKey, newAvailable)
 -- 设置幂等标记（带过期时间）
 redis.call('SETEX', reservedKey, expireSeconds, qty)
 
+-- 变更通知（去掉 "inv:" 前缀，附带最新可用库存）
+redis.call('PUBLISH', 'inv:changed', string.sub(invKey, 5) .. ':' .. newAvailable)
+
 return newAvailable
@@ -9,6 +9,8 @@
     
     返回值:
     1: 设置成功
+
+    变更通知：库存变化后 PUBLISH inv:changed {warehouseId}:{skuId}:{available}，用于各实例本地缓存失效/库存索引更新
 --]]
 
 local invKey = KEYS[1]
@@ -16,4 +18,7 @@ local available = tonumber(ARGV[1])
 
 redis.call('SET', invKey, available)
 
+-- 变更通知（去掉 "inv:" 前缀，附带最新可用库存）
+redis.call('PUBLISH', 'inv:changed', string.sub(invKey, 5) .. ':' .. available)
+
 return 1
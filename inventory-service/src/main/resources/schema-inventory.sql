@@ -35,36 +35,46 @@ CREATE TABLE IF NOT EXISTS t_inventory_reservation (
     created_at      DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at      DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     deleted         TINYINT         NOT NULL DEFAULT 0 COMMENT '逻辑删除标记 0-未删除 1-已删除',
+    expiry_slot     SMALLINT UNSIGNED AS (CRC32(order_no) % 1024) STORED COMMENT '过期分区槽位（分区 = 槽位 % partitions）',
     PRIMARY KEY (id),
     UNIQUE KEY uk_order_sku_warehouse (order_no, sku_id, warehouse_id),
     KEY idx_order_no (order_no),
     KEY idx_status_expire (status, expire_at),
+    KEY idx_status_slot_order (status, expiry_slot, order_no),
     KEY idx_sku_warehouse (sku_id, warehouse_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='库存预留表';
 
--- 3. 库存流水表
+-- 3. 库存流水表（按月分区，只追加）
 -- 记录所有库存变动，用于审计和问题排查
+-- 设计：
+--   1. RANGE COLUMNS(created_at) 按月分区，InventoryTxnPartitionTask 提前创建未来分区、归档过期分区
+--   2. 主键 (id, created_at)，id 由应用生成（雪花ID，单调递增），写入始终追加在B+树尾部
+--   3. 只存变更量和变更后数量，变更前数量 = after - delta，不单独存储
+--   4. 二级索引只保留按订单/按SKU查询所需的两个（分区表的唯一键必须包含分区列，txn_id 改为普通索引）
+--   5. 归档：EXCHANGE PARTITION 到 t_inventory_txn_archive_{yyyyMM}（仅元数据操作），再 DROP PARTITION
 CREATE TABLE IF NOT EXISTS t_inventory_txn (
-    id              BIGINT          NOT NULL AUTO_INCREMENT COMMENT '主键ID',
-    txn_id          VARCHAR(64)     NOT NULL COMMENT '流水ID（UUID）',
-    order_no        VARCHAR(64)     NULL COMMENT '关联订单号',
+    id              BIGINT          NOT NULL COMMENT '主键ID（雪花ID）',
+    txn_id          CHAR(32)        CHARACTER SET ascii NOT NULL COMMENT '流水ID（UUID无横线）',
+    order_no        VARCHAR(64)     CHARACTER SET ascii NULL COMMENT '关联订单号',
     sku_id          BIGINT          NOT NULL COMMENT 'SKU ID',
     warehouse_id    BIGINT          NOT NULL COMMENT '仓库ID',
     delta_available INT             NOT NULL DEFAULT 0 COMMENT '可用库存变化量（正数增加，负数减少）',
     delta_reserved  INT             NOT NULL DEFAULT 0 COMMENT '预留库存变化量（正数增加，负数减少）',
-    available_after INT             NOT NULL COMMENT '变更后可用库存',
-    reserved_after  INT             NOT NULL COMMENT '变更后预留库存',
-    reason          VARCHAR(50)     NOT NULL COMMENT '变动原因: RESERVE-预留, CONFIRM-确认, RELEASE-释放, ADJUST-调整',
+    available_after INT             NOT NULL COMMENT '变更后可用库存（变更前 = available_after - delta_available）',
+    reserved_after  INT             NOT NULL COMMENT '变更后预留库存（变更前 = reserved_after - delta_reserved）',
+    reason          VARCHAR(16)     CHARACTER SET ascii NOT NULL COMMENT '变动原因: RESERVE-预留, CONFIRM-确认, RELEASE-释放, ADJUST-调整',
     remark          VARCHAR(500)    NULL COMMENT '备注',
-    trace_id        VARCHAR(64)     NULL COMMENT '链路追踪ID',
+    trace_id        VARCHAR(64)     CHARACTER SET ascii NULL COMMENT '链路追踪ID',
     created_at      DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    PRIMARY KEY (id),
-    UNIQUE KEY uk_txn_id (txn_id),
+    PRIMARY KEY (id, created_at),
+    KEY idx_txn_id (txn_id),
     KEY idx_order_no (order_no),
-    KEY idx_sku_warehouse (sku_id, warehouse_id),
-    KEY idx_created_at (created_at),
-    KEY idx_reason (reason)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='库存流水表';
+    KEY idx_sku_warehouse_created (sku_id, warehouse_id, created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='库存流水表'
+PARTITION BY RANGE COLUMNS(created_at) (
+    PARTITION p_init VALUES LESS THAN ('2026-01-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
 
 -- 4. MQ消费日志表（用于消费幂等）
 CREATE TABLE IF NOT EXISTS t_mq_consume_log (
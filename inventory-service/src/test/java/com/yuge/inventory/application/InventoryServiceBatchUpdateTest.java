@@ -0,0 +1,162 @@
+package com.yuge.inventory.application;
+
+import com.yuge.inventory.domain.entity.Inventory;
+import com.yuge.inventory.domain.entity.InventoryReservation;
+import com.yuge.inventory.domain.enums.ReservationStatus;
+import com.yuge.inventory.infrastructure.cache.AvailabilityNearCache;
+import com.yuge.inventory.infrastructure.cache.WarehouseStockIndex;
+import com.yuge.inventory.infrastructure.expiry.ReservationExpiryScheduler;
+import com.yuge.inventory.infrastructure.redis.InventoryRedisService;
+import com.yuge.inventory.infrastructure.redis.InventoryRedisService.ReserveItem;
+import com.yuge.inventory.infrastructure.repository.InventoryRepository;
+import com.yuge.inventory.infrastructure.repository.InventoryReservationRepository;
+import com.yuge.inventory.infrastructure.repository.InventoryTxnRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 库存服务单元测试 - 确认/释放/退款回补的整单条件更新
+ */
+@ExtendWith(MockitoExtension.class)
+class InventoryServiceBatchUpdateTest {
+
+    private static final String ORDER_NO = "ORD202601010001";
+
+    @Mock
+    private InventoryRedisService redisService;
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private InventoryReservationRepository reservationRepository;
+
+    @Mock
+    private InventoryTxnRepository txnRepository;
+
+    @Mock
+    private ReservationExpiryScheduler expiryScheduler;
+
+    @Mock
+    private AvailabilityNearCache nearCache;
+
+    @Mock
+    private WarehouseStockIndex stockIndex;
+
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        inventoryService = new InventoryService(redisService, inventoryRepository, reservationRepository,
+                txnRepository, expiryScheduler, nearCache, stockIndex);
+    }
+
+    @Test
+    @DisplayName("确认预留-整单一次状态更新、一次库存更新、一次后像查询")
+    void confirmReservation_shouldUpdateWholeOrderOnce() {
+        List<InventoryReservation> reservations = List.of(
+                reservation(1001L, 1L, 2), reservation(1002L, 1L, 3), reservation(1003L, 2L, 1));
+        when(reservationRepository.findByOrderNoAndStatus(ORDER_NO, ReservationStatus.RESERVED))
+                .thenReturn(reservations);
+        when(reservationRepository.batchUpdateStatusByOrderNo(
+                ORDER_NO, ReservationStatus.RESERVED, ReservationStatus.CONFIRMED)).thenReturn(3);
+        when(inventoryRepository.batchConfirm(anyList())).thenReturn(3);
+        when(inventoryRepository.findByLocations(anyList())).thenReturn(List.of(
+                inventory(1001L, 1L, 98, 0), inventory(1002L, 1L, 197, 0), inventory(1003L, 2L, 49, 0)));
+
+        assertTrue(inventoryService.confirmReservation(ORDER_NO));
+
+        verify(inventoryRepository, times(1)).batchConfirm(argThat(items -> items.size() == 3));
+        verify(inventoryRepository, never()).findBySkuIdAndWarehouseId(anyLong(), anyLong());
+        verify(reservationRepository, never()).casUpdateStatus(anyLong(), any(), any(), anyInt());
+        verify(txnRepository).saveBatch(argThat(txns -> txns.size() == 3));
+        verify(expiryScheduler).cancel(ORDER_NO);
+    }
+
+    @Test
+    @DisplayName("确认预留-状态已被并发处理时不更新库存")
+    void confirmReservation_concurrentlyHandled_shouldSkipInventory() {
+        when(reservationRepository.findByOrderNoAndStatus(ORDER_NO, ReservationStatus.RESERVED))
+                .thenReturn(List.of(reservation(1001L, 1L, 2)));
+        when(reservationRepository.batchUpdateStatusByOrderNo(
+                ORDER_NO, ReservationStatus.RESERVED, ReservationStatus.CONFIRMED)).thenReturn(0);
+
+        assertTrue(inventoryService.confirmReservation(ORDER_NO));
+
+        verify(inventoryRepository, never()).batchConfirm(anyList());
+        verify(txnRepository, never()).saveBatch(anyList());
+    }
+
+    @Test
+    @DisplayName("释放预留-部分预留状态已变化时抛异常回滚")
+    void releaseReservation_partialTransition_shouldThrow() {
+        when(reservationRepository.findByOrderNoAndStatus(ORDER_NO, ReservationStatus.RESERVED))
+                .thenReturn(List.of(reservation(1001L, 1L, 2), reservation(1002L, 1L, 1)));
+        when(reservationRepository.batchUpdateStatusByOrderNo(
+                ORDER_NO, ReservationStatus.RESERVED, ReservationStatus.RELEASED)).thenReturn(1);
+
+        assertThrows(IllegalStateException.class,
+                () -> inventoryService.releaseReservation(ORDER_NO, "CANCEL"));
+        verify(redisService, never()).batchRelease(anyString(), anyList());
+        verify(inventoryRepository, never()).batchRelease(anyList());
+    }
+
+    @Test
+    @DisplayName("批量退款回补-同一库存位置合并为一行，不存在的位置跳过")
+    @SuppressWarnings("unchecked")
+    void batchRefundRestore_shouldMergeAndSkipMissing() {
+        when(inventoryRepository.batchRefundRestore(anyList())).thenReturn(1);
+        when(inventoryRepository.findByLocations(anyList())).thenReturn(List.of(inventory(1001L, 1L, 105, 0)));
+
+        boolean result = inventoryService.batchRefundRestore(ORDER_NO, "AS001", List.of(
+                refundItem(1001L, 1L, 2), refundItem(1001L, 1L, 3), refundItem(9999L, 1L, 1)));
+
+        assertTrue(result);
+        ArgumentCaptor<List<ReserveItem>> captor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryRepository).batchRefundRestore(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(5, captor.getValue().get(0).getQty());
+        verify(redisService).restoreAvailable(1L, 1001L, 5);
+        verify(redisService, never()).restoreAvailable(eq(1L), eq(9999L), anyInt());
+        verify(txnRepository).saveBatch(argThat(txns -> txns.size() == 1));
+    }
+
+    private InventoryReservation reservation(Long skuId, Long warehouseId, int qty) {
+        InventoryReservation reservation = new InventoryReservation();
+        reservation.setOrderNo(ORDER_NO);
+        reservation.setSkuId(skuId);
+        reservation.setWarehouseId(warehouseId);
+        reservation.setQty(qty);
+        reservation.setStatus(ReservationStatus.RESERVED.getCode());
+        reservation.setVersion(0);
+        return reservation;
+    }
+
+    private Inventory inventory(Long skuId, Long warehouseId, int available, int reserved) {
+        Inventory inventory = new Inventory();
+        inventory.setSkuId(skuId);
+        inventory.setWarehouseId(warehouseId);
+        inventory.setAvailableQty(available);
+        inventory.setReservedQty(reserved);
+        return inventory;
+    }
+
+    private InventoryService.RefundRestoreItem refundItem(Long skuId, Long warehouseId, int qty) {
+        return InventoryService.RefundRestoreItem.builder()
+                .skuId(skuId)
+                .warehouseId(warehouseId)
+                .qty(qty)
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.yuge.inventory.domain.allocation;
+
+import com.yuge.inventory.domain.allocation.WarehouseAllocator.Allocation;
+import com.yuge.inventory.domain.allocation.WarehouseAllocator.AllocationResult;
+import com.yuge.inventory.domain.allocation.WarehouseAllocator.Line;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多仓分配器测试
+ */
+@DisplayName("多仓分配器测试")
+class WarehouseAllocatorTest {
+
+    private WarehouseAllocator allocator;
+    private Map<Long, Map<Long, Integer>> stock;
+
+    @BeforeEach
+    void setUp() {
+        allocator = new WarehouseAllocator();
+        stock = new HashMap<>();
+    }
+
+    private void stock(long skuId, long warehouseId, int qty) {
+        stock.computeIfAbsent(skuId, k -> new HashMap<>()).put(warehouseId, qty);
+    }
+
+    private AllocationResult allocate(Line... lines) {
+        return allocator.allocate(List.of(lines), skuId -> stock.getOrDefault(skuId, Map.of()));
+    }
+
+    @Test
+    @DisplayName("单仓可满足整单时选择剩余库存最多的仓库")
+    void shouldPreferSingleWarehouse() {
+        stock(1001, 1, 5);
+        stock(1001, 2, 20);
+        stock(1002, 1, 5);
+        stock(1002, 2, 20);
+
+        AllocationResult result = allocate(new Line(1001L, 2), new Line(1002L, 3));
+
+        assertTrue(result.isSuccess());
+        assertEquals(List.of(new Allocation(1001L, 2L, 2), new Allocation(1002L, 2L, 3)),
+                result.getAllocations());
+    }
+
+    @Test
+    @DisplayName("无法单仓时尽量复用已选仓库")
+    void shouldReuseChosenWarehouse() {
+        stock(1001, 1, 10);
+        stock(1002, 1, 10);
+        stock(1003, 2, 10);
+
+        AllocationResult result = allocate(new Line(1001L, 1), new Line(1002L, 1), new Line(1003L, 1));
+
+        assertTrue(result.isSuccess());
+        assertEquals(3, result.getAllocations().size());
+        assertEquals(2, result.getAllocations().stream().filter(a -> a.getWarehouseId() == 1L).count());
+        assertEquals(1, result.getAllocations().stream().filter(a -> a.getWarehouseId() == 2L).count());
+    }
+
+    @Test
+    @DisplayName("单仓不足时拆分到多个仓库")
+    void shouldSplitLineAcrossWarehouses() {
+        stock(1001, 1, 3);
+        stock(1001, 2, 4);
+
+        AllocationResult result = allocate(new Line(1001L, 6));
+
+        assertTrue(result.isSuccess());
+        assertEquals(List.of(new Allocation(1001L, 2L, 4), new Allocation(1001L, 1L, 2)),
+                result.getAllocations());
+    }
+
+    @Test
+    @DisplayName("总量不足时返回不足的SKU")
+    void shouldFailWhenTotalInsufficient() {
+        stock(1001, 1, 3);
+        stock(1001, 2, 2);
+
+        AllocationResult result = allocate(new Line(1001L, 6));
+
+        assertFalse(result.isSuccess());
+        assertEquals(1001L, result.getShortSkuId());
+    }
+
+    @Test
+    @DisplayName("无库存位置的SKU分配失败")
+    void shouldFailForUnknownSku() {
+        AllocationResult result = allocate(new Line(9999L, 1));
+
+        assertFalse(result.isSuccess());
+        assertEquals(9999L, result.getShortSkuId());
+    }
+}
@@ -0,0 +1,167 @@
+package com.yuge.inventory.infrastructure.cache;
+
+import com.yuge.inventory.infrastructure.redis.InventoryRedisService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 可售库存本地缓存单元测试 - 命中、变更通知失效、TTL过期与低库存不缓存
+ */
+@ExtendWith(MockitoExtension.class)
+class AvailabilityNearCacheTest {
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private AvailabilityNearCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = newCache(60_000L, 100);
+    }
+
+    @Test
+    @DisplayName("写入后按 仓库+SKU 命中，其他仓库/SKU未命中")
+    void get_afterPut_shouldHit() {
+        cache.put(1L, 1001L, 50);
+
+        assertEquals(50, cache.get(1L, 1001L));
+        assertNull(cache.get(2L, 1001L));
+        assertNull(cache.get(1L, 1002L));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    @DisplayName("低库存与不存在的库存不缓存，每次直读Redis")
+    void put_lowStockOrMissing_shouldNotCache() {
+        cache.put(1L, 1001L, 10);
+        cache.put(1L, 1002L, 0);
+        cache.put(1L, 1003L, null);
+
+        assertNull(cache.get(1L, 1001L));
+        assertNull(cache.get(1L, 1002L));
+        assertNull(cache.get(1L, 1003L));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("收到 inv:changed 通知后立即失效对应条目，其他条目保留")
+    void changedMessage_shouldInvalidateEntry() {
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(listenerContainer).addMessageListener(listener.capture(),
+                eq(new ChannelTopic(InventoryRedisService.CHANGED_CHANNEL)));
+        cache.put(1L, 1001L, 50);
+        cache.put(1L, 1002L, 60);
+
+        listener.getValue().onMessage(message("1:1001:49"), null);
+
+        assertNull(cache.get(1L, 1001L));
+        assertEquals(60, cache.get(1L, 1002L));
+    }
+
+    @Test
+    @DisplayName("格式不正确的通知忽略")
+    void changedMessage_malformed_shouldIgnore() {
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(listenerContainer).addMessageListener(listener.capture(), any(ChannelTopic.class));
+        cache.put(1L, 1001L, 50);
+
+        listener.getValue().onMessage(message("bad"), null);
+        listener.getValue().onMessage(message("x:1001"), null);
+
+        assertEquals(50, cache.get(1L, 1001L));
+    }
+
+    @Test
+    @DisplayName("主动失效后未命中，重新写入后再次命中")
+    void invalidate_shouldDropEntry() {
+        cache.put(1L, 1001L, 50);
+
+        cache.invalidate(1L, 1001L);
+        assertNull(cache.get(1L, 1001L));
+
+        cache.put(1L, 1001L, 45);
+        assertEquals(45, cache.get(1L, 1001L));
+    }
+
+    @Test
+    @DisplayName("超过TTL后未命中并移除条目")
+    void get_afterTtl_shouldExpire() throws InterruptedException {
+        cache = newCache(50L, 100);
+        cache.put(1L, 1001L, 50);
+        assertEquals(50, cache.get(1L, 1001L));
+
+        Thread.sleep(120);
+
+        assertNull(cache.get(1L, 1001L));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("条目数达到上限：先清理过期条目，仍满则不再写入")
+    void put_full_shouldEvictExpiredOrSkip() throws InterruptedException {
+        cache = newCache(50L, 2);
+        cache.put(1L, 1001L, 50);
+        cache.put(1L, 1002L, 50);
+        Thread.sleep(120);
+
+        cache.put(1L, 1003L, 50);
+        assertEquals(1, cache.size());
+        assertEquals(50, cache.get(1L, 1003L));
+
+        cache = newCache(60_000L, 2);
+        cache.put(1L, 1001L, 50);
+        cache.put(1L, 1002L, 50);
+        cache.put(1L, 1003L, 50);
+        assertEquals(2, cache.size());
+        assertNull(cache.get(1L, 1003L));
+        assertEquals(50, cache.get(1L, 1001L));
+    }
+
+    @Test
+    @DisplayName("关闭时不缓存、不订阅通知")
+    void disabled_shouldBypass() {
+        reset(listenerContainer);
+        AvailabilityNearCache disabled = new AvailabilityNearCache(listenerContainer);
+        ReflectionTestUtils.setField(disabled, "enabled", false);
+        disabled.init();
+
+        disabled.put(1L, 1001L, 50);
+
+        assertNull(disabled.get(1L, 1001L));
+        verifyNoInteractions(listenerContainer);
+    }
+
+    private AvailabilityNearCache newCache(long ttlMs, int maxSize) {
+        reset(listenerContainer);
+        AvailabilityNearCache nearCache = new AvailabilityNearCache(listenerContainer);
+        ReflectionTestUtils.setField(nearCache, "enabled", true);
+        ReflectionTestUtils.setField(nearCache, "ttlMs", ttlMs);
+        ReflectionTestUtils.setField(nearCache, "maxSize", maxSize);
+        ReflectionTestUtils.setField(nearCache, "lowStockThreshold", 10);
+        nearCache.init();
+        return nearCache;
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(InventoryRedisService.CHANGED_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,62 @@
+package com.yuge.inventory.infrastructure.expiry;
+
+import com.yuge.platform.infra.lease.RedisLeaseService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 过期分区槽位映射测试
+ */
+@DisplayName("过期分区槽位映射测试")
+class ExpiryPartitionManagerTest {
+
+    @Test
+    @DisplayName("各分区的槽位不重不漏覆盖全部槽位")
+    void slotsOf_shouldCoverAllSlotsExactlyOnce() {
+        for (int partitions : new int[]{1, 7, 16, 1000, ExpiryPartitionManager.SLOTS}) {
+            ExpiryPartitionManager manager = newManager(partitions);
+            Set<Integer> seen = new HashSet<>();
+            for (int partition = 0; partition < partitions; partition++) {
+                List<Integer> slots = manager.slotsOf(partition);
+                assertFalse(slots.isEmpty(), "partitions=" + partitions + ", partition=" + partition);
+                for (int slot : slots) {
+                    assertEquals(partition, slot % partitions);
+                    assertTrue(seen.add(slot), "partitions=" + partitions + ", slot=" + slot);
+                }
+            }
+            assertEquals(ExpiryPartitionManager.SLOTS, seen.size(), "partitions=" + partitions);
+        }
+    }
+
+    @Test
+    @DisplayName("订单所属分区包含其 expiry_slot 槽位")
+    void partitionOf_shouldContainOrderSlot() {
+        ExpiryPartitionManager manager = newManager(16);
+        for (int i = 0; i < 1000; i++) {
+            String orderNo = "ORD20260101" + String.format("%06d", i);
+            CRC32 crc32 = new CRC32();
+            crc32.update(orderNo.getBytes(StandardCharsets.UTF_8));
+            int slot = (int) (crc32.getValue() % ExpiryPartitionManager.SLOTS);
+
+            assertTrue(manager.slotsOf(manager.partitionOf(orderNo)).contains(slot), orderNo);
+        }
+    }
+
+    private static ExpiryPartitionManager newManager(int partitions) {
+        ExpiryPartitionManager manager = new ExpiryPartitionManager(mock(StringRedisTemplate.class),
+                mock(RedisLeaseService.class));
+        ReflectionTestUtils.setField(manager, "partitions", partitions);
+        return manager;
+    }
+}
@@ -0,0 +1,102 @@
+package com.yuge.inventory.infrastructure.expiry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分层时间轮测试
+ */
+@DisplayName("分层时间轮测试")
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 100;
+    private static final int SIZE = 8;
+    private static final long START = 1_000_000L;
+
+    private HierarchicalTimingWheel wheel;
+    private List<String> fired;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new HierarchicalTimingWheel(TICK, SIZE, START);
+        fired = new ArrayList<>();
+    }
+
+    @Test
+    @DisplayName("到期前不触发，到期后一个tick内触发")
+    void shouldFireAfterDeadlineWithinOneTick() {
+        assertTrue(wheel.add("O1", START + 350));
+
+        wheel.advance(START + 300, fired::add);
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(START + 500, fired::add);
+        assertEquals(List.of("O1"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("超出第0层范围的任务经上层降级后触发")
+    void shouldCascadeFromOverflowLevels() {
+        // 第0层范围 800ms，第1层范围 6400ms，需要第2层
+        long deadline = START + 10_000;
+        assertTrue(wheel.add("O1", deadline));
+
+        wheel.advance(deadline - 1, fired::add);
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(deadline + TICK, fired::add);
+        assertEquals(List.of("O1"), fired);
+    }
+
+    @Test
+    @DisplayName("已取消的任务不触发")
+    void shouldNotFireCancelled() {
+        wheel.add("O1", START + 200);
+        wheel.add("O2", START + 200);
+        assertTrue(wheel.cancel("O1"));
+
+        wheel.advance(START + 1_000, fired::add);
+        assertEquals(List.of("O2"), fired);
+    }
+
+    @Test
+    @DisplayName("重复添加以最新到期时间为准")
+    void shouldRescheduleToLatestDeadline() {
+        wheel.add("O1", START + 200);
+        wheel.add("O1", START + 2_000);
+
+        wheel.advance(START + 1_000, fired::add);
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(START + 2_200, fired::add);
+        assertEquals(List.of("O1"), fired);
+    }
+
+    @Test
+    @DisplayName("按条件批量取消")
+    void shouldCancelByPredicate() {
+        wheel.add("A1", START + 500);
+        wheel.add("A2", START + 500);
+        wheel.add("B1", START + 500);
+
+        assertEquals(2, wheel.cancelIf(key -> key.startsWith("A")));
+
+        wheel.advance(START + 1_000, fired::add);
+        assertEquals(List.of("B1"), fired);
+    }
+
+    @Test
+    @DisplayName("已过期的任务添加失败，由调用方立即处理")
+    void shouldRejectAlreadyExpired() {
+        wheel.advance(START + 1_000, fired::add);
+        assertFalse(wheel.add("O1", START + 500));
+        assertFalse(wheel.contains("O1"));
+    }
+}
@@ -0,0 +1,152 @@
+package com.yuge.inventory.infrastructure.task;
+
+import com.yuge.inventory.infrastructure.mapper.InventoryTxnMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 库存流水分区维护计划测试
+ */
+@DisplayName("库存流水分区维护计划测试")
+class InventoryTxnPartitionTaskTest {
+
+    private static final YearMonth CURRENT = YearMonth.of(2026, 10);
+
+    @Test
+    @DisplayName("初始表只有 p_init/pmax 时，从 p_init 的上界起逐月创建分区")
+    void shouldSeedFromInitBoundOnFreshTable() {
+        InventoryTxnPartitionTask.RotationPlan plan = InventoryTxnPartitionTask.planRotation(
+                List.of(bound("p_init", "2026-01-01"), bound("pmax", null)), CURRENT, 2, 6);
+
+        List<YearMonth> expected = new ArrayList<>();
+        for (YearMonth month = YearMonth.of(2026, 1); !month.isAfter(YearMonth.of(2026, 12)); month = month.plusMonths(1)) {
+            expected.add(month);
+        }
+        assertEquals(expected, plan.getToAdd());
+        assertTrue(plan.getToArchive().isEmpty());
+    }
+
+    @Test
+    @DisplayName("没有有界分区时从当月起创建")
+    void shouldCreateFromCurrentMonthWithoutBound() {
+        InventoryTxnPartitionTask.RotationPlan plan = InventoryTxnPartitionTask.planRotation(
+                List.of(bound("pmax", null)), CURRENT, 1, 6);
+
+        assertEquals(List.of(YearMonth.of(2026, 10), YearMonth.of(2026, 11)), plan.getToAdd());
+    }
+
+    @Test
+    @DisplayName("已有分区时只在最高分区之后追加")
+    void shouldAppendAfterHighestPartition() {
+        InventoryTxnPartitionTask.RotationPlan plan = InventoryTxnPartitionTask.planRotation(
+                List.of(bound("p_init", "2026-01-01"), bound("p202610", "2026-11-01"),
+                        bound("p202611", "2026-12-01"), bound("pmax", null)), CURRENT, 3, 6);
+
+        assertEquals(List.of(YearMonth.of(2026, 12), YearMonth.of(2027, 1)), plan.getToAdd());
+    }
+
+    @Test
+    @DisplayName("任务停跑后补齐中间月份，不跳月")
+    void shouldFillGapAfterHighestPartition() {
+        InventoryTxnPartitionTask.RotationPlan plan = InventoryTxnPartitionTask.planRotation(
+                List.of(bound("p202607", "2026-08-01"), bound("pmax", null)), CURRENT, 0, 6);
+
+        assertEquals(List.of(YearMonth.of(2026, 8), YearMonth.of(2026, 9), YearMonth.of(2026, 10)),
+                plan.getToAdd());
+    }
+
+    @Test
+    @DisplayName("未来分区已足够时不创建")
+    void shouldNotAddWhenAheadIsCovered() {
+        InventoryTxnPartitionTask.RotationPlan plan = InventoryTxnPartitionTask.planRotation(
+                List.of(bound("p202610", "2026-11-01"), bound("p202611", "2026-12-01"),
+                        bound("p202612", "2027-01-01"), bound("pmax", null)), CURRENT, 2, 6);
+
+        assertTrue(plan.getToAdd().isEmpty());
+    }
+
+    @Test
+    @DisplayName("超过保留期的月分区进入归档")
+    void shouldArchiveExpiredPartitions() {
+        InventoryTxnPartitionTask.RotationPlan plan = InventoryTxnPartitionTask.planRotation(
+                List.of(bound("p_init", "2026-01-01"), bound("p202603", "2026-04-01"),
+                        bound("p202604", "2026-05-01"), bound("p202605", "2026-06-01"),
+                        bound("p202610", "2026-11-01"), bound("pmax", null)), CURRENT, 0, 6);
+
+        assertEquals(List.of("p202603"), plan.getToArchive());
+        assertTrue(plan.getToAdd().isEmpty());
+    }
+
+    @Test
+    @DisplayName("解析 information_schema 分区描述")
+    void shouldParsePartitionDescription() {
+        InventoryTxnPartitionTask.PartitionBound init = InventoryTxnPartitionTask.toPartitionBound(
+                Map.of("name", "p_init", "lessThan", "'2026-01-01'"));
+        InventoryTxnPartitionTask.PartitionBound max = InventoryTxnPartitionTask.toPartitionBound(
+                Map.of("name", "pmax", "lessThan", "MAXVALUE"));
+
+        assertEquals(LocalDate.of(2026, 1, 1), init.getLessThan());
+        assertNull(max.getLessThan());
+    }
+
+    @Test
+    @DisplayName("归档表已是非分区表时不再去分区")
+    void archive_shouldSkipRemovePartitioningWhenNotPartitioned() {
+        InventoryTxnMapper mapper = mock(InventoryTxnMapper.class);
+        when(mapper.countPartitions("t_inventory_txn_archive_202603")).thenReturn(0);
+        when(mapper.archiveHasRows("t_inventory_txn_archive_202603")).thenReturn(0);
+
+        new InventoryTxnPartitionTask(mapper, mock(StringRedisTemplate.class)).archivePartition("p202603");
+
+        verify(mapper, never()).removeArchivePartitioning(anyString());
+        verify(mapper).exchangePartition("p202603", "t_inventory_txn_archive_202603");
+        verify(mapper).dropPartition("p202603");
+    }
+
+    @Test
+    @DisplayName("新建的归档表带分区定义时先去分区再交换")
+    void archive_shouldRemovePartitioningOnFreshArchiveTable() {
+        InventoryTxnMapper mapper = mock(InventoryTxnMapper.class);
+        when(mapper.countPartitions("t_inventory_txn_archive_202603")).thenReturn(12);
+        when(mapper.archiveHasRows("t_inventory_txn_archive_202603")).thenReturn(0);
+
+        new InventoryTxnPartitionTask(mapper, mock(StringRedisTemplate.class)).archivePartition("p202603");
+
+        verify(mapper).removeArchivePartitioning("t_inventory_txn_archive_202603");
+        verify(mapper).exchangePartition("p202603", "t_inventory_txn_archive_202603");
+    }
+
+    @Test
+    @DisplayName("上次已交换未删除分区时只删除空分区，不再交换")
+    void archive_shouldOnlyDropWhenAlreadyExchanged() {
+        InventoryTxnMapper mapper = mock(InventoryTxnMapper.class);
+        when(mapper.archiveHasRows("t_inventory_txn_archive_202603")).thenReturn(1);
+        when(mapper.partitionHasRows("p202603")).thenReturn(0);
+
+        new InventoryTxnPartitionTask(mapper, mock(StringRedisTemplate.class)).archivePartition("p202603");
+
+        verify(mapper, never()).exchangePartition(anyString(), anyString());
+        verify(mapper).dropPartition("p202603");
+    }
+
+    @Test
+    @DisplayName("分区命名")
+    void shouldFormatPartitionName() {
+        assertEquals("p202601", InventoryTxnPartitionTask.partitionName(YearMonth.of(2026, 1)));
+    }
+
+    private static InventoryTxnPartitionTask.PartitionBound bound(String name, String lessThan) {
+        return new InventoryTxnPartitionTask.PartitionBound(name, lessThan == null ? null : LocalDate.parse(lessThan));
+    }
+}
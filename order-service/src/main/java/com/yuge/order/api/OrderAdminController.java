@@ -0,0 +1,43 @@
+package com.yuge.order.api;
+
+import com.yuge.order.api.dto.OrderResponse;
+import com.yuge.order.application.OrderQueryService;
+import com.yuge.platform.infra.common.Result;
+import com.yuge.platform.infra.ratelimit.RateLimit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 订单管理端控制器
+ *
+ * 不带用户维度的查询需要扫描全部分库，仅开放给管理端
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin/orders")
+@RequiredArgsConstructor
+public class OrderAdminController {
+
+    private final OrderQueryService orderQueryService;
+
+    /**
+     * 最近订单列表（按创建时间倒序）
+     *
+     * @param status 状态过滤，可多个
+     * @param size   条数，默认20，最大200
+     */
+    @GetMapping
+    @RateLimit(key = "order:admin:list", qps = 50, capacity = 60)
+    public Result<List<OrderResponse>> listRecentOrders(
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) Integer size) {
+        log.info("[OrderAdminController] Listing recent orders, status={}, size={}", status, size);
+        return Result.success(orderQueryService.listRecentOrdersForAdmin(status, size));
+    }
+}
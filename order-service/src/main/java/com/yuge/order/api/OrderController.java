@@ -2,15 +2,24 @@ package com.yuge.order.api;
 
 import com.yuge.order.api.dto.CancelOrderRequest;
 import com.yuge.order.api.dto.CreateOrderRequest;
+import com.yuge.order.api.dto.OrderPageResponse;
 import com.yuge.order.api.dto.OrderResponse;
+import com.yuge.order.api.dto.OrderStatusResponse;
+import com.yuge.order.application.OrderQueryService;
 import com.yuge.order.application.OrderService;
+import com.yuge.order.application.OrderStatusWatchService;
 import com.yuge.platform.infra.common.Result;
 import com.yuge.platform.infra.idempotent.Idempotent;
 import com.yuge.platform.infra.ratelimit.RateLimit;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
 
 /**
  * 订单控制器
@@ -22,6 +31,8 @@ import org.springframework.web.bind.annotation.*;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderQueryService orderQueryService;
+    private final OrderStatusWatchService orderStatusWatchService;
 
     /**
      * 创建订单（幂等）
@@ -44,16 +55,62 @@ public class OrderController {
     }
 
     /**
-     * 查询订单详情
+     * 查询订单详情（L1/L2缓存，同一订单并发轮询合并加载）
      */
     @GetMapping("/{orderNo}")
     @RateLimit(key = "order:query", qps = 1000, capacity = 1200)
     public Result<OrderResponse> getOrder(@PathVariable String orderNo) {
         log.info("[OrderController] Getting order, orderNo={}", orderNo);
-        OrderResponse response = orderService.getOrder(orderNo);
+        OrderResponse response = orderQueryService.getOrder(orderNo);
         return Result.success(response);
     }
 
+    /**
+     * 订阅订单状态（长轮询）
+     * 订单版本超过 version 时立即返回，否则等待至状态变更或超时（超时返回当前状态，changed=false）
+     *
+     * @param version   客户端已知版本，不传时立即返回当前状态
+     * @param timeoutMs 等待时间，默认25秒，最大60秒
+     */
+    @GetMapping("/{orderNo}/status/wait")
+    @RateLimit(key = "order:status:wait", qps = 1000, capacity = 1200)
+    public DeferredResult<Result<OrderStatusResponse>> waitOrderStatus(
+            @PathVariable String orderNo,
+            @RequestParam(required = false) Integer version,
+            @RequestParam(required = false) Long timeoutMs) {
+        log.debug("[OrderController] Waiting order status, orderNo={}, version={}", orderNo, version);
+        return orderStatusWatchService.waitForChange(orderNo, version, timeoutMs);
+    }
+
+    /**
+     * 订阅订单状态（SSE）
+     * 先推送当前状态，之后每次变更推送一条 status 事件，订单进入终态后关闭
+     */
+    @GetMapping(value = "/{orderNo}/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @RateLimit(key = "order:status:stream", qps = 500, capacity = 600)
+    public SseEmitter streamOrderStatus(@PathVariable String orderNo) {
+        log.debug("[OrderController] Streaming order status, orderNo={}", orderNo);
+        return orderStatusWatchService.stream(orderNo);
+    }
+
+    /**
+     * 查询我的订单列表（键集分页）
+     *
+     * @param status 状态过滤，可多个
+     * @param cursor 上一页返回的 nextCursor，第一页不传
+     * @param size   每页条数，默认20，最大50
+     */
+    @GetMapping
+    @RateLimit(key = "order:list", qps = 1000, capacity = 1200)
+    public Result<OrderPageResponse> listOrders(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        log.info("[OrderController] Listing orders, userId={}, status={}, cursor={}", userId, status, cursor);
+        return Result.success(orderQueryService.listUserOrders(userId, status, cursor, size));
+    }
+
     /**
      * 取消订单（幂等）
      * 幂等键：orderNo + clientRequestId（从Header获取）
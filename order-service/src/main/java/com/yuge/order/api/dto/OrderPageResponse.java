@@ -0,0 +1,27 @@
+package com.yuge.order.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 订单列表分页响应（键集分页）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageResponse {
+
+    private List<OrderResponse> orders;
+
+    /**
+     * 下一页游标，hasMore=false 时为空
+     */
+    private String nextCursor;
+
+    private Boolean hasMore;
+}
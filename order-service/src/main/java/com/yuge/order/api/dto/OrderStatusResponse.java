@@ -0,0 +1,30 @@
+package com.yuge.order.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 订单状态响应（状态订阅）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusResponse {
+
+    private String orderNo;
+    private String status;
+    private String statusDesc;
+
+    /**
+     * 订单版本号，客户端下次订阅时带上
+     */
+    private Integer version;
+
+    /**
+     * 相对客户端传入的版本是否已变化（长轮询超时返回false）
+     */
+    private Boolean changed;
+}
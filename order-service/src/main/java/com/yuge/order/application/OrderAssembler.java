@@ -0,0 +1,46 @@
+package com.yuge.order.application;
+
+import com.yuge.order.api.dto.OrderResponse;
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.domain.entity.OrderItem;
+import com.yuge.order.domain.enums.OrderStatus;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 订单响应组装（详情与列表共用）
+ */
+public final class OrderAssembler {
+
+    private OrderAssembler() {
+    }
+
+    public static OrderResponse toResponse(Order order, List<OrderItem> items) {
+        List<OrderResponse.OrderItemResponse> itemResponses = items.stream()
+                .map(item -> OrderResponse.OrderItemResponse.builder()
+                        .skuId(item.getSkuId())
+                        .qty(item.getQty())
+                        .title(item.getTitleSnapshot())
+                        .price(item.getPriceSnapshot())
+                        .promoJson(item.getPromoSnapshotJson())
+                        .build())
+                .collect(Collectors.toList());
+
+        OrderStatus status = OrderStatus.of(order.getStatus());
+
+        return OrderResponse.builder()
+                .id(order.getId())
+                .orderNo(order.getOrderNo())
+                .userId(order.getUserId())
+                .amount(order.getAmount())
+                .status(order.getStatus())
+                .statusDesc(status.getDesc())
+                .priceLockNo(order.getPriceLockNo())
+                .remark(order.getRemark())
+                .createdAt(order.getCreatedAt())
+                .updatedAt(order.getUpdatedAt())
+                .items(itemResponses)
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.yuge.order.application;
+
+import com.yuge.platform.infra.common.ErrorCode;
+import com.yuge.platform.infra.exception.BizException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 订单列表游标：上一页最后一条的 (created_at, id)，对外为不透明的 base64 字符串
+ */
+@Data
+@AllArgsConstructor
+public class OrderPageCursor {
+
+    private LocalDateTime createdAt;
+    private Long id;
+
+    /**
+     * 给定订单在列表中是否排在游标之后（created_at DESC, id DESC 顺序下）
+     */
+    public boolean follows(LocalDateTime otherCreatedAt, Long otherId) {
+        int cmp = otherCreatedAt.compareTo(createdAt);
+        return cmp < 0 || (cmp == 0 && otherId < id);
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，为空返回null（第一页）
+     */
+    public static OrderPageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new OrderPageCursor(LocalDateTime.parse(raw.substring(0, sep)),
+                    Long.parseLong(raw.substring(sep + 1)));
+        } catch (Exception e) {
+            throw new BizException(ErrorCode.PARAM_INVALID, "无效的分页游标");
+        }
+    }
+}
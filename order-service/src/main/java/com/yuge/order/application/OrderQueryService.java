@@ -0,0 +1,253 @@
+package com.yuge.order.application;
+
+import com.yuge.order.api.dto.OrderPageResponse;
+import com.yuge.order.api.dto.OrderResponse;
+import com.yuge.order.api.dto.OrderStatusResponse;
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.domain.entity.OrderItem;
+import com.yuge.order.domain.enums.OrderStatus;
+import com.yuge.order.infrastructure.cache.RecentOrdersCache;
+import com.yuge.order.infrastructure.cache.OrderDetailCache;
+import com.yuge.order.infrastructure.cache.OrderSnapshot;
+import com.yuge.order.infrastructure.cache.RecentOrdersCache.RecentOrders;
+import com.yuge.order.infrastructure.repository.OrderRepository;
+import com.yuge.platform.infra.common.ErrorCode;
+import com.yuge.platform.infra.exception.BizException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单查询服务（订单详情、"我的订单"列表）
+ *
+ * 订单详情：OrderDetailCache 读穿透（L1本地 -> L2 Redis -> DB），同一订单并发轮询合并为一次加载
+ *
+ * 列表读取路径：
+ * 1. 优先读取 Redis 最近订单读模型（未加载时从DB加载最近 window-size 条并写入）
+ * 2. 读模型能完整回答本页（凑满一页，或用户全部订单都在窗口内）时直接返回
+ * 3. 否则回退DB：t_order 按 (user_id, created_at, id) 键集分页 + 明细一次 IN 查询
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderQueryService {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int MAX_ADMIN_LIST_SIZE = 200;
+
+    private final OrderRepository orderRepository;
+    private final RecentOrdersCache recentOrdersCache;
+    private final OrderDetailCache orderDetailCache;
+
+    /**
+     * 查询订单详情
+     */
+    public OrderResponse getOrder(String orderNo) {
+        OrderSnapshot snapshot = getSnapshot(orderNo);
+        return OrderAssembler.toResponse(snapshot.getOrder(), snapshot.getItems());
+    }
+
+    /**
+     * 查询订单当前状态（与详情共用缓存）
+     */
+    public OrderStatusResponse getStatus(String orderNo) {
+        return toStatusResponse(getSnapshot(orderNo));
+    }
+
+    /**
+     * 查询订单当前状态（跳过本地L1缓存，供状态订阅在订阅后读取）
+     */
+    public OrderStatusResponse getFreshStatus(String orderNo) {
+        return toStatusResponse(requireSnapshot(orderNo, orderDetailCache.getFresh(orderNo, () -> loadSnapshot(orderNo))));
+    }
+
+    private OrderSnapshot getSnapshot(String orderNo) {
+        return requireSnapshot(orderNo, orderDetailCache.get(orderNo, () -> loadSnapshot(orderNo)));
+    }
+
+    private OrderSnapshot loadSnapshot(String orderNo) {
+        return orderRepository.findByOrderNo(orderNo)
+                .map(order -> new OrderSnapshot(order, orderRepository.findItemsByOrderNo(orderNo)))
+                .orElse(null);
+    }
+
+    private OrderSnapshot requireSnapshot(String orderNo, OrderSnapshot snapshot) {
+        if (snapshot == null) {
+            throw new BizException(ErrorCode.RESOURCE_NOT_FOUND, "订单不存在: " + orderNo);
+        }
+        return snapshot;
+    }
+
+    private OrderStatusResponse toStatusResponse(OrderSnapshot snapshot) {
+        Order order = snapshot.getOrder();
+        return OrderStatusResponse.builder()
+                .orderNo(order.getOrderNo())
+                .status(order.getStatus())
+                .statusDesc(OrderStatus.of(order.getStatus()).getDesc())
+                .version(order.getVersion())
+                .build();
+    }
+
+    /**
+     * 查询用户订单列表
+     *
+     * @param userId   用户ID
+     * @param statuses 状态过滤，为空不过滤
+     * @param cursor   上一页返回的游标，为空表示第一页
+     * @param size     每页条数
+     */
+    public OrderPageResponse listUserOrders(Long userId, List<String> statuses, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        List<String> statusFilter = normalizeStatuses(statuses);
+        OrderPageCursor after = OrderPageCursor.decode(cursor);
+
+        RecentOrders recent = recentOrdersCache.get(userId);
+        if (recent == null) {
+            recent = loadRecent(userId);
+        }
+        OrderPageResponse page = pageFromRecent(recent, statusFilter, after, pageSize);
+        if (page != null) {
+            return page;
+        }
+
+        log.debug("[OrderQueryService] Recent window exhausted, fallback to DB, userId={}", userId);
+        return pageFromDb(userId, statusFilter, after, pageSize);
+    }
+
+    /**
+     * 从DB加载最近订单并写入读模型
+     *
+     * 读DB前设置加载标记，读DB期间提交的订单由 init 合并；合并后以读模型为准重新读取
+     */
+    private RecentOrders loadRecent(Long userId) {
+        int window = recentOrdersCache.getWindowSize();
+        recentOrdersCache.beginLoad(userId);
+        List<Order> orders = orderRepository.findUserOrderPage(userId, null, null, null, window + 1);
+        boolean complete = orders.size() <= window;
+        if (!complete) {
+            orders = orders.subList(0, window);
+        }
+
+        Map<String, List<OrderItem>> itemsByOrderNo = orderRepository.findItemsByOrderNos(
+                orders.stream().map(Order::getOrderNo).toList());
+        List<OrderSnapshot> entries = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            entries.add(new OrderSnapshot(order,
+                    itemsByOrderNo.getOrDefault(order.getOrderNo(), Collections.emptyList())));
+        }
+        if (recentOrdersCache.init(userId, entries, complete)) {
+            RecentOrders merged = recentOrdersCache.get(userId);
+            if (merged != null) {
+                return merged;
+            }
+        }
+        return new RecentOrders(complete, entries);
+    }
+
+    /**
+     * 从读模型取一页
+     *
+     * @return null 表示读模型不足以回答本页，需要回退DB
+     */
+    OrderPageResponse pageFromRecent(RecentOrders recent, List<String> statuses,
+                                     OrderPageCursor after, int pageSize) {
+        List<OrderSnapshot> matched = new ArrayList<>(pageSize + 1);
+        for (OrderSnapshot entry : recent.getEntries()) {
+            Order order = entry.getOrder();
+            if (after != null && !after.follows(order.getCreatedAt(), order.getId())) {
+                continue;
+            }
+            if (!statuses.isEmpty() && !statuses.contains(order.getStatus())) {
+                continue;
+            }
+            matched.add(entry);
+            if (matched.size() > pageSize) {
+                break;
+            }
+        }
+
+        boolean hasMore = matched.size() > pageSize;
+        if (!hasMore && !recent.isComplete()) {
+            return null;
+        }
+        if (hasMore) {
+            matched = matched.subList(0, pageSize);
+        }
+
+        List<OrderResponse> responses = new ArrayList<>(matched.size());
+        for (OrderSnapshot entry : matched) {
+            responses.add(OrderAssembler.toResponse(entry.getOrder(), entry.getItems()));
+        }
+        Order last = matched.isEmpty() ? null : matched.get(matched.size() - 1).getOrder();
+        return buildPage(responses, hasMore, last);
+    }
+
+    private OrderPageResponse pageFromDb(Long userId, List<String> statuses, OrderPageCursor after, int pageSize) {
+        List<Order> orders = orderRepository.findUserOrderPage(userId, statuses,
+                after != null ? after.getCreatedAt() : null,
+                after != null ? after.getId() : null,
+                pageSize + 1);
+
+        boolean hasMore = orders.size() > pageSize;
+        if (hasMore) {
+            orders = orders.subList(0, pageSize);
+        }
+
+        Map<String, List<OrderItem>> itemsByOrderNo = orderRepository.findItemsByOrderNos(
+                orders.stream().map(Order::getOrderNo).toList());
+        List<OrderResponse> responses = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            responses.add(OrderAssembler.toResponse(order,
+                    itemsByOrderNo.getOrDefault(order.getOrderNo(), Collections.emptyList())));
+        }
+        return buildPage(responses, hasMore, orders.isEmpty() ? null : orders.get(orders.size() - 1));
+    }
+
+    /**
+     * 管理端最近订单列表（不按用户过滤，跨分库 scatter-gather）
+     *
+     * @param statuses 状态过滤，为空不过滤
+     * @param size     条数，默认20，最大200
+     */
+    public List<OrderResponse> listRecentOrdersForAdmin(List<String> statuses, Integer size) {
+        int limit = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_ADMIN_LIST_SIZE);
+        List<Order> orders = orderRepository.findRecentOrdersAcrossShards(normalizeStatuses(statuses), limit);
+        Map<String, List<OrderItem>> itemsByOrderNo = orderRepository.findItemsByOrderNos(
+                orders.stream().map(Order::getOrderNo).toList());
+        List<OrderResponse> responses = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            responses.add(OrderAssembler.toResponse(order,
+                    itemsByOrderNo.getOrDefault(order.getOrderNo(), Collections.emptyList())));
+        }
+        return responses;
+    }
+
+    private OrderPageResponse buildPage(List<OrderResponse> orders, boolean hasMore, Order last) {
+        return OrderPageResponse.builder()
+                .orders(orders)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? new OrderPageCursor(last.getCreatedAt(), last.getId()).encode() : null)
+                .build();
+    }
+
+    private List<String> normalizeStatuses(List<String> statuses) {
+        if (statuses == null || statuses.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(statuses.size());
+        for (String status : statuses) {
+            try {
+                result.add(OrderStatus.of(status.trim().toUpperCase()).getCode());
+            } catch (IllegalArgumentException e) {
+                throw new BizException(ErrorCode.PARAM_INVALID, "未知的订单状态: " + status);
+            }
+        }
+        return result;
+    }
+}
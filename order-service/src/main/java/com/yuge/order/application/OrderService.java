@@ -5,22 +5,28 @@ import com.yuge.order.api.dto.CreateOrderRequest;
 import com.yuge.order.api.dto.OrderResponse;
 import com.yuge.order.domain.entity.Order;
 import com.yuge.order.domain.entity.OrderItem;
+import com.yuge.order.domain.entity.OrderStateFlow;
+import com.yuge.order.domain.entity.OutboxEvent;
 import com.yuge.order.domain.enums.OrderEvent;
 import com.yuge.order.domain.enums.OrderStatus;
 import com.yuge.order.domain.event.OrderCanceledEvent;
 import com.yuge.order.domain.event.OrderCreatedEvent;
 import com.yuge.order.domain.statemachine.OrderStateMachine;
 import com.yuge.order.infrastructure.client.PricingClient;
+import com.yuge.order.infrastructure.repository.OrderGroupCommitWriter;
 import com.yuge.order.infrastructure.repository.OrderRepository;
 import com.yuge.order.infrastructure.repository.OutboxEventRepository;
+import com.yuge.order.infrastructure.sharding.OrderShardRouter;
 import com.yuge.platform.infra.common.ErrorCode;
 import com.yuge.platform.infra.exception.BizException;
 import com.yuge.platform.infra.trace.TraceContext;
 import cn.hutool.core.util.IdUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -29,6 +35,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -44,14 +51,23 @@ public class OrderService {
     private final OutboxEventRepository outboxEventRepository;
     private final OrderStateMachine orderStateMachine;
     private final PricingClient pricingClient;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderGroupCommitWriter orderGroupCommitWriter;
+    private final OrderShardRouter orderShardRouter;
 
     /**
      * 创建订单（幂等）
-     * 事务内：创建订单 + 写Outbox
-     * 
+     *
+     * 远程调用不在DB事务内，本地事务只包含写库（避免定价服务RT占用连接和唯一键锁）：
+     * 1. 预占价格锁（远程，无事务）：校验签名/状态/过期，LOCKED -> RESERVED
+     * 2. 本地短事务：订单 + 明细 + Outbox + 状态流水（可选组提交，见 OrderGroupCommitWriter）
+     * 3. 事务提交后确认价格锁（远程）：RESERVED -> USED；失败由 OrderCreatedConsumer 消费订单创建事件重试
+     * 4. 校验失败或本地事务确定已回滚时释放预占（补偿）：RESERVED -> LOCKED；
+     *    提交结果未知（提交阶段异常、组提交非唯一键类失败）时不释放，保持 RESERVED：
+     *    已提交则由订单创建事件确认，未提交则由定价服务在预占超时后清理
+     *
      * 重要：必须传入priceLockNo和signature，防止篡价
      */
-    @Transactional(rollbackFor = Exception.class)
     public OrderResponse createOrder(CreateOrderRequest request) {
         Long userId = request.getUserId();
         String clientRequestId = request.getClientRequestId();
@@ -67,57 +83,115 @@ public class OrderService {
         }
 
         // 2. 生成订单号
-        String orderNo = generateOrderNo();
-
-        // 3. 校验并使用价格锁（防篡价核心逻辑）
-        PricingClient.UsePriceLockResult usePriceLockResult = pricingClient.usePriceLock(priceLockNo, orderNo, signature);
-        if (!usePriceLockResult.getSuccess()) {
-            log.warn("[OrderService] Use price lock failed, priceLockNo={}, orderNo={}, error={}",
-                    priceLockNo, orderNo, usePriceLockResult.getErrorMessage());
-            throw new BizException(ErrorCode.INVALID_PARAM, "价格锁校验失败: " + usePriceLockResult.getErrorMessage());
+        String orderNo = generateOrderNo(userId);
+
+        // 3. 预占价格锁（防篡价核心逻辑，事务外）
+        long reserveStart = System.currentTimeMillis();
+        PricingClient.UsePriceLockResult reserveResult = pricingClient.reservePriceLock(priceLockNo, orderNo, signature);
+        long reserveMs = System.currentTimeMillis() - reserveStart;
+        if (!reserveResult.getSuccess()) {
+            log.warn("[OrderService] Reserve price lock failed, priceLockNo={}, orderNo={}, error={}",
+                    priceLockNo, orderNo, reserveResult.getErrorMessage());
+            throw new BizException(ErrorCode.INVALID_PARAM, "价格锁校验失败: " + reserveResult.getErrorMessage());
         }
 
-        PricingClient.PriceLockInfo priceLockInfo = usePriceLockResult.getPriceLockInfo();
-        
-        // 4. 校验用户ID是否匹配
-        if (!userId.equals(priceLockInfo.getUserId()) && priceLockInfo.getUserId() != 0L) {
-            log.warn("[OrderService] User ID mismatch, requestUserId={}, priceLockUserId={}",
-                    userId, priceLockInfo.getUserId());
-            throw new BizException(ErrorCode.INVALID_PARAM, "价格锁用户不匹配");
+        Order order;
+        List<OrderItem> orderItems;
+        OrderGroupCommitWriter.NewOrder newOrder = null;
+        try {
+            PricingClient.PriceLockInfo priceLockInfo = reserveResult.getPriceLockInfo();
+
+            // 4. 校验用户ID是否匹配
+            if (!userId.equals(priceLockInfo.getUserId()) && priceLockInfo.getUserId() != 0L) {
+                log.warn("[OrderService] User ID mismatch, requestUserId={}, priceLockUserId={}",
+                        userId, priceLockInfo.getUserId());
+                throw new BizException(ErrorCode.INVALID_PARAM, "价格锁用户不匹配");
+            }
+
+            // 5. 校验商品明细是否匹配（防止篡改商品）
+            validateOrderItems(request.getItems(), priceLockInfo.getAllocations());
+
+            // 6. 创建订单实体（使用锁价金额作为订单金额，防篡价）
+            order = new Order();
+            order.setId(IdUtil.getSnowflakeNextId());
+            order.setOrderNo(orderNo);
+            order.setUserId(userId);
+            order.setAmount(priceLockInfo.getPayableAmount());
+            order.setStatus(OrderStatus.CREATED.getCode());
+            order.setClientRequestId(clientRequestId);
+            order.setPriceLockNo(priceLockNo);
+            order.setRemark(request.getRemark());
+
+            // 7. 创建订单明细（使用锁价快照中的价格）
+            orderItems = buildOrderItemsFromPriceLock(orderNo, request.getItems(), priceLockInfo.getAllocations());
+
+            if (orderGroupCommitWriter.isEnabled()) {
+                newOrder = buildNewOrder(order, orderItems);
+            }
+        } catch (RuntimeException e) {
+            // 补偿：未写库，释放预占，用户可用同一价格锁重试
+            pricingClient.releasePriceLock(priceLockNo, orderNo);
+            throw e;
         }
 
-        // 5. 校验商品明细是否匹配（防止篡改商品）
-        validateOrderItems(request.getItems(), priceLockInfo.getAllocations());
+        // 8. 本地短事务写库（开启组提交时与并发请求合并为一个事务）
+        long txStart = System.currentTimeMillis();
+        AtomicBoolean written = new AtomicBoolean(false);
+        try {
+            if (newOrder != null) {
+                orderGroupCommitWriter.write(newOrder);
+            } else {
+                transactionTemplate.executeWithoutResult(status -> {
+                    persistNewOrder(order, orderItems);
+                    written.set(true);
+                });
+            }
+        } catch (RuntimeException e) {
+            // 写库语句失败（回调未完成）或唯一键冲突：事务一定已回滚，释放预占；否则提交结果未知，保持预占
+            if (!written.get() && (newOrder == null || e instanceof DataIntegrityViolationException)) {
+                pricingClient.releasePriceLock(priceLockNo, orderNo);
+            } else {
+                log.warn("[OrderService] Commit outcome unknown, keep price lock reserved, priceLockNo={}, orderNo={}, error={}",
+                        priceLockNo, orderNo, e.getMessage());
+            }
+            throw e;
+        }
+        long txMs = System.currentTimeMillis() - txStart;
 
-        // 6. 使用锁价金额作为订单金额（防篡价）
-        BigDecimal totalAmount = priceLockInfo.getPayableAmount();
+        // 9. 确认价格锁（事务外，失败由订单创建事件消费重试）
+        if (!pricingClient.confirmPriceLock(priceLockNo, orderNo)) {
+            log.warn("[OrderService] Confirm price lock failed, will retry by ORDER_CREATED event, priceLockNo={}, orderNo={}",
+                    priceLockNo, orderNo);
+        }
 
-        // 7. 创建订单实体
-        Order order = new Order();
-        order.setId(IdUtil.getSnowflakeNextId());
-        order.setOrderNo(orderNo);
-        order.setUserId(userId);
-        order.setAmount(totalAmount);
-        order.setStatus(OrderStatus.CREATED.getCode());
-        order.setClientRequestId(clientRequestId);
-        order.setPriceLockNo(priceLockNo);
-        order.setRemark(request.getRemark());
+        log.info("[OrderService] Order created successfully, orderNo={}, userId={}, amount={}, priceLockNo={}, reserveMs={}, txMs={}",
+                orderNo, userId, order.getAmount(), priceLockNo, reserveMs, txMs);
 
-        // 8. 保存订单
-        orderRepository.save(order);
+        return buildOrderResponse(order, orderItems);
+    }
 
-        // 9. 创建订单明细（使用锁价快照中的价格）
-        List<OrderItem> orderItems = buildOrderItemsFromPriceLock(orderNo, request.getItems(), priceLockInfo.getAllocations());
+    /**
+     * 订单本地事务：订单 + 明细 + Outbox + 状态流水（不含任何远程调用）
+     */
+    private void persistNewOrder(Order order, List<OrderItem> orderItems) {
+        String orderNo = order.getOrderNo();
+        orderRepository.save(order);
         orderRepository.saveItems(orderItems);
-
-        // 10. 记录状态流转
         String eventId = outboxEventRepository.saveOrderCreatedEvent(orderNo, buildOrderCreatedEvent(order, orderItems));
-        orderRepository.saveStateFlow(orderNo, null, OrderStatus.CREATED, OrderEvent.CREATE, eventId, "system", "订单创建(锁价:" + priceLockNo + ")");
-
-        log.info("[OrderService] Order created successfully, orderNo={}, userId={}, amount={}, priceLockNo={}",
-                orderNo, userId, totalAmount, priceLockNo);
+        orderRepository.saveStateFlow(orderNo, null, OrderStatus.CREATED, OrderEvent.CREATE, eventId, "system",
+                "订单创建(锁价:" + order.getPriceLockNo() + ")");
+    }
 
-        return buildOrderResponse(order, orderItems);
+    /**
+     * 组提交写入的新订单（与 persistNewOrder 写入相同的4张表）
+     */
+    private OrderGroupCommitWriter.NewOrder buildNewOrder(Order order, List<OrderItem> orderItems) {
+        String orderNo = order.getOrderNo();
+        OutboxEvent outboxEvent = outboxEventRepository.buildOrderCreatedEvent(orderNo,
+                buildOrderCreatedEvent(order, orderItems));
+        OrderStateFlow stateFlow = orderRepository.buildStateFlow(orderNo, null, OrderStatus.CREATED,
+                OrderEvent.CREATE, outboxEvent.getEventId(), "system", "订单创建(锁价:" + order.getPriceLockNo() + ")");
+        return new OrderGroupCommitWriter.NewOrder(order, orderItems, outboxEvent, stateFlow);
     }
 
     /**
@@ -226,7 +300,7 @@ public class OrderService {
         // 7. 取消价格锁（如果有）
         if (order.getPriceLockNo() != null) {
             try {
-                pricingClient.cancelPriceLock(order.getPriceLockNo());
+                pricingClient.cancelPriceLock(order.getPriceLockNo(), orderNo);
             } catch (Exception e) {
                 log.warn("[OrderService] Cancel price lock failed, priceLockNo={}, error={}",
                         order.getPriceLockNo(), e.getMessage());
@@ -241,25 +315,14 @@ public class OrderService {
         return buildOrderResponse(canceledOrder);
     }
 
-    /**
-     * 查询订单详情
-     */
-    public OrderResponse getOrder(String orderNo) {
-        Order order = orderRepository.findByOrderNo(orderNo)
-                .orElseThrow(() -> new BizException(ErrorCode.RESOURCE_NOT_FOUND, "订单不存在: " + orderNo));
-        
-        List<OrderItem> items = orderRepository.findItemsByOrderNo(orderNo);
-        return buildOrderResponse(order, items);
-    }
-
     /**
      * 生成订单号
-     * 格式: ORD + 年月日时分秒毫秒 + 4位随机数
+     * 格式: ORD + 年月日时分秒毫秒 + 2位槽位（user_id 取模，用于分库路由） + 4位随机数
      */
-    private String generateOrderNo() {
+    private String generateOrderNo(Long userId) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS"));
         String random = String.valueOf((int) ((Math.random() * 9000) + 1000));
-        return "ORD" + timestamp + random;
+        return "ORD" + timestamp + orderShardRouter.slotCode(userId) + random;
     }
 
     /**
@@ -308,6 +371,7 @@ public class OrderService {
                 .userId(order.getUserId())
                 .amount(order.getAmount())
                 .status(order.getStatus())
+                .priceLockNo(order.getPriceLockNo())
                 .items(itemInfos)
                 .eventTime(LocalDateTime.now())
                 .traceId(TraceContext.getTraceId())
@@ -341,30 +405,6 @@ public class OrderService {
     }
 
     private OrderResponse buildOrderResponse(Order order, List<OrderItem> items) {
-        List<OrderResponse.OrderItemResponse> itemResponses = items.stream()
-                .map(item -> OrderResponse.OrderItemResponse.builder()
-                        .skuId(item.getSkuId())
-                        .qty(item.getQty())
-                        .title(item.getTitleSnapshot())
-                        .price(item.getPriceSnapshot())
-                        .promoJson(item.getPromoSnapshotJson())
-                        .build())
-                .collect(Collectors.toList());
-
-        OrderStatus status = OrderStatus.of(order.getStatus());
-        
-        return OrderResponse.builder()
-                .id(order.getId())
-                .orderNo(order.getOrderNo())
-                .userId(order.getUserId())
-                .amount(order.getAmount())
-                .status(order.getStatus())
-                .statusDesc(status.getDesc())
-                .priceLockNo(order.getPriceLockNo())
-                .remark(order.getRemark())
-                .createdAt(order.getCreatedAt())
-                .updatedAt(order.getUpdatedAt())
-                .items(itemResponses)
-                .build();
+        return OrderAssembler.toResponse(order, items);
     }
 }
@@ -0,0 +1,194 @@
+package com.yuge.order.application;
+
+import com.yuge.order.api.dto.OrderStatusResponse;
+import com.yuge.order.domain.enums.OrderStatus;
+import com.yuge.order.domain.statemachine.OrderStateMachine;
+import com.yuge.order.infrastructure.push.OrderStatusBroadcaster;
+import com.yuge.order.infrastructure.push.OrderStatusBroadcaster.StatusChange;
+import com.yuge.order.infrastructure.push.OrderStatusBroadcaster.Subscription;
+import com.yuge.platform.infra.common.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * 订单状态订阅（长轮询 / SSE）
+ *
+ * 1. 先订阅 OrderStatusBroadcaster，再读取当前状态（跳过L1，读L2/DB），避免读取与订阅之间的变更丢失；
+ *    L1 可能还是订阅前一次变更之前的快照，读到旧版本会错过这次变更
+ * 2. 当前版本已比客户端新时立即返回；否则挂起请求（DeferredResult/SseEmitter 不占用Servlet线程）
+ * 3. 状态变更由消费者推进状态后的 OrderCacheRefresher 广播触发，等待期间不查询DB
+ * 4. 请求完成、超时或客户端断开时取消订阅
+ */
+@Slf4j
+@Service
+public class OrderStatusWatchService {
+
+    private final OrderQueryService orderQueryService;
+    private final OrderStatusBroadcaster broadcaster;
+    private final OrderStateMachine orderStateMachine;
+
+    /**
+     * 长轮询默认等待时间（毫秒）
+     */
+    @Value("${order.status-push.long-poll-timeout-ms:25000}")
+    private long longPollTimeoutMs;
+
+    /**
+     * 长轮询最大等待时间（毫秒）
+     */
+    @Value("${order.status-push.long-poll-max-timeout-ms:60000}")
+    private long longPollMaxTimeoutMs;
+
+    /**
+     * SSE 连接最长保持时间（毫秒）
+     */
+    @Value("${order.status-push.sse-timeout-ms:300000}")
+    private long sseTimeoutMs;
+
+    public OrderStatusWatchService(OrderQueryService orderQueryService,
+                                   OrderStatusBroadcaster broadcaster,
+                                   OrderStateMachine orderStateMachine) {
+        this.orderQueryService = orderQueryService;
+        this.broadcaster = broadcaster;
+        this.orderStateMachine = orderStateMachine;
+    }
+
+    /**
+     * 长轮询：等待订单版本超过 version
+     *
+     * @param version   客户端已知版本，为空时立即返回当前状态
+     * @param timeoutMs 等待时间，为空取默认值
+     */
+    public DeferredResult<Result<OrderStatusResponse>> waitForChange(String orderNo, Integer version, Long timeoutMs) {
+        long timeout = timeoutMs == null ? longPollTimeoutMs : Math.min(Math.max(timeoutMs, 0L), longPollMaxTimeoutMs);
+        int knownVersion = version == null ? -1 : version;
+        DeferredResult<Result<OrderStatusResponse>> result = new DeferredResult<>(timeout);
+
+        Subscription subscription = broadcaster.subscribe(orderNo, change -> {
+            if (change.getVersion() <= knownVersion) {
+                return false;
+            }
+            result.setResult(Result.success(toResponse(change, true)));
+            return true;
+        });
+
+        OrderStatusResponse current;
+        try {
+            current = orderQueryService.getFreshStatus(orderNo);
+        } catch (RuntimeException e) {
+            cancel(subscription);
+            throw e;
+        }
+
+        current.setChanged(current.getVersion() > knownVersion);
+        if (subscription == null || current.getChanged() || timeout == 0) {
+            cancel(subscription);
+            result.setResult(Result.success(current));
+            return result;
+        }
+
+        result.onTimeout(() -> result.setResult(Result.success(current)));
+        result.onCompletion(subscription::cancel);
+        return result;
+    }
+
+    /**
+     * SSE：推送当前状态及后续每次变更，订单进入终态后结束
+     */
+    public SseEmitter stream(String orderNo) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        StreamState state = new StreamState(orderNo, emitter);
+
+        Subscription subscription = broadcaster.subscribe(orderNo,
+                change -> state.send(toResponse(change, true)));
+        if (subscription != null) {
+            emitter.onCompletion(subscription::cancel);
+            emitter.onTimeout(subscription::cancel);
+            emitter.onError(e -> subscription.cancel());
+        }
+
+        OrderStatusResponse current;
+        try {
+            current = orderQueryService.getFreshStatus(orderNo);
+        } catch (RuntimeException e) {
+            cancel(subscription);
+            throw e;
+        }
+        current.setChanged(false);
+        if (state.send(current)) {
+            cancel(subscription);
+        } else if (subscription == null) {
+            // 超过等待者上限：只推送当前状态
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    private boolean isFinal(String status) {
+        return orderStateMachine.getAvailableEvents(OrderStatus.of(status)).isEmpty();
+    }
+
+    private OrderStatusResponse toResponse(StatusChange change, boolean changed) {
+        return OrderStatusResponse.builder()
+                .orderNo(change.getOrderNo())
+                .status(change.getStatus())
+                .statusDesc(OrderStatus.of(change.getStatus()).getDesc())
+                .version(change.getVersion())
+                .changed(changed)
+                .build();
+    }
+
+    private void cancel(Subscription subscription) {
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * 单个SSE连接的发送状态：只发送版本递增的状态（初始状态与变更消息可能乱序到达）
+     */
+    private final class StreamState {
+        private final String orderNo;
+        private final SseEmitter emitter;
+        private int lastVersion = -1;
+        private boolean finished;
+
+        private StreamState(String orderNo, SseEmitter emitter) {
+            this.orderNo = orderNo;
+            this.emitter = emitter;
+        }
+
+        /**
+         * @return true 表示连接已结束（终态或客户端断开），应取消订阅
+         */
+        synchronized boolean send(OrderStatusResponse status) {
+            if (finished) {
+                return true;
+            }
+            if (status.getVersion() <= lastVersion) {
+                return false;
+            }
+            lastVersion = status.getVersion();
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(status.getVersion()))
+                        .name("status")
+                        .data(status));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("[OrderStatusWatchService] SSE send failed, orderNo={}, error={}", orderNo, e.getMessage());
+                finished = true;
+                return true;
+            }
+            if (isFinal(status.getStatus())) {
+                finished = true;
+                emitter.complete();
+            }
+            return finished;
+        }
+    }
+}
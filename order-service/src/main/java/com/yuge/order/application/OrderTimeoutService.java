@@ -0,0 +1,151 @@
+package com.yuge.order.application;
+
+import com.yuge.order.api.dto.CancelOrderRequest;
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.domain.enums.OrderStatus;
+import com.yuge.order.domain.event.OrderTimeoutEvent;
+import com.yuge.order.infrastructure.repository.OrderRepository;
+import com.yuge.order.infrastructure.repository.OutboxEventRepository;
+import com.yuge.platform.infra.exception.BizException;
+import com.yuge.platform.infra.mq.ProducerTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单支付超时取消
+ *
+ * 1. 订单创建事件消费时投递 RocketMQ 延迟消息（ORDER_TOPIC:ORDER_TIMEOUT），不扫表
+ * 2. 延迟级别固定（最长2h），按剩余时间选不超过它的最大级别，未到期的消息到达后再次投递（多跳）
+ * 3. 到期消息由 OrderTimeoutConsumer 批量消费：一批订单一次按订单号查询，
+ *    只取消仍处于未支付状态（CREATED/STOCK_RESERVED）的订单，已支付/已取消的直接跳过
+ * 4. 取消走 OrderService.cancelOrder（CAS + Outbox ORDER_CANCELED + 释放价格锁），与支付并发时CAS只有一方成功
+ *
+ * 待支付订单的定时状态保存在 Broker 的延迟队列中，规模与DB无关
+ */
+@Slf4j
+@Service
+public class OrderTimeoutService {
+
+    public static final String TAG_ORDER_TIMEOUT = "ORDER_TIMEOUT";
+
+    static final String CANCEL_REASON = "超时未支付，系统自动取消";
+    static final String OPERATOR = "SYSTEM";
+
+    /**
+     * RocketMQ 延迟级别 1-18 对应的延迟（秒）
+     */
+    private static final long[] DELAY_LEVEL_SECONDS = {
+            1, 5, 10, 30, 60, 120, 180, 240, 300, 360, 420, 480, 540, 600, 1200, 1800, 3600, 7200
+    };
+
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final ProducerTemplate producerTemplate;
+
+    /**
+     * 支付超时时间（分钟）
+     */
+    @Value("${order.timeout.pay-timeout-minutes:30}")
+    private long payTimeoutMinutes;
+
+    public OrderTimeoutService(OrderRepository orderRepository,
+                               OrderService orderService,
+                               ProducerTemplate producerTemplate) {
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.producerTemplate = producerTemplate;
+    }
+
+    /**
+     * 为新订单投递超时取消消息
+     *
+     * @param createdAt 订单创建时间，截止时间 = createdAt + 支付超时时间（重复投递时截止时间不变）
+     */
+    public void schedule(String orderNo, LocalDateTime createdAt) {
+        LocalDateTime base = createdAt != null ? createdAt : LocalDateTime.now();
+        long deadline = base.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                + TimeUnit.MINUTES.toMillis(payTimeoutMinutes);
+        send(OrderTimeoutEvent.builder().orderNo(orderNo).deadline(deadline).hop(0).build(),
+                System.currentTimeMillis());
+    }
+
+    /**
+     * 处理一批到达的超时消息
+     *
+     * @throws IllegalStateException 有订单取消失败（非状态冲突），整批重新消费；已取消的订单重试时会被跳过
+     */
+    public void handleTimeouts(List<OrderTimeoutEvent> events) {
+        long now = System.currentTimeMillis();
+        Set<String> dueOrderNos = new LinkedHashSet<>();
+        for (OrderTimeoutEvent event : events) {
+            if (event.getDeadline() != null && event.getDeadline() > now) {
+                send(event, now);
+            } else {
+                dueOrderNos.add(event.getOrderNo());
+            }
+        }
+        if (dueOrderNos.isEmpty()) {
+            return;
+        }
+
+        List<Order> orders = orderRepository.findByOrderNos(new ArrayList<>(dueOrderNos));
+        List<String> failed = new ArrayList<>();
+        int canceled = 0;
+        for (Order order : orders) {
+            if (!OrderStatus.of(order.getStatus()).canCancel()) {
+                continue;
+            }
+            try {
+                CancelOrderRequest request = new CancelOrderRequest();
+                request.setCancelReason(CANCEL_REASON);
+                request.setOperator(OPERATOR);
+                orderService.cancelOrder(order.getOrderNo(), request);
+                canceled++;
+            } catch (BizException e) {
+                // 状态已被并发修改（如刚好支付成功），不再取消
+                log.info("[OrderTimeoutService] Skip timeout cancel, orderNo={}, reason={}",
+                        order.getOrderNo(), e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("[OrderTimeoutService] Timeout cancel failed, orderNo={}, error={}",
+                        order.getOrderNo(), e.getMessage(), e);
+                failed.add(order.getOrderNo());
+            }
+        }
+
+        log.info("[OrderTimeoutService] Timeout batch handled, due={}, found={}, canceled={}, failed={}",
+                dueOrderNos.size(), orders.size(), canceled, failed.size());
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("超时取消失败, orderNos=" + failed);
+        }
+    }
+
+    private void send(OrderTimeoutEvent event, long now) {
+        int delayLevel = selectDelayLevel(event.getDeadline() - now);
+        event.setHop(event.getHop() == null ? 1 : event.getHop() + 1);
+        producerTemplate.syncSendDelayMessage(OutboxEventRepository.TOPIC_ORDER, TAG_ORDER_TIMEOUT, event, delayLevel);
+        log.debug("[OrderTimeoutService] Timeout scheduled, orderNo={}, deadline={}, delayLevel={}, hop={}",
+                event.getOrderNo(), event.getDeadline(), delayLevel, event.getHop());
+    }
+
+    /**
+     * 选择不超过剩余时间的最大延迟级别；剩余不足1秒时取级别1
+     */
+    static int selectDelayLevel(long remainingMillis) {
+        int level = 1;
+        for (int i = 0; i < DELAY_LEVEL_SECONDS.length; i++) {
+            if (TimeUnit.SECONDS.toMillis(DELAY_LEVEL_SECONDS[i]) <= remainingMillis) {
+                level = i + 1;
+            }
+        }
+        return level;
+    }
+}
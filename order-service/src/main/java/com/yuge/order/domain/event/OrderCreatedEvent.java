@@ -43,6 +43,11 @@ public class OrderCreatedEvent {
      */
     private String status;
 
+    /**
+     * 价格锁编号（消费时确认价格锁）
+     */
+    private String priceLockNo;
+
     /**
      * 订单明细
      */
@@ -0,0 +1,34 @@
+package com.yuge.order.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 订单支付超时事件（延迟消息）
+ *
+ * RocketMQ 延迟级别固定，超时时间不等于某个级别时分多跳投递：
+ * 消息到达时未到 deadline 则按剩余时间再次投递
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTimeoutEvent {
+
+    /**
+     * 订单号
+     */
+    private String orderNo;
+
+    /**
+     * 支付截止时间（毫秒时间戳）
+     */
+    private Long deadline;
+
+    /**
+     * 已投递次数
+     */
+    private Integer hop;
+}
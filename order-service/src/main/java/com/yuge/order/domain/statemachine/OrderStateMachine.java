@@ -4,14 +4,16 @@ import com.yuge.order.domain.enums.OrderEvent;
 import com.yuge.order.domain.enums.OrderStatus;
 import com.yuge.platform.infra.common.ErrorCode;
 import com.yuge.platform.infra.exception.BizException;
+import com.yuge.platform.infra.statemachine.IllegalTransitionException;
+import com.yuge.platform.infra.statemachine.StateMachine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.*;
+import java.util.Set;
 
 /**
  * 订单状态机
- * 定义状态转换规则，校验状态跃迁合法性
+ * 定义状态转换规则，校验状态跃迁合法性（基于 platform-infra 表驱动状态机引擎）
  */
 @Slf4j
 @Component
@@ -19,43 +21,22 @@ public class OrderStateMachine {
 
     /**
      * 状态转换表
-     * Map<当前状态, Map<事件, 目标状态>>
      */
-    private static final Map<OrderStatus, Map<OrderEvent, OrderStatus>> TRANSITIONS = new HashMap<>();
-
-    static {
-        // CREATED 状态可以执行的事件
-        Map<OrderEvent, OrderStatus> createdTransitions = new HashMap<>();
-        createdTransitions.put(OrderEvent.STOCK_RESERVED, OrderStatus.STOCK_RESERVED);
-        createdTransitions.put(OrderEvent.STOCK_RESERVE_FAILED, OrderStatus.STOCK_FAILED);
-        createdTransitions.put(OrderEvent.CANCEL, OrderStatus.CANCELED);
-        TRANSITIONS.put(OrderStatus.CREATED, createdTransitions);
-
-        // STOCK_RESERVED 状态可以执行的事件
-        Map<OrderEvent, OrderStatus> stockReservedTransitions = new HashMap<>();
-        stockReservedTransitions.put(OrderEvent.CANCEL, OrderStatus.CANCELED);
-        stockReservedTransitions.put(OrderEvent.PAYMENT_SUCCESS, OrderStatus.PAID);
-        TRANSITIONS.put(OrderStatus.STOCK_RESERVED, stockReservedTransitions);
-
-        // PAID 状态可以执行发货事件
-        Map<OrderEvent, OrderStatus> paidTransitions = new HashMap<>();
-        paidTransitions.put(OrderEvent.SHIP, OrderStatus.SHIPPED);
-        TRANSITIONS.put(OrderStatus.PAID, paidTransitions);
-
-        // SHIPPED 状态可以执行签收事件
-        Map<OrderEvent, OrderStatus> shippedTransitions = new HashMap<>();
-        shippedTransitions.put(OrderEvent.DELIVER, OrderStatus.DELIVERED);
-        TRANSITIONS.put(OrderStatus.SHIPPED, shippedTransitions);
-
-        // DELIVERED 状态是终态，不能执行任何事件
-        TRANSITIONS.put(OrderStatus.DELIVERED, Collections.emptyMap());
-
-        // STOCK_FAILED 状态是终态，不能执行任何事件
-        TRANSITIONS.put(OrderStatus.STOCK_FAILED, Collections.emptyMap());
-
-        // CANCELED 状态是终态，不能执行任何事件
-        TRANSITIONS.put(OrderStatus.CANCELED, Collections.emptyMap());
-    }
+    private static final StateMachine<OrderStatus, OrderEvent, Void> MACHINE =
+            StateMachine.<OrderStatus, OrderEvent, Void>builder("order", OrderStatus.class, OrderEvent.class)
+                    // CREATED 状态可以执行的事件
+                    .transition(OrderStatus.CREATED, OrderEvent.STOCK_RESERVED, OrderStatus.STOCK_RESERVED)
+                    .transition(OrderStatus.CREATED, OrderEvent.STOCK_RESERVE_FAILED, OrderStatus.STOCK_FAILED)
+                    .transition(OrderStatus.CREATED, OrderEvent.CANCEL, OrderStatus.CANCELED)
+                    // STOCK_RESERVED 状态可以执行的事件
+                    .transition(OrderStatus.STOCK_RESERVED, OrderEvent.CANCEL, OrderStatus.CANCELED)
+                    .transition(OrderStatus.STOCK_RESERVED, OrderEvent.PAYMENT_SUCCESS, OrderStatus.PAID)
+                    // PAID 状态可以执行发货事件
+                    .transition(OrderStatus.PAID, OrderEvent.SHIP, OrderStatus.SHIPPED)
+                    // SHIPPED 状态可以执行签收事件
+                    .transition(OrderStatus.SHIPPED, OrderEvent.DELIVER, OrderStatus.DELIVERED)
+                    // DELIVERED / STOCK_FAILED / CANCELED 为终态，不能执行任何事件
+                    .build();
 
     /**
      * 检查状态转换是否合法
@@ -66,32 +47,26 @@ public class OrderStateMachine {
      * @throws BizException 如果状态转换不合法
      */
     public OrderStatus transition(OrderStatus currentStatus, OrderEvent event) {
-        Map<OrderEvent, OrderStatus> allowedTransitions = TRANSITIONS.get(currentStatus);
-        
-        if (allowedTransitions == null || !allowedTransitions.containsKey(event)) {
+        try {
+            return MACHINE.fire(currentStatus, event);
+        } catch (IllegalTransitionException e) {
             log.warn("[StateMachine] Invalid transition: {} + {} -> ?", currentStatus, event);
-            throw new BizException(ErrorCode.STATE_INVALID, 
+            throw new BizException(ErrorCode.STATE_INVALID,
                     String.format("订单状态[%s]不允许执行[%s]操作", currentStatus.getDesc(), event.getDesc()));
         }
-
-        OrderStatus targetStatus = allowedTransitions.get(event);
-        log.info("[StateMachine] Transition: {} + {} -> {}", currentStatus, event, targetStatus);
-        return targetStatus;
     }
 
     /**
      * 检查是否可以执行某个事件
      */
     public boolean canTransition(OrderStatus currentStatus, OrderEvent event) {
-        Map<OrderEvent, OrderStatus> allowedTransitions = TRANSITIONS.get(currentStatus);
-        return allowedTransitions != null && allowedTransitions.containsKey(event);
+        return MACHINE.canFire(currentStatus, event);
     }
 
     /**
      * 获取当前状态可执行的所有事件
      */
     public Set<OrderEvent> getAvailableEvents(OrderStatus currentStatus) {
-        Map<OrderEvent, OrderStatus> allowedTransitions = TRANSITIONS.get(currentStatus);
-        return allowedTransitions != null ? allowedTransitions.keySet() : Collections.emptySet();
+        return MACHINE.availableEvents(currentStatus);
     }
 }
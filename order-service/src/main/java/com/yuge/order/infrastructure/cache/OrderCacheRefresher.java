@@ -0,0 +1,65 @@
+package com.yuge.order.infrastructure.cache;
+
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.infrastructure.mapper.OrderItemMapper;
+import com.yuge.order.infrastructure.mapper.OrderMapper;
+import com.yuge.order.infrastructure.push.OrderStatusBroadcaster;
+import com.yuge.order.infrastructure.sharding.OrderShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 订单缓存刷新
+ *
+ * 订单创建与状态变更（写 t_order_state_flow 的同一路径）事务提交后，重新读取一次订单和明细，
+ * 同时写入订单详情缓存与用户最近订单读模型（两者都按 version 写入，乱序刷新不会用旧快照覆盖新快照），
+ * 最后广播状态变更，唤醒各实例上等待该订单的长轮询/SSE
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderCacheRefresher {
+
+    private final OrderMapper orderMapper;
+    private final OrderItemMapper orderItemMapper;
+    private final OrderDetailCache orderDetailCache;
+    private final RecentOrdersCache recentOrdersCache;
+    private final OrderStatusBroadcaster orderStatusBroadcaster;
+    private final OrderShardRouter orderShardRouter;
+
+    /**
+     * 事务提交后刷新（无事务时立即执行）
+     * 状态更新只知道订单号，提交后重新读取，保证写入缓存的是已提交的数据
+     */
+    public void refreshAfterCommit(String orderNo) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(orderNo);
+                }
+            });
+        } else {
+            refresh(orderNo);
+        }
+    }
+
+    private void refresh(String orderNo) {
+        try {
+            Order order = orderShardRouter.onOrder(orderNo, () -> orderMapper.selectByOrderNo(orderNo));
+            if (order == null) {
+                return;
+            }
+            OrderSnapshot snapshot = new OrderSnapshot(order,
+                    orderShardRouter.onOrder(orderNo, () -> orderItemMapper.selectByOrderNo(orderNo)));
+            orderDetailCache.put(snapshot);
+            recentOrdersCache.upsert(snapshot);
+            orderStatusBroadcaster.publish(order);
+        } catch (Exception e) {
+            log.warn("[OrderCacheRefresher] refresh failed, orderNo={}, error={}", orderNo, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.yuge.order.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.order.infrastructure.push.OrderStatusBroadcaster;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 订单详情缓存（L1本地 + L2 Redis，读穿透）
+ *
+ * 设计：
+ * 1. L1：本地短TTL（默认1秒），吸收同一实例上的高频轮询
+ * 2. L2：Redis order:detail:{orderNo}，值为 {version}|{json}，按version写入（旧快照不覆盖新快照）
+ * 3. 请求合并：同一实例上同一订单同时只有一个加载（L2 -> DB），其余请求等待同一结果
+ * 4. 更新：订单创建/状态变更提交后 OrderCacheRefresher 写入最新快照到L2，
+ *    并通过 OrderStatusBroadcaster 发布 order:status:changed，各实例收到后失效L1
+ *
+ * 所有Redis操作失败只记录日志，回退到DB
+ */
+@Slf4j
+@Component
+public class OrderDetailCache {
+
+    private static final String KEY_PREFIX = "order:detail:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Map<String, L1Entry> l1 = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<OrderSnapshot>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder dbLoads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    private DefaultRedisScript<Long> setScript;
+
+    /**
+     * 是否启用
+     */
+    @Value("${order.detail-cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * L1 TTL（毫秒）
+     */
+    @Value("${order.detail-cache.l1-ttl-ms:1000}")
+    private long l1TtlMs;
+
+    /**
+     * L1 最大条目数
+     */
+    @Value("${order.detail-cache.l1-max-size:10000}")
+    private int l1MaxSize;
+
+    /**
+     * L2 过期时间（秒）
+     */
+    @Value("${order.detail-cache.l2-ttl-seconds:600}")
+    private long l2TtlSeconds;
+
+    /**
+     * 等待合并加载结果的超时时间（毫秒），超时后自行加载
+     */
+    @Value("${order.detail-cache.load-wait-ms:3000}")
+    private long loadWaitMs;
+
+    public OrderDetailCache(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                            RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        setScript = new DefaultRedisScript<>();
+        setScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/order_detail_set.lua")));
+        setScript.setResultType(Long.class);
+
+        if (!enabled) {
+            return;
+        }
+        listenerContainer.addMessageListener((message, pattern) -> {
+            OrderStatusBroadcaster.StatusChange change = OrderStatusBroadcaster.StatusChange.parse(
+                    new String(message.getBody(), StandardCharsets.UTF_8));
+            if (change != null) {
+                l1.remove(change.getOrderNo());
+            }
+        }, new ChannelTopic(OrderStatusBroadcaster.CHANNEL));
+        log.info("[OrderDetailCache] Initialized, l1TtlMs={}, l1MaxSize={}, l2TtlSeconds={}",
+                l1TtlMs, l1MaxSize, l2TtlSeconds);
+    }
+
+    /**
+     * 读取订单快照：L1 -> L2 -> loader（同一订单并发请求合并为一次加载）
+     *
+     * @param loader DB加载，订单不存在返回null（不缓存）
+     */
+    public OrderSnapshot get(String orderNo, Supplier<OrderSnapshot> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        L1Entry entry = l1.get(orderNo);
+        if (entry != null && entry.expireAtMs >= System.currentTimeMillis()) {
+            l1Hits.increment();
+            return entry.snapshot;
+        }
+
+        CompletableFuture<OrderSnapshot> mine = new CompletableFuture<>();
+        CompletableFuture<OrderSnapshot> leader = inFlight.putIfAbsent(orderNo, mine);
+        if (leader != null) {
+            coalesced.increment();
+            return await(orderNo, leader, loader);
+        }
+
+        try {
+            OrderSnapshot snapshot = getFromL2(orderNo);
+            if (snapshot != null) {
+                l2Hits.increment();
+            } else {
+                dbLoads.increment();
+                snapshot = loader.get();
+                if (snapshot != null) {
+                    putL2(snapshot);
+                }
+            }
+            if (snapshot != null) {
+                putL1(snapshot);
+            }
+            mine.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(orderNo, mine);
+        }
+    }
+
+    /**
+     * 跳过L1读取订单快照：L2 -> loader（不合并加载，不写L1）
+     *
+     * 状态订阅在订阅后读取当前状态时使用：L1 可能仍是订阅前一次变更之前的快照（失效消息尚未到达），
+     * 而 OrderCacheRefresher 先写L2再广播，L2 不会比已广播的变更更旧
+     */
+    public OrderSnapshot getFresh(String orderNo, Supplier<OrderSnapshot> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        OrderSnapshot snapshot = getFromL2(orderNo);
+        if (snapshot != null) {
+            l2Hits.increment();
+            return snapshot;
+        }
+        dbLoads.increment();
+        snapshot = loader.get();
+        if (snapshot != null) {
+            putL2(snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 写入最新快照并失效本实例L1（订单变更提交后调用；其他实例的L1由状态变更消息失效）
+     */
+    public void put(OrderSnapshot snapshot) {
+        if (!enabled) {
+            return;
+        }
+        l1.remove(snapshot.getOrder().getOrderNo());
+        putL2(snapshot);
+    }
+
+    public long getL1HitCount() {
+        return l1Hits.sum();
+    }
+
+    public long getL2HitCount() {
+        return l2Hits.sum();
+    }
+
+    public long getDbLoadCount() {
+        return dbLoads.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    private OrderSnapshot await(String orderNo, CompletableFuture<OrderSnapshot> leader,
+                                Supplier<OrderSnapshot> loader) {
+        try {
+            return leader.get(loadWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("[OrderDetailCache] wait coalesced load timeout, orderNo={}", orderNo);
+            return loader.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return loader.get();
+        }
+    }
+
+    private OrderSnapshot getFromL2(String orderNo) {
+        try {
+            String value = redisTemplate.opsForValue().get(KEY_PREFIX + orderNo);
+            if (value == null) {
+                return null;
+            }
+            return objectMapper.readValue(value.substring(value.indexOf('|') + 1), OrderSnapshot.class);
+        } catch (Exception e) {
+            log.warn("[OrderDetailCache] L2 get failed, orderNo={}, error={}", orderNo, e.getMessage());
+            return null;
+        }
+    }
+
+    private void putL2(OrderSnapshot snapshot) {
+        String orderNo = snapshot.getOrder().getOrderNo();
+        Integer version = snapshot.getOrder().getVersion();
+        try {
+            redisTemplate.execute(setScript, List.of(KEY_PREFIX + orderNo),
+                    String.valueOf(version),
+                    version + "|" + objectMapper.writeValueAsString(snapshot),
+                    String.valueOf(l2TtlSeconds));
+        } catch (Exception e) {
+            log.warn("[OrderDetailCache] L2 put failed, orderNo={}, error={}", orderNo, e.getMessage());
+        }
+    }
+
+    private void putL1(OrderSnapshot snapshot) {
+        long now = System.currentTimeMillis();
+        if (l1.size() >= l1MaxSize) {
+            l1.values().removeIf(entry -> entry.expireAtMs < now);
+            if (l1.size() >= l1MaxSize) {
+                return;
+            }
+        }
+        l1.put(snapshot.getOrder().getOrderNo(), new L1Entry(snapshot, now + l1TtlMs));
+    }
+
+    private static final class L1Entry {
+        private final OrderSnapshot snapshot;
+        private final long expireAtMs;
+
+        private L1Entry(OrderSnapshot snapshot, long expireAtMs) {
+            this.snapshot = snapshot;
+            this.expireAtMs = expireAtMs;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.yuge.order.infrastructure.cache;
+
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.domain.entity.OrderItem;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 订单快照（订单 + 明细），订单详情缓存与最近订单读模型共用
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSnapshot {
+
+    private Order order;
+
+    private List<OrderItem> items;
+}
@@ -0,0 +1,227 @@
+package com.yuge.order.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.order.domain.entity.Order;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户最近订单读模型（Redis）
+ *
+ * 结构（{userId} 为 hash tag，两个key落在同一slot，Lua可在集群下执行）：
+ * - order:recent:{userId}      Hash，orderNo -> {version}|{OrderSnapshot json}，_complete 标记窗口外是否还有订单
+ * - order:recent:idx:{userId}  ZSet，orderNo 按创建时间排序，用于淘汰最旧订单
+ * - order:recent:loading:{userId}、order:recent:pending:{userId}、order:recent:pending:idx:{userId}
+ *   加载期间的标记与快照，init 后删除
+ *
+ * 维护：
+ * 1. 首次查询时从DB加载最近 window-size 条（init 脚本，已存在不覆盖）；
+ *    读DB前设置 loading 标记，期间提交的订单由 upsert 写入 pending，init 时按 version 合并，不会漏掉
+ * 2. 订单创建/状态变更事务提交后由 OrderCacheRefresher 重新读取订单快照写入（upsert 脚本，按version只接受更新的快照）
+ * 3. 未加载过的用户不维护，缓存过期后下次查询重新加载
+ *
+ * 所有操作失败只记录日志，不影响订单主流程；读模型不可用时查询回退到DB
+ */
+@Slf4j
+@Component
+public class RecentOrdersCache {
+
+    private static final String KEY_PREFIX = "order:recent:";
+    private static final String IDX_KEY_PREFIX = "order:recent:idx:";
+    private static final String PENDING_KEY_PREFIX = "order:recent:pending:";
+    private static final String PENDING_IDX_KEY_PREFIX = "order:recent:pending:idx:";
+    private static final String LOADING_KEY_PREFIX = "order:recent:loading:";
+    private static final String COMPLETE_FIELD = "_complete";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    private DefaultRedisScript<Long> initScript;
+    private DefaultRedisScript<Long> upsertScript;
+
+    /**
+     * 每个用户缓存的最近订单数
+     */
+    @Value("${order.recent-cache.window-size:50}")
+    private int windowSize;
+
+    /**
+     * 过期时间（秒）
+     */
+    @Value("${order.recent-cache.ttl-seconds:1800}")
+    private long ttlSeconds;
+
+    /**
+     * 加载标记与加载期间快照的过期时间（秒），需大于一次DB加载的耗时
+     */
+    @Value("${order.recent-cache.loading-ttl-seconds:30}")
+    private long loadingTtlSeconds;
+
+    public RecentOrdersCache(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        initScript = new DefaultRedisScript<>();
+        initScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/order_recent_init.lua")));
+        initScript.setResultType(Long.class);
+
+        upsertScript = new DefaultRedisScript<>();
+        upsertScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/order_recent_upsert.lua")));
+        upsertScript.setResultType(Long.class);
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * 读取用户最近订单
+     *
+     * @return 按 createdAt DESC, id DESC 排序的快照；未加载或读取失败返回null
+     */
+    public RecentOrders get(Long userId) {
+        try {
+            Map<Object, Object> hash = redisTemplate.opsForHash().entries(buildKey(userId));
+            if (hash.isEmpty()) {
+                return null;
+            }
+            boolean complete = "1".equals(hash.get(COMPLETE_FIELD));
+            List<OrderSnapshot> entries = new ArrayList<>(hash.size());
+            for (Map.Entry<Object, Object> field : hash.entrySet()) {
+                if (COMPLETE_FIELD.equals(field.getKey())) {
+                    continue;
+                }
+                String value = (String) field.getValue();
+                entries.add(objectMapper.readValue(value.substring(value.indexOf('|') + 1), OrderSnapshot.class));
+            }
+            entries.sort(NEWEST_FIRST);
+            return new RecentOrders(complete, entries);
+        } catch (Exception e) {
+            log.warn("[RecentOrdersCache] get failed, userId={}, error={}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 开始加载：读DB前设置加载标记，此后提交的订单快照暂存到 pending，由 init 合并
+     */
+    public void beginLoad(Long userId) {
+        try {
+            redisTemplate.opsForValue().set(buildLoadingKey(userId), "1", loadingTtlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("[RecentOrdersCache] beginLoad failed, userId={}, error={}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 初始化用户最近订单（已存在则不覆盖），合并加载期间提交的订单快照
+     *
+     * @param entries  最近订单（不超过窗口大小）
+     * @param complete 用户是否没有更早的订单
+     * @return 是否合并了加载期间的快照（读模型与 entries 不同，需重新读取）
+     */
+    public boolean init(Long userId, List<OrderSnapshot> entries, boolean complete) {
+        try {
+            List<String> args = new ArrayList<>(3 + entries.size() * 3);
+            args.add(String.valueOf(ttlSeconds));
+            args.add(complete ? "1" : "0");
+            args.add(String.valueOf(windowSize));
+            for (OrderSnapshot entry : entries) {
+                args.add(entry.getOrder().getOrderNo());
+                args.add(String.valueOf(score(entry.getOrder())));
+                args.add(encode(entry));
+            }
+            Long result = redisTemplate.execute(initScript, keys(userId), args.toArray());
+            return result != null && result == 2L;
+        } catch (Exception e) {
+            log.warn("[RecentOrdersCache] init failed, userId={}, error={}", userId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 写入订单最新快照（用户读模型未加载时忽略）
+     */
+    public void upsert(OrderSnapshot snapshot) {
+        Order order = snapshot.getOrder();
+        try {
+            Long result = redisTemplate.execute(upsertScript, keys(order.getUserId()),
+                    order.getOrderNo(),
+                    String.valueOf(order.getVersion()),
+                    String.valueOf(score(order)),
+                    encode(snapshot),
+                    String.valueOf(windowSize),
+                    String.valueOf(ttlSeconds),
+                    String.valueOf(loadingTtlSeconds));
+            log.debug("[RecentOrdersCache] upsert, orderNo={}, status={}, version={}, result={}",
+                    order.getOrderNo(), order.getStatus(), order.getVersion(), result);
+        } catch (Exception e) {
+            log.warn("[RecentOrdersCache] upsert failed, orderNo={}, error={}", order.getOrderNo(), e.getMessage());
+        }
+    }
+
+    private String encode(OrderSnapshot entry) throws Exception {
+        return entry.getOrder().getVersion() + "|" + objectMapper.writeValueAsString(entry);
+    }
+
+    private long score(Order order) {
+        return order.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private String buildKey(Long userId) {
+        return KEY_PREFIX + "{" + userId + "}";
+    }
+
+    private String buildIdxKey(Long userId) {
+        return IDX_KEY_PREFIX + "{" + userId + "}";
+    }
+
+    private String buildLoadingKey(Long userId) {
+        return LOADING_KEY_PREFIX + "{" + userId + "}";
+    }
+
+    private List<String> keys(Long userId) {
+        return List.of(buildKey(userId), buildIdxKey(userId),
+                PENDING_KEY_PREFIX + "{" + userId + "}", PENDING_IDX_KEY_PREFIX + "{" + userId + "}",
+                buildLoadingKey(userId));
+    }
+
+    /**
+     * 与 t_order 键集分页一致的排序：created_at DESC, id DESC
+     */
+    public static final Comparator<OrderSnapshot> NEWEST_FIRST = Comparator
+            .comparing((OrderSnapshot e) -> e.getOrder().getCreatedAt())
+            .thenComparing(e -> e.getOrder().getId())
+            .reversed();
+
+    /**
+     * 用户最近订单
+     */
+    @Data
+    @AllArgsConstructor
+    public static class RecentOrders {
+        /**
+         * 用户全部订单都在窗口内
+         */
+        private boolean complete;
+        private List<OrderSnapshot> entries;
+    }
+}
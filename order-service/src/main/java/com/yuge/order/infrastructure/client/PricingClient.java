@@ -15,9 +15,22 @@ import java.util.List;
 public interface PricingClient {
 
     /**
-     * 使用价格锁（下单时调用）
+     * 预占价格锁（下单第一阶段，在订单本地事务之前调用）
+     * 校验签名/状态/过期后将价格锁预占给该订单，返回锁价快照
      */
-    UsePriceLockResult usePriceLock(String priceLockNo, String orderNo, String signature);
+    UsePriceLockResult reservePriceLock(String priceLockNo, String orderNo, String signature);
+
+    /**
+     * 确认使用价格锁（订单事务提交后调用，幂等）
+     *
+     * @return 是否确认成功
+     */
+    boolean confirmPriceLock(String priceLockNo, String orderNo);
+
+    /**
+     * 释放价格锁预占（订单未创建成功时的补偿，幂等）
+     */
+    void releasePriceLock(String priceLockNo, String orderNo);
 
     /**
      * 获取价格锁详情
@@ -25,12 +38,12 @@ public interface PricingClient {
     PriceLockInfo getPriceLock(String priceLockNo);
 
     /**
-     * 取消价格锁
+     * 随订单取消价格锁（只取消该订单预占/使用的锁，幂等）
      */
-    void cancelPriceLock(String priceLockNo);
+    void cancelPriceLock(String priceLockNo, String orderNo);
 
     /**
-     * 使用价格锁结果
+     * 预占（使用）价格锁结果
      */
     @Data
     @Builder
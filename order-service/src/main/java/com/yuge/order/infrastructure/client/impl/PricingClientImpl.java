@@ -29,9 +29,9 @@ public class PricingClientImpl implements PricingClient {
     private final ObjectMapper objectMapper;
 
     @Override
-    public UsePriceLockResult usePriceLock(String priceLockNo, String orderNo, String signature) {
+    public UsePriceLockResult reservePriceLock(String priceLockNo, String orderNo, String signature) {
         try {
-            String url = String.format("%s/pricing/lock/%s/use?orderNo=%s&signature=%s",
+            String url = String.format("%s/pricing/lock/%s/reserve?orderNo=%s&signature=%s",
                     pricingServiceUrl, priceLockNo, orderNo, signature);
 
             ResponseEntity<Map> response = restTemplate.postForEntity(url, null, Map.class);
@@ -50,7 +50,7 @@ public class PricingClientImpl implements PricingClient {
                     String message = (String) body.get("message");
                     return UsePriceLockResult.builder()
                             .success(false)
-                            .errorMessage(message != null ? message : "使用价格锁失败")
+                            .errorMessage(message != null ? message : "预占价格锁失败")
                             .build();
                 }
             }
@@ -61,7 +61,7 @@ public class PricingClientImpl implements PricingClient {
                     .build();
 
         } catch (Exception e) {
-            log.error("[PricingClient] usePriceLock failed, priceLockNo={}, orderNo={}, error={}",
+            log.error("[PricingClient] reservePriceLock failed, priceLockNo={}, orderNo={}, error={}",
                     priceLockNo, orderNo, e.getMessage(), e);
             return UsePriceLockResult.builder()
                     .success(false)
@@ -70,6 +70,43 @@ public class PricingClientImpl implements PricingClient {
         }
     }
 
+    @Override
+    public boolean confirmPriceLock(String priceLockNo, String orderNo) {
+        try {
+            String url = String.format("%s/pricing/lock/%s/confirm?orderNo=%s",
+                    pricingServiceUrl, priceLockNo, orderNo);
+            ResponseEntity<Map> response = restTemplate.postForEntity(url, null, Map.class);
+
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                Integer code = (Integer) response.getBody().get("code");
+                if (code != null && code == 0) {
+                    log.info("[PricingClient] confirmPriceLock success, priceLockNo={}, orderNo={}", priceLockNo, orderNo);
+                    return true;
+                }
+                log.warn("[PricingClient] confirmPriceLock rejected, priceLockNo={}, orderNo={}, message={}",
+                        priceLockNo, orderNo, response.getBody().get("message"));
+            }
+            return false;
+        } catch (Exception e) {
+            log.error("[PricingClient] confirmPriceLock failed, priceLockNo={}, orderNo={}, error={}",
+                    priceLockNo, orderNo, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public void releasePriceLock(String priceLockNo, String orderNo) {
+        try {
+            String url = String.format("%s/pricing/lock/%s/release?orderNo=%s",
+                    pricingServiceUrl, priceLockNo, orderNo);
+            restTemplate.postForEntity(url, null, Map.class);
+            log.info("[PricingClient] releasePriceLock success, priceLockNo={}, orderNo={}", priceLockNo, orderNo);
+        } catch (Exception e) {
+            log.error("[PricingClient] releasePriceLock failed, priceLockNo={}, orderNo={}, error={}",
+                    priceLockNo, orderNo, e.getMessage(), e);
+        }
+    }
+
     @Override
     public PriceLockInfo getPriceLock(String priceLockNo) {
         try {
@@ -97,14 +134,15 @@ public class PricingClientImpl implements PricingClient {
     }
 
     @Override
-    public void cancelPriceLock(String priceLockNo) {
+    public void cancelPriceLock(String priceLockNo, String orderNo) {
         try {
-            String url = pricingServiceUrl + "/pricing/lock/" + priceLockNo + "/cancel";
+            String url = String.format("%s/pricing/lock/%s/cancel-for-order?orderNo=%s",
+                    pricingServiceUrl, priceLockNo, orderNo);
             restTemplate.postForEntity(url, null, Map.class);
-            log.info("[PricingClient] cancelPriceLock success, priceLockNo={}", priceLockNo);
+            log.info("[PricingClient] cancelPriceLock success, priceLockNo={}, orderNo={}", priceLockNo, orderNo);
         } catch (Exception e) {
-            log.error("[PricingClient] cancelPriceLock failed, priceLockNo={}, error={}",
-                    priceLockNo, e.getMessage(), e);
+            log.error("[PricingClient] cancelPriceLock failed, priceLockNo={}, orderNo={}, error={}",
+                    priceLockNo, orderNo, e.getMessage(), e);
         }
     }
 
@@ -4,7 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yuge.order.domain.entity.Order;
 import com.yuge.order.domain.enums.OrderStatus;
 import com.yuge.order.domain.event.AfterSaleRefundedEvent;
+import com.yuge.order.infrastructure.cache.OrderCacheRefresher;
 import com.yuge.order.infrastructure.mapper.OrderMapper;
+import com.yuge.order.infrastructure.sharding.OrderShardRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
@@ -28,6 +30,8 @@ public class AfterSaleRefundedConsumer implements RocketMQListener<String> {
 
     private final OrderMapper orderMapper;
     private final ObjectMapper objectMapper;
+    private final OrderCacheRefresher orderCacheRefresher;
+    private final OrderShardRouter orderShardRouter;
 
     @Override
     public void onMessage(String message) {
@@ -43,7 +47,7 @@ public class AfterSaleRefundedConsumer implements RocketMQListener<String> {
                     orderNo, refundAmount);
 
             // 查询订单
-            Order order = orderMapper.selectByOrderNo(orderNo);
+            Order order = orderShardRouter.onOrder(orderNo, () -> orderMapper.selectByOrderNo(orderNo));
             if (order == null) {
                 log.warn("[AfterSaleRefundedConsumer] Order not found, orderNo={}", orderNo);
                 return;
@@ -60,8 +64,9 @@ public class AfterSaleRefundedConsumer implements RocketMQListener<String> {
             }
 
             // 更新订单状态
-            int updated = orderMapper.casUpdateToRefunded(orderNo, newStatus);
+            int updated = orderShardRouter.onOrder(orderNo, () -> orderMapper.casUpdateToRefunded(orderNo, newStatus));
             if (updated > 0) {
+                orderCacheRefresher.refreshAfterCommit(orderNo);
                 log.info("[AfterSaleRefundedConsumer] Order status updated, orderNo={}, newStatus={}", 
                         orderNo, newStatus);
             } else {
@@ -1,8 +1,11 @@
 package com.yuge.order.infrastructure.consumer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.order.application.OrderTimeoutService;
 import com.yuge.order.domain.entity.MqConsumeLog;
 import com.yuge.order.domain.enums.ConsumeStatus;
+import com.yuge.order.domain.event.OrderCreatedEvent;
+import com.yuge.order.infrastructure.client.PricingClient;
 import com.yuge.order.infrastructure.repository.MqConsumeLogRepository;
 import com.yuge.platform.infra.mq.BaseEvent;
 import com.yuge.platform.infra.trace.TraceContext;
@@ -20,10 +23,11 @@ import java.util.Optional;
 /**
  * 订单创建事件消费者
  * 
- * 演示消费幂等模板：
  * 1. 使用 t_mq_consume_log 表实现幂等
  * 2. 消费前检查是否已处理
- * 3. 消费后记录结果
+ * 3. 确认订单使用的价格锁（下单同步确认失败时的兜底）
+ * 4. 投递支付超时取消的延迟消息
+ * 5. 消费后记录结果
  */
 @Slf4j
 @Component
@@ -39,6 +43,8 @@ public class OrderCreatedConsumer implements RocketMQListener<MessageExt> {
 
     private final MqConsumeLogRepository mqConsumeLogRepository;
     private final ObjectMapper objectMapper;
+    private final PricingClient pricingClient;
+    private final OrderTimeoutService orderTimeoutService;
 
     @Override
     public void onMessage(MessageExt messageExt) {
@@ -135,33 +141,20 @@ public class OrderCreatedConsumer implements RocketMQListener<MessageExt> {
     }
 
     /**
-     * 执行业务消费逻辑
-     * 
-     * 这里仅打印日志作为演示，实际业务可以：
-     * - 更新库存
-     * - 发送通知
-     * - 同步到搜索引擎
-     * - 等等
+     * 执行业务消费逻辑：
+     * 1. 投递超时取消消息（截止时间按订单创建时间计算，重试重复投递时到期只取消一次）
+     *    先于确认价格锁投递，确认一直失败、消息达到重试上限被丢弃时订单仍会超时取消
+     * 2. 确认订单使用的价格锁（幂等）
+     *    下单时价格锁在订单事务外预占，事务提交后同步确认；同步确认失败（定价服务超时、实例宕机）时
+     *    由本消息兜底重试，确认失败抛出异常触发MQ重试
      */
-    private void doConsume(BaseEvent event) {
-        String eventId = event.getMessageId();
-        String bizKey = event.getBusinessKey();
-        String payload = event.getPayload();
-
-        log.info("[OrderCreatedConsumer] ========================================");
-        log.info("[OrderCreatedConsumer] Processing OrderCreated event");
-        log.info("[OrderCreatedConsumer] Event ID: {}", eventId);
-        log.info("[OrderCreatedConsumer] Business Key (Order No): {}", bizKey);
-        log.info("[OrderCreatedConsumer] Trace ID: {}", event.getTraceId());
-        log.info("[OrderCreatedConsumer] Event Time: {}", event.getEventTime());
-        log.info("[OrderCreatedConsumer] Payload: {}", payload);
-        log.info("[OrderCreatedConsumer] ========================================");
-
-        // 模拟业务处理耗时
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    private void doConsume(BaseEvent event) throws Exception {
+        OrderCreatedEvent orderCreatedEvent = objectMapper.readValue(event.getPayload(), OrderCreatedEvent.class);
+        orderTimeoutService.schedule(orderCreatedEvent.getOrderNo(), orderCreatedEvent.getEventTime());
+        String priceLockNo = orderCreatedEvent.getPriceLockNo();
+        if (priceLockNo != null && !priceLockNo.isEmpty()
+                && !pricingClient.confirmPriceLock(priceLockNo, orderCreatedEvent.getOrderNo())) {
+            throw new IllegalStateException("确认价格锁失败, priceLockNo=" + priceLockNo);
         }
     }
 }
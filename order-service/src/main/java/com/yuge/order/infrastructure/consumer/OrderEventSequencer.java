@@ -0,0 +1,355 @@
+package com.yuge.order.infrastructure.consumer;
+
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.domain.enums.OrderEvent;
+import com.yuge.order.domain.enums.OrderStatus;
+import com.yuge.order.domain.statemachine.OrderStateMachine;
+import com.yuge.order.infrastructure.push.OrderStatusBroadcaster;
+import com.yuge.order.infrastructure.push.OrderStatusBroadcaster.Subscription;
+import com.yuge.order.infrastructure.repository.OrderRepository;
+import com.yuge.platform.infra.trace.TraceContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 订单事件按订单号有序分发
+ *
+ * 库存/支付/物流事件来自不同Topic并发消费，同一订单的事件可能乱序到达（如支付成功先于库存预留成功）。
+ * 原来由状态机拒绝后抛异常或标记忽略，依赖Broker退避重试，延迟以秒计。
+ *
+ * 1. 按 orderNo 哈希到固定分区，每个分区单线程执行，同一订单的事件串行处理
+ * 2. 事件期望的前置状态（由状态机推导）在主链路 CREATED -> STOCK_RESERVED -> PAID -> SHIPPED -> DELIVERED 上
+ *    还未到达时，暂存到分区内的重排缓冲，不执行
+ * 3. 同一订单任一事件执行后（或其他实例推进了状态，经 OrderStatusBroadcaster 通知），
+ *    按当前状态把已满足前置状态的暂存事件依次执行
+ * 4. 暂存超过 park-timeout-ms 仍未满足，以异常结束，回退为原来的Broker重试
+ *
+ * 消费线程等待事件执行完成再返回，消息的确认语义与原来一致（实例宕机时暂存的事件由Broker重投）
+ */
+@Slf4j
+@Component
+public class OrderEventSequencer {
+
+    /**
+     * 订单主链路状态顺序
+     */
+    private static final List<OrderStatus> MAIN_PATH = List.of(
+            OrderStatus.CREATED, OrderStatus.STOCK_RESERVED, OrderStatus.PAID,
+            OrderStatus.SHIPPED, OrderStatus.DELIVERED);
+
+    private final OrderRepository orderRepository;
+    private final OrderStateMachine orderStateMachine;
+    private final OrderStatusBroadcaster broadcaster;
+
+    private Lane[] lanes;
+    private ScheduledExecutorService timer;
+    private final AtomicInteger parkedCount = new AtomicInteger();
+
+    /**
+     * 是否启用（关闭时直接在消费线程执行）
+     */
+    @Value("${order.event-sequencer.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 分区数（分区线程数）
+     */
+    @Value("${order.event-sequencer.partitions:32}")
+    private int partitions;
+
+    /**
+     * 乱序事件最长暂存时间（毫秒）
+     */
+    @Value("${order.event-sequencer.park-timeout-ms:5000}")
+    private long parkTimeoutMs;
+
+    /**
+     * 单实例最多暂存事件数，超过后直接交给Broker重试
+     */
+    @Value("${order.event-sequencer.max-parked:10000}")
+    private int maxParked;
+
+    public OrderEventSequencer(OrderRepository orderRepository,
+                               OrderStateMachine orderStateMachine,
+                               OrderStatusBroadcaster broadcaster) {
+        this.orderRepository = orderRepository;
+        this.orderStateMachine = orderStateMachine;
+        this.broadcaster = broadcaster;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        lanes = new Lane[partitions];
+        for (int i = 0; i < partitions; i++) {
+            lanes[i] = new Lane(i);
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-event-park-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("[OrderEventSequencer] Started, partitions={}, parkTimeoutMs={}, maxParked={}",
+                partitions, parkTimeoutMs, maxParked);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        timer.shutdownNow();
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+    }
+
+    /**
+     * 按订单顺序执行事件处理，阻塞至处理完成
+     *
+     * @param event   事件对应的状态机事件，用于推导期望的前置状态
+     * @param handler 事件处理逻辑（原消费者的 processXxx）
+     * @throws OutOfOrderException 暂存超时或暂存数量超限，由调用方按原逻辑触发Broker重试
+     */
+    public void dispatch(String orderNo, OrderEvent event, Runnable handler) {
+        if (!enabled) {
+            handler.run();
+            return;
+        }
+        Parked parked = new Parked(orderNo, event, handler, TraceContext.getTraceId());
+        Lane lane = lanes[Math.floorMod(orderNo.hashCode(), partitions)];
+        lane.executor.execute(() -> lane.offer(parked));
+        await(parked.future);
+    }
+
+    public int getParkedCount() {
+        return parkedCount.get();
+    }
+
+    /**
+     * 事件期望的前置状态在主链路上还未到达
+     */
+    boolean isAhead(OrderStatus current, OrderEvent event) {
+        int currentIndex = MAIN_PATH.indexOf(current);
+        if (currentIndex < 0) {
+            // 已离开主链路（取消、库存失败等），交给处理逻辑按原规则忽略
+            return false;
+        }
+        for (int i = currentIndex + 1; i < MAIN_PATH.size(); i++) {
+            if (orderStateMachine.canTransition(MAIN_PATH.get(i), event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void await(CompletableFuture<Void> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    future.get();
+                    return;
+                } catch (InterruptedException e) {
+                    // 已提交的事件一定会执行或超时结束，等到结果再返回，避免与Broker重投并发执行
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 分区：单线程执行，暂存表只在分区线程内访问
+     */
+    private final class Lane {
+        private final ExecutorService executor;
+        private final Map<String, List<Parked>> parkedByOrder = new HashMap<>();
+        private final Map<String, Subscription> subscriptions = new HashMap<>();
+
+        private Lane(int index) {
+            this.executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "order-event-lane-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private void offer(Parked parked) {
+            Optional<OrderStatus> current = currentStatus(parked.orderNo);
+            if (current.isPresent() && isAhead(current.get(), parked.event)) {
+                park(parked, current.get());
+                return;
+            }
+            run(parked);
+            drain(parked.orderNo);
+        }
+
+        private void park(Parked parked, OrderStatus current) {
+            if (parkedCount.incrementAndGet() > maxParked) {
+                parkedCount.decrementAndGet();
+                parked.future.completeExceptionally(new OutOfOrderException(
+                        "乱序事件暂存已满, orderNo=" + parked.orderNo + ", event=" + parked.event));
+                return;
+            }
+            parkedByOrder.computeIfAbsent(parked.orderNo, k -> new ArrayList<>()).add(parked);
+            if (!subscriptions.containsKey(parked.orderNo)) {
+                // 其他实例推进状态时也能唤醒本实例暂存的事件
+                Subscription subscription = broadcaster.subscribe(parked.orderNo, change -> {
+                    executor.execute(() -> drain(change.getOrderNo()));
+                    return false;
+                });
+                if (subscription != null) {
+                    subscriptions.put(parked.orderNo, subscription);
+                }
+            }
+            parked.timeout = timer.schedule(() -> executor.execute(() -> expire(parked)),
+                    parkTimeoutMs, TimeUnit.MILLISECONDS);
+            log.info("[OrderEventSequencer] Event parked, orderNo={}, event={}, currentStatus={}",
+                    parked.orderNo, parked.event, current);
+        }
+
+        /**
+         * 按当前状态依次执行已满足前置状态的暂存事件
+         */
+        private void drain(String orderNo) {
+            while (parkedByOrder.containsKey(orderNo)) {
+                Optional<OrderStatus> current = currentStatus(orderNo);
+                Parked ready = null;
+                for (Parked parked : parkedByOrder.get(orderNo)) {
+                    if (current.isEmpty() || !isAhead(current.get(), parked.event)) {
+                        ready = parked;
+                        break;
+                    }
+                }
+                if (ready == null) {
+                    return;
+                }
+                unpark(ready);
+                log.info("[OrderEventSequencer] Parked event released, orderNo={}, event={}, waitedMs={}",
+                        orderNo, ready.event, System.currentTimeMillis() - ready.parkedAt);
+                run(ready);
+            }
+        }
+
+        private void expire(Parked parked) {
+            if (!unpark(parked)) {
+                return;
+            }
+            // 最后再检查一次，订单状态可能已由未广播的途径推进
+            Optional<OrderStatus> current = currentStatus(parked.orderNo);
+            if (current.isEmpty() || !isAhead(current.get(), parked.event)) {
+                run(parked);
+                drain(parked.orderNo);
+                return;
+            }
+            log.warn("[OrderEventSequencer] Parked event timeout, fallback to broker retry, orderNo={}, event={}, currentStatus={}",
+                    parked.orderNo, parked.event, current.get());
+            parked.future.completeExceptionally(new OutOfOrderException(
+                    "乱序事件等待前置状态超时, orderNo=" + parked.orderNo + ", event=" + parked.event));
+        }
+
+        private boolean unpark(Parked parked) {
+            List<Parked> list = parkedByOrder.get(parked.orderNo);
+            if (list == null || !list.remove(parked)) {
+                return false;
+            }
+            parkedCount.decrementAndGet();
+            if (parked.timeout != null) {
+                parked.timeout.cancel(false);
+            }
+            if (list.isEmpty()) {
+                parkedByOrder.remove(parked.orderNo);
+                Subscription subscription = subscriptions.remove(parked.orderNo);
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+            return true;
+        }
+
+        private void run(Parked parked) {
+            if (parked.traceId != null) {
+                TraceContext.setTraceId(parked.traceId);
+                MDC.put(TraceContext.TRACE_ID_MDC_KEY, parked.traceId);
+            }
+            try {
+                parked.handler.run();
+                parked.future.complete(null);
+            } catch (Throwable e) {
+                parked.future.completeExceptionally(e);
+            } finally {
+                TraceContext.clear();
+                MDC.remove(TraceContext.TRACE_ID_MDC_KEY);
+            }
+        }
+
+        private Optional<OrderStatus> currentStatus(String orderNo) {
+            try {
+                return orderRepository.findByOrderNo(orderNo).map(Order::getStatus).map(OrderStatus::of);
+            } catch (RuntimeException e) {
+                log.warn("[OrderEventSequencer] Load order status failed, orderNo={}, error={}",
+                        orderNo, e.getMessage());
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * 等待执行的事件
+     */
+    private static final class Parked {
+        private final String orderNo;
+        private final OrderEvent event;
+        private final Runnable handler;
+        private final String traceId;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final long parkedAt = System.currentTimeMillis();
+        private ScheduledFuture<?> timeout;
+
+        private Parked(String orderNo, OrderEvent event, Runnable handler, String traceId) {
+            this.orderNo = orderNo;
+            this.event = event;
+            this.handler = handler;
+            this.traceId = traceId;
+        }
+    }
+
+    /**
+     * 乱序事件未能按序执行（暂存超时或超限）
+     */
+    public static class OutOfOrderException extends RuntimeException {
+        public OutOfOrderException(String message) {
+            super(message);
+        }
+    }
+}
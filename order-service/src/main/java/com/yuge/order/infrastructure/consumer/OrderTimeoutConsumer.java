@@ -0,0 +1,104 @@
+package com.yuge.order.infrastructure.consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.order.application.OrderTimeoutService;
+import com.yuge.order.domain.event.OrderTimeoutEvent;
+import com.yuge.platform.infra.mq.BaseEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
+import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.apache.rocketmq.spring.core.RocketMQPushConsumerLifecycleListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单支付超时消息消费者
+ *
+ * 启动前替换容器的单条监听器为批量监听器（consumeMessageBatchMaxSize），
+ * 一批超时消息交给 OrderTimeoutService 合并查询、逐单取消；
+ * 取消失败整批 RECONSUME_LATER（已取消的订单重试时跳过，无需消费日志去重）
+ */
+@Slf4j
+@Component
+@RocketMQMessageListener(
+        topic = "ORDER_TOPIC",
+        selectorExpression = OrderTimeoutService.TAG_ORDER_TIMEOUT,
+        consumerGroup = "order-timeout-consumer-group"
+)
+public class OrderTimeoutConsumer implements RocketMQListener<MessageExt>,
+        RocketMQPushConsumerLifecycleListener {
+
+    private final OrderTimeoutService orderTimeoutService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 单次消费的最大消息数
+     */
+    @Value("${order.timeout.consume-batch-size:32}")
+    private int consumeBatchSize;
+
+    public OrderTimeoutConsumer(OrderTimeoutService orderTimeoutService, ObjectMapper objectMapper) {
+        this.orderTimeoutService = orderTimeoutService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void prepareStart(DefaultMQPushConsumer consumer) {
+        consumer.setConsumeMessageBatchMaxSize(consumeBatchSize);
+        consumer.setPullBatchSize(Math.max(consumer.getPullBatchSize(), consumeBatchSize));
+        consumer.setMessageListener((MessageListenerConcurrently) (messages, context) -> consumeBatch(messages));
+        log.info("[OrderTimeoutConsumer] Batch listener registered, consumeBatchSize={}", consumeBatchSize);
+    }
+
+    @Override
+    public void onMessage(MessageExt messageExt) {
+        if (consumeBatch(List.of(messageExt)) != ConsumeConcurrentlyStatus.CONSUME_SUCCESS) {
+            throw new IllegalStateException("超时取消失败，触发重试");
+        }
+    }
+
+    ConsumeConcurrentlyStatus consumeBatch(List<MessageExt> messages) {
+        List<OrderTimeoutEvent> events = new ArrayList<>(messages.size());
+        for (MessageExt message : messages) {
+            OrderTimeoutEvent event = parseMessage(message);
+            if (event != null && event.getOrderNo() != null) {
+                events.add(event);
+            }
+        }
+        if (events.isEmpty()) {
+            return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+        }
+
+        try {
+            orderTimeoutService.handleTimeouts(events);
+            return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+        } catch (Exception e) {
+            log.error("[OrderTimeoutConsumer] Failed to handle timeout batch, size={}, reconsumeTimes={}, error={}",
+                    events.size(), messages.get(0).getReconsumeTimes(), e.getMessage());
+            return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+        }
+    }
+
+    /**
+     * 解析消息，解析失败丢弃不重试
+     */
+    private OrderTimeoutEvent parseMessage(MessageExt messageExt) {
+        try {
+            String body = new String(messageExt.getBody(), StandardCharsets.UTF_8);
+            BaseEvent baseEvent = objectMapper.readValue(body, BaseEvent.class);
+            return objectMapper.readValue(baseEvent.getPayload(), OrderTimeoutEvent.class);
+        } catch (Exception e) {
+            log.error("[OrderTimeoutConsumer] Failed to parse message body, msgId={}",
+                    messageExt.getMsgId(), e);
+            return null;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Optional;
  * 签收事件消费者
  * 
  * 消费 ShipmentDelivered 事件，推进订单状态：SHIPPED -> DELIVERED
+ * 按订单号经 OrderEventSequencer 串行执行，前置状态尚未到达的事件暂存等待
  */
 @Slf4j
 @Component
@@ -44,6 +45,7 @@ public class ShipmentDeliveredConsumer implements RocketMQListener<MessageExt> {
     private final MqConsumeLogRepository mqConsumeLogRepository;
     private final OrderRepository orderRepository;
     private final OrderStateMachine orderStateMachine;
+    private final OrderEventSequencer orderEventSequencer;
     private final ObjectMapper objectMapper;
 
     @Override
@@ -102,7 +104,8 @@ public class ShipmentDeliveredConsumer implements RocketMQListener<MessageExt> {
             }
 
             // 5. 处理签收事件
-            processShipmentDelivered(deliveredEvent, eventId, startTime);
+            orderEventSequencer.dispatch(deliveredEvent.getOrderNo(), OrderEvent.DELIVER,
+                    () -> processShipmentDelivered(deliveredEvent, eventId, startTime));
 
         } catch (Exception e) {
             long costMs = System.currentTimeMillis() - startTime;
@@ -33,6 +33,7 @@ import java.util.Optional;
  * 1. 事件携带 event_id 与 event_time
  * 2. 订单更新用 CAS：where status=CREATED
  * 3. 更新失败（说明已被其他事件推进）则记录为 IGNORED，并写一条 state_flow（标注 ignored_reason）
+ * 4. 按订单号经 OrderEventSequencer 串行执行，前置状态尚未到达的事件暂存等待，不退回Broker重试
  * 
  * 重复消费幂等：基于 t_mq_consume_log（event_id + consumer_group unique）
  */
@@ -51,6 +52,7 @@ public class StockReservedConsumer implements RocketMQListener<MessageExt> {
     private final MqConsumeLogRepository mqConsumeLogRepository;
     private final OrderRepository orderRepository;
     private final OrderStateMachine orderStateMachine;
+    private final OrderEventSequencer orderEventSequencer;
     private final ObjectMapper objectMapper;
 
     @Override
@@ -109,7 +111,8 @@ public class StockReservedConsumer implements RocketMQListener<MessageExt> {
             }
 
             // 5. 处理库存预留成功事件
-            processStockReserved(stockEvent, eventId, startTime);
+            orderEventSequencer.dispatch(stockEvent.getOrderNo(), OrderEvent.STOCK_RESERVED,
+                    () -> processStockReserved(stockEvent, eventId, startTime));
 
         } catch (Exception e) {
             long costMs = System.currentTimeMillis() - startTime;
@@ -2,6 +2,7 @@ package com.yuge.order.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yuge.order.domain.entity.OrderItem;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -19,4 +20,26 @@ public interface OrderItemMapper extends BaseMapper<OrderItem> {
      */
     @Select("SELECT * FROM t_order_item WHERE order_no = #{orderNo}")
     List<OrderItem> selectByOrderNo(@Param("orderNo") String orderNo);
+
+    /**
+     * 批量查询多个订单的明细（列表页一次查询，避免N+1）
+     */
+    @Select("<script>" +
+            "SELECT * FROM t_order_item WHERE order_no IN " +
+            "<foreach collection='orderNos' item='orderNo' open='(' separator=',' close=')'>#{orderNo}</foreach>" +
+            "</script>")
+    List<OrderItem> selectByOrderNos(@Param("orderNos") List<String> orderNos);
+
+    /**
+     * 多行插入订单明细（组提交写入）
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_order_item (order_no, sku_id, qty, title_snapshot, price_snapshot, discount_amount, " +
+            "payable_amount, promo_snapshot_json, created_at) VALUES " +
+            "<foreach collection='items' item='i' separator=','>" +
+            "(#{i.orderNo}, #{i.skuId}, #{i.qty}, #{i.titleSnapshot}, #{i.priceSnapshot}, #{i.discountAmount}, " +
+            "#{i.payableAmount}, #{i.promoSnapshotJson}, #{i.createdAt})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("items") List<OrderItem> items);
 }
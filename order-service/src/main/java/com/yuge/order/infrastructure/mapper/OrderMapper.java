@@ -2,11 +2,15 @@ package com.yuge.order.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yuge.order.domain.entity.Order;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 订单Mapper
  */
@@ -25,6 +29,54 @@ public interface OrderMapper extends BaseMapper<Order> {
     @Select("SELECT * FROM t_order WHERE user_id = #{userId} AND client_request_id = #{clientRequestId} AND deleted = 0")
     Order selectByUserIdAndClientRequestId(@Param("userId") Long userId, @Param("clientRequestId") String clientRequestId);
 
+    /**
+     * 按订单号批量查询（uk_order_no，超时取消时一批一次查询）
+     */
+    @Select("<script>" +
+            "SELECT * FROM t_order WHERE deleted = 0 AND order_no IN " +
+            "<foreach collection='orderNos' item='orderNo' open='(' separator=',' close=')'>#{orderNo}</foreach>" +
+            "</script>")
+    List<Order> selectByOrderNos(@Param("orderNos") List<String> orderNos);
+
+    /**
+     * 用户订单键集分页（idx_user_created，按 created_at DESC, id DESC）
+     *
+     * @param statuses        状态过滤，为空不过滤
+     * @param cursorCreatedAt 上一页最后一条的创建时间，为空表示第一页
+     * @param cursorId        上一页最后一条的ID
+     */
+    @Select("<script>" +
+            "SELECT * FROM t_order WHERE user_id = #{userId} AND deleted = 0 " +
+            "<if test='statuses != null and statuses.size() > 0'>" +
+            "AND status IN " +
+            "<foreach collection='statuses' item='s' open='(' separator=',' close=')'>#{s}</foreach> " +
+            "</if>" +
+            "<if test='cursorCreatedAt != null'>" +
+            "AND (created_at &lt; #{cursorCreatedAt} OR (created_at = #{cursorCreatedAt} AND id &lt; #{cursorId})) " +
+            "</if>" +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<Order> selectUserOrderPage(@Param("userId") Long userId,
+                                    @Param("statuses") List<String> statuses,
+                                    @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                    @Param("cursorId") Long cursorId,
+                                    @Param("limit") int limit);
+
+    /**
+     * 最近订单（管理端，idx_created_at，按 created_at DESC, id DESC）
+     *
+     * @param statuses 状态过滤，为空不过滤
+     */
+    @Select("<script>" +
+            "SELECT * FROM t_order WHERE deleted = 0 " +
+            "<if test='statuses != null and statuses.size() > 0'>" +
+            "AND status IN " +
+            "<foreach collection='statuses' item='s' open='(' separator=',' close=')'>#{s}</foreach> " +
+            "</if>" +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<Order> selectRecent(@Param("statuses") List<String> statuses, @Param("limit") int limit);
+
     /**
      * CAS更新订单状态
      * 
@@ -62,4 +114,17 @@ public interface OrderMapper extends BaseMapper<Order> {
     @Update("UPDATE t_order SET status = #{toStatus}, version = version + 1, updated_at = NOW() " +
             "WHERE order_no = #{orderNo} AND status IN ('PAID', 'SHIPPED', 'DELIVERED', 'PARTIAL_REFUNDED') AND deleted = 0")
     int casUpdateToRefunded(@Param("orderNo") String orderNo, @Param("toStatus") String toStatus);
+
+    /**
+     * 多行插入订单（组提交写入，审计字段由调用方填充）
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_order (id, order_no, user_id, amount, status, client_request_id, price_lock_no, remark, " +
+            "version, deleted, created_by, updated_by, created_at, updated_at) VALUES " +
+            "<foreach collection='orders' item='o' separator=','>" +
+            "(#{o.id}, #{o.orderNo}, #{o.userId}, #{o.amount}, #{o.status}, #{o.clientRequestId}, #{o.priceLockNo}, " +
+            "#{o.remark}, #{o.version}, #{o.deleted}, #{o.createdBy}, #{o.updatedBy}, #{o.createdAt}, #{o.updatedAt})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("orders") List<Order> orders);
 }
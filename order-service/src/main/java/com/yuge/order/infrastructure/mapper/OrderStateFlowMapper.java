@@ -2,6 +2,7 @@ package com.yuge.order.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yuge.order.domain.entity.OrderStateFlow;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -19,4 +20,17 @@ public interface OrderStateFlowMapper extends BaseMapper<OrderStateFlow> {
      */
     @Select("SELECT * FROM t_order_state_flow WHERE order_no = #{orderNo} ORDER BY created_at ASC")
     List<OrderStateFlow> selectByOrderNo(@Param("orderNo") String orderNo);
+
+    /**
+     * 多行插入状态流转记录（组提交写入）
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_order_state_flow (order_no, from_status, to_status, event, event_id, operator, trace_id, " +
+            "remark, created_at) VALUES " +
+            "<foreach collection='flows' item='f' separator=','>" +
+            "(#{f.orderNo}, #{f.fromStatus}, #{f.toStatus}, #{f.event}, #{f.eventId}, #{f.operator}, #{f.traceId}, " +
+            "#{f.remark}, #{f.createdAt})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("flows") List<OrderStateFlow> flows);
 }
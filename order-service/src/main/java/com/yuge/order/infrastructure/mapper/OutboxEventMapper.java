@@ -2,6 +2,7 @@ package com.yuge.order.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yuge.order.domain.entity.OutboxEvent;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -99,4 +100,17 @@ public interface OutboxEventMapper extends BaseMapper<OutboxEvent> {
      */
     @Select("SELECT * FROM t_outbox_event WHERE status = 'DEAD' ORDER BY updated_at DESC LIMIT #{limit}")
     List<OutboxEvent> selectDeadEvents(@Param("limit") int limit);
+
+    /**
+     * 多行插入事件（组提交写入）
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_outbox_event (event_id, biz_key, topic, tag, payload_json, status, retry_count, max_retry, " +
+            "trace_id, version, created_at, updated_at) VALUES " +
+            "<foreach collection='events' item='e' separator=','>" +
+            "(#{e.eventId}, #{e.bizKey}, #{e.topic}, #{e.tag}, #{e.payloadJson}, #{e.status}, #{e.retryCount}, " +
+            "#{e.maxRetry}, #{e.traceId}, #{e.version}, #{e.createdAt}, #{e.updatedAt})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("events") List<OutboxEvent> events);
 }
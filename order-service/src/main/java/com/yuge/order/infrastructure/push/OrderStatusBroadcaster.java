@@ -0,0 +1,173 @@
+package com.yuge.order.infrastructure.push;
+
+import com.yuge.order.domain.entity.Order;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 订单状态变更广播
+ *
+ * 1. 订单状态变更提交后（OrderCacheRefresher）PUBLISH order:status:changed {orderNo}|{status}|{version}
+ * 2. 各实例订阅该频道，只分发给本实例上订阅了该订单的等待者（长轮询/SSE）
+ * 3. 等待者只是内存中的回调，不占线程、不轮询DB
+ */
+@Slf4j
+@Component
+public class OrderStatusBroadcaster {
+
+    /**
+     * 订单状态变更频道（订单详情缓存也订阅该频道失效L1）
+     */
+    public static final String CHANNEL = "order:status:changed";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Map<String, Set<Predicate<StatusChange>>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    /**
+     * 单实例最大等待者数量
+     */
+    @Value("${order.status-push.max-subscribers:50000}")
+    private int maxSubscribers;
+
+    public OrderStatusBroadcaster(StringRedisTemplate redisTemplate,
+                                  RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            StatusChange change = StatusChange.parse(new String(message.getBody(), StandardCharsets.UTF_8));
+            if (change != null) {
+                dispatch(change);
+            }
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 发布订单状态变更（跨实例）
+     * Redis不可用时只分发给本实例
+     */
+    public void publish(Order order) {
+        StatusChange change = new StatusChange(order.getOrderNo(), order.getStatus(), order.getVersion());
+        try {
+            redisTemplate.convertAndSend(CHANNEL, change.format());
+        } catch (Exception e) {
+            log.warn("[OrderStatusBroadcaster] publish failed, dispatch locally, orderNo={}, error={}",
+                    order.getOrderNo(), e.getMessage());
+            dispatch(change);
+        }
+    }
+
+    /**
+     * 订阅订单状态变更
+     *
+     * @param listener 返回true表示处理完成，自动取消订阅
+     * @return 订阅句柄；超过单实例上限时返回null
+     */
+    public Subscription subscribe(String orderNo, Predicate<StatusChange> listener) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            log.warn("[OrderStatusBroadcaster] Too many subscribers, max={}", maxSubscribers);
+            return null;
+        }
+        subscribers.compute(orderNo, (k, listeners) -> {
+            Set<Predicate<StatusChange>> result = listeners != null ? listeners : ConcurrentHashMap.newKeySet();
+            result.add(listener);
+            return result;
+        });
+        return () -> unsubscribe(orderNo, listener);
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    void dispatch(StatusChange change) {
+        Set<Predicate<StatusChange>> listeners = subscribers.get(change.getOrderNo());
+        if (listeners == null) {
+            return;
+        }
+        for (Predicate<StatusChange> listener : listeners) {
+            boolean done;
+            try {
+                done = listener.test(change);
+            } catch (Exception e) {
+                log.warn("[OrderStatusBroadcaster] listener failed, orderNo={}, error={}",
+                        change.getOrderNo(), e.getMessage());
+                done = true;
+            }
+            if (done) {
+                unsubscribe(change.getOrderNo(), listener);
+            }
+        }
+    }
+
+    /**
+     * 取消订阅（与 subscribe 同在 compute 内修改，空集合移除时不会丢失并发加入的订阅）
+     */
+    private void unsubscribe(String orderNo, Predicate<StatusChange> listener) {
+        subscribers.computeIfPresent(orderNo, (k, listeners) -> {
+            if (listeners.remove(listener)) {
+                subscriberCount.decrementAndGet();
+            }
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+
+    /**
+     * 订阅句柄
+     */
+    @FunctionalInterface
+    public interface Subscription {
+        void cancel();
+    }
+
+    /**
+     * 状态变更消息
+     */
+    @Data
+    @AllArgsConstructor
+    public static class StatusChange {
+        private String orderNo;
+        private String status;
+        private Integer version;
+
+        public String format() {
+            return orderNo + "|" + status + "|" + version;
+        }
+
+        /**
+         * 解析 {orderNo}|{status}|{version}，格式错误返回null
+         */
+        public static StatusChange parse(String message) {
+            String[] parts = message.split("\\|");
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                return new StatusChange(parts[0], parts[1], Integer.valueOf(parts[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
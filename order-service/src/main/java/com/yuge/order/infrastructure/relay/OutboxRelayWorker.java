@@ -4,8 +4,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yuge.order.domain.entity.OutboxEvent;
 import com.yuge.order.domain.enums.OutboxStatus;
 import com.yuge.order.infrastructure.repository.OutboxEventRepository;
+import com.yuge.order.infrastructure.sharding.OrderShardRouter;
 import com.yuge.platform.infra.mq.BaseEvent;
 import com.yuge.platform.infra.trace.TraceContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.rocketmq.client.producer.SendResult;
@@ -16,12 +19,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Outbox Relay Worker
@@ -33,6 +39,7 @@ import java.util.List;
  * 2. 指数退避重试策略
  * 3. 超过阈值标记为 DEAD 并告警
  * 4. traceId 透传
+ * 5. 每个分库一个投递线程，各自扫描本库 Outbox 表，分库之间互不阻塞
  */
 @Slf4j
 @Component
@@ -43,6 +50,10 @@ public class OutboxRelayWorker {
     private final OutboxEventRepository outboxEventRepository;
     private final RocketMQTemplate rocketMQTemplate;
     private final ObjectMapper objectMapper;
+    private final OrderShardRouter orderShardRouter;
+    private final TransactionTemplate transactionTemplate;
+
+    private final List<ScheduledExecutorService> shardRelays = new ArrayList<>();
 
     /**
      * 每次处理的批量大小
@@ -63,22 +74,49 @@ public class OutboxRelayWorker {
     private int maxRetryInterval;
 
     /**
-     * 定时扫描并投递消息
-     * 每秒执行一次
+     * 扫描间隔（毫秒）
+     */
+    @Value("${outbox.relay.poll-interval:1000}")
+    private long pollInterval;
+
+    /**
+     * 每个分库启动一个投递线程
+     */
+    @PostConstruct
+    public void start() {
+        for (int shard = 0; shard < orderShardRouter.getShardCount(); shard++) {
+            int target = shard;
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "outbox-relay-shard-" + target);
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(() -> relay(target), pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+            shardRelays.add(executor);
+        }
+        log.info("[OutboxRelay] Started, shards={}, pollInterval={}ms", shardRelays.size(), pollInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        shardRelays.forEach(ScheduledExecutorService::shutdown);
+    }
+
+    /**
+     * 扫描并投递指定分库的消息
      */
-    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval:1000}")
-    public void relay() {
+    public void relay(int shard) {
         try {
-            processOutboxEvents();
+            orderShardRouter.runOnShard(shard,
+                    () -> transactionTemplate.executeWithoutResult(status -> processOutboxEvents()));
         } catch (Exception e) {
-            log.error("[OutboxRelay] Unexpected error during relay", e);
+            log.error("[OutboxRelay] Unexpected error during relay, shard={}", shard, e);
         }
     }
 
     /**
-     * 处理 Outbox 事件
+     * 处理当前分库的 Outbox 事件（在事务内执行，行锁持有到本批处理结束）
      */
-    @Transactional(rollbackFor = Exception.class)
     public void processOutboxEvents() {
         // 1. 查询待处理的事件（带行锁）
         List<OutboxEvent> events = outboxEventRepository.findProcessableEventsForUpdate(batchSize);
@@ -3,6 +3,7 @@ package com.yuge.order.infrastructure.repository;
 import com.yuge.order.domain.entity.MqConsumeLog;
 import com.yuge.order.domain.enums.ConsumeStatus;
 import com.yuge.order.infrastructure.mapper.MqConsumeLogMapper;
+import com.yuge.order.infrastructure.sharding.OrderShardRouter;
 import com.yuge.platform.infra.trace.TraceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,13 +14,18 @@ import java.util.Optional;
 
 /**
  * MQ消费日志仓储
+ *
+ * t_mq_consume_log 不分片，固定在分片0
  */
 @Slf4j
 @Repository
 @RequiredArgsConstructor
 public class MqConsumeLogRepository {
 
+    private static final int CONSUME_LOG_SHARD = 0;
+
     private final MqConsumeLogMapper mqConsumeLogMapper;
+    private final OrderShardRouter orderShardRouter;
 
     /**
      * 尝试获取消费锁（幂等检查）
@@ -34,7 +40,8 @@ public class MqConsumeLogRepository {
     public Optional<MqConsumeLog> tryAcquire(String eventId, String consumerGroup, 
                                               String topic, String tag, String bizKey) {
         // 1. 先查询是否已存在
-        MqConsumeLog existing = mqConsumeLogMapper.selectByEventIdAndGroup(eventId, consumerGroup);
+        MqConsumeLog existing = orderShardRouter.onShard(CONSUME_LOG_SHARD,
+                () -> mqConsumeLogMapper.selectByEventIdAndGroup(eventId, consumerGroup));
         if (existing != null) {
             log.info("[MqConsumeLog] Event already processed, eventId={}, consumerGroup={}, status={}",
                     eventId, consumerGroup, existing.getStatus());
@@ -52,7 +59,7 @@ public class MqConsumeLogRepository {
             consumeLog.setBizKey(bizKey);
             consumeLog.setTraceId(TraceContext.getTraceId());
             
-            mqConsumeLogMapper.insert(consumeLog);
+            orderShardRouter.onShard(CONSUME_LOG_SHARD, () -> mqConsumeLogMapper.insert(consumeLog));
             log.info("[MqConsumeLog] Acquired consume lock, eventId={}, consumerGroup={}", 
                     eventId, consumerGroup);
             return Optional.empty();
@@ -61,7 +68,8 @@ public class MqConsumeLogRepository {
             // 并发插入，说明已被其他实例处理
             log.info("[MqConsumeLog] Event already being processed by another instance, eventId={}, consumerGroup={}",
                     eventId, consumerGroup);
-            MqConsumeLog record = mqConsumeLogMapper.selectByEventIdAndGroup(eventId, consumerGroup);
+            MqConsumeLog record = orderShardRouter.onShard(CONSUME_LOG_SHARD,
+                    () -> mqConsumeLogMapper.selectByEventIdAndGroup(eventId, consumerGroup));
             return Optional.ofNullable(record);
         }
     }
@@ -70,7 +78,8 @@ public class MqConsumeLogRepository {
      * 标记消费成功
      */
     public boolean markSuccess(String eventId, String consumerGroup, String result, Long costMs) {
-        int rows = mqConsumeLogMapper.markAsSuccess(eventId, consumerGroup, result, costMs);
+        int rows = orderShardRouter.onShard(CONSUME_LOG_SHARD,
+                () -> mqConsumeLogMapper.markAsSuccess(eventId, consumerGroup, result, costMs));
         if (rows > 0) {
             log.info("[MqConsumeLog] Marked as SUCCESS, eventId={}, consumerGroup={}, costMs={}",
                     eventId, consumerGroup, costMs);
@@ -83,7 +92,8 @@ public class MqConsumeLogRepository {
      * 标记消费失败
      */
     public boolean markFailed(String eventId, String consumerGroup, String result, Long costMs) {
-        int rows = mqConsumeLogMapper.markAsFailed(eventId, consumerGroup, result, costMs);
+        int rows = orderShardRouter.onShard(CONSUME_LOG_SHARD,
+                () -> mqConsumeLogMapper.markAsFailed(eventId, consumerGroup, result, costMs));
         if (rows > 0) {
             log.warn("[MqConsumeLog] Marked as FAILED, eventId={}, consumerGroup={}, result={}",
                     eventId, consumerGroup, result);
@@ -97,7 +107,8 @@ public class MqConsumeLogRepository {
      */
     public boolean markIgnored(String eventId, String consumerGroup, String result, 
                                String ignoredReason, Long costMs) {
-        int rows = mqConsumeLogMapper.markAsIgnored(eventId, consumerGroup, result, ignoredReason, costMs);
+        int rows = orderShardRouter.onShard(CONSUME_LOG_SHARD,
+                () -> mqConsumeLogMapper.markAsIgnored(eventId, consumerGroup, result, ignoredReason, costMs));
         if (rows > 0) {
             log.warn("[MqConsumeLog] Marked as IGNORED, eventId={}, consumerGroup={}, reason={}",
                     eventId, consumerGroup, ignoredReason);
@@ -110,6 +121,7 @@ public class MqConsumeLogRepository {
      * 查询消费记录
      */
     public MqConsumeLog findByEventIdAndGroup(String eventId, String consumerGroup) {
-        return mqConsumeLogMapper.selectByEventIdAndGroup(eventId, consumerGroup);
+        return orderShardRouter.onShard(CONSUME_LOG_SHARD,
+                () -> mqConsumeLogMapper.selectByEventIdAndGroup(eventId, consumerGroup));
     }
 }
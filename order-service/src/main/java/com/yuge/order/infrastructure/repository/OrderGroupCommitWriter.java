@@ -0,0 +1,384 @@
+package com.yuge.order.infrastructure.repository;
+
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.domain.entity.OrderItem;
+import com.yuge.order.domain.entity.OrderStateFlow;
+import com.yuge.order.domain.entity.OutboxEvent;
+import com.yuge.order.infrastructure.cache.OrderCacheRefresher;
+import com.yuge.order.infrastructure.mapper.OrderItemMapper;
+import com.yuge.order.infrastructure.mapper.OrderMapper;
+import com.yuge.order.infrastructure.mapper.OrderStateFlowMapper;
+import com.yuge.order.infrastructure.mapper.OutboxEventMapper;
+import com.yuge.order.infrastructure.sharding.OrderShardRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订单创建组提交写入器（可选，order.group-commit.enabled）
+ *
+ * 每个下单请求单独提交时，4张表各自INSERT + 一次提交（fsync），高并发下提交成为瓶颈。
+ * 组提交：
+ * 1. 调用线程把待写入的订单放入队列并等待结果
+ * 2. 单个写入线程收集一个窗口（默认500微秒，最多 max-batch 单）内的请求，
+ *    4张表各一条多行INSERT，同一事务提交（一次fsync）
+ * 3. 整批失败（如某单唯一键冲突）时逐单重试（各自事务），冲突只影响该单，其他订单正常写入
+ * 4. 提交后在调用线程刷新订单缓存（不占用写入线程）
+ * 5. 分库时批内订单按分片拆分，每个分片一个事务（事务不跨库）
+ *
+ * 批内同一 (userId, clientRequestId) 的重复请求直接判为唯一键冲突，不进入INSERT
+ */
+@Slf4j
+@Component
+public class OrderGroupCommitWriter {
+
+    private final OrderMapper orderMapper;
+    private final OrderItemMapper orderItemMapper;
+    private final OutboxEventMapper outboxEventMapper;
+    private final OrderStateFlowMapper orderStateFlowMapper;
+    private final OrderCacheRefresher orderCacheRefresher;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderShardRouter orderShardRouter;
+
+    private BlockingQueue<PendingOrder> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedOrders = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * 是否启用（默认关闭，每单独立事务）
+     */
+    @Value("${order.group-commit.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 收集窗口（微秒）
+     */
+    @Value("${order.group-commit.window-micros:500}")
+    private long windowMicros;
+
+    /**
+     * 单批最大订单数
+     */
+    @Value("${order.group-commit.max-batch:64}")
+    private int maxBatch;
+
+    /**
+     * 队列容量，队列满时调用线程直接单独写入
+     */
+    @Value("${order.group-commit.queue-capacity:4096}")
+    private int queueCapacity;
+
+    /**
+     * 调用线程等待批次结果的最长时间（毫秒），超时视为提交结果未知
+     */
+    @Value("${order.group-commit.await-timeout-ms:10000}")
+    private long awaitTimeoutMs;
+
+    public OrderGroupCommitWriter(OrderMapper orderMapper,
+                                  OrderItemMapper orderItemMapper,
+                                  OutboxEventMapper outboxEventMapper,
+                                  OrderStateFlowMapper orderStateFlowMapper,
+                                  OrderCacheRefresher orderCacheRefresher,
+                                  TransactionTemplate transactionTemplate,
+                                  OrderShardRouter orderShardRouter) {
+        this.orderMapper = orderMapper;
+        this.orderItemMapper = orderItemMapper;
+        this.outboxEventMapper = outboxEventMapper;
+        this.orderStateFlowMapper = orderStateFlowMapper;
+        this.orderCacheRefresher = orderCacheRefresher;
+        this.transactionTemplate = transactionTemplate;
+        this.orderShardRouter = orderShardRouter;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        running = true;
+        flusher = new Thread(this::runLoop, "order-group-commit");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("[OrderGroupCommitWriter] Started, windowMicros={}, maxBatch={}, queueCapacity={}",
+                windowMicros, maxBatch, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 停止后剩余请求逐批写完，不丢弃
+        List<PendingOrder> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int i = 0; i < rest.size(); i += maxBatch) {
+            flush(rest.subList(i, Math.min(i + maxBatch, rest.size())));
+        }
+        log.info("[OrderGroupCommitWriter] Stopped, batches={}, orders={}, fallbacks={}",
+                batches.sum(), batchedOrders.sum(), fallbacks.sum());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 写入新订单（阻塞至所在批次提交或失败，最多 await-timeout-ms）
+     *
+     * @throws DuplicateKeyException 订单唯一键冲突
+     * @throws QueryTimeoutException 等待超时，提交结果未知
+     */
+    public void write(NewOrder newOrder) {
+        fillAuditFields(newOrder);
+        PendingOrder pending = new PendingOrder(newOrder, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            writeSingle(newOrder);
+        } else if (!running && queue.remove(pending)) {
+            // 入队时写入器正在停止，stop() 可能已取完剩余请求：仍在队列中则由调用线程写入，
+            // 已被取走的由 stop() 或写入线程完成
+            writeSingle(newOrder);
+        } else {
+            await(pending.getFuture(), newOrder.getOrder().getOrderNo());
+        }
+        orderCacheRefresher.refreshAfterCommit(newOrder.getOrder().getOrderNo());
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getBatchedOrderCount() {
+        return batchedOrders.sum();
+    }
+
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    private void runLoop() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                PendingOrder first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(windowMicros);
+                while (batch.size() < maxBatch) {
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                log.error("[OrderGroupCommitWriter] Flush loop error, error={}", e.getMessage(), e);
+                for (PendingOrder pending : batch) {
+                    pending.getFuture().completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingOrder> batch) {
+        // 1. 批内重复请求直接判冲突
+        List<PendingOrder> writable = new ArrayList<>(batch.size());
+        Set<String> requestKeys = new HashSet<>();
+        for (PendingOrder pending : batch) {
+            Order order = pending.getNewOrder().getOrder();
+            if (requestKeys.add(order.getUserId() + ":" + order.getClientRequestId())) {
+                writable.add(pending);
+            } else {
+                pending.getFuture().completeExceptionally(new DuplicateKeyException(
+                        "Duplicate clientRequestId in batch: " + order.getClientRequestId()));
+            }
+        }
+        // 2. 按分片拆分
+        Map<Integer, List<PendingOrder>> byShard = new TreeMap<>();
+        for (PendingOrder pending : writable) {
+            int shard = orderShardRouter.shardOfOrderNo(pending.getNewOrder().getOrder().getOrderNo());
+            byShard.computeIfAbsent(shard, k -> new ArrayList<>()).add(pending);
+        }
+        byShard.forEach((shard, group) -> orderShardRouter.runOnShard(shard, () -> flushShard(group)));
+    }
+
+    private void flushShard(List<PendingOrder> writable) {
+        // 3. 同一分片整批一个事务
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertAll(writable));
+            batches.increment();
+            batchedOrders.add(writable.size());
+            for (PendingOrder pending : writable) {
+                pending.getFuture().complete(null);
+            }
+            log.debug("[OrderGroupCommitWriter] Batch committed, size={}", writable.size());
+            return;
+        } catch (RuntimeException e) {
+            if (writable.size() == 1) {
+                writable.get(0).getFuture().completeExceptionally(e);
+                return;
+            }
+            log.warn("[OrderGroupCommitWriter] Batch failed, retry one by one, size={}, error={}",
+                    writable.size(), e.getMessage());
+        }
+
+        // 4. 逐单重试，失败只影响该单
+        fallbacks.increment();
+        for (PendingOrder pending : writable) {
+            try {
+                writeSingle(pending.getNewOrder());
+                pending.getFuture().complete(null);
+            } catch (RuntimeException e) {
+                pending.getFuture().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void writeSingle(NewOrder newOrder) {
+        orderShardRouter.runOnOrder(newOrder.getOrder().getOrderNo(), () -> transactionTemplate.executeWithoutResult(
+                status -> insertAll(List.of(new PendingOrder(newOrder, null)))));
+    }
+
+    private void insertAll(List<PendingOrder> pendings) {
+        List<Order> orders = new ArrayList<>(pendings.size());
+        List<OrderItem> items = new ArrayList<>();
+        List<OutboxEvent> events = new ArrayList<>(pendings.size());
+        List<OrderStateFlow> flows = new ArrayList<>(pendings.size());
+        for (PendingOrder pending : pendings) {
+            NewOrder newOrder = pending.getNewOrder();
+            orders.add(newOrder.getOrder());
+            items.addAll(newOrder.getItems());
+            events.add(newOrder.getOutboxEvent());
+            flows.add(newOrder.getStateFlow());
+        }
+        orderMapper.insertBatch(orders);
+        if (!items.isEmpty()) {
+            orderItemMapper.insertBatch(items);
+        }
+        outboxEventMapper.insertBatch(events);
+        orderStateFlowMapper.insertBatch(flows);
+    }
+
+    /**
+     * 多行INSERT不经过MyBatis-Plus自动填充，在调用线程填充审计字段
+     */
+    private void fillAuditFields(NewOrder newOrder) {
+        LocalDateTime now = LocalDateTime.now();
+        Order order = newOrder.getOrder();
+        order.setVersion(1);
+        order.setDeleted(0);
+        order.setCreatedBy("system");
+        order.setUpdatedBy("system");
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        for (OrderItem item : newOrder.getItems()) {
+            item.setCreatedAt(now);
+        }
+        newOrder.getOutboxEvent().setCreatedAt(now);
+        newOrder.getOutboxEvent().setUpdatedAt(now);
+        newOrder.getStateFlow().setCreatedAt(now);
+    }
+
+    /**
+     * 等待批次结果；已入队的订单一定会被写入或失败，被中断时也等到结果（或超时）再返回，
+     * 避免调用方误判失败而释放价格锁。超时抛出 QueryTimeoutException，调用方按提交结果未知处理
+     */
+    private void await(CompletableFuture<Void> future, String orderNo) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitTimeoutMs);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    future.get(Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (TimeoutException e) {
+            log.error("[OrderGroupCommitWriter] Await batch result timed out, orderNo={}, timeoutMs={}",
+                    orderNo, awaitTimeoutMs);
+            throw new QueryTimeoutException("Group commit result not received within " + awaitTimeoutMs
+                    + "ms, orderNo=" + orderNo);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 待写入的新订单（订单 + 明细 + 订单创建事件 + 状态流水）
+     */
+    @Data
+    @AllArgsConstructor
+    public static class NewOrder {
+        private Order order;
+        private List<OrderItem> items;
+        private OutboxEvent outboxEvent;
+        private OrderStateFlow stateFlow;
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class PendingOrder {
+        private NewOrder newOrder;
+        private CompletableFuture<Void> future;
+    }
+}
@@ -5,9 +5,11 @@ import com.yuge.order.domain.entity.OrderItem;
 import com.yuge.order.domain.entity.OrderStateFlow;
 import com.yuge.order.domain.enums.OrderEvent;
 import com.yuge.order.domain.enums.OrderStatus;
+import com.yuge.order.infrastructure.cache.OrderCacheRefresher;
 import com.yuge.order.infrastructure.mapper.OrderItemMapper;
 import com.yuge.order.infrastructure.mapper.OrderMapper;
 import com.yuge.order.infrastructure.mapper.OrderStateFlowMapper;
+import com.yuge.order.infrastructure.sharding.OrderShardRouter;
 import com.yuge.platform.infra.common.ErrorCode;
 import com.yuge.platform.infra.exception.BizException;
 import com.yuge.platform.infra.trace.TraceContext;
@@ -15,12 +17,19 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * 订单仓储
+ *
+ * 所有访问经 OrderShardRouter 路由：按订单号解析槽位，按用户ID取模；批量查询按分片分组后逐片查询
  */
 @Slf4j
 @Repository
@@ -30,12 +39,15 @@ public class OrderRepository {
     private final OrderMapper orderMapper;
     private final OrderItemMapper orderItemMapper;
     private final OrderStateFlowMapper orderStateFlowMapper;
+    private final OrderCacheRefresher orderCacheRefresher;
+    private final OrderShardRouter orderShardRouter;
 
     /**
      * 保存订单
      */
     public void save(Order order) {
-        orderMapper.insert(order);
+        orderShardRouter.runOnOrder(order.getOrderNo(), () -> orderMapper.insert(order));
+        orderCacheRefresher.refreshAfterCommit(order.getOrderNo());
         log.info("[OrderRepo] Order saved, orderNo={}, userId={}", order.getOrderNo(), order.getUserId());
     }
 
@@ -43,9 +55,14 @@ public class OrderRepository {
      * 保存订单明细
      */
     public void saveItems(List<OrderItem> items) {
-        for (OrderItem item : items) {
-            orderItemMapper.insert(item);
+        if (items.isEmpty()) {
+            return;
         }
+        orderShardRouter.runOnOrder(items.get(0).getOrderNo(), () -> {
+            for (OrderItem item : items) {
+                orderItemMapper.insert(item);
+            }
+        });
         log.info("[OrderRepo] Order items saved, count={}", items.size());
     }
 
@@ -53,7 +70,7 @@ public class OrderRepository {
      * 根据订单号查询订单
      */
     public Optional<Order> findByOrderNo(String orderNo) {
-        Order order = orderMapper.selectByOrderNo(orderNo);
+        Order order = orderShardRouter.onOrder(orderNo, () -> orderMapper.selectByOrderNo(orderNo));
         return Optional.ofNullable(order);
     }
 
@@ -61,7 +78,8 @@ public class OrderRepository {
      * 根据用户ID和客户端请求ID查询订单（幂等查询）
      */
     public Optional<Order> findByUserIdAndClientRequestId(Long userId, String clientRequestId) {
-        Order order = orderMapper.selectByUserIdAndClientRequestId(userId, clientRequestId);
+        Order order = orderShardRouter.onUser(userId,
+                () -> orderMapper.selectByUserIdAndClientRequestId(userId, clientRequestId));
         return Optional.ofNullable(order);
     }
 
@@ -69,7 +87,55 @@ public class OrderRepository {
      * 根据订单号查询订单明细
      */
     public List<OrderItem> findItemsByOrderNo(String orderNo) {
-        return orderItemMapper.selectByOrderNo(orderNo);
+        return orderShardRouter.onOrder(orderNo, () -> orderItemMapper.selectByOrderNo(orderNo));
+    }
+
+    /**
+     * 用户订单键集分页
+     *
+     * @param statuses        状态过滤，为空不过滤
+     * @param cursorCreatedAt 上一页最后一条的创建时间，为空表示第一页
+     * @param cursorId        上一页最后一条的ID
+     * @param limit           条数
+     */
+    public List<Order> findUserOrderPage(Long userId, List<String> statuses,
+                                         LocalDateTime cursorCreatedAt, Long cursorId, int limit) {
+        return orderShardRouter.onUser(userId,
+                () -> orderMapper.selectUserOrderPage(userId, statuses, cursorCreatedAt, cursorId, limit));
+    }
+
+    /**
+     * 全部分库的最近订单（管理端，各分库并行查询 limit 条后归并取前 limit 条）
+     *
+     * @param statuses 状态过滤，为空不过滤
+     */
+    public List<Order> findRecentOrdersAcrossShards(List<String> statuses, int limit) {
+        return orderShardRouter.scatterGather(() -> orderMapper.selectRecent(statuses, limit)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Order::getCreatedAt).thenComparing(Order::getId).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * 按订单号批量查询订单
+     */
+    public List<Order> findByOrderNos(List<String> orderNos) {
+        if (orderNos.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return orderShardRouter.queryByOrderNos(orderNos, orderMapper::selectByOrderNos);
+    }
+
+    /**
+     * 批量查询订单明细，按订单号分组
+     */
+    public Map<String, List<OrderItem>> findItemsByOrderNos(List<String> orderNos) {
+        if (orderNos.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return orderShardRouter.queryByOrderNos(orderNos, orderItemMapper::selectByOrderNos).stream()
+                .collect(Collectors.groupingBy(OrderItem::getOrderNo));
     }
 
     /**
@@ -82,8 +148,10 @@ public class OrderRepository {
      * @return 是否更新成功
      */
     public boolean casUpdateStatus(String orderNo, OrderStatus fromStatus, OrderStatus toStatus, Integer version) {
-        int rows = orderMapper.casUpdateStatus(orderNo, fromStatus.getCode(), toStatus.getCode(), version);
+        int rows = orderShardRouter.onOrder(orderNo,
+                () -> orderMapper.casUpdateStatus(orderNo, fromStatus.getCode(), toStatus.getCode(), version));
         if (rows > 0) {
+            orderCacheRefresher.refreshAfterCommit(orderNo);
             log.info("[OrderRepo] CAS update success, orderNo={}, {} -> {}", orderNo, fromStatus, toStatus);
             return true;
         } else {
@@ -103,8 +171,10 @@ public class OrderRepository {
      * @return 是否更新成功
      */
     public boolean casUpdateStatusOnly(String orderNo, OrderStatus fromStatus, OrderStatus toStatus) {
-        int rows = orderMapper.casUpdateStatusOnly(orderNo, fromStatus.getCode(), toStatus.getCode());
+        int rows = orderShardRouter.onOrder(orderNo,
+                () -> orderMapper.casUpdateStatusOnly(orderNo, fromStatus.getCode(), toStatus.getCode()));
         if (rows > 0) {
+            orderCacheRefresher.refreshAfterCommit(orderNo);
             log.info("[OrderRepo] CAS update (status only) success, orderNo={}, {} -> {}", 
                     orderNo, fromStatus, toStatus);
             return true;
@@ -120,6 +190,17 @@ public class OrderRepository {
      */
     public void saveStateFlow(String orderNo, OrderStatus fromStatus, OrderStatus toStatus, 
                               OrderEvent event, String eventId, String operator, String remark) {
+        OrderStateFlow stateFlow = buildStateFlow(orderNo, fromStatus, toStatus, event, eventId, operator, remark);
+        orderShardRouter.runOnOrder(orderNo, () -> orderStateFlowMapper.insert(stateFlow));
+        log.info("[OrderRepo] State flow saved, orderNo={}, {} -> {}, event={}", 
+                orderNo, fromStatus, toStatus, event);
+    }
+
+    /**
+     * 构建状态流转记录（不落库，组提交写入时由调用方批量插入）
+     */
+    public OrderStateFlow buildStateFlow(String orderNo, OrderStatus fromStatus, OrderStatus toStatus,
+                                         OrderEvent event, String eventId, String operator, String remark) {
         OrderStateFlow stateFlow = new OrderStateFlow();
         stateFlow.setOrderNo(orderNo);
         stateFlow.setFromStatus(fromStatus != null ? fromStatus.getCode() : null);
@@ -129,10 +210,7 @@ public class OrderRepository {
         stateFlow.setOperator(operator);
         stateFlow.setTraceId(TraceContext.getTraceId());
         stateFlow.setRemark(remark);
-        
-        orderStateFlowMapper.insert(stateFlow);
-        log.info("[OrderRepo] State flow saved, orderNo={}, {} -> {}, event={}", 
-                orderNo, fromStatus, toStatus, event);
+        return stateFlow;
     }
 
     /**
@@ -150,7 +228,7 @@ public class OrderRepository {
         stateFlow.setTraceId(TraceContext.getTraceId());
         stateFlow.setRemark("[IGNORED] " + ignoredReason);
         
-        orderStateFlowMapper.insert(stateFlow);
+        orderShardRouter.runOnOrder(orderNo, () -> orderStateFlowMapper.insert(stateFlow));
         log.warn("[OrderRepo] Ignored state flow saved, orderNo={}, currentStatus={}, event={}, reason={}", 
                 orderNo, currentStatus, event, ignoredReason);
     }
@@ -159,6 +237,6 @@ public class OrderRepository {
      * 查询订单状态流转记录
      */
     public List<OrderStateFlow> findStateFlowsByOrderNo(String orderNo) {
-        return orderStateFlowMapper.selectByOrderNo(orderNo);
+        return orderShardRouter.onOrder(orderNo, () -> orderStateFlowMapper.selectByOrderNo(orderNo));
     }
 }
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yuge.order.domain.entity.OutboxEvent;
 import com.yuge.order.domain.enums.OutboxStatus;
 import com.yuge.order.infrastructure.mapper.OutboxEventMapper;
+import com.yuge.order.infrastructure.sharding.OrderShardRouter;
 import com.yuge.platform.infra.trace.TraceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +17,9 @@ import java.util.UUID;
 
 /**
  * Outbox事件仓储
+ *
+ * 事件与订单同库（按 bizKey 即订单号路由），和订单写入在同一个单库事务内；
+ * 扫描、状态更新等 Relay 方法在 OutboxRelayWorker 设置的分片上执行
  */
 @Slf4j
 @Repository
@@ -24,6 +28,7 @@ public class OutboxEventRepository {
 
     private final OutboxEventMapper outboxEventMapper;
     private final ObjectMapper objectMapper;
+    private final OrderShardRouter orderShardRouter;
 
     /**
      * 订单Topic
@@ -55,10 +60,20 @@ public class OutboxEventRepository {
      * @return 事件ID
      */
     public String saveEvent(String bizKey, String topic, String tag, Object payload) {
-        String eventId = generateEventId();
+        OutboxEvent event = buildEvent(bizKey, topic, tag, payload);
+        orderShardRouter.runOnOrder(bizKey, () -> outboxEventMapper.insert(event));
+        log.info("[Outbox] Event saved, eventId={}, bizKey={}, topic={}, tag={}", 
+                event.getEventId(), bizKey, topic, tag);
         
+        return event.getEventId();
+    }
+
+    /**
+     * 构建Outbox事件（不落库，组提交写入时由调用方批量插入）
+     */
+    public OutboxEvent buildEvent(String bizKey, String topic, String tag, Object payload) {
         OutboxEvent event = new OutboxEvent();
-        event.setEventId(eventId);
+        event.setEventId(generateEventId());
         event.setBizKey(bizKey);
         event.setTopic(topic);
         event.setTag(tag);
@@ -74,12 +89,7 @@ public class OutboxEventRepository {
             log.error("[Outbox] Failed to serialize payload, bizKey={}", bizKey, e);
             throw new RuntimeException("序列化消息体失败", e);
         }
-        
-        outboxEventMapper.insert(event);
-        log.info("[Outbox] Event saved, eventId={}, bizKey={}, topic={}, tag={}", 
-                eventId, bizKey, topic, tag);
-        
-        return eventId;
+        return event;
     }
 
     /**
@@ -89,6 +99,13 @@ public class OutboxEventRepository {
         return saveEvent(orderNo, TOPIC_ORDER, TAG_ORDER_CREATED, payload);
     }
 
+    /**
+     * 构建订单创建事件（不落库）
+     */
+    public OutboxEvent buildOrderCreatedEvent(String orderNo, Object payload) {
+        return buildEvent(orderNo, TOPIC_ORDER, TAG_ORDER_CREATED, payload);
+    }
+
     /**
      * 保存订单取消事件
      */
@@ -0,0 +1,238 @@
+package com.yuge.order.infrastructure.sharding;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 订单分片路由
+ *
+ * 1. 槽位 slot = user_id mod slots，两位数字编码进订单号（ORD + 17位时间戳 + 2位槽位 + 4位随机数），
+ *    按订单号访问时直接解析槽位，无需查映射表
+ * 2. 分片 shard = slot mod 分库数；同一用户的订单、明细、状态流水、Outbox事件落在同一分库，单库事务
+ * 3. 旧格式订单号（无槽位）路由到分片0
+ * 4. 仓储在执行SQL前把分片号放入线程上下文，由 ShardRoutingDataSource 路由；
+ *    事务内第一次访问确定分片，之后访问其他分片直接报错（不支持跨分片事务）
+ * 5. 无法确定分片的管理端查询走 scatterGather，各分片并行查询后由调用方归并
+ */
+@Slf4j
+@Component
+public class OrderShardRouter {
+
+    private static final String ORDER_NO_PREFIX = "ORD";
+    private static final int TIMESTAMP_LENGTH = 17;
+    private static final int SLOT_LENGTH = 2;
+    private static final int SHARDED_ORDER_NO_LENGTH = ORDER_NO_PREFIX.length() + TIMESTAMP_LENGTH + SLOT_LENGTH + 4;
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final int slots;
+    private final int shardCount;
+    private volatile ExecutorService scatterExecutor;
+
+    public OrderShardRouter(OrderShardingProperties properties) {
+        if (properties.getSlots() < 1 || properties.getSlots() > 100) {
+            throw new IllegalArgumentException("order.sharding.slots 取值范围 1-100");
+        }
+        this.slots = properties.getSlots();
+        this.shardCount = properties.isEnabled() ? Math.max(properties.getDatasources().size(), 1) : 1;
+        if (shardCount > slots) {
+            throw new IllegalArgumentException("分库数不能大于槽位数");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+        }
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * 当前线程的分片号，未设置时为分片0
+     */
+    public static int currentShard() {
+        Integer shard = CURRENT_SHARD.get();
+        return shard != null ? shard : 0;
+    }
+
+    /**
+     * 订单号中的槽位段
+     */
+    public String slotCode(Long userId) {
+        return String.format("%0" + SLOT_LENGTH + "d", Math.floorMod(userId, slots));
+    }
+
+    public int shardOfUser(Long userId) {
+        return Math.floorMod(userId, slots) % shardCount;
+    }
+
+    public int shardOfOrderNo(String orderNo) {
+        if (orderNo == null || orderNo.length() != SHARDED_ORDER_NO_LENGTH || !orderNo.startsWith(ORDER_NO_PREFIX)) {
+            return 0;
+        }
+        int start = ORDER_NO_PREFIX.length() + TIMESTAMP_LENGTH;
+        try {
+            return Integer.parseInt(orderNo.substring(start, start + SLOT_LENGTH)) % shardCount;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public <T> T onOrder(String orderNo, Supplier<T> action) {
+        return onShard(shardOfOrderNo(orderNo), action);
+    }
+
+    public void runOnOrder(String orderNo, Runnable action) {
+        onShard(shardOfOrderNo(orderNo), () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T onUser(Long userId, Supplier<T> action) {
+        return onShard(shardOfUser(userId), action);
+    }
+
+    /**
+     * 在指定分片上执行
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        if (shardCount == 1) {
+            return action.get();
+        }
+        bindTransactionShard(shard);
+        Integer previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT_SHARD.set(previous);
+            } else {
+                CURRENT_SHARD.remove();
+            }
+        }
+    }
+
+    public void runOnShard(int shard, Runnable action) {
+        onShard(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 订单号按分片分组（分片号升序）
+     */
+    public Map<Integer, List<String>> groupByShard(Collection<String> orderNos) {
+        Map<Integer, List<String>> groups = new TreeMap<>();
+        for (String orderNo : orderNos) {
+            groups.computeIfAbsent(shardOfOrderNo(orderNo), k -> new ArrayList<>()).add(orderNo);
+        }
+        return groups;
+    }
+
+    /**
+     * 按订单号分片批量查询，结果合并（分片内查询一次）
+     */
+    public <T> List<T> queryByOrderNos(Collection<String> orderNos, Function<List<String>, List<T>> query) {
+        List<T> result = new ArrayList<>();
+        groupByShard(orderNos).forEach((shard, group) -> result.addAll(onShard(shard, () -> query.apply(group))));
+        return result;
+    }
+
+    /**
+     * 各分片并行执行同一查询，按分片号顺序返回结果（仅用于管理端等无法确定分片的查询）
+     */
+    public <T> List<T> scatterGather(Supplier<T> query) {
+        if (shardCount == 1) {
+            return List.of(query.get());
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("事务内不允许跨分片查询");
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> onShard(target, query), scatterExecutor()));
+        }
+        List<T> results = new ArrayList<>(shardCount);
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * 事务内记录首次访问的分片，访问其他分片时报错
+     * （LazyConnectionDataSourceProxy 下事务连接在第一条SQL时确定，再切换分片号也不会生效）
+     * 记录挂在事务同步列表上，随事务结束清理
+     */
+    private void bindTransactionShard(int shard) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof TransactionShard transactionShard) {
+                if (transactionShard.shard != shard) {
+                    throw new IllegalStateException("不支持跨分片事务, boundShard=" + transactionShard.shard
+                            + ", shard=" + shard);
+                }
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionShard(shard));
+    }
+
+    private ExecutorService scatterExecutor() {
+        if (scatterExecutor == null) {
+            synchronized (this) {
+                if (scatterExecutor == null) {
+                    scatterExecutor = Executors.newFixedThreadPool(shardCount, r -> {
+                        Thread thread = new Thread(r, "order-shard-scatter");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return scatterExecutor;
+    }
+
+    /**
+     * 事务绑定的分片
+     */
+    private static final class TransactionShard implements TransactionSynchronization {
+        private final int shard;
+
+        private TransactionShard(int shard) {
+            this.shard = shard;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.yuge.order.infrastructure.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单分库数据源配置（order.sharding.enabled=true 时生效）
+ *
+ * 每个分库一个 Hikari 连接池，由 ShardRoutingDataSource 按线程分片号路由，
+ * 外层 LazyConnectionDataSourceProxy 保证事务在第一条SQL时才取连接
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "order.sharding", name = "enabled", havingValue = "true")
+public class OrderShardingDataSourceConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(OrderShardingProperties properties) {
+        List<OrderShardingProperties.ShardDataSource> shards = properties.getDatasources();
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("order.sharding.enabled=true 时必须配置 order.sharding.datasources");
+        }
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, createDataSource(i, shards.get(i)));
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(targets.get(0));
+        routing.afterPropertiesSet();
+        log.info("[OrderSharding] Routing datasource created, shards={}, slots={}", shards.size(), properties.getSlots());
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private HikariDataSource createDataSource(int shard, OrderShardingProperties.ShardDataSource config) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("order-shard-" + shard);
+        dataSource.setJdbcUrl(config.getUrl());
+        dataSource.setUsername(config.getUsername());
+        dataSource.setPassword(config.getPassword());
+        dataSource.setMaximumPoolSize(config.getMaximumPoolSize());
+        return dataSource;
+    }
+}
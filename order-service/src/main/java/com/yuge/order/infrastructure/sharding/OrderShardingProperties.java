@@ -0,0 +1,55 @@
+package com.yuge.order.infrastructure.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单分库配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "order.sharding")
+public class OrderShardingProperties {
+
+    /**
+     * 是否启用分库（关闭时使用 spring.datasource 单库）
+     */
+    private boolean enabled = false;
+
+    /**
+     * 虚拟槽数（user_id 取模，两位数字编码进订单号，上线后不可修改）
+     */
+    private int slots = 64;
+
+    /**
+     * 分库数据源，下标即分片号；分片0同时存放不分片的表（t_mq_consume_log）
+     */
+    private List<ShardDataSource> datasources = new ArrayList<>();
+
+    @Data
+    public static class ShardDataSource {
+        /**
+         * JDBC URL
+         */
+        private String url;
+
+        /**
+         * 用户名
+         */
+        private String username;
+
+        /**
+         * 密码
+         */
+        private String password;
+
+        /**
+         * 连接池最大连接数
+         */
+        private int maximumPoolSize = 50;
+    }
+}
@@ -0,0 +1,17 @@
+package com.yuge.order.infrastructure.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * 按当前线程分片号路由的数据源
+ *
+ * 外层需包一层 LazyConnectionDataSourceProxy：事务开始时不取物理连接，
+ * 第一条SQL执行时（仓储已设置分片号）才路由到对应分库，之后整个事务使用该连接
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return OrderShardRouter.currentShard();
+    }
+}
@@ -0,0 +1,6 @@
+-- 订单服务数据库更新脚本
+-- "我的订单"列表按 (user_id, created_at, id) 键集分页
+
+-- 覆盖 user_id 前缀查询，替代原 idx_user_id
+ALTER TABLE t_order ADD KEY idx_user_created (user_id, created_at, id);
+ALTER TABLE t_order DROP KEY idx_user_id;
@@ -0,0 +1,26 @@
+--[[
+    订单详情缓存写入 Lua 脚本
+
+    功能：按订单version写入，只接受更新的快照（并发加载的旧快照不会覆盖状态变更后的新快照）
+
+    KEYS[1] = order:detail:{orderNo}
+
+    ARGV[1] = version
+    ARGV[2] = value（{version}|{json}）
+    ARGV[3] = 过期时间（秒）
+
+    返回值:
+    1: 写入成功
+    0: 已有相同或更新版本，忽略
+--]]
+
+local old = redis.call('GET', KEYS[1])
+if old then
+    local oldVersion = tonumber(string.match(old, '^(%d+)|'))
+    if oldVersion and oldVersion >= tonumber(ARGV[1]) then
+        return 0
+    end
+end
+
+redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3])
+return 1
@@ -0,0 +1,68 @@
+--[[
+    用户最近订单读模型初始化 Lua 脚本
+
+    功能：缓存不存在时，用DB查询结果一次性写入（已存在则不覆盖，避免并发加载互相覆盖）
+    DB读取期间提交的订单：加载前设置 loading 标记，期间的 upsert 写入 pending，这里按 version 合并后删除
+
+    KEYS[1] = order:recent:{userId}              Hash，field=orderNo，value={version}|{json}；_complete 标记窗口外是否还有订单
+    KEYS[2] = order:recent:idx:{userId}          ZSet，member=orderNo，score=创建时间毫秒（用于淘汰最旧订单）
+    KEYS[3] = order:recent:pending:{userId}      Hash，加载期间 upsert 的快照，结构同 KEYS[1]
+    KEYS[4] = order:recent:pending:idx:{userId}  ZSet，加载期间 upsert 的创建时间
+    KEYS[5] = order:recent:loading:{userId}      加载标记
+
+    ARGV[1] = 过期时间（秒）
+    ARGV[2] = _complete（1: 用户全部订单都在窗口内，0: 窗口外还有更早的订单）
+    ARGV[3] = 窗口大小
+    ARGV[4..] = 每个订单三元组 orderNo, score, value
+
+    返回值:
+    2: 写入成功，且合并了加载期间的快照
+    1: 写入成功
+    0: 已存在，未写入
+--]]
+
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return 0
+end
+
+redis.call('HSET', KEYS[1], '_complete', ARGV[2])
+for i = 4, #ARGV, 3 do
+    redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 2])
+    redis.call('ZADD', KEYS[2], ARGV[i + 1], ARGV[i])
+end
+
+-- 合并加载期间的快照（只接受更新的版本）
+local merged = 0
+local pending = redis.call('HGETALL', KEYS[3])
+for i = 1, #pending, 2 do
+    local orderNo = pending[i]
+    local value = pending[i + 1]
+    local score = redis.call('ZSCORE', KEYS[4], orderNo)
+    local old = redis.call('HGET', KEYS[1], orderNo)
+    local oldVersion = old and tonumber(string.match(old, '^(%d+)|'))
+    local newVersion = tonumber(string.match(value, '^(%d+)|'))
+    if score and (not oldVersion or (newVersion and oldVersion < newVersion)) then
+        redis.call('HSET', KEYS[1], orderNo, value)
+        redis.call('ZADD', KEYS[2], score, orderNo)
+        merged = merged + 1
+    end
+end
+redis.call('DEL', KEYS[3], KEYS[4], KEYS[5])
+
+local size = redis.call('ZCARD', KEYS[2])
+local maxSize = tonumber(ARGV[3])
+if size > maxSize then
+    local evicted = redis.call('ZRANGE', KEYS[2], 0, size - maxSize - 1)
+    for _, orderNo in ipairs(evicted) do
+        redis.call('HDEL', KEYS[1], orderNo)
+    end
+    redis.call('ZREMRANGEBYRANK', KEYS[2], 0, size - maxSize - 1)
+    redis.call('HSET', KEYS[1], '_complete', '0')
+end
+
+redis.call('EXPIRE', KEYS[1], ARGV[1])
+redis.call('EXPIRE', KEYS[2], ARGV[1])
+if merged > 0 then
+    return 2
+end
+return 1
@@ -0,0 +1,76 @@
+--[[
+    用户最近订单读模型更新 Lua 脚本
+
+    功能：订单创建/状态变更后写入最新快照
+    1. 缓存不存在时不写入（未加载的用户不维护，首次查询时从DB加载）；
+       正在加载（loading 标记存在）时写入 pending，由 init 脚本合并，避免DB读取期间提交的订单丢失
+    2. 按订单version比较，只接受更新的快照（并发/乱序的旧快照被丢弃）
+    3. 超出窗口大小时淘汰最旧的订单，并标记 _complete=0
+
+    KEYS[1] = order:recent:{userId}
+    KEYS[2] = order:recent:idx:{userId}
+    KEYS[3] = order:recent:pending:{userId}
+    KEYS[4] = order:recent:pending:idx:{userId}
+    KEYS[5] = order:recent:loading:{userId}
+
+    ARGV[1] = orderNo
+    ARGV[2] = version
+    ARGV[3] = score（创建时间毫秒）
+    ARGV[4] = value（{version}|{json}）
+    ARGV[5] = 窗口大小
+    ARGV[6] = 过期时间（秒）
+    ARGV[7] = pending 过期时间（秒）
+
+    返回值:
+    2: 正在加载，写入 pending
+    1: 写入成功
+    0: 已有相同或更新版本，忽略
+    -1: 缓存不存在且未在加载，忽略
+--]]
+
+local function newer(hashKey)
+    local old = redis.call('HGET', hashKey, ARGV[1])
+    if old then
+        local oldVersion = tonumber(string.match(old, '^(%d+)|'))
+        if oldVersion and oldVersion >= tonumber(ARGV[2]) then
+            return false
+        end
+    end
+    return true
+end
+
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    if redis.call('EXISTS', KEYS[5]) == 0 then
+        return -1
+    end
+    if not newer(KEYS[3]) then
+        return 0
+    end
+    redis.call('HSET', KEYS[3], ARGV[1], ARGV[4])
+    redis.call('ZADD', KEYS[4], ARGV[3], ARGV[1])
+    redis.call('EXPIRE', KEYS[3], ARGV[7])
+    redis.call('EXPIRE', KEYS[4], ARGV[7])
+    return 2
+end
+
+if not newer(KEYS[1]) then
+    return 0
+end
+
+redis.call('HSET', KEYS[1], ARGV[1], ARGV[4])
+redis.call('ZADD', KEYS[2], ARGV[3], ARGV[1])
+
+local size = redis.call('ZCARD', KEYS[2])
+local maxSize = tonumber(ARGV[5])
+if size > maxSize then
+    local evicted = redis.call('ZRANGE', KEYS[2], 0, size - maxSize - 1)
+    for _, orderNo in ipairs(evicted) do
+        redis.call('HDEL', KEYS[1], orderNo)
+    end
+    redis.call('ZREMRANGEBYRANK', KEYS[2], 0, size - maxSize - 1)
+    redis.call('HSET', KEYS[1], '_complete', '0')
+end
+
+redis.call('EXPIRE', KEYS[1], ARGV[6])
+redis.call('EXPIRE', KEYS[2], ARGV[6])
+return 1
@@ -0,0 +1,171 @@
+package com.yuge.order.application;
+
+import com.yuge.order.api.dto.OrderPageResponse;
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.infrastructure.cache.RecentOrdersCache;
+import com.yuge.order.infrastructure.cache.OrderDetailCache;
+import com.yuge.order.infrastructure.cache.OrderSnapshot;
+import com.yuge.order.infrastructure.cache.RecentOrdersCache.RecentOrders;
+import com.yuge.order.infrastructure.repository.OrderRepository;
+import com.yuge.platform.infra.exception.BizException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 订单查询服务单元测试 - 我的订单列表
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderQueryServiceTest {
+
+    private static final Long USER_ID = 1001L;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2026, 1, 1, 12, 0, 0);
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private RecentOrdersCache recentOrdersCache;
+
+    @Mock
+    private OrderDetailCache orderDetailCache;
+
+    private OrderQueryService orderQueryService;
+
+    @BeforeEach
+    void setUp() {
+        orderQueryService = new OrderQueryService(orderRepository, recentOrdersCache, orderDetailCache);
+    }
+
+    @Test
+    @DisplayName("读模型凑满一页时直接返回，不查DB")
+    void listUserOrders_cacheFillsPage_shouldNotHitDb() {
+        when(recentOrdersCache.get(USER_ID)).thenReturn(new RecentOrders(false, entries(5)));
+
+        OrderPageResponse page = orderQueryService.listUserOrders(USER_ID, null, null, 2);
+
+        assertEquals(2, page.getOrders().size());
+        assertEquals("ORD5", page.getOrders().get(0).getOrderNo());
+        assertTrue(page.getHasMore());
+        assertNotNull(page.getNextCursor());
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    @DisplayName("游标翻页与状态过滤在读模型上生效")
+    void listUserOrders_cursorAndStatus_shouldFilterSnapshot() {
+        List<OrderSnapshot> entries = entries(5);
+        entries.get(1).getOrder().setStatus("PAID");
+        when(recentOrdersCache.get(USER_ID)).thenReturn(new RecentOrders(true, entries));
+
+        OrderPageResponse first = orderQueryService.listUserOrders(USER_ID, null, null, 2);
+        OrderPageResponse second = orderQueryService.listUserOrders(USER_ID, null, first.getNextCursor(), 2);
+        OrderPageResponse paid = orderQueryService.listUserOrders(USER_ID, List.of("paid"), null, 10);
+
+        assertEquals(List.of("ORD3", "ORD2"), second.getOrders().stream().map(o -> o.getOrderNo()).toList());
+        assertEquals(1, paid.getOrders().size());
+        assertEquals("ORD4", paid.getOrders().get(0).getOrderNo());
+        assertFalse(paid.getHasMore());
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    @DisplayName("读模型窗口不完整且不足一页时回退DB键集分页")
+    void listUserOrders_windowExhausted_shouldFallbackToDb() {
+        when(recentOrdersCache.get(USER_ID)).thenReturn(new RecentOrders(false, entries(1)));
+        Order older = order(0);
+        when(orderRepository.findUserOrderPage(eq(USER_ID), anyList(), any(), any(), eq(3)))
+                .thenReturn(List.of(older));
+        when(orderRepository.findItemsByOrderNos(List.of("ORD0"))).thenReturn(Collections.emptyMap());
+
+        OrderPageResponse page = orderQueryService.listUserOrders(USER_ID, null,
+                new OrderPageCursor(BASE_TIME.plusMinutes(1), 1L).encode(), 2);
+
+        assertEquals(1, page.getOrders().size());
+        assertFalse(page.getHasMore());
+        verify(orderRepository).findUserOrderPage(USER_ID, Collections.emptyList(),
+                BASE_TIME.plusMinutes(1), 1L, 3);
+    }
+
+    @Test
+    @DisplayName("读模型未加载时从DB加载窗口并写入")
+    void listUserOrders_cacheMiss_shouldLoadAndInit() {
+        when(recentOrdersCache.get(USER_ID)).thenReturn(null);
+        when(recentOrdersCache.getWindowSize()).thenReturn(50);
+        when(orderRepository.findUserOrderPage(USER_ID, null, null, null, 51))
+                .thenReturn(List.of(order(2), order(1)));
+        when(orderRepository.findItemsByOrderNos(anyList())).thenReturn(Collections.emptyMap());
+
+        OrderPageResponse page = orderQueryService.listUserOrders(USER_ID, null, null, 20);
+
+        assertEquals(2, page.getOrders().size());
+        assertFalse(page.getHasMore());
+        verify(recentOrdersCache).init(eq(USER_ID), argThat(list -> list.size() == 2), eq(true));
+        InOrder inOrder = inOrder(recentOrdersCache, orderRepository);
+        inOrder.verify(recentOrdersCache).beginLoad(USER_ID);
+        inOrder.verify(orderRepository).findUserOrderPage(USER_ID, null, null, null, 51);
+    }
+
+    @Test
+    @DisplayName("加载期间有订单提交时以合并后的读模型为准")
+    void listUserOrders_cacheMissWithPending_shouldReturnMergedModel() {
+        List<OrderSnapshot> merged = entries(3);
+        when(recentOrdersCache.get(USER_ID)).thenReturn(null, new RecentOrders(true, merged));
+        when(recentOrdersCache.getWindowSize()).thenReturn(50);
+        when(orderRepository.findUserOrderPage(USER_ID, null, null, null, 51))
+                .thenReturn(List.of(order(2), order(1)));
+        when(orderRepository.findItemsByOrderNos(anyList())).thenReturn(Collections.emptyMap());
+        when(recentOrdersCache.init(eq(USER_ID), anyList(), eq(true))).thenReturn(true);
+
+        OrderPageResponse page = orderQueryService.listUserOrders(USER_ID, null, null, 20);
+
+        assertEquals(3, page.getOrders().size());
+        verify(recentOrdersCache, times(2)).get(USER_ID);
+    }
+
+    @Test
+    @DisplayName("非法游标和未知状态抛出参数异常")
+    void listUserOrders_invalidParams_shouldThrow() {
+        assertThrows(BizException.class,
+                () -> orderQueryService.listUserOrders(USER_ID, null, "not-a-cursor", 20));
+        assertThrows(BizException.class,
+                () -> orderQueryService.listUserOrders(USER_ID, List.of("UNKNOWN"), null, 20));
+    }
+
+    /**
+     * 生成 n 条订单，按 created_at DESC 排列（ORDn 最新）
+     */
+    private List<OrderSnapshot> entries(int n) {
+        List<OrderSnapshot> entries = new ArrayList<>();
+        for (int i = n; i >= 1; i--) {
+            entries.add(new OrderSnapshot(order(i), Collections.emptyList()));
+        }
+        return entries;
+    }
+
+    private Order order(int i) {
+        Order order = new Order();
+        order.setId((long) i);
+        order.setOrderNo("ORD" + i);
+        order.setUserId(USER_ID);
+        order.setAmount(BigDecimal.TEN);
+        order.setStatus("CREATED");
+        order.setVersion(1);
+        order.setCreatedAt(BASE_TIME.plusMinutes(i));
+        return order;
+    }
+}
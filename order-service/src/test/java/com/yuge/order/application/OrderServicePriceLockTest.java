@@ -4,17 +4,27 @@ import com.yuge.order.api.dto.CreateOrderRequest;
 import com.yuge.order.api.dto.OrderResponse;
 import com.yuge.order.domain.entity.Order;
 import com.yuge.order.domain.entity.OrderItem;
+import com.yuge.order.domain.entity.OutboxEvent;
 import com.yuge.order.domain.statemachine.OrderStateMachine;
 import com.yuge.order.infrastructure.client.PricingClient;
+import com.yuge.order.infrastructure.repository.OrderGroupCommitWriter;
 import com.yuge.order.infrastructure.repository.OrderRepository;
 import com.yuge.order.infrastructure.repository.OutboxEventRepository;
+import com.yuge.order.infrastructure.sharding.OrderShardRouter;
+import com.yuge.order.infrastructure.sharding.OrderShardingProperties;
 import com.yuge.platform.infra.exception.BizException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
+import org.mockito.InOrder;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -43,12 +53,19 @@ class OrderServicePriceLockTest {
     @Mock
     private PricingClient pricingClient;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private OrderGroupCommitWriter orderGroupCommitWriter;
+
     private OrderService orderService;
 
     @BeforeEach
     void setUp() {
         orderService = new OrderService(orderRepository, outboxEventRepository, 
-                orderStateMachine, pricingClient);
+                orderStateMachine, pricingClient, new TransactionTemplate(transactionManager), orderGroupCommitWriter,
+                new OrderShardRouter(new OrderShardingProperties()));
     }
 
     @Test
@@ -84,7 +101,7 @@ class OrderServicePriceLockTest {
                         ))
                         .build())
                 .build();
-        when(pricingClient.usePriceLock(anyString(), anyString(), anyString()))
+        when(pricingClient.reservePriceLock(anyString(), anyString(), anyString()))
                 .thenReturn(usePriceLockResult);
 
         when(outboxEventRepository.saveOrderCreatedEvent(anyString(), any()))
@@ -100,6 +117,76 @@ class OrderServicePriceLockTest {
 
         verify(orderRepository).save(any(Order.class));
         verify(orderRepository).saveItems(anyList());
+
+        // 预占在事务前，确认在事务提交后
+        InOrder inOrder = inOrder(pricingClient, transactionManager);
+        inOrder.verify(pricingClient).reservePriceLock(anyString(), anyString(), anyString());
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(pricingClient).confirmPriceLock(eq("PL202401011000001234"), anyString());
+        verify(pricingClient, never()).releasePriceLock(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("创建订单-本地事务失败时释放价格锁预占")
+    void createOrder_localTxFailed_shouldReleaseReservation() {
+        // Arrange
+        CreateOrderRequest request = createOrderRequest();
+
+        when(orderRepository.findByUserIdAndClientRequestId(anyLong(), anyString()))
+                .thenReturn(Optional.empty());
+        when(pricingClient.reservePriceLock(anyString(), anyString(), anyString()))
+                .thenReturn(reservedResult(1001L, 2));
+        doThrow(new DataAccessResourceFailureException("db down"))
+                .when(orderRepository).save(any(Order.class));
+
+        // Act & Assert
+        assertThrows(DataAccessResourceFailureException.class, () -> orderService.createOrder(request));
+
+        verify(transactionManager).rollback(any());
+        verify(pricingClient).releasePriceLock(eq("PL202401011000001234"), anyString());
+        verify(pricingClient, never()).confirmPriceLock(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("创建订单-提交阶段失败时结果未知，保持价格锁预占")
+    void createOrder_commitFailed_shouldKeepReservation() {
+        CreateOrderRequest request = createOrderRequest();
+
+        when(orderRepository.findByUserIdAndClientRequestId(anyLong(), anyString()))
+                .thenReturn(Optional.empty());
+        when(pricingClient.reservePriceLock(anyString(), anyString(), anyString()))
+                .thenReturn(reservedResult(1001L, 2));
+        doThrow(new TransactionSystemException("connection lost during commit"))
+                .when(transactionManager).commit(any());
+
+        assertThrows(TransactionSystemException.class, () -> orderService.createOrder(request));
+
+        verify(pricingClient, never()).releasePriceLock(anyString(), anyString());
+        verify(pricingClient, never()).confirmPriceLock(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("创建订单-组提交唯一键冲突时释放预占，其他失败保持预占")
+    void createOrder_groupCommitFailed_shouldReleaseOnlyOnConstraintViolation() {
+        CreateOrderRequest request = createOrderRequest();
+
+        when(orderRepository.findByUserIdAndClientRequestId(anyLong(), anyString()))
+                .thenReturn(Optional.empty());
+        when(pricingClient.reservePriceLock(anyString(), anyString(), anyString()))
+                .thenReturn(reservedResult(1001L, 2));
+        when(orderGroupCommitWriter.isEnabled()).thenReturn(true);
+        when(outboxEventRepository.buildOrderCreatedEvent(anyString(), any())).thenReturn(new OutboxEvent());
+        doThrow(new DuplicateKeyException("uk_user_request"))
+                .doThrow(new DataAccessResourceFailureException("batch commit failed"))
+                .when(orderGroupCommitWriter).write(any());
+
+        assertThrows(DuplicateKeyException.class, () -> orderService.createOrder(request));
+        verify(pricingClient, times(1)).releasePriceLock(eq("PL202401011000001234"), anyString());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> orderService.createOrder(request));
+        verify(pricingClient, times(1)).releasePriceLock(anyString(), anyString());
+        verifyNoInteractions(transactionManager);
     }
 
     @Test
@@ -116,7 +203,7 @@ class OrderServicePriceLockTest {
                 .success(false)
                 .errorMessage("签名验证失败")
                 .build();
-        when(pricingClient.usePriceLock(anyString(), anyString(), anyString()))
+        when(pricingClient.reservePriceLock(anyString(), anyString(), anyString()))
                 .thenReturn(usePriceLockResult);
 
         // Act & Assert
@@ -139,7 +226,7 @@ class OrderServicePriceLockTest {
                 .success(false)
                 .errorMessage("价格锁已过期")
                 .build();
-        when(pricingClient.usePriceLock(anyString(), anyString(), anyString()))
+        when(pricingClient.reservePriceLock(anyString(), anyString(), anyString()))
                 .thenReturn(usePriceLockResult);
 
         // Act & Assert
@@ -174,13 +261,17 @@ class OrderServicePriceLockTest {
                         ))
                         .build())
                 .build();
-        when(pricingClient.usePriceLock(anyString(), anyString(), anyString()))
+        when(pricingClient.reservePriceLock(anyString(), anyString(), anyString()))
                 .thenReturn(usePriceLockResult);
 
         // Act & Assert
         BizException exception = assertThrows(BizException.class, 
                 () -> orderService.createOrder(request));
         assertTrue(exception.getMessage().contains("用户不匹配"));
+
+        // 校验失败：不开启事务，释放预占
+        verify(pricingClient).releasePriceLock(eq("PL202401011000001234"), anyString());
+        verifyNoInteractions(transactionManager);
     }
 
     @Test
@@ -209,7 +300,7 @@ class OrderServicePriceLockTest {
                         ))
                         .build())
                 .build();
-        when(pricingClient.usePriceLock(anyString(), anyString(), anyString()))
+        when(pricingClient.reservePriceLock(anyString(), anyString(), anyString()))
                 .thenReturn(usePriceLockResult);
 
         // Act & Assert
@@ -245,7 +336,26 @@ class OrderServicePriceLockTest {
         assertEquals("ORD202401011000001234", response.getOrderNo());
 
         // 不应该调用锁价
-        verify(pricingClient, never()).usePriceLock(anyString(), anyString(), anyString());
+        verify(pricingClient, never()).reservePriceLock(anyString(), anyString(), anyString());
+    }
+
+    private PricingClient.UsePriceLockResult reservedResult(Long userId, int qty) {
+        return PricingClient.UsePriceLockResult.builder()
+                .success(true)
+                .priceLockInfo(PricingClient.PriceLockInfo.builder()
+                        .priceLockNo("PL202401011000001234")
+                        .userId(userId)
+                        .status("RESERVED")
+                        .payableAmount(BigDecimal.valueOf(178.00))
+                        .allocations(Collections.singletonList(
+                                PricingClient.AllocationDetail.builder()
+                                        .skuId(10001L)
+                                        .qty(qty)
+                                        .unitPrice(BigDecimal.valueOf(99.00))
+                                        .build()
+                        ))
+                        .build())
+                .build();
     }
 
     private CreateOrderRequest createOrderRequest() {
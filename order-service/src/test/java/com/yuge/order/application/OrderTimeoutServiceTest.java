@@ -0,0 +1,123 @@
+package com.yuge.order.application;
+
+import com.yuge.order.api.dto.CancelOrderRequest;
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.domain.event.OrderTimeoutEvent;
+import com.yuge.order.infrastructure.repository.OrderRepository;
+import com.yuge.platform.infra.exception.BizException;
+import com.yuge.platform.infra.common.ErrorCode;
+import com.yuge.platform.infra.mq.ProducerTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 订单支付超时取消单元测试 - 延迟级别选择与批量取消
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderTimeoutServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private ProducerTemplate producerTemplate;
+
+    private OrderTimeoutService orderTimeoutService;
+
+    @BeforeEach
+    void setUp() {
+        orderTimeoutService = new OrderTimeoutService(orderRepository, orderService, producerTemplate);
+        ReflectionTestUtils.setField(orderTimeoutService, "payTimeoutMinutes", 30L);
+    }
+
+    @Test
+    @DisplayName("选择不超过剩余时间的最大延迟级别")
+    void selectDelayLevel_shouldPickLargestLevelNotExceedingRemaining() {
+        assertEquals(1, OrderTimeoutService.selectDelayLevel(500));
+        assertEquals(2, OrderTimeoutService.selectDelayLevel(TimeUnit.SECONDS.toMillis(7)));
+        assertEquals(16, OrderTimeoutService.selectDelayLevel(TimeUnit.MINUTES.toMillis(30)));
+        assertEquals(16, OrderTimeoutService.selectDelayLevel(TimeUnit.MINUTES.toMillis(45)));
+        assertEquals(18, OrderTimeoutService.selectDelayLevel(TimeUnit.HOURS.toMillis(5)));
+    }
+
+    @Test
+    @DisplayName("新订单按创建时间投递超时消息")
+    void schedule_shouldSendDelayMessageWithDeadline() {
+        LocalDateTime createdAt = LocalDateTime.now().minusSeconds(20);
+
+        orderTimeoutService.schedule("ORD1", createdAt);
+
+        // 剩余约29分40秒，选 20m 级别
+        verify(producerTemplate).syncSendDelayMessage(eq("ORDER_TOPIC"), eq(OrderTimeoutService.TAG_ORDER_TIMEOUT),
+                argThat(event -> "ORD1".equals(((OrderTimeoutEvent) event).getOrderNo())
+                        && ((OrderTimeoutEvent) event).getHop() == 1), eq(15));
+    }
+
+    @Test
+    @DisplayName("未到期的消息再投递，到期的一次查询后只取消未支付订单")
+    void handleTimeouts_shouldRescheduleAndCancelDueOrders() {
+        long now = System.currentTimeMillis();
+        when(orderRepository.findByOrderNos(List.of("ORD_CREATED", "ORD_PAID", "ORD_RACE")))
+                .thenReturn(List.of(order("ORD_CREATED", "CREATED"), order("ORD_PAID", "PAID"),
+                        order("ORD_RACE", "STOCK_RESERVED")));
+        lenient().when(orderService.cancelOrder(eq("ORD_RACE"), any()))
+                .thenThrow(new BizException(ErrorCode.DB_OPTIMISTIC_LOCK, "订单状态已变更"));
+
+        orderTimeoutService.handleTimeouts(List.of(
+                event("ORD_LATER", now + TimeUnit.MINUTES.toMillis(15)),
+                event("ORD_CREATED", now - 1000),
+                event("ORD_PAID", now - 1000),
+                event("ORD_RACE", now - 1000)));
+
+        verify(producerTemplate).syncSendDelayMessage(anyString(), eq(OrderTimeoutService.TAG_ORDER_TIMEOUT),
+                argThat(event -> "ORD_LATER".equals(((OrderTimeoutEvent) event).getOrderNo())), eq(14));
+        verify(orderRepository, times(1)).findByOrderNos(anyList());
+        verify(orderService).cancelOrder(eq("ORD_CREATED"), argThat(this::isTimeoutCancel));
+        verify(orderService, never()).cancelOrder(eq("ORD_PAID"), any());
+    }
+
+    @Test
+    @DisplayName("取消出现非业务异常时抛出，整批重试")
+    void handleTimeouts_unexpectedError_shouldThrow() {
+        when(orderRepository.findByOrderNos(List.of("ORD1", "ORD2")))
+                .thenReturn(List.of(order("ORD1", "CREATED"), order("ORD2", "CREATED")));
+        lenient().when(orderService.cancelOrder(eq("ORD1"), any())).thenThrow(new IllegalStateException("db down"));
+
+        long past = System.currentTimeMillis() - 1000;
+        assertThrows(IllegalStateException.class,
+                () -> orderTimeoutService.handleTimeouts(List.of(event("ORD1", past), event("ORD2", past))));
+        verify(orderService).cancelOrder(eq("ORD2"), any());
+    }
+
+    private boolean isTimeoutCancel(CancelOrderRequest request) {
+        return OrderTimeoutService.OPERATOR.equals(request.getOperator())
+                && OrderTimeoutService.CANCEL_REASON.equals(request.getCancelReason());
+    }
+
+    private OrderTimeoutEvent event(String orderNo, long deadline) {
+        return OrderTimeoutEvent.builder().orderNo(orderNo).deadline(deadline).hop(1).build();
+    }
+
+    private Order order(String orderNo, String status) {
+        Order order = new Order();
+        order.setOrderNo(orderNo);
+        order.setStatus(status);
+        return order;
+    }
+}
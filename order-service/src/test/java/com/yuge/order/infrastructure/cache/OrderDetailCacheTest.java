@@ -0,0 +1,181 @@
+package com.yuge.order.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yuge.order.domain.entity.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 订单详情缓存单元测试 - L1命中与并发请求合并
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OrderDetailCacheTest {
+
+    private static final String ORDER_NO = "ORD202601010001";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private OrderDetailCache cache;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        cache = new OrderDetailCache(redisTemplate, objectMapper, listenerContainer);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "l1TtlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "l1MaxSize", 100);
+        ReflectionTestUtils.setField(cache, "l2TtlSeconds", 600L);
+        ReflectionTestUtils.setField(cache, "loadWaitMs", 5_000L);
+        cache.init();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(null);
+    }
+
+    @Test
+    @DisplayName("同一订单并发请求只加载一次DB")
+    void get_concurrentRequests_shouldCoalesceIntoOneLoad() throws Exception {
+        int threads = 16;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<OrderSnapshot>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(ORDER_NO, () -> {
+                        loads.incrementAndGet();
+                        awaitQuietly(release);
+                        return snapshot();
+                    });
+                }));
+            }
+            start.countDown();
+            // 等待其余请求进入合并等待后再放行加载
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<OrderSnapshot> future : futures) {
+                assertEquals(ORDER_NO, future.get(5, TimeUnit.SECONDS).getOrder().getOrderNo());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getDbLoadCount());
+        assertEquals(threads - 1, cache.getCoalescedCount() + cache.getL1HitCount());
+    }
+
+    @Test
+    @DisplayName("加载后命中L1，不再访问Redis和DB")
+    void get_afterLoad_shouldHitL1() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(ORDER_NO, () -> {
+            loads.incrementAndGet();
+            return snapshot();
+        });
+        OrderSnapshot second = cache.get(ORDER_NO, () -> {
+            loads.incrementAndGet();
+            return snapshot();
+        });
+
+        assertNotNull(second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getL1HitCount());
+        verify(valueOperations, times(1)).get(anyString());
+    }
+
+    @Test
+    @DisplayName("订单变更后失效L1并写入L2")
+    void put_shouldEvictL1() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(ORDER_NO, () -> {
+            loads.incrementAndGet();
+            return snapshot();
+        });
+
+        cache.put(snapshot());
+        cache.get(ORDER_NO, () -> {
+            loads.incrementAndGet();
+            return snapshot();
+        });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("订单不存在不缓存")
+    void get_notFound_shouldNotCache() {
+        assertNull(cache.get(ORDER_NO, () -> null));
+        assertNull(cache.get(ORDER_NO, () -> null));
+        assertEquals(2, cache.getDbLoadCount());
+    }
+
+    @Test
+    @DisplayName("跳过L1读取：L1中的旧快照不影响订阅后的当前状态")
+    void getFresh_shouldBypassL1() {
+        cache.get(ORDER_NO, this::snapshot);
+        OrderSnapshot paid = snapshot();
+        paid.getOrder().setStatus("PAID");
+        paid.getOrder().setVersion(2);
+
+        OrderSnapshot fresh = cache.getFresh(ORDER_NO, () -> paid);
+
+        assertEquals(2, fresh.getOrder().getVersion());
+        assertEquals(1, cache.get(ORDER_NO, () -> paid).getOrder().getVersion());
+        assertEquals(2, cache.getDbLoadCount());
+    }
+
+    private OrderSnapshot snapshot() {
+        Order order = new Order();
+        order.setId(1L);
+        order.setOrderNo(ORDER_NO);
+        order.setUserId(1001L);
+        order.setStatus("CREATED");
+        order.setVersion(1);
+        return new OrderSnapshot(order, Collections.emptyList());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
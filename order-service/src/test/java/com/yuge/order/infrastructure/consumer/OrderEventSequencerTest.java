@@ -0,0 +1,133 @@
+package com.yuge.order.infrastructure.consumer;
+
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.domain.enums.OrderEvent;
+import com.yuge.order.domain.statemachine.OrderStateMachine;
+import com.yuge.order.infrastructure.consumer.OrderEventSequencer.OutOfOrderException;
+import com.yuge.order.infrastructure.push.OrderStatusBroadcaster;
+import com.yuge.order.infrastructure.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 订单事件有序分发单元测试 - 乱序暂存与按序执行
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OrderEventSequencerTest {
+
+    private static final String ORDER_NO = "ORD202601010001";
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderStatusBroadcaster broadcaster;
+
+    private final AtomicReference<String> status = new AtomicReference<>("CREATED");
+    private final List<String> applied = new CopyOnWriteArrayList<>();
+
+    private OrderEventSequencer sequencer;
+
+    @BeforeEach
+    void setUp() {
+        when(orderRepository.findByOrderNo(ORDER_NO)).thenAnswer(invocation -> {
+            Order order = new Order();
+            order.setOrderNo(ORDER_NO);
+            order.setStatus(status.get());
+            return Optional.of(order);
+        });
+        sequencer = new OrderEventSequencer(orderRepository, new OrderStateMachine(), broadcaster);
+        ReflectionTestUtils.setField(sequencer, "enabled", true);
+        ReflectionTestUtils.setField(sequencer, "partitions", 4);
+        ReflectionTestUtils.setField(sequencer, "parkTimeoutMs", 300L);
+        ReflectionTestUtils.setField(sequencer, "maxParked", 100);
+        sequencer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sequencer.stop();
+    }
+
+    @Test
+    @DisplayName("支付成功先于库存预留到达时暂存，库存预留执行后按序执行")
+    void dispatch_outOfOrder_shouldParkAndApplyInOrder() throws Exception {
+        ReflectionTestUtils.setField(sequencer, "parkTimeoutMs", 5000L);
+        CompletableFuture<Void> payment = CompletableFuture.runAsync(() ->
+                sequencer.dispatch(ORDER_NO, OrderEvent.PAYMENT_SUCCESS, () -> apply("PAID")));
+        waitUntilParked(1);
+        assertTrue(applied.isEmpty());
+
+        sequencer.dispatch(ORDER_NO, OrderEvent.STOCK_RESERVED, () -> apply("STOCK_RESERVED"));
+        payment.get(2, TimeUnit.SECONDS);
+
+        assertEquals(List.of("STOCK_RESERVED", "PAID"), applied);
+        assertEquals(0, sequencer.getParkedCount());
+        verify(broadcaster).subscribe(eq(ORDER_NO), any());
+    }
+
+    @Test
+    @DisplayName("前置状态超时未到达时抛出异常，交给Broker重试")
+    void dispatch_parkTimeout_shouldFail() {
+        assertThrows(OutOfOrderException.class,
+                () -> sequencer.dispatch(ORDER_NO, OrderEvent.SHIP, () -> apply("SHIPPED")));
+        assertTrue(applied.isEmpty());
+        assertEquals(0, sequencer.getParkedCount());
+    }
+
+    @Test
+    @DisplayName("订单已离开主链路时直接执行，由处理逻辑按原规则忽略")
+    void dispatch_orderCanceled_shouldRunImmediately() {
+        status.set("CANCELED");
+
+        sequencer.dispatch(ORDER_NO, OrderEvent.PAYMENT_SUCCESS, () -> applied.add("IGNORED"));
+
+        assertEquals(List.of("IGNORED"), applied);
+        verify(broadcaster, never()).subscribe(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("处理逻辑抛出的异常原样返回给消费线程")
+    void dispatch_handlerError_shouldPropagate() {
+        IllegalStateException error = new IllegalStateException("db down");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> sequencer.dispatch(ORDER_NO, OrderEvent.STOCK_RESERVED, () -> {
+                    throw error;
+                }));
+        assertSame(error, thrown);
+    }
+
+    private void apply(String newStatus) {
+        status.set(newStatus);
+        applied.add(newStatus);
+    }
+
+    private void waitUntilParked(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (sequencer.getParkedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, sequencer.getParkedCount());
+    }
+}
@@ -0,0 +1,108 @@
+package com.yuge.order.infrastructure.push;
+
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.infrastructure.push.OrderStatusBroadcaster.StatusChange;
+import com.yuge.order.infrastructure.push.OrderStatusBroadcaster.Subscription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 订单状态广播单元测试 - 本实例分发与订阅管理
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderStatusBroadcasterTest {
+
+    private static final String ORDER_NO = "ORD202601010001";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private OrderStatusBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new OrderStatusBroadcaster(redisTemplate, listenerContainer);
+        ReflectionTestUtils.setField(broadcaster, "maxSubscribers", 2);
+    }
+
+    @Test
+    @DisplayName("只分发给订阅了该订单的等待者，返回true后自动取消订阅")
+    void dispatch_shouldUnsubscribeWhenListenerDone() {
+        List<StatusChange> received = new ArrayList<>();
+        broadcaster.subscribe(ORDER_NO, change -> {
+            received.add(change);
+            return "PAID".equals(change.getStatus());
+        });
+
+        broadcaster.dispatch(new StatusChange("ORD_OTHER", "PAID", 3));
+        broadcaster.dispatch(new StatusChange(ORDER_NO, "STOCK_RESERVED", 2));
+        assertEquals(1, broadcaster.getSubscriberCount());
+
+        broadcaster.dispatch(new StatusChange(ORDER_NO, "PAID", 3));
+        broadcaster.dispatch(new StatusChange(ORDER_NO, "SHIPPED", 4));
+
+        assertEquals(2, received.size());
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    @DisplayName("超过单实例上限时拒绝订阅，取消后释放名额")
+    void subscribe_shouldRejectOverLimit() {
+        Subscription first = broadcaster.subscribe(ORDER_NO, change -> false);
+        Subscription second = broadcaster.subscribe(ORDER_NO, change -> false);
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(broadcaster.subscribe(ORDER_NO, change -> false));
+
+        first.cancel();
+        first.cancel();
+        assertEquals(1, broadcaster.getSubscriberCount());
+        assertNotNull(broadcaster.subscribe(ORDER_NO, change -> false));
+    }
+
+    @Test
+    @DisplayName("Redis发布失败时回退为本实例分发")
+    void publish_shouldDispatchLocallyWhenRedisFails() {
+        doThrow(new RedisConnectionFailureException("down"))
+                .when(redisTemplate).convertAndSend(eq(OrderStatusBroadcaster.CHANNEL), anyString());
+        List<StatusChange> received = new ArrayList<>();
+        broadcaster.subscribe(ORDER_NO, received::add);
+
+        Order order = new Order();
+        order.setOrderNo(ORDER_NO);
+        order.setStatus("PAID");
+        order.setVersion(3);
+        broadcaster.publish(order);
+
+        assertEquals(List.of(new StatusChange(ORDER_NO, "PAID", 3)), received);
+    }
+
+    @Test
+    @DisplayName("状态变更消息格式往返解析")
+    void statusChange_shouldRoundTrip() {
+        StatusChange change = new StatusChange(ORDER_NO, "STOCK_RESERVED", 2);
+
+        assertEquals(change, StatusChange.parse(change.format()));
+        assertNull(StatusChange.parse("bad-message"));
+        assertNull(StatusChange.parse(ORDER_NO + "|PAID|x"));
+    }
+}
@@ -0,0 +1,263 @@
+package com.yuge.order.infrastructure.repository;
+
+import com.yuge.order.domain.entity.Order;
+import com.yuge.order.domain.entity.OrderItem;
+import com.yuge.order.domain.entity.OrderStateFlow;
+import com.yuge.order.domain.entity.OutboxEvent;
+import com.yuge.order.infrastructure.cache.OrderCacheRefresher;
+import com.yuge.order.infrastructure.mapper.OrderItemMapper;
+import com.yuge.order.infrastructure.mapper.OrderMapper;
+import com.yuge.order.infrastructure.mapper.OrderStateFlowMapper;
+import com.yuge.order.infrastructure.mapper.OutboxEventMapper;
+import com.yuge.order.infrastructure.repository.OrderGroupCommitWriter.NewOrder;
+import com.yuge.order.infrastructure.sharding.OrderShardRouter;
+import com.yuge.order.infrastructure.sharding.OrderShardingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 订单组提交写入器单元测试 - 合批、冲突隔离、停止与等待超时
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OrderGroupCommitWriterTest {
+
+    private static final int THREADS = 4;
+
+    @Mock
+    private OrderMapper orderMapper;
+
+    @Mock
+    private OrderItemMapper orderItemMapper;
+
+    @Mock
+    private OutboxEventMapper outboxEventMapper;
+
+    @Mock
+    private OrderStateFlowMapper orderStateFlowMapper;
+
+    @Mock
+    private OrderCacheRefresher orderCacheRefresher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderGroupCommitWriter writer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        writer = new OrderGroupCommitWriter(orderMapper, orderItemMapper, outboxEventMapper,
+                orderStateFlowMapper, orderCacheRefresher, new TransactionTemplate(transactionManager),
+                new OrderShardRouter(new OrderShardingProperties()));
+        ReflectionTestUtils.setField(writer, "enabled", true);
+        // 窗口放大到200ms，保证并发请求落在同一批
+        ReflectionTestUtils.setField(writer, "windowMicros", 200_000L);
+        ReflectionTestUtils.setField(writer, "maxBatch", THREADS);
+        ReflectionTestUtils.setField(writer, "queueCapacity", 100);
+        ReflectionTestUtils.setField(writer, "awaitTimeoutMs", 5000L);
+        writer.start();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        writer.stop();
+    }
+
+    @Test
+    @DisplayName("并发下单合并为一个事务的多行INSERT")
+    void write_shouldBatchConcurrentOrders() throws Exception {
+        List<Future<Object>> results = writeConcurrently(List.of(
+                newOrder("ORD1", 1L, "req-1"), newOrder("ORD2", 2L, "req-2"),
+                newOrder("ORD3", 3L, "req-3"), newOrder("ORD4", 4L, "req-4")));
+
+        for (Future<Object> result : results) {
+            assertNull(result.get(5, TimeUnit.SECONDS));
+        }
+        verify(orderMapper).insertBatch(argThat(orders -> orders.size() == THREADS));
+        verify(orderItemMapper).insertBatch(argThat(items -> items.size() == THREADS));
+        verify(outboxEventMapper).insertBatch(argThat(events -> events.size() == THREADS));
+        verify(orderStateFlowMapper).insertBatch(argThat(flows -> flows.size() == THREADS));
+        verify(transactionManager, times(1)).commit(any());
+        verify(orderCacheRefresher, times(THREADS)).refreshAfterCommit(anyString());
+        assertEquals(1, writer.getBatchCount());
+    }
+
+    @Test
+    @DisplayName("某单唯一键冲突时逐单重试，只有该单失败")
+    void write_duplicateKey_shouldOnlyFailConflictingOrder() throws Exception {
+        when(orderMapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            if (orders.stream().anyMatch(order -> "ORD3".equals(order.getOrderNo()))) {
+                throw new DuplicateKeyException("Duplicate entry for key 'uk_user_client_request'");
+            }
+            return orders.size();
+        });
+
+        List<Future<Object>> results = writeConcurrently(List.of(
+                newOrder("ORD1", 1L, "req-1"), newOrder("ORD2", 2L, "req-2"),
+                newOrder("ORD3", 3L, "req-3"), newOrder("ORD4", 4L, "req-4")));
+
+        int failed = 0;
+        for (Future<Object> result : results) {
+            Object value = result.get(5, TimeUnit.SECONDS);
+            if (value instanceof DuplicateKeyException) {
+                failed++;
+            } else {
+                assertNull(value);
+            }
+        }
+        assertEquals(1, failed);
+        assertEquals(1, writer.getFallbackCount());
+        verify(orderCacheRefresher, times(THREADS - 1)).refreshAfterCommit(anyString());
+        verify(orderCacheRefresher, never()).refreshAfterCommit("ORD3");
+    }
+
+    @Test
+    @DisplayName("同批内重复的clientRequestId直接判冲突，不影响其他订单")
+    void write_duplicateRequestInBatch_shouldRejectLaterOne() throws Exception {
+        List<Future<Object>> results = writeConcurrently(List.of(
+                newOrder("ORD1", 1L, "req-1"), newOrder("ORD2", 1L, "req-1"),
+                newOrder("ORD3", 3L, "req-3"), newOrder("ORD4", 4L, "req-4")));
+
+        int failed = 0;
+        for (Future<Object> result : results) {
+            if (result.get(5, TimeUnit.SECONDS) instanceof DuplicateKeyException) {
+                failed++;
+            }
+        }
+        assertEquals(1, failed);
+        verify(orderMapper).insertBatch(argThat(orders -> orders.size() == THREADS - 1));
+    }
+
+    @Test
+    @DisplayName("入队时写入器恰好停止（剩余请求已取完）：由调用线程写入，不会永久等待")
+    void write_offerRacingStop_shouldWriteInCallerThread() {
+        writer.stop();
+        // 模拟 write() 读到 running=true 后、offer 前，stop() 已清空队列并把 running 置为 false
+        ReflectionTestUtils.setField(writer, "running", true);
+        ReflectionTestUtils.setField(writer, "queue", new LinkedBlockingQueue<Object>() {
+            @Override
+            public boolean offer(Object o) {
+                boolean offered = super.offer(o);
+                ReflectionTestUtils.setField(writer, "running", false);
+                return offered;
+            }
+        });
+
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> writer.write(newOrder("ORD1", 1L, "req-1")));
+
+        verify(orderMapper).insertBatch(argThat(orders -> orders.size() == 1));
+        verify(orderCacheRefresher).refreshAfterCommit("ORD1");
+        assertEquals(0, ((LinkedBlockingQueue<?>) ReflectionTestUtils.getField(writer, "queue")).size());
+    }
+
+    @Test
+    @DisplayName("批次迟迟未提交：等待超时后抛出超时异常（提交结果未知），不刷新缓存")
+    void write_batchStuck_shouldTimeOut() throws Exception {
+        ReflectionTestUtils.setField(writer, "awaitTimeoutMs", 300L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderMapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 1;
+        });
+
+        try {
+            long start = System.nanoTime();
+            assertThrows(QueryTimeoutException.class, () -> writer.write(newOrder("ORD1", 1L, "req-1")));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+            verify(orderCacheRefresher, never()).refreshAfterCommit(anyString());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("等待期间被中断：仍等到批次结果再返回，并保留中断标记")
+    void write_interrupted_shouldStillWaitForResult() throws Exception {
+        Future<Boolean> result = executor.submit(() -> {
+            Thread.currentThread().interrupt();
+            writer.write(newOrder("ORD1", 1L, "req-1"));
+            return Thread.currentThread().isInterrupted();
+        });
+
+        assertTrue(result.get(5, TimeUnit.SECONDS));
+        verify(orderMapper).insertBatch(argThat(orders -> orders.size() == 1));
+        verify(orderCacheRefresher).refreshAfterCommit("ORD1");
+    }
+
+    /**
+     * 并发写入，每个Future返回null（成功）或抛出的异常
+     */
+    private List<Future<Object>> writeConcurrently(List<NewOrder> newOrders) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        for (NewOrder newOrder : newOrders) {
+            Callable<Object> task = () -> {
+                start.await();
+                try {
+                    writer.write(newOrder);
+                    return null;
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            };
+            results.add(executor.submit(task));
+        }
+        start.countDown();
+        return results;
+    }
+
+    private NewOrder newOrder(String orderNo, Long userId, String clientRequestId) {
+        Order order = new Order();
+        order.setId(System.nanoTime());
+        order.setOrderNo(orderNo);
+        order.setUserId(userId);
+        order.setClientRequestId(clientRequestId);
+        order.setStatus("CREATED");
+
+        OrderItem item = new OrderItem();
+        item.setOrderNo(orderNo);
+        item.setSkuId(10001L);
+        item.setQty(1);
+
+        OutboxEvent event = new OutboxEvent();
+        event.setEventId("evt-" + orderNo);
+        event.setBizKey(orderNo);
+
+        OrderStateFlow flow = new OrderStateFlow();
+        flow.setOrderNo(orderNo);
+        flow.setToStatus("CREATED");
+
+        return new NewOrder(order, List.of(item), event, flow);
+    }
+}
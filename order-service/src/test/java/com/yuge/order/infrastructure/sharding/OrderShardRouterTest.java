@@ -0,0 +1,138 @@
+package com.yuge.order.infrastructure.sharding;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 订单分片路由单元测试 - 订单号槽位编码与两个内嵌H2分库上的路由
+ */
+class OrderShardRouterTest {
+
+    private static final String TIMESTAMP = "20260101120000000";
+
+    private final List<JdbcTemplate> shardJdbc = new ArrayList<>();
+
+    private OrderShardRouter router;
+    private JdbcTemplate routedJdbc;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        OrderShardingProperties properties = new OrderShardingProperties();
+        properties.setEnabled(true);
+        properties.setSlots(64);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < 2; shard++) {
+            properties.getDatasources().add(new OrderShardingProperties.ShardDataSource());
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:order_shard_" + shard + ";DB_CLOSE_DELAY=-1");
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            jdbc.execute("CREATE TABLE IF NOT EXISTS t_order (order_no VARCHAR(32) PRIMARY KEY, user_id BIGINT)");
+            jdbc.execute("DELETE FROM t_order");
+            shardJdbc.add(jdbc);
+            targets.put(shard, dataSource);
+        }
+        router = new OrderShardRouter(properties);
+
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(targets.get(0));
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        routedJdbc = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.shutdown();
+    }
+
+    @Test
+    @DisplayName("订单号携带用户槽位，按订单号与按用户路由到同一分片")
+    void shardOfOrderNo_shouldMatchShardOfUser() {
+        for (long userId = 1; userId <= 200; userId++) {
+            String orderNo = orderNo(userId);
+            assertEquals(26, orderNo.length());
+            assertEquals(router.shardOfUser(userId), router.shardOfOrderNo(orderNo));
+        }
+        assertEquals(0, router.shardOfUser(64L));
+        assertEquals(1, router.shardOfUser(65L));
+    }
+
+    @Test
+    @DisplayName("旧格式订单号路由到分片0")
+    void shardOfOrderNo_legacy_shouldRouteToShardZero() {
+        assertEquals(0, router.shardOfOrderNo("ORD" + TIMESTAMP + "1234"));
+        assertEquals(0, router.shardOfOrderNo(null));
+    }
+
+    @Test
+    @DisplayName("未启用分库时全部路由到分片0")
+    void disabled_shouldUseSingleShard() {
+        OrderShardRouter single = new OrderShardRouter(new OrderShardingProperties());
+        assertEquals(1, single.getShardCount());
+        assertEquals(0, single.shardOfOrderNo(orderNo(65L)));
+    }
+
+    @Test
+    @DisplayName("事务内写入落到订单所在分库，其他分库不可见")
+    void write_inTransaction_shouldLandOnOwnShard() {
+        for (long userId : new long[]{64L, 65L}) {
+            String orderNo = orderNo(userId);
+            transactionTemplate.executeWithoutResult(status -> router.runOnOrder(orderNo,
+                    () -> routedJdbc.update("INSERT INTO t_order (order_no, user_id) VALUES (?, ?)", orderNo, userId)));
+        }
+
+        assertEquals(List.of(orderNo(64L)), shardJdbc.get(0).queryForList("SELECT order_no FROM t_order", String.class));
+        assertEquals(List.of(orderNo(65L)), shardJdbc.get(1).queryForList("SELECT order_no FROM t_order", String.class));
+        assertEquals(65L, router.onOrder(orderNo(65L), () -> routedJdbc.queryForObject(
+                "SELECT user_id FROM t_order WHERE order_no = ?", Long.class, orderNo(65L))));
+    }
+
+    @Test
+    @DisplayName("事务内访问第二个分片时报错并回滚")
+    void crossShard_inTransaction_shouldFail() {
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            router.runOnOrder(orderNo(64L), () -> routedJdbc.update(
+                    "INSERT INTO t_order (order_no, user_id) VALUES (?, ?)", orderNo(64L), 64L));
+            router.runOnOrder(orderNo(65L), () -> routedJdbc.update(
+                    "INSERT INTO t_order (order_no, user_id) VALUES (?, ?)", orderNo(65L), 65L));
+        }));
+
+        assertEquals(0, shardJdbc.get(0).queryForObject("SELECT COUNT(*) FROM t_order", Integer.class));
+        assertEquals(0, shardJdbc.get(1).queryForObject("SELECT COUNT(*) FROM t_order", Integer.class));
+    }
+
+    @Test
+    @DisplayName("scatterGather 在每个分库各执行一次，按分片号返回")
+    void scatterGather_shouldQueryEveryShard() {
+        shardJdbc.get(0).update("INSERT INTO t_order (order_no, user_id) VALUES (?, ?)", orderNo(64L), 64L);
+        shardJdbc.get(1).update("INSERT INTO t_order (order_no, user_id) VALUES (?, ?)", orderNo(65L), 65L);
+        shardJdbc.get(1).update("INSERT INTO t_order (order_no, user_id) VALUES (?, ?)", orderNo(3L), 3L);
+
+        List<Integer> counts = router.scatterGather(
+                () -> routedJdbc.queryForObject("SELECT COUNT(*) FROM t_order", Integer.class));
+
+        assertEquals(List.of(1, 2), counts);
+    }
+
+    private String orderNo(long userId) {
+        return "ORD" + TIMESTAMP + router.slotCode(userId) + "1234";
+    }
+}
@@ -21,6 +21,7 @@ CREATE TABLE IF NOT EXISTS `t_order` (
 
 CREATE UNIQUE INDEX IF NOT EXISTS uk_order_no ON t_order(order_no);
 CREATE UNIQUE INDEX IF NOT EXISTS uk_user_client_request ON t_order(user_id, client_request_id);
+CREATE INDEX IF NOT EXISTS idx_user_created ON t_order(user_id, created_at, id);
 
 -- 订单明细表
 CREATE TABLE IF NOT EXISTS `t_order_item` (
@@ -0,0 +1,87 @@
+package com.yuge.platform.infra.statemachine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 状态机查表基准：原 HashMap 嵌套表 vs 引擎编译后的数组表
+ *
+ * 运行：mvn -pl platform-infra -Pbenchmark package，然后
+ * java -jar platform-infra/target/benchmarks.jar StateMachineBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StateMachineBenchmark {
+
+    enum Status { CREATED, STOCK_RESERVED, STOCK_FAILED, PAID, SHIPPED, DELIVERED, CANCELED }
+
+    enum Event { STOCK_RESERVED, STOCK_RESERVE_FAILED, CANCEL, PAYMENT_SUCCESS, SHIP, DELIVER }
+
+    private static final Status[] FROM = {
+            Status.CREATED, Status.STOCK_RESERVED, Status.PAID, Status.SHIPPED, Status.CANCELED, Status.CREATED};
+    private static final Event[] EVENTS = {
+            Event.STOCK_RESERVED, Event.PAYMENT_SUCCESS, Event.SHIP, Event.DELIVER, Event.CANCEL, Event.CANCEL};
+
+    private final Map<Status, Map<Event, Status>> hashTable = new HashMap<>();
+    private final StateMachine<Status, Event, Void> machine;
+    private int cursor;
+
+    public StateMachineBenchmark() {
+        StateMachine.Builder<Status, Event, Void> builder =
+                StateMachine.builder("benchmark", Status.class, Event.class);
+        transition(builder, Status.CREATED, Event.STOCK_RESERVED, Status.STOCK_RESERVED);
+        transition(builder, Status.CREATED, Event.STOCK_RESERVE_FAILED, Status.STOCK_FAILED);
+        transition(builder, Status.CREATED, Event.CANCEL, Status.CANCELED);
+        transition(builder, Status.STOCK_RESERVED, Event.CANCEL, Status.CANCELED);
+        transition(builder, Status.STOCK_RESERVED, Event.PAYMENT_SUCCESS, Status.PAID);
+        transition(builder, Status.PAID, Event.SHIP, Status.SHIPPED);
+        transition(builder, Status.SHIPPED, Event.DELIVER, Status.DELIVERED);
+        machine = builder.build();
+    }
+
+    private void transition(StateMachine.Builder<Status, Event, Void> builder, Status from, Event event, Status to) {
+        builder.transition(from, event, to);
+        hashTable.computeIfAbsent(from, k -> new HashMap<>()).put(event, to);
+    }
+
+    @Benchmark
+    public Status hashMapLookup() {
+        int i = next();
+        Map<Event, Status> transitions = hashTable.get(FROM[i]);
+        return transitions != null ? transitions.get(EVENTS[i]) : null;
+    }
+
+    @Benchmark
+    public Status engineLookup() {
+        int i = next();
+        return machine.nextState(FROM[i], EVENTS[i]);
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = i + 1 == FROM.length ? 0 : i + 1;
+        return i;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StateMachineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
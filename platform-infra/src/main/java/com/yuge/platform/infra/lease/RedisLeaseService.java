@@ -0,0 +1,100 @@
+package com.yuge.platform.infra.lease;
+
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 租约服务
+ *
+ * 1. 获取：SET key holder NX PX leaseMs，同一时刻只有一个持有者
+ * 2. 续约/释放：Lua 脚本先比对持有者再 PEXPIRE/DEL，租约过期被他人抢占后，原持有者的续约与释放不生效
+ *
+ * 持有者标识由调用方生成并在进程内保持不变（见 {@link #newHolderId()}）
+ */
+@Slf4j
+@Service
+public class RedisLeaseService {
+
+    /**
+     * 续约脚本：仅持有者可以续约
+     * KEYS[1] = 租约键
+     * ARGV[1] = 持有者
+     * ARGV[2] = 租约时长（毫秒）
+     */
+    private static final String RENEW_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """;
+
+    /**
+     * 释放脚本：仅持有者可以释放
+     * KEYS[1] = 租约键
+     * ARGV[1] = 持有者
+     */
+    private static final String RELEASE_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """;
+
+    private final StringRedisTemplate redisTemplate;
+    private final DefaultRedisScript<Long> renewScript;
+    private final DefaultRedisScript<Long> releaseScript;
+
+    public RedisLeaseService(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.renewScript = new DefaultRedisScript<>(RENEW_SCRIPT, Long.class);
+        this.releaseScript = new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+    }
+
+    /**
+     * 生成持有者标识：主机名:8位随机串
+     */
+    public static String newHolderId() {
+        return NetUtil.getLocalHostName() + ":" + IdUtil.fastSimpleUUID().substring(0, 8);
+    }
+
+    /**
+     * 获取租约
+     *
+     * @return 是否获取成功（已被他人持有时为 false）
+     */
+    public boolean tryAcquire(String key, String holder, long leaseMs) {
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(key, holder, leaseMs, TimeUnit.MILLISECONDS);
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    /**
+     * 续约
+     *
+     * @return 是否仍持有（租约已过期或被他人抢占时为 false）
+     */
+    public boolean renew(String key, String holder, long leaseMs) {
+        Long renewed = redisTemplate.execute(renewScript, List.of(key), holder, String.valueOf(leaseMs));
+        return renewed != null && renewed > 0;
+    }
+
+    /**
+     * 释放租约，非持有者调用无效果
+     *
+     * @return 是否由本持有者释放
+     */
+    public boolean release(String key, String holder) {
+        Long released = redisTemplate.execute(releaseScript, List.of(key), holder);
+        if (released == null || released == 0) {
+            log.debug("[RedisLease] Release skipped, not holder, key={}, holder={}", key, holder);
+            return false;
+        }
+        return true;
+    }
+}
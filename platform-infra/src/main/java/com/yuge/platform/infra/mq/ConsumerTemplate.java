@@ -100,7 +100,7 @@ public abstract class ConsumerTemplate {
      */
     protected BaseEvent parseMessage(MessageExt messageExt) {
         try {
-            String body = new String(messageExt.getBody(), StandardCharsets.UTF_;
+            String body = new String(messageExt.getBody(), StandardCharsets.UTF_8);
             return objectMapper.readValue(body, BaseEvent.class);
         } catch (Exception e) {
             log.error("[MQ-Consumer] Failed to parse message body, msgId={}", messageExt.getMsgId(), e);
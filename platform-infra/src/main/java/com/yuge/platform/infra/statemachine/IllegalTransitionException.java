@@ -0,0 +1,31 @@
+package com.yuge.platform.infra.statemachine;
+
+import lombok.Getter;
+
+/**
+ * 非法状态转换（转换表中不存在，或守卫拒绝）
+ * 各领域按需转换为自己的业务异常
+ */
+@Getter
+public class IllegalTransitionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String machine;
+    private final Enum<?> from;
+    private final Enum<?> event;
+
+    /**
+     * 是否为守卫拒绝（false 表示转换表中不存在该转换）
+     */
+    private final boolean guardRejected;
+
+    public IllegalTransitionException(String machine, Enum<?> from, Enum<?> event, boolean guardRejected) {
+        super(String.format("Invalid state transition: %s, %s + %s%s",
+                machine, from, event, guardRejected ? " (guard rejected)" : ""));
+        this.machine = machine;
+        this.from = from;
+        this.event = event;
+        this.guardRejected = guardRejected;
+    }
+}
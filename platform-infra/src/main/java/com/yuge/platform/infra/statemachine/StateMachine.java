@@ -0,0 +1,245 @@
+package com.yuge.platform.infra.statemachine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 表驱动状态机引擎
+ *
+ * 1. 构建时把 (状态, 事件) -> 转换 编译成按 ordinal 下标的一维数组，查询为一次数组访问，无哈希、无装箱
+ * 2. 每个转换可挂守卫（guard，返回 false 拒绝转换）和动作（action，转换通过后执行）
+ * 3. 不打印逐次转换日志，按转换累计次数与耗时（守卫+动作），拒绝次数单独计数，
+ *    由 StateMachineMetricsReporter 定期汇总输出
+ *
+ * 实例构建后只读，线程安全，可作为静态常量或单例共享
+ *
+ * @param <S> 状态枚举
+ * @param <E> 事件枚举
+ * @param <C> 守卫/动作的上下文类型，不需要时用 Void
+ */
+public final class StateMachine<S extends Enum<S>, E extends Enum<E>, C> {
+
+    private static final Map<String, StateMachine<?, ?, ?>> REGISTRY = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final int eventCount;
+    private final Transition<S, E, C>[] table;
+    private final Set<E>[] availableEvents;
+    private final List<Transition<S, E, C>> transitions;
+    private final LongAdder rejected = new LongAdder();
+
+    private StateMachine(String name, Class<S> stateType, Class<E> eventType, List<Transition<S, E, C>> transitions) {
+        S[] states = stateType.getEnumConstants();
+        this.name = name;
+        this.eventCount = eventType.getEnumConstants().length;
+        this.transitions = List.copyOf(transitions);
+        @SuppressWarnings("unchecked")
+        Transition<S, E, C>[] compiled = new Transition[states.length * eventCount];
+        @SuppressWarnings("unchecked")
+        Set<E>[] available = new Set[states.length];
+        for (S state : states) {
+            available[state.ordinal()] = EnumSet.noneOf(eventType);
+        }
+        for (Transition<S, E, C> transition : transitions) {
+            compiled[index(transition.from, transition.event)] = transition;
+            available[transition.from.ordinal()].add(transition.event);
+        }
+        for (int i = 0; i < available.length; i++) {
+            available[i] = Collections.unmodifiableSet(available[i]);
+        }
+        this.table = compiled;
+        this.availableEvents = available;
+    }
+
+    public static <S extends Enum<S>, E extends Enum<E>, C> Builder<S, E, C> builder(
+            String name, Class<S> stateType, Class<E> eventType) {
+        return new Builder<>(name, stateType, eventType);
+    }
+
+    /**
+     * 已构建的状态机（按名称）
+     */
+    public static Map<String, StateMachine<?, ?, ?>> registered() {
+        return Collections.unmodifiableMap(REGISTRY);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 转换表中是否存在 (from, event)，不执行守卫
+     */
+    public boolean canFire(S from, E event) {
+        return lookup(from, event) != null;
+    }
+
+    /**
+     * 转换表中存在 (from, event) 且守卫通过
+     */
+    public boolean canFire(S from, E event, C context) {
+        Transition<S, E, C> transition = lookup(from, event);
+        return transition != null && transition.permits(context);
+    }
+
+    /**
+     * 目标状态，不存在转换时返回 null（不执行守卫与动作）
+     */
+    public S nextState(S from, E event) {
+        Transition<S, E, C> transition = lookup(from, event);
+        return transition != null ? transition.to : null;
+    }
+
+    /**
+     * 执行转换：校验转换与守卫，执行动作，返回目标状态
+     *
+     * @throws IllegalTransitionException 不存在转换或守卫拒绝
+     */
+    public S fire(S from, E event, C context) {
+        Transition<S, E, C> transition = lookup(from, event);
+        if (transition == null) {
+            rejected.increment();
+            throw new IllegalTransitionException(name, from, event, false);
+        }
+        if (!transition.hooked) {
+            transition.count.increment();
+            return transition.to;
+        }
+        long start = System.nanoTime();
+        if (!transition.permits(context)) {
+            rejected.increment();
+            throw new IllegalTransitionException(name, from, event, true);
+        }
+        try {
+            if (transition.action != null) {
+                transition.action.accept(context);
+            }
+            return transition.to;
+        } finally {
+            transition.record(System.nanoTime() - start);
+        }
+    }
+
+    public S fire(S from, E event) {
+        return fire(from, event, null);
+    }
+
+    /**
+     * 状态下可执行的事件（只读）
+     */
+    public Set<E> availableEvents(S from) {
+        return availableEvents[from.ordinal()];
+    }
+
+    /**
+     * 被拒绝的转换次数（不存在转换或守卫拒绝）
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * 各转换的累计统计（按定义顺序）
+     */
+    public List<TransitionStats> stats() {
+        List<TransitionStats> result = new ArrayList<>(transitions.size());
+        for (Transition<S, E, C> transition : transitions) {
+            result.add(new TransitionStats(transition.from.name(), transition.event.name(), transition.to.name(),
+                    transition.count.sum(), transition.totalNanos.sum(), transition.maxNanos.get()));
+        }
+        return result;
+    }
+
+    private Transition<S, E, C> lookup(S from, E event) {
+        if (from == null || event == null) {
+            return null;
+        }
+        return table[index(from, event)];
+    }
+
+    private int index(S from, E event) {
+        return from.ordinal() * eventCount + event.ordinal();
+    }
+
+    private static final class Transition<S extends Enum<S>, E extends Enum<E>, C> {
+        private final S from;
+        private final E event;
+        private final S to;
+        private final Predicate<C> guard;
+        private final Consumer<C> action;
+        private final boolean hooked;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+        private Transition(S from, E event, S to, Predicate<C> guard, Consumer<C> action) {
+            this.from = from;
+            this.event = event;
+            this.to = to;
+            this.guard = guard;
+            this.action = action;
+            this.hooked = guard != null || action != null;
+        }
+
+        private boolean permits(C context) {
+            return guard == null || guard.test(context);
+        }
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+    }
+
+    /**
+     * 状态机构建器
+     */
+    public static final class Builder<S extends Enum<S>, E extends Enum<E>, C> {
+
+        private final String name;
+        private final Class<S> stateType;
+        private final Class<E> eventType;
+        private final List<Transition<S, E, C>> transitions = new ArrayList<>();
+
+        private Builder(String name, Class<S> stateType, Class<E> eventType) {
+            this.name = name;
+            this.stateType = stateType;
+            this.eventType = eventType;
+        }
+
+        public Builder<S, E, C> transition(S from, E event, S to) {
+            return transition(from, event, to, null, null);
+        }
+
+        /**
+         * @param guard  守卫，返回 false 时拒绝转换（可为空）
+         * @param action 转换通过后执行的动作，抛出异常时转换失败（可为空）
+         */
+        public Builder<S, E, C> transition(S from, E event, S to, Predicate<C> guard, Consumer<C> action) {
+            for (Transition<S, E, C> existing : transitions) {
+                if (existing.from == from && existing.event == event) {
+                    throw new IllegalArgumentException(
+                            String.format("重复定义转换: %s, %s + %s", name, from, event));
+                }
+            }
+            transitions.add(new Transition<>(from, event, to, guard, action));
+            return this;
+        }
+
+        public StateMachine<S, E, C> build() {
+            StateMachine<S, E, C> machine = new StateMachine<>(name, stateType, eventType, transitions);
+            REGISTRY.put(name, machine);
+            return machine;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.yuge.platform.infra.statemachine;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 状态机指标定期输出
+ *
+ * 替代逐次转换日志：每个周期输出各状态机本周期内发生过的转换（次数、平均/最大耗时）和拒绝次数
+ */
+@Slf4j
+@Component
+public class StateMachineMetricsReporter {
+
+    /**
+     * 上次输出时的累计值（machine:from:event -> count），用于计算周期增量
+     */
+    private final Map<String, Long> lastCounts = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 输出间隔（秒），0 表示关闭
+     */
+    @Value("${statemachine.metrics.report-interval-seconds:60}")
+    private long reportIntervalSeconds;
+
+    @PostConstruct
+    public void start() {
+        if (reportIntervalSeconds <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "statemachine-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::report, reportIntervalSeconds, reportIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 输出本周期内的转换统计
+     */
+    public void report() {
+        StateMachine.registered().forEach((name, machine) -> {
+            for (TransitionStats stats : machine.stats()) {
+                String key = name + ":" + stats.getFrom() + ":" + stats.getEvent();
+                Long previous = lastCounts.put(key, stats.getCount());
+                long delta = stats.getCount() - (previous != null ? previous : 0L);
+                if (delta > 0) {
+                    log.info("[StateMachine] metrics, machine={}, transition={}+{}->{}, count={}, total={}, avgNanos={}, maxNanos={}",
+                            name, stats.getFrom(), stats.getEvent(), stats.getTo(), delta, stats.getCount(),
+                            stats.getAvgNanos(), stats.getMaxNanos());
+                }
+            }
+            long rejected = machine.getRejectedCount();
+            Long previousRejected = lastCounts.put(name + ":rejected", rejected);
+            long rejectedDelta = rejected - (previousRejected != null ? previousRejected : 0L);
+            if (rejectedDelta > 0) {
+                log.info("[StateMachine] metrics, machine={}, rejected={}", name, rejectedDelta);
+            }
+        });
+    }
+}
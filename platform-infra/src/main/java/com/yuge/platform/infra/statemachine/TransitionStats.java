@@ -0,0 +1,24 @@
+package com.yuge.platform.infra.statemachine;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 单个转换的累计统计
+ * 耗时只统计挂了守卫/动作的转换（纯查表转换只计次数）
+ */
+@Getter
+@AllArgsConstructor
+public class TransitionStats {
+
+    private final String from;
+    private final String event;
+    private final String to;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    public long getAvgNanos() {
+        return count > 0 ? totalNanos / count : 0;
+    }
+}
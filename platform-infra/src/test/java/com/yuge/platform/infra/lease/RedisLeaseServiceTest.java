@@ -0,0 +1,74 @@
+package com.yuge.platform.infra.lease;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Redis 租约服务单元测试 - 获取、持有者校验的续约与释放
+ */
+class RedisLeaseServiceTest {
+
+    private static final String KEY = "test:lease";
+
+    private StringRedisTemplate redisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private RedisLeaseService leaseService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        leaseService = new RedisLeaseService(redisTemplate);
+    }
+
+    @Test
+    @DisplayName("获取：SET NX PX，已被持有时返回 false")
+    void tryAcquire_shouldSetIfAbsentWithLease() {
+        when(valueOperations.setIfAbsent(KEY, "h1", 30_000L, TimeUnit.MILLISECONDS)).thenReturn(true);
+        when(valueOperations.setIfAbsent(KEY, "h2", 30_000L, TimeUnit.MILLISECONDS)).thenReturn(false);
+
+        assertTrue(leaseService.tryAcquire(KEY, "h1", 30_000L));
+        assertFalse(leaseService.tryAcquire(KEY, "h2", 30_000L));
+    }
+
+    @Test
+    @DisplayName("续约：脚本按持有者校验，返回0表示已丢失")
+    @SuppressWarnings("unchecked")
+    void renew_shouldPassHolderAndLease() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), eq("h1"), eq("30000"))).thenReturn(1L);
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), eq("h2"), eq("30000"))).thenReturn(0L);
+
+        assertTrue(leaseService.renew(KEY, "h1", 30_000L));
+        assertFalse(leaseService.renew(KEY, "h2", 30_000L));
+    }
+
+    @Test
+    @DisplayName("释放：非持有者释放无效果")
+    @SuppressWarnings("unchecked")
+    void release_shouldOnlyReleaseOwnLease() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), eq("h1"))).thenReturn(1L);
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), eq("h2"))).thenReturn(0L);
+
+        assertTrue(leaseService.release(KEY, "h1"));
+        assertFalse(leaseService.release(KEY, "h2"));
+    }
+
+    @Test
+    @DisplayName("持有者标识：主机名加随机串，每次不同")
+    void newHolderId_shouldBeUnique() {
+        assertNotEquals(RedisLeaseService.newHolderId(), RedisLeaseService.newHolderId());
+    }
+}
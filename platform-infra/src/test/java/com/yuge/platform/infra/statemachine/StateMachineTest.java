@@ -0,0 +1,80 @@
+package com.yuge.platform.infra.statemachine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 表驱动状态机引擎单元测试 - 查表、守卫、动作与统计
+ */
+class StateMachineTest {
+
+    enum State { NEW, ACTIVE, CLOSED }
+
+    enum Event { ACTIVATE, CLOSE, REOPEN }
+
+    @Test
+    @DisplayName("按转换表返回目标状态，未定义的转换抛出异常并计入拒绝次数")
+    void fire_shouldFollowTable() {
+        StateMachine<State, Event, Void> machine = StateMachine.<State, Event, Void>builder(
+                "test-table", State.class, Event.class)
+                .transition(State.NEW, Event.ACTIVATE, State.ACTIVE)
+                .transition(State.ACTIVE, Event.CLOSE, State.CLOSED)
+                .build();
+
+        assertEquals(State.ACTIVE, machine.fire(State.NEW, Event.ACTIVATE));
+        assertEquals(State.CLOSED, machine.nextState(State.ACTIVE, Event.CLOSE));
+        assertNull(machine.nextState(State.CLOSED, Event.ACTIVATE));
+        assertFalse(machine.canFire(State.NEW, Event.CLOSE));
+        assertEquals(Set.of(Event.CLOSE), machine.availableEvents(State.ACTIVE));
+        assertTrue(machine.availableEvents(State.CLOSED).isEmpty());
+
+        IllegalTransitionException e = assertThrows(IllegalTransitionException.class,
+                () -> machine.fire(State.CLOSED, Event.CLOSE));
+        assertFalse(e.isGuardRejected());
+        assertEquals(1, machine.getRejectedCount());
+        assertEquals(1, machine.stats().get(0).getCount());
+    }
+
+    @Test
+    @DisplayName("守卫拒绝时不执行动作，通过时执行动作并记录耗时")
+    void fire_withGuardAndAction() {
+        List<String> actions = new ArrayList<>();
+        StateMachine<State, Event, String> machine = StateMachine.<State, Event, String>builder(
+                "test-hooks", State.class, Event.class)
+                .transition(State.CLOSED, Event.REOPEN, State.ACTIVE, "admin"::equals, actions::add)
+                .build();
+
+        IllegalTransitionException e = assertThrows(IllegalTransitionException.class,
+                () -> machine.fire(State.CLOSED, Event.REOPEN, "guest"));
+        assertTrue(e.isGuardRejected());
+        assertTrue(actions.isEmpty());
+        assertTrue(machine.canFire(State.CLOSED, Event.REOPEN));
+        assertFalse(machine.canFire(State.CLOSED, Event.REOPEN, "guest"));
+
+        assertEquals(State.ACTIVE, machine.fire(State.CLOSED, Event.REOPEN, "admin"));
+        assertEquals(List.of("admin"), actions);
+
+        TransitionStats stats = machine.stats().get(0);
+        assertEquals(1, stats.getCount());
+        assertTrue(stats.getTotalNanos() > 0);
+        assertEquals(1, machine.getRejectedCount());
+        assertSame(machine, StateMachine.registered().get("test-hooks"));
+    }
+
+    @Test
+    @DisplayName("重复定义同一转换时构建失败")
+    void builder_duplicateTransition_shouldFail() {
+        StateMachine.Builder<State, Event, Void> builder = StateMachine.<State, Event, Void>builder(
+                "test-dup", State.class, Event.class)
+                .transition(State.NEW, Event.ACTIVATE, State.ACTIVE);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.transition(State.NEW, Event.ACTIVATE, State.CLOSED));
+    }
+}
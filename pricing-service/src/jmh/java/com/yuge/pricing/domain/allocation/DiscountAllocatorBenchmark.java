@@ -0,0 +1,115 @@
+package com.yuge.pricing.domain.allocation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 优惠分摊基准：原 BigDecimal 逐行逐规则计算 vs 定点数分摊引擎（只比较数值计算，不含 DTO 构建）
+ *
+ * 运行：mvn -pl pricing-service -Pbenchmark package -DskipTests，然后
+ * java -jar pricing-service/target/benchmarks.jar DiscountAllocatorBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiscountAllocatorBenchmark {
+
+    @Param({"10", "200", "800"})
+    private int lines;
+
+    @Param({"1", "4"})
+    private int rules;
+
+    private BigDecimal[] unitPrices;
+    private int[] quantities;
+    private BigDecimal[] ruleDiscounts;
+    private BigDecimal totalDiscount;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1L);
+        unitPrices = new BigDecimal[lines];
+        quantities = new int[lines];
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            unitPrices[i] = BigDecimal.valueOf(100 + random.nextInt(100_000), 2);
+            quantities[i] = 1 + random.nextInt(20);
+            totalAmount = totalAmount.add(unitPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        ruleDiscounts = new BigDecimal[rules];
+        totalDiscount = BigDecimal.ZERO;
+        for (int r = 0; r < rules; r++) {
+            ruleDiscounts[r] = totalAmount.multiply(BigDecimal.valueOf(3 + r, 2)).setScale(2, RoundingMode.DOWN);
+            totalDiscount = totalDiscount.add(ruleDiscounts[r]);
+        }
+    }
+
+    /**
+     * 原 PricingService.calculateAllocation 的数值部分
+     */
+    @Benchmark
+    public void legacyBigDecimal(Blackhole blackhole) {
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            totalAmount = totalAmount.add(unitPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        BigDecimal allocated = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            BigDecimal lineOriginalAmount = unitPrices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            BigDecimal lineDiscount;
+            if (i == lines - 1) {
+                lineDiscount = totalDiscount.subtract(allocated);
+            } else {
+                lineDiscount = totalDiscount.multiply(lineOriginalAmount).divide(totalAmount, 2, RoundingMode.HALF_UP);
+                allocated = allocated.add(lineDiscount);
+            }
+            blackhole.consume(lineOriginalAmount.subtract(lineDiscount));
+            for (int r = 0; r < rules; r++) {
+                blackhole.consume(ruleDiscounts[r].multiply(lineDiscount).divide(totalDiscount, 2, RoundingMode.HALF_UP));
+            }
+        }
+    }
+
+    @Benchmark
+    public void fixedPointEngine(Blackhole blackhole) {
+        DiscountAllocator.Allocation allocation = DiscountAllocator.begin(lines, rules);
+        for (int i = 0; i < lines; i++) {
+            allocation.setLineAmount(i, unitPrices[i].unscaledValue().longValue() * quantities[i]);
+        }
+        for (int r = 0; r < rules; r++) {
+            allocation.setRuleDiscount(r, ruleDiscounts[r].unscaledValue().longValue());
+        }
+        allocation.allocate(totalDiscount.unscaledValue().longValue());
+        for (int i = 0; i < lines; i++) {
+            blackhole.consume(allocation.linePayable(i));
+            for (int r = 0; r < rules; r++) {
+                blackhole.consume(allocation.ruleDiscount(i, r));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DiscountAllocatorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
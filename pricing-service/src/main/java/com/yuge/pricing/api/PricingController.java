@@ -25,6 +25,14 @@ public class PricingController {
         return Result.success(pricingService.quote(request));
     }
 
+    /**
+     * 列表页/搜索页批量展示价（单次最多200个SKU）
+     */
+    @PostMapping("/quote/listing")
+    public Result<ListingQuoteResponse> quoteListing(@Valid @RequestBody ListingQuoteRequest request) {
+        return Result.success(pricingService.quoteListing(request));
+    }
+
     /**
      * 锁价
      */
@@ -61,11 +69,51 @@ public class PricingController {
     }
 
     /**
-     * 取消价格锁
+     * 预占价格锁（下单第一阶段）
+     */
+    @PostMapping("/lock/{priceLockNo}/reserve")
+    public Result<LockResponse> reservePriceLock(@PathVariable String priceLockNo,
+                                                 @RequestParam String orderNo,
+                                                 @RequestParam String signature) {
+        return Result.success(pricingService.reservePriceLock(priceLockNo, orderNo, signature));
+    }
+
+    /**
+     * 确认使用价格锁（订单提交后）
+     */
+    @PostMapping("/lock/{priceLockNo}/confirm")
+    public Result<Void> confirmPriceLock(@PathVariable String priceLockNo,
+                                         @RequestParam String orderNo) {
+        pricingService.confirmPriceLock(priceLockNo, orderNo);
+        return Result.success(null);
+    }
+
+    /**
+     * 释放价格锁预占（订单创建失败补偿）
+     */
+    @PostMapping("/lock/{priceLockNo}/release")
+    public Result<Void> releasePriceLock(@PathVariable String priceLockNo,
+                                         @RequestParam String orderNo) {
+        pricingService.releasePriceLock(priceLockNo, orderNo);
+        return Result.success(null);
+    }
+
+    /**
+     * 取消价格锁（仅未使用的锁）
      */
     @PostMapping("/lock/{priceLockNo}/cancel")
     public Result<Void> cancelPriceLock(@PathVariable String priceLockNo) {
         pricingService.cancelPriceLock(priceLockNo);
         return Result.success(null);
     }
+
+    /**
+     * 随订单取消价格锁（订单取消时调用，只取消该订单预占/使用的锁）
+     */
+    @PostMapping("/lock/{priceLockNo}/cancel-for-order")
+    public Result<Void> cancelPriceLockForOrder(@PathVariable String priceLockNo,
+                                                @RequestParam String orderNo) {
+        pricingService.cancelPriceLockForOrder(priceLockNo, orderNo);
+        return Result.success(null);
+    }
 }
@@ -0,0 +1,44 @@
+package com.yuge.pricing.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 列表页批量展示价请求
+ */
+@Data
+public class ListingQuoteRequest {
+
+    /**
+     * 用户ID（可选）：为空时按可领取的优惠券计算，否则按该用户券包计算
+     */
+    private Long userId;
+
+    /**
+     * 商品列表（每个SKU按单件计算）
+     */
+    @NotEmpty(message = "商品列表不能为空")
+    @Size(max = 200, message = "单次最多200个SKU")
+    @Valid
+    private List<ItemInfo> items;
+
+    @Data
+    public static class ItemInfo {
+        @NotNull(message = "SKU ID不能为空")
+        private Long skuId;
+
+        @NotNull(message = "单价不能为空")
+        private BigDecimal unitPrice;
+
+        /**
+         * 商品分类ID
+         */
+        private Long categoryId;
+    }
+}
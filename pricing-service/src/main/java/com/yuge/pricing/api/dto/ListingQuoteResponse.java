@@ -0,0 +1,57 @@
+package com.yuge.pricing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 列表页批量展示价响应
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListingQuoteResponse {
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 展示价列表（与请求中的商品顺序一致）
+     */
+    private List<SkuPrice> prices;
+
+    /**
+     * 单个SKU的展示价
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SkuPrice {
+        private Long skuId;
+        private BigDecimal unitPrice;
+        /**
+         * 展示价（券后价），未命中优惠时等于单价
+         */
+        private BigDecimal displayPrice;
+        private BigDecimal discountAmount;
+        /**
+         * 最优优惠：规则类型/ID/名称，未命中为空
+         */
+        private String ruleType;
+        private Long ruleId;
+        private String ruleName;
+        /**
+         * 用户优惠券编号（按券包计算时），为空表示可领取的优惠券
+         */
+        private String userCouponNo;
+        private String description;
+    }
+}
@@ -0,0 +1,491 @@
+package com.yuge.pricing.application;
+
+import cn.hutool.core.util.HexUtil;
+import com.yuge.pricing.api.dto.LockRequest;
+import com.yuge.pricing.api.dto.LockResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 锁价快照二进制编码（sign_version = 2）
+ *
+ * 1. 字段按固定顺序写入：整数为 varint（有符号数 zigzag），金额为 scale + unscaled value，字符串为 长度 + UTF-8，
+ *    可空字段用长度/标记位 0 表示 null，不写字段名
+ * 2. 分摊明细与商品行一一对应时不重复写 skuId/title/qty/unitPrice；
+ *    优惠拆分与命中规则一一对应时只写金额（解码时按规则补全 ruleType/ruleId/ruleName），否则逐项写出
+ * 3. 编码的同时把字节流喂给 HmacSHA256（密钥 pricing.sign.secret），签名输入 = 价格锁编号 + 快照字节，
+ *    不再先拼 JSON 字符串再整体哈希
+ *
+ * 字节流第一个字节为格式版本，后续版本追加字段时升版本号
+ */
+@Component
+public class LockSnapshotCodec {
+
+    /**
+     * 格式版本（与签名版本一致）
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final int ALLOCATIONS_ALIGNED = 0;
+    private static final int ALLOCATIONS_EXPLICIT = 1;
+
+    private static final int BREAKDOWNS_NULL = 0;
+    private static final int BREAKDOWNS_ALIGNED = 1;
+    private static final int BREAKDOWNS_EXPLICIT = 2;
+
+    private final SecretKeySpec signKey;
+    private final ThreadLocal<Mac> macs;
+
+    public LockSnapshotCodec(@Value("${pricing.sign.secret:ymall-pricing-secret-key}") String signSecret) {
+        this.signKey = new SecretKeySpec(signSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                return Mac.getInstance(HMAC_ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * 编码并签名
+     */
+    public Encoded encode(String priceLockNo, PricingService.LockSnapshot snapshot) {
+        Mac mac = macs.get();
+        try {
+            mac.init(signKey);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        mac.update(priceLockNo.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        try (Writer out = new Writer(new MacOutputStream(buffer, mac))) {
+            writeSnapshot(out, snapshot);
+        } catch (IOException e) {
+            throw new IllegalStateException("锁价快照编码失败", e);
+        }
+        return new Encoded(buffer.toByteArray(), HexUtil.encodeHexStr(mac.doFinal()));
+    }
+
+    public PricingService.LockSnapshot decode(byte[] bytes) {
+        try (Reader in = new Reader(bytes)) {
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("不支持的锁价快照版本: " + version);
+            }
+            return readSnapshot(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("锁价快照解码失败", e);
+        }
+    }
+
+    /**
+     * 签名比较（常量时间）
+     */
+    public static boolean signatureEquals(String expected, String actual) {
+        if (expected == null || actual == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeSnapshot(Writer out, PricingService.LockSnapshot snapshot) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeNullableLong(snapshot.getUserId());
+        out.writeStrings(snapshot.getUserCouponNos());
+        out.writeDecimal(snapshot.getOriginalAmount());
+        out.writeDecimal(snapshot.getTotalDiscount());
+        out.writeDecimal(snapshot.getPayableAmount());
+
+        List<LockRequest.ItemInfo> items = orEmpty(snapshot.getItems());
+        out.writeVarLong(items.size());
+        for (LockRequest.ItemInfo item : items) {
+            out.writeNullableLong(item.getSkuId());
+            out.writeNullableLong(item.getQty() != null ? item.getQty().longValue() : null);
+            out.writeDecimal(item.getUnitPrice());
+            out.writeString(item.getTitle());
+            out.writeNullableLong(item.getCategoryId());
+        }
+
+        List<PromotionResult.RuleHit> rules = orEmpty(snapshot.getHitRules());
+        out.writeVarLong(rules.size());
+        for (PromotionResult.RuleHit rule : rules) {
+            out.writeString(rule.getRuleType());
+            out.writeNullableLong(rule.getRuleId());
+            out.writeString(rule.getRuleName());
+            out.writeString(rule.getUserCouponNo());
+            out.writeString(rule.getDiscountType());
+            out.writeDecimal(rule.getThresholdAmount());
+            out.writeDecimal(rule.getDiscountAmount());
+            out.writeString(rule.getDescription());
+        }
+
+        List<LockResponse.AllocationDetail> allocations = orEmpty(snapshot.getAllocations());
+        boolean aligned = alignedWithItems(allocations, items);
+        out.writeByte(aligned ? ALLOCATIONS_ALIGNED : ALLOCATIONS_EXPLICIT);
+        out.writeVarLong(allocations.size());
+        for (LockResponse.AllocationDetail allocation : allocations) {
+            if (!aligned) {
+                out.writeNullableLong(allocation.getSkuId());
+                out.writeString(allocation.getTitle());
+                out.writeNullableLong(allocation.getQty() != null ? allocation.getQty().longValue() : null);
+                out.writeDecimal(allocation.getUnitPrice());
+            }
+            out.writeDecimal(allocation.getLineOriginalAmount());
+            out.writeDecimal(allocation.getLineDiscountAmount());
+            out.writeDecimal(allocation.getLinePayableAmount());
+            writeBreakdowns(out, allocation.getDiscountBreakdowns(), rules);
+        }
+    }
+
+    private void writeBreakdowns(Writer out, List<LockResponse.DiscountBreakdown> breakdowns,
+                                 List<PromotionResult.RuleHit> rules) throws IOException {
+        if (breakdowns == null) {
+            out.writeByte(BREAKDOWNS_NULL);
+            return;
+        }
+        if (alignedWithRules(breakdowns, rules)) {
+            out.writeByte(BREAKDOWNS_ALIGNED);
+            out.writeVarLong(breakdowns.size());
+            for (LockResponse.DiscountBreakdown breakdown : breakdowns) {
+                out.writeDecimal(breakdown.getDiscountAmount());
+            }
+            return;
+        }
+        out.writeByte(BREAKDOWNS_EXPLICIT);
+        out.writeVarLong(breakdowns.size());
+        for (LockResponse.DiscountBreakdown breakdown : breakdowns) {
+            out.writeString(breakdown.getRuleType());
+            out.writeNullableLong(breakdown.getRuleId());
+            out.writeString(breakdown.getRuleName());
+            out.writeDecimal(breakdown.getDiscountAmount());
+        }
+    }
+
+    private PricingService.LockSnapshot readSnapshot(Reader in) throws IOException {
+        PricingService.LockSnapshot snapshot = new PricingService.LockSnapshot();
+        snapshot.setUserId(in.readNullableLong());
+        snapshot.setUserCouponNos(in.readStrings());
+        snapshot.setOriginalAmount(in.readDecimal());
+        snapshot.setTotalDiscount(in.readDecimal());
+        snapshot.setPayableAmount(in.readDecimal());
+
+        int itemCount = in.readCount();
+        List<LockRequest.ItemInfo> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            LockRequest.ItemInfo item = new LockRequest.ItemInfo();
+            item.setSkuId(in.readNullableLong());
+            item.setQty(toInteger(in.readNullableLong()));
+            item.setUnitPrice(in.readDecimal());
+            item.setTitle(in.readString());
+            item.setCategoryId(in.readNullableLong());
+            items.add(item);
+        }
+        snapshot.setItems(items);
+
+        int ruleCount = in.readCount();
+        List<PromotionResult.RuleHit> rules = new ArrayList<>(ruleCount);
+        for (int r = 0; r < ruleCount; r++) {
+            PromotionResult.RuleHit rule = new PromotionResult.RuleHit();
+            rule.setRuleType(in.readString());
+            rule.setRuleId(in.readNullableLong());
+            rule.setRuleName(in.readString());
+            rule.setUserCouponNo(in.readString());
+            rule.setDiscountType(in.readString());
+            rule.setThresholdAmount(in.readDecimal());
+            rule.setDiscountAmount(in.readDecimal());
+            rule.setDescription(in.readString());
+            rules.add(rule);
+        }
+        snapshot.setHitRules(rules);
+
+        boolean aligned = in.readUnsignedByte() == ALLOCATIONS_ALIGNED;
+        int allocationCount = in.readCount();
+        List<LockResponse.AllocationDetail> allocations = new ArrayList<>(allocationCount);
+        for (int i = 0; i < allocationCount; i++) {
+            LockResponse.AllocationDetail.AllocationDetailBuilder builder = LockResponse.AllocationDetail.builder();
+            if (aligned) {
+                LockRequest.ItemInfo item = items.get(i);
+                builder.skuId(item.getSkuId()).title(item.getTitle()).qty(item.getQty()).unitPrice(item.getUnitPrice());
+            } else {
+                builder.skuId(in.readNullableLong())
+                        .title(in.readString())
+                        .qty(toInteger(in.readNullableLong()))
+                        .unitPrice(in.readDecimal());
+            }
+            allocations.add(builder.lineOriginalAmount(in.readDecimal())
+                    .lineDiscountAmount(in.readDecimal())
+                    .linePayableAmount(in.readDecimal())
+                    .discountBreakdowns(readBreakdowns(in, rules))
+                    .build());
+        }
+        snapshot.setAllocations(allocations);
+        return snapshot;
+    }
+
+    private List<LockResponse.DiscountBreakdown> readBreakdowns(Reader in, List<PromotionResult.RuleHit> rules)
+            throws IOException {
+        int mode = in.readUnsignedByte();
+        if (mode == BREAKDOWNS_NULL) {
+            return null;
+        }
+        int count = in.readCount();
+        List<LockResponse.DiscountBreakdown> breakdowns = new ArrayList<>(count);
+        for (int r = 0; r < count; r++) {
+            if (mode == BREAKDOWNS_ALIGNED) {
+                PromotionResult.RuleHit rule = rules.get(r);
+                breakdowns.add(LockResponse.DiscountBreakdown.builder()
+                        .ruleType(rule.getRuleType())
+                        .ruleId(rule.getRuleId())
+                        .ruleName(rule.getRuleName())
+                        .discountAmount(in.readDecimal())
+                        .build());
+            } else {
+                breakdowns.add(LockResponse.DiscountBreakdown.builder()
+                        .ruleType(in.readString())
+                        .ruleId(in.readNullableLong())
+                        .ruleName(in.readString())
+                        .discountAmount(in.readDecimal())
+                        .build());
+            }
+        }
+        return breakdowns;
+    }
+
+    private static boolean alignedWithItems(List<LockResponse.AllocationDetail> allocations,
+                                            List<LockRequest.ItemInfo> items) {
+        if (allocations.size() != items.size()) {
+            return false;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            LockResponse.AllocationDetail allocation = allocations.get(i);
+            LockRequest.ItemInfo item = items.get(i);
+            if (!Objects.equals(allocation.getSkuId(), item.getSkuId())
+                    || !Objects.equals(allocation.getTitle(), item.getTitle())
+                    || !Objects.equals(allocation.getQty(), item.getQty())
+                    || !Objects.equals(allocation.getUnitPrice(), item.getUnitPrice())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean alignedWithRules(List<LockResponse.DiscountBreakdown> breakdowns,
+                                            List<PromotionResult.RuleHit> rules) {
+        if (breakdowns.size() > rules.size()) {
+            return false;
+        }
+        for (int r = 0; r < breakdowns.size(); r++) {
+            LockResponse.DiscountBreakdown breakdown = breakdowns.get(r);
+            PromotionResult.RuleHit rule = rules.get(r);
+            if (!Objects.equals(breakdown.getRuleType(), rule.getRuleType())
+                    || !Objects.equals(breakdown.getRuleId(), rule.getRuleId())
+                    || !Objects.equals(breakdown.getRuleName(), rule.getRuleName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : List.of();
+    }
+
+    private static Integer toInteger(Long value) {
+        return value != null ? Math.toIntExact(value) : null;
+    }
+
+    /**
+     * 编码结果
+     */
+    public record Encoded(byte[] bytes, String signature) {
+    }
+
+    /**
+     * 写入时同步更新 HMAC
+     */
+    private static final class MacOutputStream extends FilterOutputStream {
+        private final Mac mac;
+
+        private MacOutputStream(OutputStream out, Mac mac) {
+            super(out);
+            this.mac = mac;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            mac.update((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            mac.update(b, off, len);
+        }
+    }
+
+    private static final class Writer extends DataOutputStream {
+
+        private Writer(OutputStream out) {
+            super(out);
+        }
+
+        void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        /**
+         * 0 = null，否则 zigzag(value) + 1（仅 Long.MIN_VALUE 与 null 冲突，业务字段不会出现）
+         */
+        void writeNullableLong(Long value) throws IOException {
+            writeVarLong(value == null ? 0 : ((value << 1) ^ (value >> 63)) + 1);
+        }
+
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            write(bytes);
+        }
+
+        void writeStrings(List<String> values) throws IOException {
+            if (values == null) {
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(values.size() + 1L);
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        /**
+         * 头 = 0 表示 null，否则 (zigzag(scale) << 1 | 大数标记) + 1；
+         * unscaled value 能放进 long 时写 zigzag varint，否则写 长度 + 补码字节
+         */
+        void writeDecimal(BigDecimal value) throws IOException {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            int scale = value.scale();
+            long zigzagScale = (scale << 1) ^ (scale >> 31);
+            BigInteger unscaled = value.unscaledValue();
+            boolean big = unscaled.bitLength() > 63;
+            writeVarLong(((zigzagScale << 1) | (big ? 1 : 0)) + 1);
+            if (big) {
+                byte[] bytes = unscaled.toByteArray();
+                writeVarLong(bytes.length);
+                write(bytes);
+            } else {
+                long v = unscaled.longValue();
+                writeVarLong((v << 1) ^ (v >> 63));
+            }
+        }
+    }
+
+    private static final class Reader extends DataInputStream {
+
+        private Reader(byte[] bytes) {
+            super(new ByteArrayInputStream(bytes));
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("varint 过长");
+        }
+
+        int readCount() throws IOException {
+            return Math.toIntExact(readVarLong());
+        }
+
+        Long readNullableLong() throws IOException {
+            long raw = readVarLong();
+            if (raw == 0) {
+                return null;
+            }
+            long zigzag = raw - 1;
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        String readString() throws IOException {
+            int length = readCount();
+            if (length == 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length - 1];
+            readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        List<String> readStrings() throws IOException {
+            int size = readCount();
+            if (size == 0) {
+                return null;
+            }
+            List<String> values = new ArrayList<>(size - 1);
+            for (int i = 0; i < size - 1; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        BigDecimal readDecimal() throws IOException {
+            long header = readVarLong();
+            if (header == 0) {
+                return null;
+            }
+            header -= 1;
+            boolean big = (header & 1) == 1;
+            long zigzagScale = header >>> 1;
+            int scale = (int) ((zigzagScale >>> 1) ^ -(zigzagScale & 1));
+            BigInteger unscaled;
+            if (big) {
+                byte[] bytes = new byte[readCount()];
+                readFully(bytes);
+                unscaled = new BigInteger(bytes);
+            } else {
+                long zigzag = readVarLong();
+                unscaled = BigInteger.valueOf((zigzag >>> 1) ^ -(zigzag & 1));
+            }
+            return new BigDecimal(unscaled, scale);
+        }
+    }
+}
@@ -8,25 +8,35 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yuge.platform.infra.common.ErrorCode;
 import com.yuge.platform.infra.exception.BizException;
 import com.yuge.pricing.api.dto.*;
+import com.yuge.pricing.domain.allocation.DiscountAllocator;
 import com.yuge.pricing.domain.entity.PriceLock;
 import com.yuge.pricing.domain.enums.PriceLockStatus;
+import com.yuge.pricing.infrastructure.cache.ListingPriceCache;
+import com.yuge.pricing.infrastructure.cache.QuoteCache;
+import com.yuge.pricing.infrastructure.redis.PriceLockRedisStore;
+import com.yuge.pricing.infrastructure.repository.PriceLockPersister;
 import com.yuge.pricing.infrastructure.repository.PriceLockRepository;
+import com.yuge.pricing.infrastructure.task.CouponUnlockRetryTask;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 /**
  * 定价应用服务
+ *
+ * 价格锁以Redis为热存储（PriceLockRedisStore），状态变化异步落库（PriceLockPersister）；
+ * Redis中不存在的锁（Redis上线前创建、过期宽限期后、Redis写入失败时同步落库的锁）按数据库处理
  */
 @Slf4j
 @Service
@@ -34,18 +44,43 @@ import java.util.stream.Collectors;
 public class PricingService {
 
     private final PriceLockRepository priceLockRepository;
+    private final PriceLockRedisStore priceLockRedisStore;
+    private final PriceLockPersister priceLockPersister;
     private final PromotionClient promotionClient;
+    private final QuoteCache quoteCache;
+    private final ListingPriceCache listingPriceCache;
+    private final LockSnapshotCodec lockSnapshotCodec;
+    private final CouponUnlockRetryTask couponUnlockRetryTask;
     private final ObjectMapper objectMapper;
 
     @Value("${pricing.sign.secret:ymall-pricing-secret-key}")
     private String signSecret;
 
-    private static final int CURRENT_SIGN_VERSION = 1;
+    /**
+     * 新锁的签名版本：2 = 二进制快照 + HMAC（LockSnapshotCodec），1 = JSON快照 + SHA-256（滚动发布期间回退用）
+     * 读取时按每行的 sign_version 解析，两种版本可以共存
+     */
+    @Value("${pricing.sign.version:2}")
+    private int signVersion;
+
+    private static final int SIGN_VERSION_JSON = 1;
 
     /**
      * 试算（不锁定）
+     * 购物车指纹未变且缓存未失效时直接返回上次结果，不调用促销服务
      */
     public QuoteResponse quote(QuoteRequest request) {
+        QuoteCache.Slot slot = quoteCache.slot(request);
+        QuoteResponse cached = slot.get();
+        if (cached != null) {
+            return cached;
+        }
+        QuoteResponse response = doQuote(request);
+        slot.put(response);
+        return response;
+    }
+
+    private QuoteResponse doQuote(QuoteRequest request) {
         Long userId = request.getUserId();
         List<QuoteRequest.ItemInfo> items = request.getItems();
         List<String> userCouponNos = request.getUserCouponNos();
@@ -74,10 +109,65 @@ public class PricingService {
                 .build();
     }
 
+    /**
+     * 列表页批量展示价（不锁定）
+     * 按SKU查缓存，未命中的SKU一次调用促销服务批量计算；促销服务不可用时按单价展示且不写缓存
+     */
+    public ListingQuoteResponse quoteListing(ListingQuoteRequest request) {
+        Long userId = request.getUserId();
+        List<ListingQuoteRequest.ItemInfo> items = request.getItems();
+        ListingPriceCache.Group group = listingPriceCache.group(userId);
+
+        // 1. 查缓存
+        List<ListingQuoteResponse.SkuPrice> prices = new ArrayList<>(items.size());
+        List<Integer> missIndexes = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            ListingQuoteResponse.SkuPrice cached = group.get(items.get(i));
+            prices.add(cached);
+            if (cached == null) {
+                missIndexes.add(i);
+            }
+        }
+
+        // 2. 未命中的SKU一次批量计算
+        if (!missIndexes.isEmpty()) {
+            List<ListingQuoteRequest.ItemInfo> misses = new ArrayList<>(missIndexes.size());
+            missIndexes.forEach(i -> misses.add(items.get(i)));
+            List<PromotionDisplayPrice> computed = null;
+            try {
+                computed = promotionClient.displayPrices(userId, misses);
+            } catch (BizException e) {
+                log.warn("[PricingService] Listing display prices degraded to unit price, userId={}, skus={}, error={}",
+                        userId, misses.size(), e.getMessage());
+            }
+            for (int j = 0; j < misses.size(); j++) {
+                ListingQuoteRequest.ItemInfo item = misses.get(j);
+                ListingQuoteResponse.SkuPrice price;
+                if (computed != null) {
+                    price = convertSkuPrice(computed.get(j));
+                    group.put(item, price);
+                } else {
+                    price = ListingQuoteResponse.SkuPrice.builder()
+                            .skuId(item.getSkuId())
+                            .unitPrice(item.getUnitPrice())
+                            .displayPrice(item.getUnitPrice())
+                            .discountAmount(BigDecimal.ZERO)
+                            .build();
+                }
+                prices.set(missIndexes.get(j), price);
+            }
+        }
+
+        return ListingQuoteResponse.builder()
+                .userId(userId)
+                .prices(prices)
+                .build();
+    }
+
     /**
      * 锁价
+     * 先锁券再写价格锁：写入Redis后异步落库，Redis不可用时同步写库；写入失败时解锁已锁定的券
      */
-    @Transactional(rollbackFor = Exception.class)
     public LockResponse lock(LockRequest request) {
         Long userId = request.getUserId();
         List<LockRequest.ItemInfo> items = request.getItems();
@@ -104,6 +194,14 @@ public class PricingService {
 
         PromotionResult promotionResult = promotionClient.applyPromotion(userId, quoteItems, userCouponNos);
 
+        // 只锁定实际命中的券（促销服务已排除他人、不可用、不满足门槛的券）
+        List<String> lockedCouponNos = promotionResult.getHitRules() == null ? List.of()
+                : promotionResult.getHitRules().stream()
+                        .map(PromotionResult.RuleHit::getUserCouponNo)
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .collect(Collectors.toList());
+
         // 3. 计算分摊
         List<LockResponse.AllocationDetail> allocations = calculateAllocationForLock(
                 items, promotionResult.getTotalDiscount(), promotionResult.getHitRules());
@@ -115,7 +213,7 @@ public class PricingService {
         LockSnapshot snapshot = LockSnapshot.builder()
                 .userId(userId)
                 .items(items)
-                .userCouponNos(userCouponNos)
+                .userCouponNos(lockedCouponNos)
                 .originalAmount(originalAmount)
                 .totalDiscount(promotionResult.getTotalDiscount())
                 .payableAmount(promotionResult.getPayableAmount())
@@ -123,8 +221,16 @@ public class PricingService {
                 .allocations(allocations)
                 .build();
 
-        // 6. 生成签名
-        String signature = generateSignature(priceLockNo, userId, promotionResult.getPayableAmount(), snapshot);
+        // 6. 编码快照并生成签名
+        String signature;
+        byte[] snapshotBin = null;
+        if (signVersion == SIGN_VERSION_JSON) {
+            signature = generateSignature(priceLockNo, userId, promotionResult.getPayableAmount(), snapshot);
+        } else {
+            LockSnapshotCodec.Encoded encoded = lockSnapshotCodec.encode(priceLockNo, snapshot);
+            signature = encoded.signature();
+            snapshotBin = encoded.bytes();
+        }
 
         // 7. 保存价格锁
         LocalDateTime now = LocalDateTime.now();
@@ -138,25 +244,45 @@ public class PricingService {
         priceLock.setOriginalAmount(originalAmount);
         priceLock.setTotalDiscount(promotionResult.getTotalDiscount());
         priceLock.setPayableAmount(promotionResult.getPayableAmount());
-        priceLock.setSnapshotJson(toJson(snapshot));
-        priceLock.setAllocationJson(toJson(allocations));
-        priceLock.setCouponNosJson(toJson(userCouponNos));
+        if (snapshotBin != null) {
+            priceLock.setSnapshotBin(snapshotBin);
+        } else {
+            priceLock.setSnapshotJson(toJson(snapshot));
+            priceLock.setAllocationJson(toJson(allocations));
+        }
+        priceLock.setCouponNosJson(toJson(lockedCouponNos));
         priceLock.setSignature(signature);
-        priceLock.setSignVersion(CURRENT_SIGN_VERSION);
+        priceLock.setSignVersion(signVersion == SIGN_VERSION_JSON ? SIGN_VERSION_JSON : LockSnapshotCodec.FORMAT_VERSION);
         priceLock.setLockedAt(now);
         priceLock.setExpireAt(expireAt);
-
-        priceLockRepository.save(priceLock);
+        priceLock.setVersion(1);
 
         // 8. 锁定优惠券（如果有）
-        if (userCouponNos != null && !userCouponNos.isEmpty()) {
-            promotionClient.lockCoupons(userCouponNos, priceLockNo, expireAt);
+        boolean couponsLocked = !lockedCouponNos.isEmpty();
+        if (couponsLocked) {
+            promotionClient.lockCoupons(userId, lockedCouponNos, priceLockNo, expireAt);
+            quoteCache.invalidateUser(userId);
+            listingPriceCache.invalidateUser(userId);
+        }
+
+        // 9. 保存价格锁
+        try {
+            if (priceLockRedisStore.create(priceLock)) {
+                priceLockPersister.insertAsync(priceLock);
+            } else {
+                priceLockRepository.save(priceLock);
+            }
+        } catch (RuntimeException e) {
+            if (couponsLocked && !promotionClient.unlockCoupons(lockedCouponNos, priceLockNo)) {
+                couponUnlockRetryTask.enqueue(priceLockNo, lockedCouponNos);
+            }
+            throw e;
         }
 
         log.info("[PricingService] Price locked, priceLockNo={}, userId={}, payableAmount={}, expireAt={}",
                 priceLockNo, userId, promotionResult.getPayableAmount(), expireAt);
 
-        // 9. 构建响应
+        // 10. 构建响应
         return LockResponse.builder()
                 .priceLockNo(priceLockNo)
                 .userId(userId)
@@ -165,12 +291,12 @@ public class PricingService {
                 .totalDiscount(promotionResult.getTotalDiscount())
                 .payableAmount(promotionResult.getPayableAmount())
                 .signature(signature)
-                .signVersion(CURRENT_SIGN_VERSION)
+                .signVersion(priceLock.getSignVersion())
                 .lockedAt(now)
                 .expireAt(expireAt)
                 .promotionHits(convertPromotionHitsForLock(promotionResult.getHitRules()))
                 .allocations(allocations)
-                .usedCouponNos(userCouponNos)
+                .usedCouponNos(lockedCouponNos)
                 .build();
     }
 
@@ -178,32 +304,39 @@ public class PricingService {
      * 查询价格锁
      */
     public LockResponse getPriceLock(String priceLockNo) {
-        PriceLock priceLock = priceLockRepository.findByPriceLockNo(priceLockNo)
-                .orElseThrow(() -> new BizException(ErrorCode.RESOURCE_NOT_FOUND, "价格锁不存在: " + priceLockNo));
-
-        return buildLockResponse(priceLock);
+        return buildLockResponse(findPriceLock(priceLockNo));
     }
 
     /**
      * 验证价格锁签名
      */
     public boolean verifySignature(String priceLockNo, String signature) {
-        PriceLock priceLock = priceLockRepository.findByPriceLockNo(priceLockNo)
-                .orElseThrow(() -> new BizException(ErrorCode.RESOURCE_NOT_FOUND, "价格锁不存在: " + priceLockNo));
+        return LockSnapshotCodec.signatureEquals(findPriceLock(priceLockNo).getSignature(), signature);
+    }
 
-        return signature.equals(priceLock.getSignature());
+    private PriceLock findPriceLock(String priceLockNo) {
+        return priceLockRedisStore.find(priceLockNo)
+                .or(() -> priceLockRepository.findByPriceLockNo(priceLockNo))
+                .orElseThrow(() -> new BizException(ErrorCode.RESOURCE_NOT_FOUND, "价格锁不存在: " + priceLockNo));
     }
 
     /**
-     * 使用价格锁（下单时调用）
+     * 使用价格锁（一步完成，兼容旧调用方；下单请使用 预占 -> 确认/释放）
      */
-    @Transactional(rollbackFor = Exception.class)
     public LockResponse usePriceLock(String priceLockNo, String orderNo, String signature) {
+        PriceLockRedisStore.Transition transition = priceLockRedisStore.use(priceLockNo, orderNo, signature);
+        if (transition.isFound()) {
+            checkAvailable(transition);
+            priceLockPersister.updateAsync(transition.getPriceLock());
+            log.info("[PricingService] Price lock used, priceLockNo={}, orderNo={}", priceLockNo, orderNo);
+            return buildLockResponse(transition.getPriceLock());
+        }
+
         PriceLock priceLock = priceLockRepository.findByPriceLockNo(priceLockNo)
                 .orElseThrow(() -> new BizException(ErrorCode.RESOURCE_NOT_FOUND, "价格锁不存在: " + priceLockNo));
 
         // 1. 验证签名
-        if (!signature.equals(priceLock.getSignature())) {
+        if (!LockSnapshotCodec.signatureEquals(priceLock.getSignature(), signature)) {
             throw new BizException(ErrorCode.INVALID_PARAM, "签名验证失败");
         }
 
@@ -231,10 +364,138 @@ public class PricingService {
     }
 
     /**
-     * 取消价格锁
+     * 预占价格锁（下单第一阶段，在订单本地事务之前调用）
+     * LOCKED -> RESERVED，预占后其他订单不可再使用；同一订单重复预占直接返回
+     */
+    public LockResponse reservePriceLock(String priceLockNo, String orderNo, String signature) {
+        PriceLockRedisStore.Transition transition = priceLockRedisStore.reserve(priceLockNo, orderNo, signature);
+        if (transition.isFound()) {
+            checkAvailable(transition);
+            if (transition.isChanged()) {
+                priceLockPersister.updateAsync(transition.getPriceLock());
+                log.info("[PricingService] Price lock reserved, priceLockNo={}, orderNo={}", priceLockNo, orderNo);
+            }
+            return buildLockResponse(transition.getPriceLock());
+        }
+
+        PriceLock priceLock = priceLockRepository.findByPriceLockNo(priceLockNo)
+                .orElseThrow(() -> new BizException(ErrorCode.RESOURCE_NOT_FOUND, "价格锁不存在: " + priceLockNo));
+
+        // 1. 验证签名
+        if (!LockSnapshotCodec.signatureEquals(priceLock.getSignature(), signature)) {
+            throw new BizException(ErrorCode.INVALID_PARAM, "签名验证失败");
+        }
+
+        // 2. 幂等：已被本订单预占/使用
+        if (orderNo.equals(priceLock.getUsedOrderNo())
+                && (PriceLockStatus.RESERVED.getCode().equals(priceLock.getStatus())
+                || PriceLockStatus.USED.getCode().equals(priceLock.getStatus()))) {
+            return buildLockResponse(priceLock);
+        }
+
+        // 3. 检查状态
+        if (!PriceLockStatus.LOCKED.getCode().equals(priceLock.getStatus())) {
+            throw new BizException(ErrorCode.INVALID_PARAM, "价格锁状态不可用: " + priceLock.getStatus());
+        }
+
+        // 4. 检查是否过期
+        if (LocalDateTime.now().isAfter(priceLock.getExpireAt())) {
+            throw new BizException(ErrorCode.INVALID_PARAM, "价格锁已过期");
+        }
+
+        // 5. CAS预占
+        boolean success = priceLockRepository.casReserve(priceLock.getId(), orderNo, priceLock.getVersion());
+        if (!success) {
+            throw new BizException(ErrorCode.DB_OPTIMISTIC_LOCK, "价格锁预占失败，请重试");
+        }
+
+        log.info("[PricingService] Price lock reserved, priceLockNo={}, orderNo={}", priceLockNo, orderNo);
+
+        priceLock = priceLockRepository.findByPriceLockNo(priceLockNo).orElse(priceLock);
+        return buildLockResponse(priceLock);
+    }
+
+    /**
+     * 确认使用价格锁（订单事务提交后调用，幂等）
+     * RESERVED -> USED
+     */
+    public void confirmPriceLock(String priceLockNo, String orderNo) {
+        PriceLockRedisStore.Transition transition = priceLockRedisStore.confirm(priceLockNo, orderNo);
+        if (transition.isFound()) {
+            PriceLock priceLock = transition.getPriceLock();
+            if (transition.getCode() == PriceLockRedisStore.Code.STATE_INVALID) {
+                throw new BizException(ErrorCode.STATE_INVALID,
+                        String.format("价格锁未被该订单预占, status=%s, usedOrderNo=%s",
+                                priceLock.getStatus(), priceLock.getUsedOrderNo()));
+            }
+            if (transition.isChanged()) {
+                priceLockPersister.updateAsync(priceLock);
+            }
+            log.info("[PricingService] Price lock confirmed, priceLockNo={}, orderNo={}", priceLockNo, orderNo);
+            return;
+        }
+
+        if (priceLockRepository.confirmReserved(priceLockNo, orderNo)) {
+            log.info("[PricingService] Price lock confirmed, priceLockNo={}, orderNo={}", priceLockNo, orderNo);
+            return;
+        }
+
+        PriceLock priceLock = priceLockRepository.findByPriceLockNo(priceLockNo)
+                .orElseThrow(() -> new BizException(ErrorCode.RESOURCE_NOT_FOUND, "价格锁不存在: " + priceLockNo));
+        if (PriceLockStatus.USED.getCode().equals(priceLock.getStatus()) && orderNo.equals(priceLock.getUsedOrderNo())) {
+            log.info("[PricingService] Price lock already confirmed, priceLockNo={}, orderNo={}", priceLockNo, orderNo);
+            return;
+        }
+        throw new BizException(ErrorCode.STATE_INVALID,
+                String.format("价格锁未被该订单预占, status=%s, usedOrderNo=%s",
+                        priceLock.getStatus(), priceLock.getUsedOrderNo()));
+    }
+
+    /**
+     * 释放价格锁预占（订单未创建成功时的补偿，幂等）
+     * RESERVED -> LOCKED，用户可以用同一价格锁重新下单
+     */
+    public void releasePriceLock(String priceLockNo, String orderNo) {
+        PriceLockRedisStore.Transition transition = priceLockRedisStore.release(priceLockNo, orderNo);
+        if (transition.isChanged()) {
+            priceLockPersister.updateAsync(transition.getPriceLock());
+            log.info("[PricingService] Price lock reservation released, priceLockNo={}, orderNo={}",
+                    priceLockNo, orderNo);
+            return;
+        }
+        if (transition.isFound()) {
+            log.info("[PricingService] Price lock not reserved by order, skip release, priceLockNo={}, orderNo={}",
+                    priceLockNo, orderNo);
+            return;
+        }
+
+        if (priceLockRepository.releaseReserved(priceLockNo, orderNo)) {
+            log.info("[PricingService] Price lock reservation released, priceLockNo={}, orderNo={}",
+                    priceLockNo, orderNo);
+        } else {
+            log.info("[PricingService] Price lock not reserved by order, skip release, priceLockNo={}, orderNo={}",
+                    priceLockNo, orderNo);
+        }
+    }
+
+    /**
+     * 取消价格锁（用户放弃锁价，仅未使用的锁）
+     * 已被订单预占/使用的锁只能随所属订单取消，见 cancelPriceLockForOrder
      */
-    @Transactional(rollbackFor = Exception.class)
     public void cancelPriceLock(String priceLockNo) {
+        PriceLockRedisStore.Transition transition = priceLockRedisStore.cancel(priceLockNo);
+        if (transition.isChanged()) {
+            priceLockPersister.updateAsync(transition.getPriceLock());
+            unlockCoupons(transition.getPriceLock());
+            log.info("[PricingService] Price lock canceled, priceLockNo={}", priceLockNo);
+            return;
+        }
+        if (transition.isFound()) {
+            log.info("[PricingService] Price lock already not locked, priceLockNo={}, status={}",
+                    priceLockNo, transition.getPriceLock().getStatus());
+            return;
+        }
+
         PriceLock priceLock = priceLockRepository.findByPriceLockNo(priceLockNo)
                 .orElseThrow(() -> new BizException(ErrorCode.RESOURCE_NOT_FOUND, "价格锁不存在: " + priceLockNo));
 
@@ -246,15 +507,68 @@ public class PricingService {
 
         boolean success = priceLockRepository.casCancel(priceLock.getId(), priceLock.getVersion());
         if (success) {
-            // 解锁优惠券
-            List<String> couponNos = fromJson(priceLock.getCouponNosJson(), new TypeReference<List<String>>() {});
-            if (couponNos != null && !couponNos.isEmpty()) {
-                promotionClient.unlockCoupons(couponNos, priceLockNo);
-            }
+            unlockCoupons(priceLock);
             log.info("[PricingService] Price lock canceled, priceLockNo={}", priceLockNo);
         }
     }
 
+    /**
+     * 随订单取消价格锁（订单取消，含支付超时自动取消时调用，幂等）
+     * RESERVED/USED -> CANCELED，只取消本订单预占/使用的锁，解锁优惠券
+     */
+    public void cancelPriceLockForOrder(String priceLockNo, String orderNo) {
+        PriceLockRedisStore.Transition transition = priceLockRedisStore.cancelForOrder(priceLockNo, orderNo);
+        if (transition.isChanged()) {
+            priceLockPersister.updateAsync(transition.getPriceLock());
+            unlockCoupons(transition.getPriceLock());
+            log.info("[PricingService] Price lock canceled with order, priceLockNo={}, orderNo={}",
+                    priceLockNo, orderNo);
+            return;
+        }
+        if (transition.isFound()) {
+            log.info("[PricingService] Price lock not held by order, skip cancel, priceLockNo={}, orderNo={}, status={}",
+                    priceLockNo, orderNo, transition.getPriceLock().getStatus());
+            return;
+        }
+
+        if (priceLockRepository.cancelForOrder(priceLockNo, orderNo)) {
+            priceLockRepository.findByPriceLockNo(priceLockNo).ifPresent(this::unlockCoupons);
+            log.info("[PricingService] Price lock canceled with order, priceLockNo={}, orderNo={}",
+                    priceLockNo, orderNo);
+        } else {
+            log.info("[PricingService] Price lock not held by order, skip cancel, priceLockNo={}, orderNo={}",
+                    priceLockNo, orderNo);
+        }
+    }
+
+    /**
+     * 解锁价格锁占用的优惠券，失败时登记重试
+     */
+    private void unlockCoupons(PriceLock priceLock) {
+        List<String> couponNos = fromJson(priceLock.getCouponNosJson(), new TypeReference<List<String>>() {});
+        if (couponNos != null && !couponNos.isEmpty()) {
+            if (!promotionClient.unlockCoupons(couponNos, priceLock.getPriceLockNo())) {
+                couponUnlockRetryTask.enqueue(priceLock.getPriceLockNo(), couponNos);
+            }
+            quoteCache.invalidateUser(priceLock.getUserId());
+            listingPriceCache.invalidateUser(priceLock.getUserId());
+        }
+    }
+
+    /**
+     * 预占/使用脚本的校验结果转为业务异常（与数据库路径的报错一致）
+     */
+    private void checkAvailable(PriceLockRedisStore.Transition transition) {
+        switch (transition.getCode()) {
+            case SIGN_INVALID -> throw new BizException(ErrorCode.INVALID_PARAM, "签名验证失败");
+            case STATE_INVALID -> throw new BizException(ErrorCode.INVALID_PARAM,
+                    "价格锁状态不可用: " + transition.getPriceLock().getStatus());
+            case EXPIRED -> throw new BizException(ErrorCode.INVALID_PARAM, "价格锁已过期");
+            default -> {
+            }
+        }
+    }
+
     /**
      * 计算分摊（按金额比例分摊优惠）
      */
@@ -263,63 +577,35 @@ public class PricingService {
             BigDecimal totalDiscount,
             List<PromotionResult.RuleHit> hitRules) {
 
-        // 计算总金额
-        BigDecimal totalAmount = items.stream()
-                .map(item -> item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQty())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        List<QuoteResponse.AllocationDetail> allocations = new ArrayList<>();
-        BigDecimal allocatedDiscount = BigDecimal.ZERO;
+        DiscountAllocator.Allocation allocation = allocate(items, QuoteRequest.ItemInfo::getUnitPrice,
+                QuoteRequest.ItemInfo::getQty, totalDiscount, hitRules);
 
+        List<QuoteResponse.AllocationDetail> allocations = new ArrayList<>(items.size());
         for (int i = 0; i < items.size(); i++) {
             QuoteRequest.ItemInfo item = items.get(i);
-            BigDecimal lineOriginalAmount = item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQty()));
-
-            // 按比例分摊优惠（最后一行用减法避免精度问题）
-            BigDecimal lineDiscount;
-            if (i == items.size() - 1) {
-                lineDiscount = totalDiscount.subtract(allocatedDiscount);
-            } else {
-                lineDiscount = totalAmount.compareTo(BigDecimal.ZERO) > 0
-                        ? totalDiscount.multiply(lineOriginalAmount).divide(totalAmount, 2, RoundingMode.HALF_UP)
-                        : BigDecimal.ZERO;
-                allocatedDiscount = allocatedDiscount.add(lineDiscount);
-            }
-
-            BigDecimal linePayable = lineOriginalAmount.subtract(lineDiscount);
-            if (linePayable.compareTo(BigDecimal.ZERO) < 0) {
-                linePayable = BigDecimal.ZERO;
-            }
-
-            // 构建优惠分解
-            List<QuoteResponse.DiscountBreakdown> breakdowns = new ArrayList<>();
-            if (hitRules != null && !hitRules.isEmpty() && lineDiscount.compareTo(BigDecimal.ZERO) > 0) {
-                // 简化处理：将所有规则的优惠按比例分配到每行
-                for (PromotionResult.RuleHit rule : hitRules) {
-                    BigDecimal ruleLineDiscount = totalDiscount.compareTo(BigDecimal.ZERO) > 0
-                            ? rule.getDiscountAmount().multiply(lineDiscount).divide(totalDiscount, 2, RoundingMode.HALF_UP)
-                            : BigDecimal.ZERO;
+            List<QuoteResponse.DiscountBreakdown> breakdowns = new ArrayList<>(allocation.getRuleCount());
+            if (allocation.lineDiscount(i) > 0) {
+                for (int r = 0; r < allocation.getRuleCount(); r++) {
+                    PromotionResult.RuleHit rule = hitRules.get(r);
                     breakdowns.add(QuoteResponse.DiscountBreakdown.builder()
                             .ruleType(rule.getRuleType())
                             .ruleId(rule.getRuleId())
                             .ruleName(rule.getRuleName())
-                            .discountAmount(ruleLineDiscount)
+                            .discountAmount(fromCents(allocation.ruleDiscount(i, r)))
                             .build());
                 }
             }
-
             allocations.add(QuoteResponse.AllocationDetail.builder()
                     .skuId(item.getSkuId())
                     .title(item.getTitle())
                     .qty(item.getQty())
                     .unitPrice(item.getUnitPrice())
-                    .lineOriginalAmount(lineOriginalAmount)
-                    .lineDiscountAmount(lineDiscount)
-                    .linePayableAmount(linePayable)
+                    .lineOriginalAmount(fromCents(allocation.lineAmount(i)))
+                    .lineDiscountAmount(fromCents(allocation.lineDiscount(i)))
+                    .linePayableAmount(fromCents(allocation.linePayable(i)))
                     .discountBreakdowns(breakdowns)
                     .build());
         }
-
         return allocations;
     }
 
@@ -331,64 +617,72 @@ public class PricingService {
             BigDecimal totalDiscount,
             List<PromotionResult.RuleHit> hitRules) {
 
-        BigDecimal totalAmount = items.stream()
-                .map(item -> item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQty())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        List<LockResponse.AllocationDetail> allocations = new ArrayList<>();
-        BigDecimal allocatedDiscount = BigDecimal.ZERO;
+        DiscountAllocator.Allocation allocation = allocate(items, LockRequest.ItemInfo::getUnitPrice,
+                LockRequest.ItemInfo::getQty, totalDiscount, hitRules);
 
+        List<LockResponse.AllocationDetail> allocations = new ArrayList<>(items.size());
         for (int i = 0; i < items.size(); i++) {
             LockRequest.ItemInfo item = items.get(i);
-            BigDecimal lineOriginalAmount = item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQty()));
-
-            BigDecimal lineDiscount;
-            if (i == items.size() - 1) {
-                lineDiscount = totalDiscount.subtract(allocatedDiscount);
-            } else {
-                lineDiscount = totalAmount.compareTo(BigDecimal.ZERO) > 0
-                        ? totalDiscount.multiply(lineOriginalAmount).divide(totalAmount, 2, RoundingMode.HALF_UP)
-                        : BigDecimal.ZERO;
-                allocatedDiscount = allocatedDiscount.add(lineDiscount);
-            }
-
-            BigDecimal linePayable = lineOriginalAmount.subtract(lineDiscount);
-            if (linePayable.compareTo(BigDecimal.ZERO) < 0) {
-                linePayable = BigDecimal.ZERO;
-            }
-
-            List<LockResponse.DiscountBreakdown> breakdowns = new ArrayList<>();
-            if (hitRules != null && !hitRules.isEmpty() && lineDiscount.compareTo(BigDecimal.ZERO) > 0) {
-                for (PromotionResult.RuleHit rule : hitRules) {
-                    BigDecimal ruleLineDiscount = totalDiscount.compareTo(BigDecimal.ZERO) > 0
-                            ? rule.getDiscountAmount().multiply(lineDiscount).divide(totalDiscount, 2, RoundingMode.HALF_UP)
-                            : BigDecimal.ZERO;
+            List<LockResponse.DiscountBreakdown> breakdowns = new ArrayList<>(allocation.getRuleCount());
+            if (allocation.lineDiscount(i) > 0) {
+                for (int r = 0; r < allocation.getRuleCount(); r++) {
+                    PromotionResult.RuleHit rule = hitRules.get(r);
                     breakdowns.add(LockResponse.DiscountBreakdown.builder()
                             .ruleType(rule.getRuleType())
                             .ruleId(rule.getRuleId())
                             .ruleName(rule.getRuleName())
-                            .discountAmount(ruleLineDiscount)
+                            .discountAmount(fromCents(allocation.ruleDiscount(i, r)))
                             .build());
                 }
             }
-
             allocations.add(LockResponse.AllocationDetail.builder()
                     .skuId(item.getSkuId())
                     .title(item.getTitle())
                     .qty(item.getQty())
                     .unitPrice(item.getUnitPrice())
-                    .lineOriginalAmount(lineOriginalAmount)
-                    .lineDiscountAmount(lineDiscount)
-                    .linePayableAmount(linePayable)
+                    .lineOriginalAmount(fromCents(allocation.lineAmount(i)))
+                    .lineDiscountAmount(fromCents(allocation.lineDiscount(i)))
+                    .linePayableAmount(fromCents(allocation.linePayable(i)))
                     .discountBreakdowns(breakdowns)
                     .build());
         }
-
         return allocations;
     }
 
     /**
-     * 生成签名
+     * 金额转为分后交给分摊引擎（试算、锁价共用）
+     */
+    private <T> DiscountAllocator.Allocation allocate(List<T> items,
+                                                      Function<T, BigDecimal> unitPrice,
+                                                      ToIntFunction<T> qty,
+                                                      BigDecimal totalDiscount,
+                                                      List<PromotionResult.RuleHit> hitRules) {
+        int ruleCount = hitRules != null ? hitRules.size() : 0;
+        DiscountAllocator.Allocation allocation = DiscountAllocator.begin(items.size(), ruleCount);
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            allocation.setLineAmount(i, Math.multiplyExact(toCents(unitPrice.apply(item)), qty.applyAsInt(item)));
+        }
+        for (int r = 0; r < ruleCount; r++) {
+            allocation.setRuleDiscount(r, toCents(hitRules.get(r).getDiscountAmount()));
+        }
+        return allocation.allocate(toCents(totalDiscount));
+    }
+
+    private static long toCents(BigDecimal amount) {
+        try {
+            return amount.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new BizException(ErrorCode.PARAM_INVALID, "金额最多两位小数: " + amount.toPlainString());
+        }
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * 生成签名（sign_version = 1）
      */
     private String generateSignature(String priceLockNo, Long userId, BigDecimal payableAmount, LockSnapshot snapshot) {
         String content = String.format("%s|%d|%s|%s|%s",
@@ -438,6 +732,20 @@ public class PricingService {
                 .collect(Collectors.toList());
     }
 
+    private ListingQuoteResponse.SkuPrice convertSkuPrice(PromotionDisplayPrice price) {
+        return ListingQuoteResponse.SkuPrice.builder()
+                .skuId(price.getSkuId())
+                .unitPrice(price.getUnitPrice())
+                .displayPrice(price.getDisplayPrice())
+                .discountAmount(price.getDiscountAmount())
+                .ruleType(price.getRuleType())
+                .ruleId(price.getRuleId())
+                .ruleName(price.getRuleName())
+                .userCouponNo(price.getUserCouponNo())
+                .description(price.getDescription())
+                .build();
+    }
+
     private List<QuoteResponse.AvailableCoupon> convertAvailableCoupons(List<PromotionResult.AvailableCoupon> coupons) {
         if (coupons == null) return new ArrayList<>();
         return coupons.stream()
@@ -457,15 +765,22 @@ public class PricingService {
     }
 
     private LockResponse buildLockResponse(PriceLock priceLock) {
-        List<LockResponse.AllocationDetail> allocations = fromJson(
-                priceLock.getAllocationJson(),
-                new TypeReference<List<LockResponse.AllocationDetail>>() {});
-
         List<String> couponNos = fromJson(
                 priceLock.getCouponNosJson(),
                 new TypeReference<List<String>>() {});
 
-        LockSnapshot snapshot = fromJson(priceLock.getSnapshotJson(), new TypeReference<LockSnapshot>() {});
+        // 二进制快照内含分摊明细；旧版本（JSON）分摊明细单独存放
+        LockSnapshot snapshot;
+        List<LockResponse.AllocationDetail> allocations;
+        if (priceLock.getSnapshotBin() != null) {
+            snapshot = decodeSnapshot(priceLock);
+            allocations = snapshot.getAllocations();
+        } else {
+            snapshot = fromJson(priceLock.getSnapshotJson(), new TypeReference<LockSnapshot>() {});
+            allocations = fromJson(
+                    priceLock.getAllocationJson(),
+                    new TypeReference<List<LockResponse.AllocationDetail>>() {});
+        }
         List<LockResponse.PromotionHit> promotionHits = snapshot != null
                 ? convertPromotionHitsForLock(snapshot.getHitRules())
                 : new ArrayList<>();
@@ -487,6 +802,16 @@ public class PricingService {
                 .build();
     }
 
+    private LockSnapshot decodeSnapshot(PriceLock priceLock) {
+        try {
+            return lockSnapshotCodec.decode(priceLock.getSnapshotBin());
+        } catch (IllegalArgumentException e) {
+            log.error("[PricingService] Decode snapshot failed, priceLockNo={}, signVersion={}, error={}",
+                    priceLock.getPriceLockNo(), priceLock.getSignVersion(), e.getMessage());
+            throw new BizException(ErrorCode.SYSTEM_ERROR, "锁价快照解析失败");
+        }
+    }
+
     private String toJson(Object obj) {
         if (obj == null) return null;
         try {
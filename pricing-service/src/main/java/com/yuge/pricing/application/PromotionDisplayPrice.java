@@ -0,0 +1,28 @@
+package com.yuge.pricing.application;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 促销服务返回的单个SKU展示价（内部模型）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromotionDisplayPrice {
+
+    private Long skuId;
+    private BigDecimal unitPrice;
+    private BigDecimal displayPrice;
+    private BigDecimal discountAmount;
+    private String ruleType;
+    private Long ruleId;
+    private String ruleName;
+    private String userCouponNo;
+    private String description;
+}
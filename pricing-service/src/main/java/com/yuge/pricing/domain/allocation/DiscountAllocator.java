@@ -0,0 +1,217 @@
+package com.yuge.pricing.domain.allocation;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * 优惠分摊引擎（定点数，单位：分）
+ *
+ * 1. 总优惠按行金额比例分到各行，再把行优惠按规则优惠比例分到各规则
+ * 2. 两层都用最大余数法：先取 floor(金额 * 权重 / 权重合计)，剩余的分按余数从大到小逐个补1分
+ *    （余数相同时行号小的优先），每行/每条规则与精确比例的差不超过1分，合计严格相等
+ * 3. 权重合计为0时全部分到最后一项（与原实现一致）
+ * 4. 只使用 long 数组，数组按线程复用；乘积超出 long 时退回 BigInteger 计算
+ *
+ * 用法：begin 取得本线程的 Allocation，写入行金额与规则优惠后调用 allocate；
+ * 结果在本线程下一次 begin 之前有效
+ */
+public final class DiscountAllocator {
+
+    private static final ThreadLocal<Allocation> WORKSPACE = ThreadLocal.withInitial(Allocation::new);
+
+    private static final int INDEX_BITS = 20;
+    private static final int MAX_INDEX = (1 << INDEX_BITS) - 1;
+    private static final int REMAINDER_BITS = 63 - INDEX_BITS;
+    private static final long MAX_EXACT_REMAINDER = 1L << REMAINDER_BITS;
+
+    private DiscountAllocator() {
+    }
+
+    /**
+     * 取得本线程的分摊工作区
+     */
+    public static Allocation begin(int lineCount, int ruleCount) {
+        if (lineCount < 0 || lineCount > MAX_INDEX || ruleCount < 0 || ruleCount > MAX_INDEX) {
+            throw new IllegalArgumentException("行数/规则数超出范围: lines=" + lineCount + ", rules=" + ruleCount);
+        }
+        Allocation allocation = WORKSPACE.get();
+        allocation.reset(lineCount, ruleCount);
+        return allocation;
+    }
+
+    /**
+     * 一次分摊的输入与结果
+     */
+    public static final class Allocation {
+
+        private int lineCount;
+        private int ruleCount;
+        private long[] lineAmounts = new long[16];
+        private long[] lineDiscounts = new long[16];
+        private long[] ruleDiscounts = new long[4];
+        private long[] breakdowns = new long[64];
+        private long[] keys = new long[16];
+        private long quotient;
+        private long remainder;
+
+        private Allocation() {
+        }
+
+        private void reset(int lineCount, int ruleCount) {
+            this.lineCount = lineCount;
+            this.ruleCount = ruleCount;
+            if (lineAmounts.length < lineCount) {
+                int capacity = Math.max(lineCount, lineAmounts.length * 2);
+                lineAmounts = new long[capacity];
+                lineDiscounts = new long[capacity];
+            }
+            if (ruleDiscounts.length < ruleCount) {
+                ruleDiscounts = new long[Math.max(ruleCount, ruleDiscounts.length * 2)];
+            }
+            int cells = lineCount * ruleCount;
+            if (breakdowns.length < cells) {
+                breakdowns = new long[Math.max(cells, breakdowns.length * 2)];
+            }
+            int keyCount = Math.max(lineCount, ruleCount);
+            if (keys.length < keyCount) {
+                keys = new long[Math.max(keyCount, keys.length * 2)];
+            }
+            Arrays.fill(lineAmounts, 0, lineCount, 0L);
+            Arrays.fill(ruleDiscounts, 0, ruleCount, 0L);
+        }
+
+        /**
+         * 行原价（分）
+         */
+        public void setLineAmount(int line, long cents) {
+            if (cents < 0) {
+                throw new IllegalArgumentException("行金额不能为负: " + cents);
+            }
+            lineAmounts[line] = cents;
+        }
+
+        /**
+         * 规则优惠（分），作为行内规则分解的权重
+         */
+        public void setRuleDiscount(int rule, long cents) {
+            if (cents < 0) {
+                throw new IllegalArgumentException("规则优惠不能为负: " + cents);
+            }
+            ruleDiscounts[rule] = cents;
+        }
+
+        /**
+         * 分摊总优惠（分）
+         */
+        public Allocation allocate(long totalDiscount) {
+            if (totalDiscount < 0) {
+                throw new IllegalArgumentException("总优惠不能为负: " + totalDiscount);
+            }
+            if (lineCount == 0) {
+                return this;
+            }
+            long totalAmount = 0;
+            for (int i = 0; i < lineCount; i++) {
+                totalAmount = Math.addExact(totalAmount, lineAmounts[i]);
+            }
+            largestRemainder(lineAmounts, 0, lineCount, totalAmount, totalDiscount, lineDiscounts, 0);
+
+            if (ruleCount > 0) {
+                long ruleTotal = 0;
+                for (int r = 0; r < ruleCount; r++) {
+                    ruleTotal = Math.addExact(ruleTotal, ruleDiscounts[r]);
+                }
+                for (int i = 0; i < lineCount; i++) {
+                    int offset = i * ruleCount;
+                    if (lineDiscounts[i] > 0) {
+                        largestRemainder(ruleDiscounts, 0, ruleCount, ruleTotal, lineDiscounts[i], breakdowns, offset);
+                    } else {
+                        Arrays.fill(breakdowns, offset, offset + ruleCount, 0L);
+                    }
+                }
+            }
+            return this;
+        }
+
+        public int getLineCount() {
+            return lineCount;
+        }
+
+        public int getRuleCount() {
+            return ruleCount;
+        }
+
+        public long lineAmount(int line) {
+            return lineAmounts[line];
+        }
+
+        public long lineDiscount(int line) {
+            return lineDiscounts[line];
+        }
+
+        /**
+         * 行应付（分），优惠超过行金额时为0
+         */
+        public long linePayable(int line) {
+            return Math.max(lineAmounts[line] - lineDiscounts[line], 0L);
+        }
+
+        public long ruleDiscount(int line, int rule) {
+            return breakdowns[line * ruleCount + rule];
+        }
+
+        /**
+         * 按 weights[from, from+count) 的比例把 amount 分到 out[outOffset, outOffset+count)
+         */
+        private void largestRemainder(long[] weights, int from, int count, long weightTotal,
+                                      long amount, long[] out, int outOffset) {
+            if (weightTotal == 0) {
+                Arrays.fill(out, outOffset, outOffset + count, 0L);
+                out[outOffset + count - 1] = amount;
+                return;
+            }
+            long allocated = 0;
+            for (int i = 0; i < count; i++) {
+                mulDiv(amount, weights[from + i], weightTotal);
+                out[outOffset + i] = quotient;
+                allocated += quotient;
+                long rank = weightTotal <= MAX_EXACT_REMAINDER ? remainder : scaleRemainder(remainder, weightTotal);
+                keys[i] = (rank << INDEX_BITS) | (MAX_INDEX - i);
+            }
+            long leftover = amount - allocated;
+            if (leftover == 0) {
+                return;
+            }
+            Arrays.sort(keys, 0, count);
+            for (int k = count - 1; k >= count - leftover; k--) {
+                int index = MAX_INDEX - (int) (keys[k] & MAX_INDEX);
+                out[outOffset + index]++;
+            }
+        }
+
+        /**
+         * quotient = floor(a * b / c), remainder = a * b mod c（a, b >= 0, c > 0）
+         */
+        private void mulDiv(long a, long b, long c) {
+            long high = Math.multiplyHigh(a, b);
+            long low = a * b;
+            if (high == 0 && low >= 0) {
+                quotient = low / c;
+                remainder = low - quotient * c;
+                return;
+            }
+            BigInteger[] divided = BigInteger.valueOf(a).multiply(BigInteger.valueOf(b))
+                    .divideAndRemainder(BigInteger.valueOf(c));
+            quotient = divided[0].longValueExact();
+            remainder = divided[1].longValue();
+        }
+
+        /**
+         * 权重合计超过 2^43 时把余数按比例压缩到可打包的位数（只影响极端金额下余数极接近时的次序）
+         */
+        private long scaleRemainder(long value, long weightTotal) {
+            mulDiv(value, MAX_EXACT_REMAINDER - 1, weightTotal);
+            return quotient;
+        }
+    }
+}
@@ -27,7 +27,7 @@ public class PriceLock {
     private Long userId;
 
     /**
-     * 状态: LOCKED/USED/EXPIRED/CANCELED
+     * 状态: LOCKED/RESERVED/USED/EXPIRED/CANCELED
      */
     private String status;
 
@@ -47,15 +47,20 @@ public class PriceLock {
     private BigDecimal payableAmount;
 
     /**
-     * 锁价快照（JSON）
+     * 锁价快照（JSON，sign_version = 1）
      */
     private String snapshotJson;
 
     /**
-     * 分摊明细（JSON）
+     * 分摊明细（JSON，sign_version = 1）
      */
     private String allocationJson;
 
+    /**
+     * 锁价快照（二进制，sign_version = 2，含分摊明细，见 LockSnapshotCodec）
+     */
+    private byte[] snapshotBin;
+
     /**
      * 使用的优惠券编号列表（JSON）
      */
@@ -87,7 +92,7 @@ public class PriceLock {
     private LocalDateTime usedAt;
 
     /**
-     * 使用的订单号
+     * 使用的订单号（预占时写入）
      */
     private String usedOrderNo;
 
@@ -11,6 +11,7 @@ import lombok.Getter;
 public enum PriceLockStatus {
 
     LOCKED("LOCKED", "已锁定"),
+    RESERVED("RESERVED", "已预占"),
     USED("USED", "已使用"),
     EXPIRED("EXPIRED", "已过期"),
     CANCELED("CANCELED", "已取消");
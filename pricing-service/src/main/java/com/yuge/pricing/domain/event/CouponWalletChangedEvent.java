@@ -0,0 +1,28 @@
+package com.yuge.pricing.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 用户券包变更事件（本地副本）
+ * 与 promotion-service 的 CouponWalletChangedEvent 保持一致
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponWalletChangedEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long userId;
+
+    private String reason;
+
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,31 @@
+package com.yuge.pricing.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 促销规则变更事件（本地副本）
+ * 与 promotion-service 的 PromotionRulesChangedEvent 保持一致
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromotionRulesChangedEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long rulesVersion;
+
+    private List<Long> couponIds;
+
+    private String reason;
+
+    private LocalDateTime changedAt;
+}
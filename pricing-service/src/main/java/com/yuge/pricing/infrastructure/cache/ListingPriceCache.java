@@ -0,0 +1,129 @@
+package com.yuge.pricing.infrastructure.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yuge.pricing.api.dto.ListingQuoteRequest;
+import com.yuge.pricing.api.dto.ListingQuoteResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 列表页展示价本地缓存（按SKU）
+ *
+ * 同一SKU在不同列表页、不同用户之间反复出现，按SKU缓存后一次列表请求只需为未命中的SKU调用一次促销服务
+ *
+ * 1. 分组：不带用户的展示价（可领取券）全局一组，带用户的按用户分组（券包不同）
+ * 2. 组内按 skuId + 单价 + 分类 缓存，短 TTL（pricing.listing-cache.ttl-seconds）
+ * 3. 用户券包变更时该用户整组失效；规则变更时更新规则版本并全部失效
+ * 4. 查询前取得分组（Group），计算期间分组被失效时结果写入已摘除的分组，不会被读到
+ *
+ * 缓存的 SkuPrice 为共享对象，只读
+ */
+@Slf4j
+@Component
+public class ListingPriceCache {
+
+    private final Cache<Long, Group> users;
+    private final long ttlSeconds;
+    private final long maxSkusPerUser;
+    private final long maxAnonymousSkus;
+    private final AtomicLong rulesVersion = new AtomicLong();
+
+    private volatile Group anonymous;
+
+    public ListingPriceCache(@Value("${pricing.listing-cache.ttl-seconds:30}") long ttlSeconds,
+                             @Value("${pricing.listing-cache.max-users:100000}") long maxUsers,
+                             @Value("${pricing.listing-cache.max-skus-per-user:1000}") long maxSkusPerUser,
+                             @Value("${pricing.listing-cache.max-anonymous-skus:200000}") long maxAnonymousSkus) {
+        this.ttlSeconds = ttlSeconds;
+        this.maxSkusPerUser = maxSkusPerUser;
+        this.maxAnonymousSkus = maxAnonymousSkus;
+        this.users = CacheBuilder.newBuilder()
+                .expireAfterAccess(Math.max(ttlSeconds, 1), TimeUnit.SECONDS)
+                .maximumSize(maxUsers)
+                .build();
+        this.anonymous = new Group(ttlSeconds, maxAnonymousSkus);
+    }
+
+    /**
+     * 取得本次查询的缓存分组
+     *
+     * @param userId 为空时取不带用户的分组
+     */
+    public Group group(Long userId) {
+        if (userId == null) {
+            return anonymous;
+        }
+        return users.asMap().computeIfAbsent(userId, k -> new Group(ttlSeconds, maxSkusPerUser));
+    }
+
+    /**
+     * 用户券包变更
+     */
+    public void invalidateUser(Long userId) {
+        users.invalidate(userId);
+    }
+
+    /**
+     * 规则变更：版本前进时全部失效，旧版本的乱序消息忽略
+     */
+    public void onRulesChanged(long version) {
+        long current = rulesVersion.get();
+        while (version > current) {
+            if (rulesVersion.compareAndSet(current, version)) {
+                anonymous = new Group(ttlSeconds, maxAnonymousSkus);
+                users.invalidateAll();
+                log.info("[ListingPriceCache] Rules version changed, {} -> {}", current, version);
+                return;
+            }
+            current = rulesVersion.get();
+        }
+    }
+
+    /**
+     * 一个用户（或不带用户）的展示价分组
+     */
+    public static final class Group {
+        private final Cache<SkuKey, ListingQuoteResponse.SkuPrice> prices;
+        private final boolean enabled;
+
+        private Group(long ttlSeconds, long maxSize) {
+            this.enabled = ttlSeconds > 0;
+            this.prices = CacheBuilder.newBuilder()
+                    .expireAfterWrite(Math.max(ttlSeconds, 1), TimeUnit.SECONDS)
+                    .maximumSize(maxSize)
+                    .build();
+        }
+
+        public ListingQuoteResponse.SkuPrice get(ListingQuoteRequest.ItemInfo item) {
+            return enabled ? prices.getIfPresent(SkuKey.of(item)) : null;
+        }
+
+        public void put(ListingQuoteRequest.ItemInfo item, ListingQuoteResponse.SkuPrice price) {
+            if (enabled) {
+                prices.put(SkuKey.of(item), price);
+            }
+        }
+    }
+
+    /**
+     * 缓存键：金额按数值比较，忽略小数位差异
+     */
+    @lombok.Value
+    private static class SkuKey {
+        Long skuId;
+        BigDecimal unitPrice;
+        Long categoryId;
+
+        static SkuKey of(ListingQuoteRequest.ItemInfo item) {
+            return new SkuKey(item.getSkuId(),
+                    item.getUnitPrice() != null ? item.getUnitPrice().stripTrailingZeros() : null,
+                    item.getCategoryId());
+        }
+    }
+}
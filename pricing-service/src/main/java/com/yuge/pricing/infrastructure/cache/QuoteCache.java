@@ -0,0 +1,158 @@
+package com.yuge.pricing.infrastructure.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yuge.pricing.api.dto.QuoteRequest;
+import com.yuge.pricing.api.dto.QuoteResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 试算结果本地缓存
+ *
+ * 购物车页每次展示都会试算，商品、数量、券不变时直接返回上次结果，不调用促销服务
+ *
+ * 1. 按用户分组，组内按购物车指纹缓存：
+ *    指纹 = userId | 规则版本 | 按 skuId 排序的 sku:qty:unitPrice:categoryId | 排序去重后的券编号
+ * 2. 每条结果短 TTL（pricing.quote-cache.ttl-seconds）
+ * 3. 用户券包变更时整组失效；规则变更时更新规则版本并全部失效
+ * 4. 试算前取得槽位（Slot），试算期间如果该用户被失效，结果写入已摘除的分组，不会被读到
+ *
+ * 缓存的 QuoteResponse 为共享对象，只读
+ */
+@Slf4j
+@Component
+public class QuoteCache {
+
+    private static final int MAX_QUOTES_PER_USER = 16;
+
+    private final Cache<Long, UserQuotes> users;
+    private final long ttlNanos;
+    private final AtomicLong rulesVersion = new AtomicLong();
+
+    public QuoteCache(@Value("${pricing.quote-cache.ttl-seconds:10}") long ttlSeconds,
+                      @Value("${pricing.quote-cache.max-users:100000}") long maxUsers) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.users = CacheBuilder.newBuilder()
+                .expireAfterAccess(Math.max(ttlSeconds, 1), TimeUnit.SECONDS)
+                .maximumSize(maxUsers)
+                .build();
+    }
+
+    /**
+     * 取得本次试算的缓存槽位
+     */
+    public Slot slot(QuoteRequest request) {
+        UserQuotes quotes = users.asMap().computeIfAbsent(request.getUserId(), k -> new UserQuotes());
+        return new Slot(quotes, fingerprint(request, rulesVersion.get()));
+    }
+
+    /**
+     * 用户券包变更
+     */
+    public void invalidateUser(Long userId) {
+        users.invalidate(userId);
+    }
+
+    /**
+     * 规则变更：版本前进时全部失效，旧版本的乱序消息忽略
+     */
+    public void onRulesChanged(long version) {
+        long current = rulesVersion.get();
+        while (version > current) {
+            if (rulesVersion.compareAndSet(current, version)) {
+                users.invalidateAll();
+                log.info("[QuoteCache] Rules version changed, {} -> {}", current, version);
+                return;
+            }
+            current = rulesVersion.get();
+        }
+    }
+
+    public long getRulesVersion() {
+        return rulesVersion.get();
+    }
+
+    static String fingerprint(QuoteRequest request, long rulesVersion) {
+        List<QuoteRequest.ItemInfo> items = new ArrayList<>(request.getItems());
+        items.sort(Comparator.comparing(QuoteRequest.ItemInfo::getSkuId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(QuoteRequest.ItemInfo::getQty, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        StringBuilder sb = new StringBuilder(32 + items.size() * 24);
+        sb.append(request.getUserId()).append('|').append(rulesVersion).append('|');
+        for (QuoteRequest.ItemInfo item : items) {
+            BigDecimal unitPrice = item.getUnitPrice();
+            sb.append(item.getSkuId()).append(':')
+                    .append(item.getQty()).append(':')
+                    .append(unitPrice != null ? unitPrice.stripTrailingZeros().toPlainString() : null).append(':')
+                    .append(item.getCategoryId()).append(',');
+        }
+        sb.append('|');
+        if (request.getUserCouponNos() != null) {
+            for (String couponNo : new TreeSet<>(request.getUserCouponNos())) {
+                sb.append(couponNo).append(',');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 一次试算对应的缓存位置
+     */
+    public final class Slot {
+        private final UserQuotes quotes;
+        private final String fingerprint;
+
+        private Slot(UserQuotes quotes, String fingerprint) {
+            this.quotes = quotes;
+            this.fingerprint = fingerprint;
+        }
+
+        public QuoteResponse get() {
+            Entry entry = quotes.entries.get(fingerprint);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.createdAt > ttlNanos) {
+                quotes.entries.remove(fingerprint, entry);
+                return null;
+            }
+            return entry.response;
+        }
+
+        public void put(QuoteResponse response) {
+            if (ttlNanos <= 0) {
+                return;
+            }
+            if (quotes.entries.size() >= MAX_QUOTES_PER_USER) {
+                quotes.entries.clear();
+            }
+            quotes.entries.put(fingerprint, new Entry(response, System.nanoTime()));
+        }
+    }
+
+    private static final class UserQuotes {
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    }
+
+    private static final class Entry {
+        private final QuoteResponse response;
+        private final long createdAt;
+
+        private Entry(QuoteResponse response, long createdAt) {
+            this.response = response;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.yuge.pricing.infrastructure.client.impl;
+
+import com.yuge.platform.infra.common.ErrorCode;
+import com.yuge.platform.infra.common.Result;
+import com.yuge.platform.infra.exception.BizException;
+import com.yuge.pricing.api.dto.ListingQuoteRequest;
+import com.yuge.pricing.api.dto.QuoteRequest;
+import com.yuge.pricing.application.PromotionClient;
+import com.yuge.pricing.application.PromotionDisplayPrice;
+import com.yuge.pricing.application.PromotionResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 促销服务客户端实现
+ *
+ * 1. 试算调用 POST /promotion/apply，锁券/解券调用 POST /promotion/coupon/lock、/promotion/coupon/unlock，
+ *    过期价格锁批量解券调用 POST /promotion/coupon/unlock/batch，列表页展示价调用 POST /promotion/display-price/batch
+ * 2. 使用 promotionRestTemplate（长连接复用 + 连接/读超时）
+ * 3. 同一用户、同一购物车内容（商品行 + 指定券）的试算合并：
+ *    进行中的请求直接等待其结果，完成后 coalesce-window-ms 内的重复试算复用结果（只读，不得修改），
+ *    失败的请求不复用
+ *
+ * 试算失败抛出 BizException（不降级为无优惠价格，避免锁价锁在错误金额上）
+ */
+@Slf4j
+@Component
+public class PromotionClientImpl implements PromotionClient {
+
+    private static final ParameterizedTypeReference<Result<PromotionResult>> APPLY_RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<Result<Void>> VOID_RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<Result<Integer>> COUNT_RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<Result<List<PromotionDisplayPrice>>> DISPLAY_PRICE_RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final RestTemplate restTemplate;
+    private final String promotionServiceUrl;
+    private final long coalesceWindowMs;
+    private final Map<ApplyKey, CompletableFuture<PromotionResult>> inflight = new ConcurrentHashMap<>();
+
+    public PromotionClientImpl(@Qualifier("promotionRestTemplate") RestTemplate restTemplate,
+                               @Value("${service.promotion.url:http://localhost:8086}") String promotionServiceUrl,
+                               @Value("${service.promotion.coalesce-window-ms:200}") long coalesceWindowMs) {
+        this.restTemplate = restTemplate;
+        this.promotionServiceUrl = promotionServiceUrl;
+        this.coalesceWindowMs = coalesceWindowMs;
+    }
+
+    @Override
+    public PromotionResult applyPromotion(Long userId, List<QuoteRequest.ItemInfo> items, List<String> userCouponNos) {
+        ApplyKey key = ApplyKey.of(userId, items, userCouponNos);
+        CompletableFuture<PromotionResult> created = new CompletableFuture<>();
+        CompletableFuture<PromotionResult> existing = inflight.putIfAbsent(key, created);
+        if (existing != null) {
+            log.debug("[PromotionClient] applyPromotion coalesced, userId={}", userId);
+            return join(existing);
+        }
+
+        try {
+            created.complete(callApply(userId, items, userCouponNos));
+        } catch (Throwable e) {
+            created.completeExceptionally(e);
+        } finally {
+            if (created.isCompletedExceptionally() || coalesceWindowMs <= 0) {
+                inflight.remove(key, created);
+            } else {
+                CompletableFuture.delayedExecutor(coalesceWindowMs, TimeUnit.MILLISECONDS)
+                        .execute(() -> inflight.remove(key, created));
+            }
+        }
+        return join(created);
+    }
+
+    @Override
+    public List<PromotionDisplayPrice> displayPrices(Long userId, List<ListingQuoteRequest.ItemInfo> items) {
+        List<Map<String, Object>> itemBodies = new ArrayList<>(items.size());
+        for (ListingQuoteRequest.ItemInfo item : items) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("skuId", item.getSkuId());
+            map.put("unitPrice", item.getUnitPrice());
+            map.put("categoryId", item.getCategoryId());
+            itemBodies.add(map);
+        }
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("userId", userId);
+        requestBody.put("items", itemBodies);
+
+        Result<List<PromotionDisplayPrice>> body = post("/promotion/display-price/batch", requestBody,
+                DISPLAY_PRICE_RESPONSE_TYPE);
+        if (body == null || !body.isSuccess() || body.getData() == null || body.getData().size() != items.size()) {
+            log.warn("[PromotionClient] displayPrices unexpected response, userId={}, items={}, message={}",
+                    userId, items.size(), body != null ? body.getMessage() : null);
+            throw new BizException(ErrorCode.RPC_ERROR,
+                    "批量展示价计算失败: " + (body != null ? body.getMessage() : "无响应"));
+        }
+        return body.getData();
+    }
+
+    @Override
+    public void lockCoupons(Long userId, List<String> userCouponNos, String priceLockNo, LocalDateTime expireAt) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("userId", userId);
+        requestBody.put("userCouponNos", userCouponNos);
+        requestBody.put("priceLockNo", priceLockNo);
+        requestBody.put("lockExpireTime", expireAt);
+
+        Result<Void> body = post("/promotion/coupon/lock", requestBody, VOID_RESPONSE_TYPE);
+        if (body == null || !body.isSuccess()) {
+            throw new BizException(ErrorCode.RPC_ERROR,
+                    "锁定优惠券失败: " + (body != null ? body.getMessage() : "无响应"));
+        }
+        log.info("[PromotionClient] Coupons locked, userCouponNos={}, priceLockNo={}", userCouponNos, priceLockNo);
+    }
+
+    /**
+     * 解锁失败只记录日志并返回 false：促销服务不会自动释放已锁定的券，由调用方登记 CouponUnlockRetryTask 重试
+     */
+    @Override
+    public boolean unlockCoupons(List<String> userCouponNos, String priceLockNo) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("userCouponNos", userCouponNos);
+        requestBody.put("priceLockNo", priceLockNo);
+        try {
+            Result<Void> body = post("/promotion/coupon/unlock", requestBody, VOID_RESPONSE_TYPE);
+            if (body == null || !body.isSuccess()) {
+                log.warn("[PromotionClient] unlockCoupons rejected, priceLockNo={}, message={}",
+                        priceLockNo, body != null ? body.getMessage() : null);
+                return false;
+            }
+            log.info("[PromotionClient] Coupons unlocked, userCouponNos={}, priceLockNo={}", userCouponNos, priceLockNo);
+            return true;
+        } catch (BizException e) {
+            log.warn("[PromotionClient] unlockCoupons failed, priceLockNo={}, error={}", priceLockNo, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public boolean batchUnlockCoupons(Map<String, List<String>> userCouponNosByPriceLockNo) {
+        List<Map<String, Object>> locks = new ArrayList<>(userCouponNosByPriceLockNo.size());
+        userCouponNosByPriceLockNo.forEach((priceLockNo, userCouponNos) -> {
+            Map<String, Object> lock = new HashMap<>();
+            lock.put("priceLockNo", priceLockNo);
+            lock.put("userCouponNos", userCouponNos);
+            locks.add(lock);
+        });
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("locks", locks);
+        try {
+            Result<Integer> body = post("/promotion/coupon/unlock/batch", requestBody, COUNT_RESPONSE_TYPE);
+            if (body == null || !body.isSuccess()) {
+                log.warn("[PromotionClient] batchUnlockCoupons rejected, locks={}, message={}",
+                        locks.size(), body != null ? body.getMessage() : null);
+                return false;
+            }
+            log.info("[PromotionClient] Coupons batch unlocked, locks={}, unlocked={}", locks.size(), body.getData());
+            return true;
+        } catch (BizException e) {
+            log.warn("[PromotionClient] batchUnlockCoupons failed, locks={}, error={}", locks.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private PromotionResult callApply(Long userId, List<QuoteRequest.ItemInfo> items, List<String> userCouponNos) {
+        List<Map<String, Object>> itemBodies = new ArrayList<>(items.size());
+        for (QuoteRequest.ItemInfo item : items) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("skuId", item.getSkuId());
+            map.put("qty", item.getQty());
+            map.put("unitPrice", item.getUnitPrice());
+            map.put("categoryId", item.getCategoryId());
+            itemBodies.add(map);
+        }
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("userId", userId);
+        requestBody.put("items", itemBodies);
+        requestBody.put("userCouponNos", userCouponNos);
+
+        long startTime = System.currentTimeMillis();
+        Result<PromotionResult> body = post("/promotion/apply", requestBody, APPLY_RESPONSE_TYPE);
+        if (body == null || !body.isSuccess() || body.getData() == null) {
+            log.warn("[PromotionClient] applyPromotion unexpected response, userId={}, code={}, message={}",
+                    userId, body != null ? body.getCode() : null, body != null ? body.getMessage() : null);
+            throw new BizException(ErrorCode.RPC_ERROR,
+                    "促销试算失败: " + (body != null ? body.getMessage() : "无响应"));
+        }
+        log.debug("[PromotionClient] applyPromotion, userId={}, items={}, costMs={}",
+                userId, items.size(), System.currentTimeMillis() - startTime);
+        return body.getData();
+    }
+
+    private <T> Result<T> post(String path, Map<String, Object> requestBody,
+                               ParameterizedTypeReference<Result<T>> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+        try {
+            ResponseEntity<Result<T>> response = restTemplate.exchange(
+                    promotionServiceUrl + path, HttpMethod.POST, entity, responseType);
+            return response.getBody();
+        } catch (ResourceAccessException e) {
+            if (e.getCause() instanceof HttpTimeoutException || e.getCause() instanceof SocketTimeoutException) {
+                log.warn("[PromotionClient] Request timeout, path={}, error={}", path, e.getMessage());
+                throw new BizException(ErrorCode.RPC_TIMEOUT, "促销服务调用超时");
+            }
+            log.warn("[PromotionClient] Request failed, path={}, error={}", path, e.getMessage());
+            throw new BizException(ErrorCode.RPC_ERROR, "促销服务调用失败: " + e.getMessage());
+        } catch (Exception e) {
+            log.warn("[PromotionClient] Request failed, path={}, error={}", path, e.getMessage());
+            throw new BizException(ErrorCode.RPC_ERROR, "促销服务调用失败: " + e.getMessage());
+        }
+    }
+
+    private PromotionResult join(CompletableFuture<PromotionResult> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 试算合并键：用户 + 商品行 + 指定券（金额按数值比较，忽略小数位差异）
+     */
+    @lombok.Value
+    private static class ApplyKey {
+        Long userId;
+        List<ItemKey> items;
+        List<String> userCouponNos;
+
+        static ApplyKey of(Long userId, List<QuoteRequest.ItemInfo> items, List<String> userCouponNos) {
+            List<ItemKey> itemKeys = new ArrayList<>(items.size());
+            for (QuoteRequest.ItemInfo item : items) {
+                itemKeys.add(new ItemKey(item.getSkuId(), item.getQty(),
+                        item.getUnitPrice() != null ? item.getUnitPrice().stripTrailingZeros() : null,
+                        item.getCategoryId()));
+            }
+            return new ApplyKey(userId, itemKeys, userCouponNos != null ? List.copyOf(userCouponNos) : List.of());
+        }
+    }
+
+    @lombok.Value
+    private static class ItemKey {
+        Long skuId;
+        Integer qty;
+        BigDecimal unitPrice;
+        Long categoryId;
+    }
+}
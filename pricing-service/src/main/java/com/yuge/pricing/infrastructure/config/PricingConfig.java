@@ -0,0 +1,34 @@
+package com.yuge.pricing.infrastructure.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * 定价服务配置
+ */
+@Configuration
+public class PricingConfig {
+
+    /**
+     * 促销服务专用客户端
+     * JDK HttpClient 复用长连接（连接池），超时时间较短，试算/锁价不被促销服务拖慢
+     */
+    @Bean
+    public RestTemplate promotionRestTemplate(
+            @Value("${service.promotion.connect-timeout-ms:300}") long connectTimeoutMs,
+            @Value("${service.promotion.read-timeout-ms:800}") long readTimeoutMs) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return new RestTemplate(factory);
+    }
+}
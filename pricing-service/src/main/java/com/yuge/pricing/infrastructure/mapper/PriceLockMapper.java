@@ -2,10 +2,15 @@ package com.yuge.pricing.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yuge.pricing.domain.entity.PriceLock;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 价格锁Mapper
  */
@@ -24,7 +29,33 @@ public interface PriceLockMapper extends BaseMapper<PriceLock> {
                @Param("version") Integer version);
 
     /**
-     * CAS取消锁定
+     * CAS预占（下单第一阶段）：LOCKED -> RESERVED，记录预占的订单号
+     */
+    @Update("UPDATE t_price_lock SET status = 'RESERVED', used_order_no = #{orderNo}, " +
+            "version = version + 1, updated_at = NOW() " +
+            "WHERE id = #{id} AND status = 'LOCKED' AND version = #{version}")
+    int casReserve(@Param("id") Long id,
+                   @Param("orderNo") String orderNo,
+                   @Param("version") Integer version);
+
+    /**
+     * 确认使用（订单提交后）：RESERVED -> USED，只确认本订单的预占
+     */
+    @Update("UPDATE t_price_lock SET status = 'USED', used_at = NOW(), " +
+            "version = version + 1, updated_at = NOW() " +
+            "WHERE price_lock_no = #{priceLockNo} AND status = 'RESERVED' AND used_order_no = #{orderNo}")
+    int confirmReserved(@Param("priceLockNo") String priceLockNo, @Param("orderNo") String orderNo);
+
+    /**
+     * 释放预占（订单未创建成功）：RESERVED -> LOCKED，只释放本订单的预占
+     */
+    @Update("UPDATE t_price_lock SET status = 'LOCKED', used_order_no = NULL, " +
+            "version = version + 1, updated_at = NOW() " +
+            "WHERE price_lock_no = #{priceLockNo} AND status = 'RESERVED' AND used_order_no = #{orderNo}")
+    int releaseReserved(@Param("priceLockNo") String priceLockNo, @Param("orderNo") String orderNo);
+
+    /**
+     * CAS取消锁定（仅未使用的锁）
      */
     @Update("UPDATE t_price_lock SET status = 'CANCELED', " +
             "version = version + 1, updated_at = NOW() " +
@@ -32,10 +63,85 @@ public interface PriceLockMapper extends BaseMapper<PriceLock> {
     int casCancel(@Param("id") Long id, @Param("version") Integer version);
 
     /**
-     * 过期锁定的价格锁
+     * 所属订单取消：RESERVED/USED -> CANCELED，只取消本订单预占/使用的锁
      */
-    @Update("UPDATE t_price_lock SET status = 'EXPIRED', " +
+    @Update("UPDATE t_price_lock SET status = 'CANCELED', " +
             "version = version + 1, updated_at = NOW() " +
-            "WHERE status = 'LOCKED' AND expire_at < NOW()")
-    int expireLocks();
+            "WHERE price_lock_no = #{priceLockNo} AND status IN ('RESERVED', 'USED') AND used_order_no = #{orderNo}")
+    int cancelForOrder(@Param("priceLockNo") String priceLockNo, @Param("orderNo") String orderNo);
+
+    /**
+     * 按 (expire_at, id) 键集分页查询区间内已过期的锁定价格锁（走 idx_status_expire，不回扫已处理的行）
+     */
+    @Select("SELECT id, price_lock_no, user_id, expire_at, coupon_nos_json FROM t_price_lock " +
+            "WHERE status = 'LOCKED' AND expire_at >= #{rangeStart} AND expire_at < #{rangeEnd} " +
+            "AND (expire_at > #{afterExpireAt} OR (expire_at = #{afterExpireAt} AND id > #{afterId})) " +
+            "ORDER BY expire_at, id LIMIT #{limit}")
+    List<PriceLock> selectExpiredPage(@Param("rangeStart") LocalDateTime rangeStart,
+                                      @Param("rangeEnd") LocalDateTime rangeEnd,
+                                      @Param("afterExpireAt") LocalDateTime afterExpireAt,
+                                      @Param("afterId") Long afterId,
+                                      @Param("limit") int limit);
+
+    /**
+     * 批量过期（单条UPDATE，自动提交，不开长事务）
+     */
+    @Update("<script>" +
+            "UPDATE t_price_lock SET status = 'EXPIRED', " +
+            "version = version + 1, updated_at = NOW() " +
+            "WHERE status = 'LOCKED' AND expire_at &lt; NOW() AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int expireByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 按 (expire_at, id) 键集分页查询预占超时的价格锁（订单提交结果未知、既未确认也未释放，走 idx_status_expire）
+     */
+    @Select("SELECT id, price_lock_no, user_id, expire_at, coupon_nos_json, used_order_no FROM t_price_lock " +
+            "WHERE status = 'RESERVED' AND expire_at < #{before} " +
+            "AND (expire_at > #{afterExpireAt} OR (expire_at = #{afterExpireAt} AND id > #{afterId})) " +
+            "ORDER BY expire_at, id LIMIT #{limit}")
+    List<PriceLock> selectExpiredReservedPage(@Param("before") LocalDateTime before,
+                                              @Param("afterExpireAt") LocalDateTime afterExpireAt,
+                                              @Param("afterId") Long afterId,
+                                              @Param("limit") int limit);
+
+    /**
+     * 批量过期预占超时的价格锁（期间被确认/释放/取消的行不受影响）
+     */
+    @Update("<script>" +
+            "UPDATE t_price_lock SET status = 'EXPIRED', " +
+            "version = version + 1, updated_at = NOW() " +
+            "WHERE status = 'RESERVED' AND expire_at &lt; #{before} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int expireReservedByIds(@Param("ids") List<Long> ids, @Param("before") LocalDateTime before);
+
+    /**
+     * 多行插入（Redis热存储异步落库）
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_price_lock (id, price_lock_no, user_id, status, original_amount, total_discount, " +
+            "payable_amount, snapshot_json, allocation_json, snapshot_bin, coupon_nos_json, signature, sign_version, " +
+            "locked_at, expire_at, used_at, used_order_no, version, created_at, updated_at) VALUES " +
+            "<foreach collection='locks' item='l' separator=','>" +
+            "(#{l.id}, #{l.priceLockNo}, #{l.userId}, #{l.status}, #{l.originalAmount}, #{l.totalDiscount}, " +
+            "#{l.payableAmount}, #{l.snapshotJson}, #{l.allocationJson}, #{l.snapshotBin}, #{l.couponNosJson}, #{l.signature}, " +
+            "#{l.signVersion}, #{l.lockedAt}, #{l.expireAt}, #{l.usedAt}, #{l.usedOrderNo}, #{l.version}, " +
+            "#{l.createdAt}, #{l.updatedAt})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("locks") List<PriceLock> locks);
+
+    /**
+     * 同步Redis中的状态（按版本号覆盖，乱序到达的旧版本不生效）
+     */
+    @Update("UPDATE t_price_lock SET status = #{status}, used_order_no = #{usedOrderNo}, used_at = #{usedAt}, " +
+            "version = #{version}, updated_at = NOW() " +
+            "WHERE price_lock_no = #{priceLockNo} AND version < #{version}")
+    int syncState(@Param("priceLockNo") String priceLockNo,
+                  @Param("status") String status,
+                  @Param("usedOrderNo") String usedOrderNo,
+                  @Param("usedAt") LocalDateTime usedAt,
+                  @Param("version") Integer version);
 }
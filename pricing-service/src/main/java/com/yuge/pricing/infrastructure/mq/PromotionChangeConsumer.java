@@ -0,0 +1,64 @@
+package com.yuge.pricing.infrastructure.mq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.platform.infra.mq.BaseEvent;
+import com.yuge.pricing.domain.event.CouponWalletChangedEvent;
+import com.yuge.pricing.domain.event.PromotionRulesChangedEvent;
+import com.yuge.pricing.infrastructure.cache.ListingPriceCache;
+import com.yuge.pricing.infrastructure.cache.QuoteCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.spring.annotation.MessageModel;
+import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
+import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 促销变更消费者（广播模式，每个定价实例都失效自己的试算缓存、列表页展示价缓存）
+ *
+ * 不继承 ConsumerTemplate：其按消息ID的Redis幂等在实例间共享，广播时只有一个实例会处理；
+ * 失效本身是幂等的，无需去重
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@RocketMQMessageListener(
+        topic = "PROMOTION_TOPIC",
+        selectorExpression = "RULES_CHANGED || WALLET_CHANGED",
+        consumerGroup = "pricing-quote-cache-group",
+        messageModel = MessageModel.BROADCASTING
+)
+public class PromotionChangeConsumer implements RocketMQListener<MessageExt> {
+
+    private final QuoteCache quoteCache;
+    private final ListingPriceCache listingPriceCache;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void onMessage(MessageExt messageExt) {
+        try {
+            BaseEvent event = objectMapper.readValue(
+                    new String(messageExt.getBody(), StandardCharsets.UTF_8), BaseEvent.class);
+            String tag = messageExt.getTags();
+            if ("WALLET_CHANGED".equals(tag)) {
+                CouponWalletChangedEvent changed = objectMapper.readValue(
+                        event.getPayload(), CouponWalletChangedEvent.class);
+                quoteCache.invalidateUser(changed.getUserId());
+                listingPriceCache.invalidateUser(changed.getUserId());
+                log.debug("[PromotionChangeConsumer] Wallet changed, userId={}, reason={}",
+                        changed.getUserId(), changed.getReason());
+            } else if ("RULES_CHANGED".equals(tag)) {
+                PromotionRulesChangedEvent changed = objectMapper.readValue(
+                        event.getPayload(), PromotionRulesChangedEvent.class);
+                quoteCache.onRulesChanged(changed.getRulesVersion());
+                listingPriceCache.onRulesChanged(changed.getRulesVersion());
+            }
+        } catch (Exception e) {
+            log.warn("[PromotionChangeConsumer] Failed to handle message, msgId={}, error={}",
+                    messageExt.getMsgId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.yuge.pricing.infrastructure.redis;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.platform.infra.common.ErrorCode;
+import com.yuge.platform.infra.exception.BizException;
+import com.yuge.pricing.domain.entity.PriceLock;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 价格锁Redis热存储
+ *
+ * 1. 每个价格锁一个Hash（pricing:lock:{priceLockNo}），key 过期时间 = 价格锁过期时间 + 宽限期，
+ *    未使用的锁到期由Redis自动清理
+ * 2. 创建、预占/使用/确认/释放/取消各为一次Lua脚本调用，校验与状态变更原子完成
+ * 3. 已使用（USED）的锁重置过期时间为 used-ttl-seconds，订单取消时仍可在Redis内取消
+ * 4. key 不存在时返回 NOT_FOUND，由调用方回退到数据库（Redis上线前创建的锁、宽限期后的锁）
+ *
+ * 状态变化由调用方交给 PriceLockPersister 异步落库
+ */
+@Slf4j
+@Component
+public class PriceLockRedisStore {
+
+    private static final String KEY_PREFIX = "pricing:lock:";
+
+    /**
+     * 批量判断key是否存在，返回存在的key下标（从1开始）
+     */
+    private static final String LIVE_SCRIPT = """
+            local live = {}
+            for i, key in ipairs(KEYS) do
+                if redis.call('EXISTS', key) == 1 then
+                    table.insert(live, i)
+                end
+            end
+            return live
+            """;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    private DefaultRedisScript<Long> createScript;
+    @SuppressWarnings("rawtypes")
+    private DefaultRedisScript<List> transitionScript;
+    @SuppressWarnings("rawtypes")
+    private DefaultRedisScript<List> liveScript;
+
+    /**
+     * 过期后key保留的宽限期（秒），覆盖临近过期时预占的订单的确认/释放
+     */
+    @Value("${pricing.lock-store.expire-grace-seconds:300}")
+    private long expireGraceSeconds;
+
+    /**
+     * 已使用的锁保留时长（秒），应大于订单支付超时
+     */
+    @Value("${pricing.lock-store.used-ttl-seconds:7200}")
+    private long usedTtlSeconds;
+
+    public PriceLockRedisStore(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        createScript = new DefaultRedisScript<>();
+        createScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/price_lock_create.lua")));
+        createScript.setResultType(Long.class);
+
+        transitionScript = new DefaultRedisScript<>();
+        transitionScript.setScriptSource(new ResourceScriptSource(
+                new ClassPathResource("lua/price_lock_transition.lua")));
+        transitionScript.setResultType(List.class);
+
+        liveScript = new DefaultRedisScript<>(LIVE_SCRIPT, List.class);
+
+        log.info("[PriceLockRedisStore] Lua scripts initialized");
+    }
+
+    /**
+     * 写入新价格锁
+     *
+     * @return 是否写入成功；Redis不可用或已存在时返回 false，由调用方改为同步写库
+     */
+    public boolean create(PriceLock priceLock) {
+        long expireAtMillis = toMillis(priceLock.getExpireAt());
+        long keyExpireAtMillis = expireAtMillis + TimeUnit.SECONDS.toMillis(expireGraceSeconds);
+        try {
+            Long result = redisTemplate.execute(createScript, List.of(buildKey(priceLock.getPriceLockNo())),
+                    toJson(priceLock), priceLock.getSignature(), String.valueOf(expireAtMillis),
+                    String.valueOf(keyExpireAtMillis));
+            if (result == null || result != 1L) {
+                log.warn("[PriceLockRedisStore] create skipped, key exists, priceLockNo={}", priceLock.getPriceLockNo());
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("[PriceLockRedisStore] create failed, priceLockNo={}, error={}",
+                    priceLock.getPriceLockNo(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 查询价格锁（当前状态）
+     *
+     * @return Redis中不存在或Redis不可用时为空，由调用方查库
+     */
+    public Optional<PriceLock> find(String priceLockNo) {
+        try {
+            List<Object> fields = redisTemplate.opsForHash().multiGet(buildKey(priceLockNo),
+                    List.<Object>of("status", "usedOrderNo", "usedAt", "version", "lock"));
+            if (fields.get(0) == null) {
+                return Optional.empty();
+            }
+            return Optional.of(toPriceLock((String) fields.get(0), (String) fields.get(1),
+                    (String) fields.get(2), (String) fields.get(3), (String) fields.get(4)));
+        } catch (Exception e) {
+            log.warn("[PriceLockRedisStore] find failed, fallback to db, priceLockNo={}, error={}",
+                    priceLockNo, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 批量查询Redis中仍存在的价格锁（热数据仍存活，数据库状态可能落后）
+     *
+     * Redis不可用时抛出异常，调用方不能把查询失败当作不存在
+     */
+    public Set<String> findLive(List<String> priceLockNos) {
+        if (priceLockNos.isEmpty()) {
+            return Set.of();
+        }
+        List<String> keys = new ArrayList<>(priceLockNos.size());
+        for (String priceLockNo : priceLockNos) {
+            keys.add(buildKey(priceLockNo));
+        }
+        List<?> indexes = redisTemplate.execute(liveScript, keys);
+        Set<String> live = new HashSet<>();
+        if (indexes != null) {
+            for (Object index : indexes) {
+                live.add(priceLockNos.get(((Number) index).intValue() - 1));
+            }
+        }
+        return live;
+    }
+
+    public Transition reserve(String priceLockNo, String orderNo, String signature) {
+        return transit("RESERVE", priceLockNo, orderNo, signature);
+    }
+
+    public Transition use(String priceLockNo, String orderNo, String signature) {
+        return transit("USE", priceLockNo, orderNo, signature);
+    }
+
+    public Transition confirm(String priceLockNo, String orderNo) {
+        return transit("CONFIRM", priceLockNo, orderNo, "");
+    }
+
+    public Transition release(String priceLockNo, String orderNo) {
+        return transit("RELEASE", priceLockNo, orderNo, "");
+    }
+
+    public Transition cancel(String priceLockNo) {
+        return transit("CANCEL", priceLockNo, "", "");
+    }
+
+    public Transition cancelForOrder(String priceLockNo, String orderNo) {
+        return transit("CANCEL", priceLockNo, orderNo, "");
+    }
+
+    /**
+     * 状态变更；Redis不可用时直接失败（不回退到可能落后于Redis的数据库状态）
+     */
+    private Transition transit(String op, String priceLockNo, String orderNo, String signature) {
+        List<?> result;
+        try {
+            result = redisTemplate.execute(transitionScript, List.of(buildKey(priceLockNo)),
+                    op, orderNo, signature, String.valueOf(System.currentTimeMillis()),
+                    String.valueOf(TimeUnit.SECONDS.toMillis(usedTtlSeconds)));
+        } catch (Exception e) {
+            log.error("[PriceLockRedisStore] {} failed, priceLockNo={}, orderNo={}, error={}",
+                    op, priceLockNo, orderNo, e.getMessage(), e);
+            throw new BizException(ErrorCode.CACHE_ERROR, "价格锁存储不可用，请重试");
+        }
+        if (result == null || result.isEmpty()) {
+            throw new BizException(ErrorCode.CACHE_ERROR, "价格锁存储返回为空");
+        }
+        Code code = Code.valueOf((String) result.get(0));
+        if (code == Code.NOT_FOUND) {
+            return new Transition(code, null);
+        }
+        PriceLock priceLock = toPriceLock((String) result.get(1), (String) result.get(2), (String) result.get(3),
+                (String) result.get(4), (String) result.get(5));
+        return new Transition(code, priceLock);
+    }
+
+    private PriceLock toPriceLock(String status, String usedOrderNo, String usedAt, String version, String json) {
+        PriceLock priceLock;
+        try {
+            priceLock = objectMapper.readValue(json, PriceLock.class);
+        } catch (JsonProcessingException e) {
+            throw new BizException(ErrorCode.SYSTEM_ERROR, "价格锁反序列化失败");
+        }
+        priceLock.setStatus(status);
+        priceLock.setUsedOrderNo(usedOrderNo == null || usedOrderNo.isEmpty() ? null : usedOrderNo);
+        priceLock.setUsedAt(usedAt == null || usedAt.isEmpty() ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(usedAt)), ZoneId.systemDefault()));
+        priceLock.setVersion(Integer.valueOf(version));
+        return priceLock;
+    }
+
+    private String toJson(PriceLock priceLock) {
+        try {
+            return objectMapper.writeValueAsString(priceLock);
+        } catch (JsonProcessingException e) {
+            throw new BizException(ErrorCode.SYSTEM_ERROR, "价格锁序列化失败");
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String buildKey(String priceLockNo) {
+        return KEY_PREFIX + priceLockNo;
+    }
+
+    /**
+     * 脚本结果码
+     */
+    public enum Code {
+        /** 状态已变更 */
+        OK,
+        /** 幂等，状态未变 */
+        UNCHANGED,
+        /** Redis中不存在 */
+        NOT_FOUND,
+        SIGN_INVALID,
+        STATE_INVALID,
+        EXPIRED
+    }
+
+    /**
+     * 状态变更结果（NOT_FOUND 时 priceLock 为空，其他为变更后的价格锁）
+     */
+    @Getter
+    public static class Transition {
+        private final Code code;
+        private final PriceLock priceLock;
+
+        public Transition(Code code, PriceLock priceLock) {
+            this.code = code;
+            this.priceLock = priceLock;
+        }
+
+        public boolean isFound() {
+            return code != Code.NOT_FOUND;
+        }
+
+        public boolean isChanged() {
+            return code == Code.OK;
+        }
+    }
+}
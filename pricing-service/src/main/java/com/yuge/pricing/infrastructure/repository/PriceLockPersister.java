@@ -0,0 +1,358 @@
+package com.yuge.pricing.infrastructure.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.pricing.domain.entity.PriceLock;
+import com.yuge.pricing.infrastructure.mapper.PriceLockMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 价格锁异步落库（审计、Redis过期后的回查）
+ *
+ * 1. 锁价/状态变更在Redis完成后入队，调用线程不等待数据库
+ * 2. 单个写入线程按 flush-interval-ms 窗口（最多 max-batch 条）合批：
+ *    新锁一条多行INSERT，状态变更按价格锁合并为最新版本后逐条 UPDATE（按版本号覆盖），同一事务提交
+ * 3. 整批失败时逐条重试（各自事务），重复插入视为已落库
+ * 4. 队列满或写入线程未启动时在调用线程同步写入（不丢审计数据）
+ * 5. 逐条重试仍失败的写入序列化后放入 Redis ZSET（score = 下次重试时间），定时按 新锁优先、版本升序 重写，
+ *    成功后删除，失败推迟 retry-interval-seconds；多实例重复重写无副作用（重复插入忽略，状态按版本号覆盖）
+ */
+@Slf4j
+@Component
+public class PriceLockPersister {
+
+    private static final String RETRY_KEY = "pricing:lock:persist:retry";
+
+    private final PriceLockMapper priceLockMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    private BlockingQueue<PendingWrite> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    /**
+     * 收集窗口（毫秒）
+     */
+    @Value("${pricing.lock-store.persist.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    /**
+     * 单批最大条数
+     */
+    @Value("${pricing.lock-store.persist.max-batch:200}")
+    private int maxBatch;
+
+    /**
+     * 队列容量，队列满时调用线程同步写入
+     */
+    @Value("${pricing.lock-store.persist.queue-capacity:20000}")
+    private int queueCapacity;
+
+    /**
+     * 落库失败后的重试间隔（秒）
+     */
+    @Value("${pricing.lock-store.persist.retry-interval-seconds:30}")
+    private long retryIntervalSeconds;
+
+    /**
+     * 每轮最多重写的失败记录数
+     */
+    @Value("${pricing.lock-store.persist.retry-batch-size:200}")
+    private int retryBatchSize;
+
+    public PriceLockPersister(PriceLockMapper priceLockMapper, TransactionTemplate transactionTemplate,
+                              StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.priceLockMapper = priceLockMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        running = true;
+        flusher = new Thread(this::runLoop, "price-lock-persister");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("[PriceLockPersister] Started, flushIntervalMs={}, maxBatch={}, queueCapacity={}",
+                flushIntervalMs, maxBatch, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 停止后剩余写入逐批写完
+        List<PendingWrite> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int i = 0; i < rest.size(); i += maxBatch) {
+            flush(rest.subList(i, Math.min(i + maxBatch, rest.size())));
+        }
+        log.info("[PriceLockPersister] Stopped, batches={}, written={}, failures={}",
+                batches.sum(), written.sum(), failures.sum());
+    }
+
+    /**
+     * 新价格锁落库（入参之后不得再修改）
+     */
+    public void insertAsync(PriceLock priceLock) {
+        LocalDateTime now = LocalDateTime.now();
+        priceLock.setCreatedAt(now);
+        priceLock.setUpdatedAt(now);
+        submit(new PendingWrite(priceLock, true));
+    }
+
+    /**
+     * 状态变更落库（status/usedOrderNo/usedAt/version）
+     */
+    public void updateAsync(PriceLock priceLock) {
+        submit(new PendingWrite(priceLock, false));
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    public long getRetriedCount() {
+        return retried.sum();
+    }
+
+    /**
+     * 重写落库失败的记录：新锁先插入，同一价格锁的状态变更按版本升序
+     */
+    @Scheduled(fixedDelayString = "${pricing.lock-store.persist.retry-poll-ms:10000}")
+    public void retryFailed() {
+        try {
+            Set<String> due = redisTemplate.opsForZSet()
+                    .rangeByScore(RETRY_KEY, 0, System.currentTimeMillis(), 0, retryBatchSize);
+            if (due == null || due.isEmpty()) {
+                return;
+            }
+            Map<String, PendingWrite> writes = new LinkedHashMap<>();
+            for (String member : due) {
+                try {
+                    writes.put(member, objectMapper.readValue(member, PendingWrite.class));
+                } catch (JsonProcessingException e) {
+                    log.error("[PriceLockPersister] Invalid retry record, drop, member={}", member);
+                    redisTemplate.opsForZSet().remove(RETRY_KEY, member);
+                }
+            }
+            List<Map.Entry<String, PendingWrite>> ordered = new ArrayList<>(writes.entrySet());
+            ordered.sort(Comparator.comparing((Map.Entry<String, PendingWrite> e) -> !e.getValue().isInsert())
+                    .thenComparing(e -> e.getValue().getPriceLock().getVersion()));
+
+            int succeeded = 0;
+            for (Map.Entry<String, PendingWrite> entry : ordered) {
+                PriceLock priceLock = entry.getValue().getPriceLock();
+                try {
+                    write(entry.getValue());
+                } catch (DuplicateKeyException e) {
+                    log.info("[PriceLockPersister] Price lock already persisted, priceLockNo={}", priceLock.getPriceLockNo());
+                } catch (RuntimeException e) {
+                    redisTemplate.opsForZSet().add(RETRY_KEY, entry.getKey(), nextAttemptAt());
+                    log.warn("[PriceLockPersister] Retried persist failed, priceLockNo={}, next in {}s, error={}",
+                            priceLock.getPriceLockNo(), retryIntervalSeconds, e.getMessage());
+                    continue;
+                }
+                redisTemplate.opsForZSet().remove(RETRY_KEY, entry.getKey());
+                retried.increment();
+                succeeded++;
+            }
+            log.info("[PriceLockPersister] Retry round finished, due={}, succeeded={}", writes.size(), succeeded);
+        } catch (Exception e) {
+            log.warn("[PriceLockPersister] Retry round failed, error={}", e.getMessage(), e);
+        }
+    }
+
+    private void submit(PendingWrite write) {
+        if (!running || !queue.offer(write)) {
+            writeSingle(write);
+        }
+    }
+
+    private void runLoop() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                PendingWrite first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < maxBatch) {
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                failures.add(batch.size());
+                log.error("[PriceLockPersister] Flush loop error, size={}, error={}", batch.size(), e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void flush(List<PendingWrite> batch) {
+        // 1. 新锁按入队顺序插入；同一价格锁的状态变更只保留最新版本
+        List<PriceLock> inserts = new ArrayList<>();
+        Map<String, PriceLock> updates = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            PriceLock priceLock = write.getPriceLock();
+            if (write.isInsert()) {
+                inserts.add(priceLock);
+            } else {
+                updates.merge(priceLock.getPriceLockNo(), priceLock,
+                        (a, b) -> a.getVersion() >= b.getVersion() ? a : b);
+            }
+        }
+
+        // 2. 整批一个事务（先插入后更新）
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!inserts.isEmpty()) {
+                    priceLockMapper.insertBatch(inserts);
+                }
+                updates.values().forEach(this::syncState);
+            });
+            batches.increment();
+            written.add(inserts.size() + updates.size());
+            log.debug("[PriceLockPersister] Batch committed, inserts={}, updates={}", inserts.size(), updates.size());
+            return;
+        } catch (RuntimeException e) {
+            log.warn("[PriceLockPersister] Batch failed, retry one by one, inserts={}, updates={}, error={}",
+                    inserts.size(), updates.size(), e.getMessage());
+        }
+
+        // 3. 逐条重试，失败只影响该条
+        for (PriceLock priceLock : inserts) {
+            writeSingle(new PendingWrite(priceLock, true));
+        }
+        for (PriceLock priceLock : updates.values()) {
+            writeSingle(new PendingWrite(priceLock, false));
+        }
+    }
+
+    private void writeSingle(PendingWrite write) {
+        PriceLock priceLock = write.getPriceLock();
+        try {
+            write(write);
+            written.increment();
+        } catch (DuplicateKeyException e) {
+            log.info("[PriceLockPersister] Price lock already persisted, priceLockNo={}", priceLock.getPriceLockNo());
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.error("[PriceLockPersister] Persist failed, queued for retry, priceLockNo={}, insert={}, status={}, error={}",
+                    priceLock.getPriceLockNo(), write.isInsert(), priceLock.getStatus(), e.getMessage(), e);
+            enqueueRetry(write);
+        }
+    }
+
+    private void write(PendingWrite write) {
+        PriceLock priceLock = write.getPriceLock();
+        if (write.isInsert()) {
+            transactionTemplate.executeWithoutResult(status -> priceLockMapper.insertBatch(List.of(priceLock)));
+        } else {
+            transactionTemplate.executeWithoutResult(status -> syncState(priceLock));
+        }
+    }
+
+    /**
+     * 登记落库失败的写入，Redis不可用时只能记错误日志
+     */
+    private void enqueueRetry(PendingWrite write) {
+        PriceLock priceLock = write.getPriceLock();
+        try {
+            redisTemplate.opsForZSet().add(RETRY_KEY, objectMapper.writeValueAsString(write), nextAttemptAt());
+        } catch (Exception e) {
+            log.error("[PriceLockPersister] Enqueue retry failed, write lost, priceLockNo={}, insert={}, status={}, version={}, error={}",
+                    priceLock.getPriceLockNo(), write.isInsert(), priceLock.getStatus(), priceLock.getVersion(),
+                    e.getMessage(), e);
+        }
+    }
+
+    private double nextAttemptAt() {
+        return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(retryIntervalSeconds);
+    }
+
+    private void syncState(PriceLock priceLock) {
+        int rows = priceLockMapper.syncState(priceLock.getPriceLockNo(), priceLock.getStatus(),
+                priceLock.getUsedOrderNo(), priceLock.getUsedAt(), priceLock.getVersion());
+        if (rows == 0) {
+            log.debug("[PriceLockPersister] State not newer or row missing, priceLockNo={}, version={}",
+                    priceLock.getPriceLockNo(), priceLock.getVersion());
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class PendingWrite {
+        private PriceLock priceLock;
+        private boolean insert;
+    }
+}
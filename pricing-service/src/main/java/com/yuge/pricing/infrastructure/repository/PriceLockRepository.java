@@ -6,6 +6,8 @@ import com.yuge.pricing.infrastructure.mapper.PriceLockMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -39,11 +41,41 @@ public class PriceLockRepository {
         return priceLockMapper.casUse(id, orderNo, version) > 0;
     }
 
+    public boolean casReserve(Long id, String orderNo, Integer version) {
+        return priceLockMapper.casReserve(id, orderNo, version) > 0;
+    }
+
+    public boolean confirmReserved(String priceLockNo, String orderNo) {
+        return priceLockMapper.confirmReserved(priceLockNo, orderNo) > 0;
+    }
+
+    public boolean releaseReserved(String priceLockNo, String orderNo) {
+        return priceLockMapper.releaseReserved(priceLockNo, orderNo) > 0;
+    }
+
     public boolean casCancel(Long id, Integer version) {
         return priceLockMapper.casCancel(id, version) > 0;
     }
 
-    public int expireLocks() {
-        return priceLockMapper.expireLocks();
+    public boolean cancelForOrder(String priceLockNo, String orderNo) {
+        return priceLockMapper.cancelForOrder(priceLockNo, orderNo) > 0;
+    }
+
+    public List<PriceLock> findExpiredPage(LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                           LocalDateTime afterExpireAt, Long afterId, int limit) {
+        return priceLockMapper.selectExpiredPage(rangeStart, rangeEnd, afterExpireAt, afterId, limit);
+    }
+
+    public int expireByIds(List<Long> ids) {
+        return priceLockMapper.expireByIds(ids);
+    }
+
+    public List<PriceLock> findExpiredReservedPage(LocalDateTime before, LocalDateTime afterExpireAt,
+                                                   Long afterId, int limit) {
+        return priceLockMapper.selectExpiredReservedPage(before, afterExpireAt, afterId, limit);
+    }
+
+    public int expireReservedByIds(List<Long> ids, LocalDateTime before) {
+        return priceLockMapper.expireReservedByIds(ids, before);
     }
 }
@@ -0,0 +1,108 @@
+package com.yuge.pricing.infrastructure.task;
+
+import com.yuge.pricing.application.PromotionClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 解券失败重试任务
+ *
+ * 1. 取消价格锁、锁价写入失败时解券调用失败的，按 priceLockNo|券1,券2 写入 Redis ZSET（score = 下次重试时间）
+ * 2. 定时取出到期的记录，一次批量解券调用；成功后删除，失败时推迟 retry-interval-seconds 再试，直到成功
+ * 3. 促销服务不会自动释放已锁定的券（已下单的券一直保持锁定），未解锁的券只能靠这里重试
+ *
+ * 多实例可能同时取到同一批记录，解券只解锁被该价格锁锁定的券，重复调用无副作用
+ */
+@Slf4j
+@Component
+public class CouponUnlockRetryTask {
+
+    private static final String RETRY_KEY = "pricing:coupon:unlock:retry";
+    private static final String MEMBER_SEPARATOR = "|";
+
+    private final PromotionClient promotionClient;
+    private final StringRedisTemplate redisTemplate;
+
+    private final LongAdder retried = new LongAdder();
+
+    /**
+     * 重试间隔（秒）
+     */
+    @Value("${pricing.coupon-unlock-retry.retry-interval-seconds:30}")
+    private long retryIntervalSeconds;
+
+    /**
+     * 每轮最多重试的价格锁数（一次批量解券调用）
+     */
+    @Value("${pricing.coupon-unlock-retry.batch-size:200}")
+    private int batchSize;
+
+    public CouponUnlockRetryTask(PromotionClient promotionClient, StringRedisTemplate redisTemplate) {
+        this.promotionClient = promotionClient;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 登记解券失败的价格锁，Redis不可用时只能记错误日志
+     */
+    public void enqueue(String priceLockNo, List<String> userCouponNos) {
+        String member = priceLockNo + MEMBER_SEPARATOR + String.join(",", userCouponNos);
+        try {
+            redisTemplate.opsForZSet().add(RETRY_KEY, member, nextAttemptAt());
+            log.warn("[CouponUnlockRetryTask] Unlock queued for retry, priceLockNo={}, userCouponNos={}",
+                    priceLockNo, userCouponNos);
+        } catch (Exception e) {
+            log.error("[CouponUnlockRetryTask] Enqueue failed, coupons stay locked, priceLockNo={}, userCouponNos={}, error={}",
+                    priceLockNo, userCouponNos, e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pricing.coupon-unlock-retry.interval-ms:10000}")
+    public void retry() {
+        try {
+            Set<String> due = redisTemplate.opsForZSet()
+                    .rangeByScore(RETRY_KEY, 0, System.currentTimeMillis(), 0, batchSize);
+            if (due == null || due.isEmpty()) {
+                return;
+            }
+            Map<String, List<String>> batch = new LinkedHashMap<>();
+            for (String member : due) {
+                int sep = member.indexOf(MEMBER_SEPARATOR);
+                batch.put(member.substring(0, sep), Arrays.asList(member.substring(sep + 1).split(",")));
+            }
+            if (promotionClient.batchUnlockCoupons(batch)) {
+                redisTemplate.opsForZSet().remove(RETRY_KEY, due.toArray());
+                retried.add(due.size());
+                log.info("[CouponUnlockRetryTask] Retried unlock succeeded, locks={}", due.size());
+                return;
+            }
+            double next = nextAttemptAt();
+            List<String> members = new ArrayList<>(due);
+            members.forEach(member -> redisTemplate.opsForZSet().add(RETRY_KEY, member, next));
+            log.warn("[CouponUnlockRetryTask] Retried unlock failed, locks={}, next in {}s",
+                    members.size(), retryIntervalSeconds);
+        } catch (Exception e) {
+            log.warn("[CouponUnlockRetryTask] Retry round failed, error={}", e.getMessage(), e);
+        }
+    }
+
+    public long getRetriedCount() {
+        return retried.sum();
+    }
+
+    private double nextAttemptAt() {
+        return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(retryIntervalSeconds);
+    }
+}
@@ -0,0 +1,353 @@
+package com.yuge.pricing.infrastructure.task;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.platform.infra.lease.RedisLeaseService;
+import com.yuge.pricing.application.PromotionClient;
+import com.yuge.pricing.domain.entity.PriceLock;
+import com.yuge.pricing.infrastructure.redis.PriceLockRedisStore;
+import com.yuge.pricing.infrastructure.repository.PriceLockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * 价格锁过期清理任务
+ *
+ * 1. 按 expire_at 切分为固定区间（range-seconds），每个区间通过 Redis 租约（SET NX PX）由唯一实例清理，
+ *    逐页续约，扫完后打完成标记，其他实例跳过；lookback 之前的积压作为一个独立区间每轮兜底
+ * 2. 区间内按 (expire_at, id) 键集分页，每页：先批量解券（按价格锁分组，unlock-batch-size 个锁一次调用），
+ *    再一条UPDATE批量置为 EXPIRED；每条SQL自动提交，不开长事务
+ * 3. 只清理过期时间早于 当前时间 - 宽限期 的锁：此时Redis中的热数据通常已到期清理，数据库为唯一状态；
+ *    已使用的锁在Redis中保留更久，且落库可能仍在重试，因此Redis中仍存在的锁一律跳过（区间不打完成标记），
+ *    避免把已使用但数据库仍为 LOCKED 的锁解券置过期
+ * 4. 解券失败时本区间停止（不置过期、不打完成标记），下一轮重试；解券与置过期均幂等
+ * 5. 预占（RESERVED）的锁在 expire_at + reserved-grace-seconds 后仍未确认/释放，说明下单结果未知且订单侧未对账，
+ *    同样解券并置为 EXPIRED（单独租约，键集分页）；宽限期需大于订单创建事件的确认重试窗口
+ */
+@Slf4j
+@Component
+public class PriceLockExpirySweeper {
+
+    private static final String LEASE_KEY_PREFIX = "pricing:lock:sweep:lease:";
+    private static final String DONE_KEY_PREFIX = "pricing:lock:sweep:done:";
+    private static final String BACKLOG_RANGE = "backlog";
+    private static final String RESERVED_RANGE = "reserved";
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final PriceLockRepository priceLockRepository;
+    private final PriceLockRedisStore priceLockRedisStore;
+    private final PromotionClient promotionClient;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisLeaseService leaseService;
+    private final ObjectMapper objectMapper;
+    private final String instanceId;
+
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder unlockCalls = new LongAdder();
+    private final LongAdder skippedLive = new LongAdder();
+
+    @Value("${pricing.lock-sweeper.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 区间宽度（秒）
+     */
+    @Value("${pricing.lock-sweeper.range-seconds:60}")
+    private long rangeSeconds;
+
+    /**
+     * 逐区间清理的回看时长（分钟），更早的积压作为一个区间兜底
+     */
+    @Value("${pricing.lock-sweeper.lookback-minutes:60}")
+    private long lookbackMinutes;
+
+    /**
+     * 每页数量（一次查询、一条UPDATE）
+     */
+    @Value("${pricing.lock-sweeper.page-size:500}")
+    private int pageSize;
+
+    /**
+     * 每次批量解券调用包含的价格锁数（促销服务单次上限500）
+     */
+    @Value("${pricing.lock-sweeper.unlock-batch-size:200}")
+    private int unlockBatchSize;
+
+    /**
+     * 区间租约时长（秒），每页续约
+     */
+    @Value("${pricing.lock-sweeper.lease-seconds:60}")
+    private long leaseSeconds;
+
+    /**
+     * 与Redis热存储的宽限期一致
+     */
+    @Value("${pricing.lock-store.expire-grace-seconds:300}")
+    private long expireGraceSeconds;
+
+    /**
+     * 预占超时宽限期（秒）：预占的锁在 expire_at 之后再等待该时长仍未确认/释放才过期
+     */
+    @Value("${pricing.lock-sweeper.reserved-grace-seconds:1800}")
+    private long reservedGraceSeconds;
+
+    public PriceLockExpirySweeper(PriceLockRepository priceLockRepository,
+                                  PriceLockRedisStore priceLockRedisStore,
+                                  PromotionClient promotionClient,
+                                  StringRedisTemplate redisTemplate,
+                                  RedisLeaseService leaseService,
+                                  ObjectMapper objectMapper) {
+        this.priceLockRepository = priceLockRepository;
+        this.priceLockRedisStore = priceLockRedisStore;
+        this.promotionClient = promotionClient;
+        this.redisTemplate = redisTemplate;
+        this.leaseService = leaseService;
+        this.objectMapper = objectMapper;
+        this.instanceId = RedisLeaseService.newHolderId();
+    }
+
+    @Scheduled(fixedDelayString = "${pricing.lock-sweeper.interval-ms:10000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long rangeMs = TimeUnit.SECONDS.toMillis(rangeSeconds);
+            long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(expireGraceSeconds);
+            long lastEnd = Math.floorDiv(cutoff, rangeMs) * rangeMs;
+            long firstStart = lastEnd - TimeUnit.MINUTES.toMillis(lookbackMinutes);
+
+            // 1. 积压区间（回看窗口之前）
+            LocalDateTime backlogEnd = toDateTime(firstStart);
+            sweepWithLease(BACKLOG_RANGE, renew -> sweepRange(EPOCH, backlogEnd, renew), false);
+
+            // 2. 回看窗口内未完成的区间
+            List<Long> starts = new ArrayList<>();
+            List<String> doneKeys = new ArrayList<>();
+            for (long start = firstStart; start < lastEnd; start += rangeMs) {
+                starts.add(start);
+                doneKeys.add(DONE_KEY_PREFIX + start);
+            }
+            List<String> done = redisTemplate.opsForValue().multiGet(doneKeys);
+            for (int i = 0; i < starts.size(); i++) {
+                if (done != null && done.get(i) != null) {
+                    continue;
+                }
+                long start = starts.get(i);
+                LocalDateTime rangeStart = toDateTime(start);
+                LocalDateTime rangeEnd = toDateTime(start + rangeMs);
+                sweepWithLease(String.valueOf(start), renew -> sweepRange(rangeStart, rangeEnd, renew), true);
+            }
+
+            // 3. 预占超时的锁
+            LocalDateTime reservedBefore = toDateTime(System.currentTimeMillis()
+                    - TimeUnit.SECONDS.toMillis(Math.max(reservedGraceSeconds, expireGraceSeconds)));
+            sweepWithLease(RESERVED_RANGE, renew -> sweepReserved(reservedBefore, renew), false);
+        } catch (Exception e) {
+            log.warn("[PriceLockExpirySweeper] Sweep failed, error={}", e.getMessage(), e);
+        }
+    }
+
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    public long getUnlockCallCount() {
+        return unlockCalls.sum();
+    }
+
+    public long getSkippedLiveCount() {
+        return skippedLive.sum();
+    }
+
+    private void sweepWithLease(String range, Predicate<BooleanSupplier> sweeper, boolean markDone) {
+        String leaseKey = LEASE_KEY_PREFIX + range;
+        long leaseMs = TimeUnit.SECONDS.toMillis(leaseSeconds);
+        if (!leaseService.tryAcquire(leaseKey, instanceId, leaseMs)) {
+            return;
+        }
+        try {
+            boolean completed = sweeper.test(() -> leaseService.renew(leaseKey, instanceId, leaseMs));
+            if (completed && markDone) {
+                redisTemplate.opsForValue().set(DONE_KEY_PREFIX + range, instanceId,
+                        lookbackMinutes + TimeUnit.SECONDS.toMinutes(rangeSeconds) + 1, TimeUnit.MINUTES);
+            }
+        } finally {
+            leaseService.release(leaseKey, instanceId);
+        }
+    }
+
+    /**
+     * 清理一个区间
+     *
+     * @param renewLease 每页之后续约，返回 false 表示租约已丢失
+     * @return 区间是否已清理完（有Redis中仍存在而跳过的锁时为 false）
+     */
+    boolean sweepRange(LocalDateTime rangeStart, LocalDateTime rangeEnd, BooleanSupplier renewLease) {
+        return sweepPages(rangeStart, rangeEnd,
+                (afterExpireAt, afterId) -> priceLockRepository.findExpiredPage(
+                        rangeStart, rangeEnd, afterExpireAt, afterId, pageSize),
+                priceLockRepository::expireByIds, renewLease);
+    }
+
+    /**
+     * 清理预占超时的锁（expire_at 早于 before 仍为 RESERVED）
+     *
+     * @return 是否已清理完
+     */
+    boolean sweepReserved(LocalDateTime before, BooleanSupplier renewLease) {
+        return sweepPages(EPOCH, before,
+                (afterExpireAt, afterId) -> {
+                    List<PriceLock> page = priceLockRepository.findExpiredReservedPage(
+                            before, afterExpireAt, afterId, pageSize);
+                    for (PriceLock priceLock : page) {
+                        log.warn("[PriceLockExpirySweeper] Reserved lock never confirmed or released, expire it, priceLockNo={}, orderNo={}",
+                                priceLock.getPriceLockNo(), priceLock.getUsedOrderNo());
+                    }
+                    return page;
+                },
+                ids -> priceLockRepository.expireReservedByIds(ids, before), renewLease);
+    }
+
+    private boolean sweepPages(LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                               BiFunction<LocalDateTime, Long, List<PriceLock>> pageLoader,
+                               ToIntFunction<List<Long>> expirer, BooleanSupplier renewLease) {
+        LocalDateTime afterExpireAt = rangeStart;
+        long afterId = 0L;
+        int rangeExpired = 0;
+        int rangeSkipped = 0;
+        while (true) {
+            List<PriceLock> page = pageLoader.apply(afterExpireAt, afterId);
+            if (page.isEmpty()) {
+                break;
+            }
+
+            // 1. 跳过Redis中仍存在的锁（数据库状态可能落后，以Redis为准，落库重试完成后再处理）
+            List<PriceLock> expiring = excludeLive(page);
+            rangeSkipped += page.size() - expiring.size();
+
+            // 2. 先解券，失败则本区间留待下一轮
+            if (!unlockCoupons(expiring)) {
+                log.warn("[PriceLockExpirySweeper] Unlock coupons failed, stop range, rangeStart={}, expired={}",
+                        rangeStart, rangeExpired);
+                return false;
+            }
+
+            // 3. 批量置过期
+            if (!expiring.isEmpty()) {
+                List<Long> ids = new ArrayList<>(expiring.size());
+                for (PriceLock priceLock : expiring) {
+                    ids.add(priceLock.getId());
+                }
+                int rows = expirer.applyAsInt(ids);
+                rangeExpired += rows;
+                expired.add(rows);
+            }
+
+            if (page.size() < pageSize) {
+                break;
+            }
+            PriceLock last = page.get(page.size() - 1);
+            afterExpireAt = last.getExpireAt();
+            afterId = last.getId();
+            if (!renewLease.getAsBoolean()) {
+                log.warn("[PriceLockExpirySweeper] Lease lost, stop range, rangeStart={}, expired={}",
+                        rangeStart, rangeExpired);
+                return false;
+            }
+        }
+        if (rangeExpired > 0 || rangeSkipped > 0) {
+            log.info("[PriceLockExpirySweeper] Range swept, rangeStart={}, rangeEnd={}, expired={}, skippedLive={}",
+                    rangeStart, rangeEnd, rangeExpired, rangeSkipped);
+        }
+        return rangeSkipped == 0;
+    }
+
+    /**
+     * 去掉Redis中仍存在的锁；Redis不可用时抛出异常，本轮放弃
+     */
+    private List<PriceLock> excludeLive(List<PriceLock> page) {
+        List<String> priceLockNos = new ArrayList<>(page.size());
+        for (PriceLock priceLock : page) {
+            priceLockNos.add(priceLock.getPriceLockNo());
+        }
+        Set<String> live = priceLockRedisStore.findLive(priceLockNos);
+        if (live.isEmpty()) {
+            return page;
+        }
+        List<PriceLock> expiring = new ArrayList<>(page.size() - live.size());
+        for (PriceLock priceLock : page) {
+            if (live.contains(priceLock.getPriceLockNo())) {
+                log.warn("[PriceLockExpirySweeper] Price lock still live in redis, skip, priceLockNo={}",
+                        priceLock.getPriceLockNo());
+            } else {
+                expiring.add(priceLock);
+            }
+        }
+        skippedLive.add(live.size());
+        return expiring;
+    }
+
+    /**
+     * 按价格锁分组批量解券
+     */
+    private boolean unlockCoupons(List<PriceLock> page) {
+        Map<String, List<String>> batch = new LinkedHashMap<>();
+        for (PriceLock priceLock : page) {
+            List<String> couponNos = parseCouponNos(priceLock);
+            if (couponNos.isEmpty()) {
+                continue;
+            }
+            batch.put(priceLock.getPriceLockNo(), couponNos);
+            if (batch.size() >= unlockBatchSize) {
+                if (!callUnlock(batch)) {
+                    return false;
+                }
+                batch = new LinkedHashMap<>();
+            }
+        }
+        return batch.isEmpty() || callUnlock(batch);
+    }
+
+    private boolean callUnlock(Map<String, List<String>> batch) {
+        unlockCalls.increment();
+        return promotionClient.batchUnlockCoupons(batch);
+    }
+
+    private List<String> parseCouponNos(PriceLock priceLock) {
+        String json = priceLock.getCouponNosJson();
+        if (json == null || json.isEmpty()) {
+            return List.of();
+        }
+        try {
+            List<String> couponNos = objectMapper.readValue(json, new TypeReference<List<String>>() {});
+            return couponNos != null ? couponNos : List.of();
+        } catch (JsonProcessingException e) {
+            log.warn("[PriceLockExpirySweeper] Invalid coupon_nos_json, priceLockNo={}", priceLock.getPriceLockNo());
+            return List.of();
+        }
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
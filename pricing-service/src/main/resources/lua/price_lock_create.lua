@@ -0,0 +1,44 @@
+--[[
+    价格锁创建 Lua 脚本
+
+    功能：原子性写入价格锁热数据，并设置过期时间（过期时间 + 宽限期）
+
+    Key: pricing:lock:{priceLockNo}  (Hash)
+    Fields:
+      status      - 状态 LOCKED/RESERVED/USED/CANCELED
+      usedOrderNo - 预占/使用的订单号（无则为空串）
+      usedAt      - 使用时间（毫秒时间戳，无则为空串）
+      signature   - 签名
+      expireAt    - 价格锁过期时间（毫秒时间戳）
+      version     - 版本号，每次状态变化 +1，异步落库时按版本号覆盖
+      lock        - 价格锁完整数据（JSON，创建后不变）
+
+    KEYS[1] = pricing:lock:{priceLockNo}
+
+    ARGV[1] = 价格锁JSON
+    ARGV[2] = 签名
+    ARGV[3] = 过期时间（毫秒时间戳）
+    ARGV[4] = key 过期时间（毫秒时间戳）
+
+    返回值:
+    1: 创建成功
+    0: 已存在
+--]]
+
+local key = KEYS[1]
+
+if redis.call('EXISTS', key) == 1 then
+    return 0
+end
+
+redis.call('HSET', key,
+        'status', 'LOCKED',
+        'usedOrderNo', '',
+        'usedAt', '',
+        'signature', ARGV[2],
+        'expireAt', ARGV[3],
+        'version', 1,
+        'lock', ARGV[1])
+redis.call('PEXPIREAT', key, ARGV[4])
+
+return 1
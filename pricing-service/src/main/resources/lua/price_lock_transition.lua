@@ -0,0 +1,104 @@
+--[[
+    价格锁状态变更 Lua 脚本
+
+    功能：校验 + 状态变更在一次脚本内完成（替代 SELECT -> CAS -> 再SELECT）
+
+    KEYS[1] = pricing:lock:{priceLockNo}
+
+    ARGV[1] = 操作 RESERVE/USE/CONFIRM/RELEASE/CANCEL
+    ARGV[2] = 订单号（CANCEL 传空串表示用户取消未使用的锁，传订单号表示随订单取消）
+    ARGV[3] = 签名（仅 RESERVE/USE 校验，其他传空串）
+    ARGV[4] = 当前时间（毫秒时间戳）
+    ARGV[5] = 已使用的锁保留时长（毫秒），USED 后重置 key 过期时间，供订单取消时解锁
+
+    操作:
+    RESERVE: LOCKED -> RESERVED；本订单已预占/已使用时不变
+    USE:     LOCKED -> USED（一步完成）
+    CONFIRM: RESERVED(本订单) -> USED；本订单已使用时不变
+    RELEASE: RESERVED(本订单) -> LOCKED；其他情况不变
+    CANCEL:  订单号为空时 LOCKED -> CANCELED；否则 RESERVED/USED(本订单) -> CANCELED；其他情况不变
+
+    返回值:
+    {'NOT_FOUND'}: key 不存在（已过期清理或未写入Redis），由调用方回退到数据库
+    {code, status, usedOrderNo, usedAt, version, lock}:
+      code = OK / UNCHANGED / SIGN_INVALID / STATE_INVALID / EXPIRED，其余为变更后的字段
+--]]
+
+local key = KEYS[1]
+local op = ARGV[1]
+local orderNo = ARGV[2]
+local signature = ARGV[3]
+local now = tonumber(ARGV[4])
+local usedTtl = tonumber(ARGV[5])
+
+local fields = redis.call('HMGET', key, 'status', 'usedOrderNo', 'signature', 'expireAt')
+local status = fields[1]
+if not status then
+    return {'NOT_FOUND'}
+end
+local owner = fields[2] or ''
+local expireAt = tonumber(fields[4])
+
+local function result(code)
+    local r = redis.call('HMGET', key, 'status', 'usedOrderNo', 'usedAt', 'version', 'lock')
+    return {code, r[1], r[2] or '', r[3] or '', r[4], r[5]}
+end
+
+local function move(to, newOwner, usedAt)
+    redis.call('HSET', key, 'status', to, 'usedOrderNo', newOwner)
+    if usedAt then
+        redis.call('HSET', key, 'usedAt', usedAt)
+        redis.call('PEXPIRE', key, usedTtl)
+    end
+    redis.call('HINCRBY', key, 'version', 1)
+    return result('OK')
+end
+
+if op == 'RESERVE' or op == 'USE' then
+    if fields[3] ~= signature then
+        return result('SIGN_INVALID')
+    end
+    if op == 'RESERVE' and owner == orderNo and (status == 'RESERVED' or status == 'USED') then
+        return result('UNCHANGED')
+    end
+    if status ~= 'LOCKED' then
+        return result('STATE_INVALID')
+    end
+    if now > expireAt then
+        return result('EXPIRED')
+    end
+    if op == 'RESERVE' then
+        return move('RESERVED', orderNo, nil)
+    end
+    return move('USED', orderNo, tostring(now))
+end
+
+if op == 'CONFIRM' then
+    if owner == orderNo and status == 'RESERVED' then
+        return move('USED', orderNo, tostring(now))
+    end
+    if owner == orderNo and status == 'USED' then
+        return result('UNCHANGED')
+    end
+    return result('STATE_INVALID')
+end
+
+if op == 'RELEASE' then
+    if owner == orderNo and status == 'RESERVED' then
+        return move('LOCKED', '', nil)
+    end
+    return result('UNCHANGED')
+end
+
+if op == 'CANCEL' then
+    if orderNo == '' then
+        if status == 'LOCKED' then
+            return move('CANCELED', owner, nil)
+        end
+    elseif owner == orderNo and (status == 'RESERVED' or status == 'USED') then
+        return move('CANCELED', owner, nil)
+    end
+    return result('UNCHANGED')
+end
+
+return redis.error_reply('unknown price lock op: ' .. op)
@@ -0,0 +1,291 @@
+package com.yuge.pricing;
+
+import com.yuge.pricing.api.dto.ListingQuoteRequest;
+import com.yuge.pricing.api.dto.QuoteRequest;
+import com.yuge.pricing.application.PromotionClient;
+import com.yuge.pricing.application.PromotionDisplayPrice;
+import com.yuge.pricing.application.PromotionResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 促销服务客户端内存实现（测试用，替代远程调用promotion-service）
+ */
+@Slf4j
+public class InMemoryPromotionClient implements PromotionClient {
+
+    // 模拟优惠券数据存储
+    private static final Map<String, MockCoupon> COUPON_STORE = new ConcurrentHashMap<>();
+    private static final Map<String, MockUserCoupon> USER_COUPON_STORE = new ConcurrentHashMap<>();
+
+    /**
+     * 调用促销服务试算
+     */
+    @Override
+    public PromotionResult applyPromotion(Long userId, List<QuoteRequest.ItemInfo> items, List<String> userCouponNos) {
+        // 1. 计算商品原价总额
+        BigDecimal originalAmount = items.stream()
+                .map(item -> item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQty())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        // 2. 查询用户可用优惠券
+        List<PromotionResult.AvailableCoupon> availableCoupons = new ArrayList<>();
+        for (MockUserCoupon uc : USER_COUPON_STORE.values()) {
+            if (uc.getUserId().equals(userId) && "AVAILABLE".equals(uc.getStatus())) {
+                MockCoupon coupon = COUPON_STORE.get(uc.getCouponCode());
+                if (coupon != null) {
+                    boolean eligible = originalAmount.compareTo(coupon.getThresholdAmount()) >= 0;
+                    availableCoupons.add(PromotionResult.AvailableCoupon.builder()
+                            .userCouponNo(uc.getUserCouponNo())
+                            .couponId(coupon.getId())
+                            .couponName(coupon.getName())
+                            .couponType(coupon.getType())
+                            .thresholdAmount(coupon.getThresholdAmount())
+                            .discountAmount(coupon.getDiscountAmount())
+                            .discountRate(coupon.getDiscountRate())
+                            .maxDiscountAmount(coupon.getMaxDiscountAmount())
+                            .eligible(eligible)
+                            .ineligibleReason(eligible ? null : 
+                                    String.format("订单金额%.2f未达到门槛%.2f", originalAmount, coupon.getThresholdAmount()))
+                            .build());
+                }
+            }
+        }
+
+        // 3. 计算优惠
+        BigDecimal totalDiscount = BigDecimal.ZERO;
+        List<PromotionResult.RuleHit> hitRules = new ArrayList<>();
+
+        if (userCouponNos != null && !userCouponNos.isEmpty()) {
+            for (String userCouponNo : userCouponNos) {
+                MockUserCoupon uc = USER_COUPON_STORE.get(userCouponNo);
+                if (uc == null || !uc.getUserId().equals(userId)) continue;
+                if (!"AVAILABLE".equals(uc.getStatus()) && !"LOCKED".equals(uc.getStatus())) continue;
+
+                MockCoupon coupon = COUPON_STORE.get(uc.getCouponCode());
+                if (coupon == null) continue;
+
+                // 检查门槛
+                if (originalAmount.compareTo(coupon.getThresholdAmount()) < 0) continue;
+
+                // 计算优惠金额
+                BigDecimal discount = calculateDiscount(coupon, originalAmount);
+                totalDiscount = totalDiscount.add(discount);
+
+                hitRules.add(PromotionResult.RuleHit.builder()
+                        .ruleType("COUPON")
+                        .ruleId(coupon.getId())
+                        .ruleName(coupon.getName())
+                        .userCouponNo(userCouponNo)
+                        .discountType(coupon.getType())
+                        .thresholdAmount(coupon.getThresholdAmount())
+                        .discountAmount(discount)
+                        .description(buildDiscountDescription(coupon, discount))
+                        .build());
+            }
+        }
+
+        BigDecimal payableAmount = originalAmount.subtract(totalDiscount);
+        if (payableAmount.compareTo(BigDecimal.ZERO) < 0) {
+            payableAmount = BigDecimal.ZERO;
+        }
+
+        return PromotionResult.builder()
+                .userId(userId)
+                .originalAmount(originalAmount)
+                .totalDiscount(totalDiscount)
+                .payableAmount(payableAmount)
+                .hitRules(hitRules)
+                .availableCoupons(availableCoupons)
+                .build();
+    }
+
+    /**
+     * 批量展示价：带用户时取券包中的可用券，否则取全部优惠券（视为可领取），每个SKU取优惠最大的一张
+     */
+    @Override
+    public List<PromotionDisplayPrice> displayPrices(Long userId, List<ListingQuoteRequest.ItemInfo> items) {
+        Map<MockCoupon, String> candidates = new LinkedHashMap<>();
+        if (userId != null) {
+            for (MockUserCoupon uc : USER_COUPON_STORE.values()) {
+                MockCoupon coupon = COUPON_STORE.get(uc.getCouponCode());
+                if (uc.getUserId().equals(userId) && "AVAILABLE".equals(uc.getStatus()) && coupon != null) {
+                    candidates.put(coupon, uc.getUserCouponNo());
+                }
+            }
+        } else {
+            COUPON_STORE.values().forEach(coupon -> candidates.put(coupon, null));
+        }
+
+        List<PromotionDisplayPrice> results = new ArrayList<>(items.size());
+        for (ListingQuoteRequest.ItemInfo item : items) {
+            BigDecimal unitPrice = item.getUnitPrice();
+            MockCoupon best = null;
+            BigDecimal bestDiscount = BigDecimal.ZERO;
+            for (MockCoupon coupon : candidates.keySet()) {
+                if (unitPrice.compareTo(coupon.getThresholdAmount()) < 0) continue;
+                BigDecimal discount = calculateDiscount(coupon, unitPrice);
+                if (discount.compareTo(bestDiscount) > 0) {
+                    best = coupon;
+                    bestDiscount = discount;
+                }
+            }
+            results.add(PromotionDisplayPrice.builder()
+                    .skuId(item.getSkuId())
+                    .unitPrice(unitPrice)
+                    .displayPrice(unitPrice.subtract(bestDiscount))
+                    .discountAmount(bestDiscount)
+                    .ruleType(best != null ? "COUPON" : null)
+                    .ruleId(best != null ? best.getId() : null)
+                    .ruleName(best != null ? best.getName() : null)
+                    .userCouponNo(best != null ? candidates.get(best) : null)
+                    .description(best != null ? buildDiscountDescription(best, bestDiscount) : null)
+                    .build());
+        }
+        return results;
+    }
+
+    /**
+     * 锁定优惠券
+     */
+    @Override
+    public void lockCoupons(Long userId, List<String> userCouponNos, String priceLockNo, LocalDateTime expireAt) {
+        for (String userCouponNo : userCouponNos) {
+            MockUserCoupon uc = USER_COUPON_STORE.get(userCouponNo);
+            if (uc != null && uc.getUserId().equals(userId) && "AVAILABLE".equals(uc.getStatus())) {
+                uc.setStatus("LOCKED");
+                uc.setPriceLockNo(priceLockNo);
+                log.info("[InMemoryPromotionClient] Coupon locked, userCouponNo={}, priceLockNo={}", userCouponNo, priceLockNo);
+            }
+        }
+    }
+
+    /**
+     * 批量解锁优惠券
+     */
+    @Override
+    public boolean batchUnlockCoupons(Map<String, List<String>> userCouponNosByPriceLockNo) {
+        userCouponNosByPriceLockNo.forEach((priceLockNo, userCouponNos) -> unlockCoupons(userCouponNos, priceLockNo));
+        return true;
+    }
+
+    /**
+     * 解锁优惠券
+     */
+    @Override
+    public boolean unlockCoupons(List<String> userCouponNos, String priceLockNo) {
+        for (String userCouponNo : userCouponNos) {
+            MockUserCoupon uc = USER_COUPON_STORE.get(userCouponNo);
+            if (uc != null && "LOCKED".equals(uc.getStatus()) && priceLockNo.equals(uc.getPriceLockNo())) {
+                uc.setStatus("AVAILABLE");
+                uc.setPriceLockNo(null);
+                log.info("[InMemoryPromotionClient] Coupon unlocked, userCouponNo={}", userCouponNo);
+            }
+        }
+        return true;
+    }
+
+    // ========== 模拟数据管理方法（用于测试） ==========
+
+    /**
+     * 添加模拟优惠券
+     */
+    public void addMockCoupon(MockCoupon coupon) {
+        COUPON_STORE.put(coupon.getCouponCode(), coupon);
+    }
+
+    /**
+     * 添加模拟用户优惠券
+     */
+    public void addMockUserCoupon(MockUserCoupon userCoupon) {
+        USER_COUPON_STORE.put(userCoupon.getUserCouponNo(), userCoupon);
+    }
+
+    /**
+     * 清除模拟数据
+     */
+    public void clearMockData() {
+        COUPON_STORE.clear();
+        USER_COUPON_STORE.clear();
+    }
+
+    private BigDecimal calculateDiscount(MockCoupon coupon, BigDecimal orderAmount) {
+        BigDecimal discount;
+        switch (coupon.getType()) {
+            case "FULL_REDUCTION":
+            case "FIXED_AMOUNT":
+                discount = coupon.getDiscountAmount();
+                break;
+            case "DISCOUNT":
+                discount = orderAmount.multiply(BigDecimal.ONE.subtract(coupon.getDiscountRate()))
+                        .setScale(2, RoundingMode.HALF_UP);
+                if (coupon.getMaxDiscountAmount() != null 
+                        && discount.compareTo(coupon.getMaxDiscountAmount()) > 0) {
+                    discount = coupon.getMaxDiscountAmount();
+                }
+                break;
+            default:
+                discount = BigDecimal.ZERO;
+        }
+        if (discount.compareTo(orderAmount) > 0) {
+            discount = orderAmount;
+        }
+        return discount;
+    }
+
+    private String buildDiscountDescription(MockCoupon coupon, BigDecimal discount) {
+        switch (coupon.getType()) {
+            case "FULL_REDUCTION":
+                return String.format("满%.2f减%.2f", coupon.getThresholdAmount(), discount);
+            case "DISCOUNT":
+                return String.format("%.1f折优惠%.2f", 
+                        coupon.getDiscountRate().multiply(BigDecimal.TEN), discount);
+            case "FIXED_AMOUNT":
+                return String.format("立减%.2f", discount);
+            default:
+                return "优惠" + discount;
+        }
+    }
+
+    /**
+     * 模拟优惠券
+     */
+    @lombok.Data
+    @lombok.Builder
+    @lombok.NoArgsConstructor
+    @lombok.AllArgsConstructor
+    public static class MockCoupon {
+        private Long id;
+        private String couponCode;
+        private String name;
+        private String type;
+        private BigDecimal thresholdAmount;
+        private BigDecimal discountAmount;
+        private BigDecimal discountRate;
+        private BigDecimal maxDiscountAmount;
+    }
+
+    /**
+     * 模拟用户优惠券
+     */
+    @lombok.Data
+    @lombok.Builder
+    @lombok.NoArgsConstructor
+    @lombok.AllArgsConstructor
+    public static class MockUserCoupon {
+        private Long id;
+        private String userCouponNo;
+        private Long userId;
+        private String couponCode;
+        private String status;
+        private String priceLockNo;
+    }
+}
@@ -2,11 +2,13 @@ package com.yuge.pricing;
 
 import com.yuge.pricing.api.dto.*;
 import com.yuge.pricing.application.PricingService;
-import com.yuge.pricing.application.PromotionClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
@@ -26,7 +28,17 @@ class PricingServiceTest {
     private PricingService pricingService;
 
     @Autowired
-    private PromotionClient promotionClient;
+    private InMemoryPromotionClient promotionClient;
+
+    @TestConfiguration
+    static class PromotionClientConfig {
+
+        @Bean
+        @Primary
+        InMemoryPromotionClient inMemoryPromotionClient() {
+            return new InMemoryPromotionClient();
+        }
+    }
 
     @BeforeEach
     void setUp() {
@@ -34,7 +46,7 @@ class PricingServiceTest {
         promotionClient.clearMockData();
 
         // 添加模拟优惠券
-        PromotionClient.MockCoupon coupon = PromotionClient.MockCoupon.builder()
+        InMemoryPromotionClient.MockCoupon coupon = InMemoryPromotionClient.MockCoupon.builder()
                 .id(1L)
                 .couponCode("CPN001")
                 .name("满100减20")
@@ -45,7 +57,7 @@ class PricingServiceTest {
         promotionClient.addMockCoupon(coupon);
 
         // 添加模拟用户优惠券
-        PromotionClient.MockUserCoupon userCoupon = PromotionClient.MockUserCoupon.builder()
+        InMemoryPromotionClient.MockUserCoupon userCoupon = InMemoryPromotionClient.MockUserCoupon.builder()
                 .id(1L)
                 .userCouponNo("UC001")
                 .userId(10001L)
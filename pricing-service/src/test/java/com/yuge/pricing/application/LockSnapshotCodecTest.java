@@ -0,0 +1,153 @@
+package com.yuge.pricing.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.pricing.api.dto.LockRequest;
+import com.yuge.pricing.api.dto.LockResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 锁价快照二进制编码单元测试 - 往返、签名与体积
+ */
+class LockSnapshotCodecTest {
+
+    private final LockSnapshotCodec codec = new LockSnapshotCodec("test-secret-key");
+
+    @Test
+    @DisplayName("编码后解码与原快照一致（含分摊对齐与不对齐两种情况）")
+    void encodeDecode_shouldRoundTrip() {
+        PricingService.LockSnapshot aligned = snapshot(3);
+        assertEquals(aligned, codec.decode(codec.encode("PL1", aligned).bytes()));
+
+        PricingService.LockSnapshot explicit = snapshot(2);
+        explicit.getAllocations().get(0).setTitle("改过的标题");
+        explicit.getAllocations().get(1).setDiscountBreakdowns(List.of(LockResponse.DiscountBreakdown.builder()
+                .ruleType("COUPON").ruleId(99L).ruleName(null).discountAmount(new BigDecimal("0.01")).build()));
+        explicit.getAllocations().get(0).setDiscountBreakdowns(null);
+        assertEquals(explicit, codec.decode(codec.encode("PL1", explicit).bytes()));
+    }
+
+    @Test
+    @DisplayName("空值、负数、大精度金额往返不丢失")
+    void encodeDecode_shouldKeepNullsAndScales() {
+        PricingService.LockSnapshot snapshot = new PricingService.LockSnapshot();
+        snapshot.setUserId(-7L);
+        snapshot.setOriginalAmount(new BigDecimal("123456789012345678901234567890.123"));
+        snapshot.setTotalDiscount(new BigDecimal("-0.50"));
+        snapshot.setPayableAmount(new BigDecimal("1E+3"));
+        snapshot.setItems(List.of());
+        snapshot.setHitRules(List.of());
+        snapshot.setAllocations(List.of());
+
+        PricingService.LockSnapshot decoded = codec.decode(codec.encode("PL1", snapshot).bytes());
+
+        assertEquals(snapshot, decoded);
+        assertNull(decoded.getUserCouponNos());
+        assertEquals(-3, decoded.getPayableAmount().scale());
+    }
+
+    @Test
+    @DisplayName("签名稳定，价格锁编号、快照内容或密钥不同则签名不同")
+    void encode_signatureShouldDetectTampering() {
+        PricingService.LockSnapshot snapshot = snapshot(2);
+        String signature = codec.encode("PL1", snapshot).signature();
+
+        assertEquals(signature, codec.encode("PL1", snapshot(2)).signature());
+        assertEquals(64, signature.length());
+        assertNotEquals(signature, codec.encode("PL2", snapshot).signature());
+        assertNotEquals(signature, new LockSnapshotCodec("other-secret").encode("PL1", snapshot).signature());
+
+        snapshot.setPayableAmount(snapshot.getPayableAmount().subtract(new BigDecimal("0.01")));
+        assertNotEquals(signature, codec.encode("PL1", snapshot).signature());
+
+        assertTrue(LockSnapshotCodec.signatureEquals(signature, new String(signature.toCharArray())));
+        assertFalse(LockSnapshotCodec.signatureEquals(signature, null));
+    }
+
+    @Test
+    @DisplayName("二进制快照远小于 JSON 快照 + 分摊明细")
+    void encode_shouldBeMuchSmallerThanJson() throws Exception {
+        PricingService.LockSnapshot snapshot = snapshot(10);
+        ObjectMapper objectMapper = new ObjectMapper();
+        int jsonSize = objectMapper.writeValueAsBytes(snapshot).length
+                + objectMapper.writeValueAsBytes(snapshot.getAllocations()).length;
+
+        int binSize = codec.encode("PL1", snapshot).bytes().length;
+
+        assertTrue(binSize * 4 < jsonSize, "bin=" + binSize + ", json=" + jsonSize);
+    }
+
+    @Test
+    @DisplayName("未知格式版本拒绝解码")
+    void decode_unknownVersion_shouldFail() {
+        byte[] bytes = codec.encode("PL1", snapshot(1)).bytes();
+        bytes[0] = 9;
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(bytes));
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.decode("{}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private PricingService.LockSnapshot snapshot(int itemCount) {
+        List<LockRequest.ItemInfo> items = new ArrayList<>();
+        List<LockResponse.AllocationDetail> allocations = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            LockRequest.ItemInfo item = new LockRequest.ItemInfo();
+            item.setSkuId(100000L + i);
+            item.setQty(i + 1);
+            item.setUnitPrice(new BigDecimal("199.90"));
+            item.setTitle("商品-" + i);
+            item.setCategoryId(10L);
+            items.add(item);
+            allocations.add(LockResponse.AllocationDetail.builder()
+                    .skuId(item.getSkuId())
+                    .title(item.getTitle())
+                    .qty(item.getQty())
+                    .unitPrice(item.getUnitPrice())
+                    .lineOriginalAmount(new BigDecimal("199.90").multiply(BigDecimal.valueOf(i + 1)))
+                    .lineDiscountAmount(new BigDecimal("3.00"))
+                    .linePayableAmount(new BigDecimal("199.90").multiply(BigDecimal.valueOf(i + 1))
+                            .subtract(new BigDecimal("3.00")))
+                    .discountBreakdowns(List.of(
+                            LockResponse.DiscountBreakdown.builder().ruleType("FULL_REDUCTION").ruleId(1L)
+                                    .ruleName("满200减20").discountAmount(new BigDecimal("2.00")).build(),
+                            LockResponse.DiscountBreakdown.builder().ruleType("COUPON").ruleId(2L)
+                                    .ruleName("10元券").discountAmount(new BigDecimal("1.00")).build()))
+                    .build());
+        }
+
+        PromotionResult.RuleHit fullReduction = new PromotionResult.RuleHit();
+        fullReduction.setRuleType("FULL_REDUCTION");
+        fullReduction.setRuleId(1L);
+        fullReduction.setRuleName("满200减20");
+        fullReduction.setDiscountType("AMOUNT");
+        fullReduction.setThresholdAmount(new BigDecimal("200.00"));
+        fullReduction.setDiscountAmount(new BigDecimal("20.00"));
+        fullReduction.setDescription("满200元减20元");
+        PromotionResult.RuleHit coupon = new PromotionResult.RuleHit();
+        coupon.setRuleType("COUPON");
+        coupon.setRuleId(2L);
+        coupon.setRuleName("10元券");
+        coupon.setUserCouponNo("UC202601010001");
+        coupon.setDiscountType("AMOUNT");
+        coupon.setDiscountAmount(new BigDecimal("10.00"));
+
+        return PricingService.LockSnapshot.builder()
+                .userId(10001L)
+                .items(items)
+                .userCouponNos(List.of("UC202601010001"))
+                .originalAmount(new BigDecimal("1099.45"))
+                .totalDiscount(new BigDecimal("30.00"))
+                .payableAmount(new BigDecimal("1069.45"))
+                .hitRules(List.of(fullReduction, coupon))
+                .allocations(allocations)
+                .build();
+    }
+}
@@ -0,0 +1,241 @@
+package com.yuge.pricing.domain.allocation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分摊引擎性质测试
+ *
+ * 以精确有理数比例为基准，并与原 BigDecimal 实现（逐行 HALF_UP，最后一行取差额）对照：
+ * 合计严格相等、每项与精确比例相差不足1分、非末行与原实现相差不超过1分、比例整除时与原实现完全一致
+ */
+class DiscountAllocatorTest {
+
+    private static final int ROUNDS = 3000;
+
+    @Test
+    @DisplayName("随机购物车：行优惠合计等于总优惠，每行为精确比例的向下或向上取整")
+    void allocate_random_shouldMatchExactProportions() {
+        Random random = new Random(20240601L);
+        for (int round = 0; round < ROUNDS; round++) {
+            Cart cart = Cart.random(random);
+            DiscountAllocator.Allocation allocation = cart.allocate();
+
+            long sum = 0;
+            for (int i = 0; i < cart.lines.length; i++) {
+                long discount = allocation.lineDiscount(i);
+                sum += discount;
+                assertWithinOneCent(cart.totalDiscount, cart.lines[i], cart.totalAmount(), discount, cart, i);
+                assertEquals(Math.max(cart.lines[i] - discount, 0), allocation.linePayable(i));
+            }
+            assertEquals(cart.totalDiscount, sum, cart.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("随机购物车：行内规则分解合计等于行优惠，每条规则为精确比例的向下或向上取整")
+    void allocate_random_breakdownsShouldSumToLine() {
+        Random random = new Random(7L);
+        for (int round = 0; round < ROUNDS; round++) {
+            Cart cart = Cart.random(random);
+            if (cart.rules.length == 0) {
+                continue;
+            }
+            DiscountAllocator.Allocation allocation = cart.allocate();
+            long ruleTotal = 0;
+            for (long rule : cart.rules) {
+                ruleTotal += rule;
+            }
+            for (int i = 0; i < cart.lines.length; i++) {
+                long lineDiscount = allocation.lineDiscount(i);
+                long sum = 0;
+                for (int r = 0; r < cart.rules.length; r++) {
+                    long ruleDiscount = allocation.ruleDiscount(i, r);
+                    sum += ruleDiscount;
+                    if (lineDiscount > 0) {
+                        assertWithinOneCent(lineDiscount, cart.rules[r], ruleTotal, ruleDiscount, cart, i);
+                    }
+                }
+                assertEquals(lineDiscount, sum, cart.toString());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("与原实现对照：非末行相差不超过1分，总优惠与总应付一致")
+    void allocate_random_shouldStayWithinOneCentOfLegacy() {
+        Random random = new Random(42L);
+        for (int round = 0; round < ROUNDS; round++) {
+            Cart cart = Cart.random(random);
+            DiscountAllocator.Allocation allocation = cart.allocate();
+            long[] legacy = cart.legacyLineDiscounts();
+
+            long legacySum = 0;
+            for (int i = 0; i < cart.lines.length; i++) {
+                legacySum += legacy[i];
+                if (i < cart.lines.length - 1) {
+                    assertTrue(Math.abs(legacy[i] - allocation.lineDiscount(i)) <= 1, cart.toString());
+                }
+            }
+            assertEquals(legacySum, cart.totalDiscount);
+        }
+    }
+
+    @Test
+    @DisplayName("比例整除时与原实现逐行一致")
+    void allocate_exactShares_shouldEqualLegacy() {
+        Random random = new Random(99L);
+        for (int round = 0; round < ROUNDS; round++) {
+            int lineCount = 1 + random.nextInt(20);
+            long[] lines = new long[lineCount];
+            long totalAmount = 0;
+            for (int i = 0; i < lineCount; i++) {
+                lines[i] = 100L * (1 + random.nextInt(500));
+                totalAmount += lines[i];
+            }
+            // 总优惠为总金额的整数百分比，且每行金额为100的倍数，每行比例都整除
+            Cart cart = new Cart(lines, new long[]{totalAmount / 100 * (1 + random.nextInt(99))}, 0);
+            cart.totalDiscount = cart.rules[0];
+
+            DiscountAllocator.Allocation allocation = cart.allocate();
+            long[] legacy = cart.legacyLineDiscounts();
+            for (int i = 0; i < lineCount; i++) {
+                assertEquals(legacy[i], allocation.lineDiscount(i), cart.toString());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("余数最大的行补分，余数相同时行号小的优先")
+    void allocate_shouldGiveLeftoverToLargestRemainders() {
+        DiscountAllocator.Allocation allocation = DiscountAllocator.begin(3, 0);
+        allocation.setLineAmount(0, 100);
+        allocation.setLineAmount(1, 100);
+        allocation.setLineAmount(2, 100);
+        allocation.allocate(100);
+
+        assertEquals(34, allocation.lineDiscount(0));
+        assertEquals(33, allocation.lineDiscount(1));
+        assertEquals(33, allocation.lineDiscount(2));
+    }
+
+    @Test
+    @DisplayName("总金额为0时优惠全部落在最后一行；乘积溢出 long 时结果仍精确")
+    void allocate_edgeCases() {
+        DiscountAllocator.Allocation zero = DiscountAllocator.begin(2, 0);
+        zero.allocate(500);
+        assertEquals(0, zero.lineDiscount(0));
+        assertEquals(500, zero.lineDiscount(1));
+        assertEquals(0, zero.linePayable(1));
+
+        long big = 4_000_000_000_000L;
+        DiscountAllocator.Allocation overflow = DiscountAllocator.begin(2, 0);
+        overflow.setLineAmount(0, big);
+        overflow.setLineAmount(1, big * 2);
+        overflow.allocate(big - 1);
+        assertEquals(big - 1, overflow.lineDiscount(0) + overflow.lineDiscount(1));
+        assertEquals((big - 1) / 3, overflow.lineDiscount(0));
+    }
+
+    private static void assertWithinOneCent(long amount, long weight, long weightTotal, long actual,
+                                            Cart cart, int line) {
+        if (weightTotal == 0) {
+            return;
+        }
+        BigInteger product = BigInteger.valueOf(amount).multiply(BigInteger.valueOf(weight));
+        BigInteger[] divided = product.divideAndRemainder(BigInteger.valueOf(weightTotal));
+        long floor = divided[0].longValue();
+        long ceil = divided[1].signum() == 0 ? floor : floor + 1;
+        assertTrue(actual == floor || actual == ceil,
+                "line=" + line + ", actual=" + actual + ", floor=" + floor + ", " + cart);
+    }
+
+    /**
+     * 随机购物车（金额单位：分）
+     */
+    private static final class Cart {
+        private final long[] lines;
+        private final long[] rules;
+        private long totalDiscount;
+
+        private Cart(long[] lines, long[] rules, long totalDiscount) {
+            this.lines = lines;
+            this.rules = rules;
+            this.totalDiscount = totalDiscount;
+        }
+
+        static Cart random(Random random) {
+            int lineCount = 1 + random.nextInt(random.nextInt(10) == 0 ? 400 : 12);
+            long[] lines = new long[lineCount];
+            long totalAmount = 0;
+            for (int i = 0; i < lineCount; i++) {
+                long unitPrice = random.nextInt(20) == 0 ? 0 : 1 + random.nextInt(100_000);
+                lines[i] = unitPrice * (1 + random.nextInt(50));
+                totalAmount += lines[i];
+            }
+            int ruleCount = random.nextInt(5);
+            long[] rules = new long[ruleCount];
+            long totalDiscount = 0;
+            for (int r = 0; r < ruleCount; r++) {
+                rules[r] = totalAmount == 0 ? 0 : (long) (random.nextDouble() * totalAmount / Math.max(ruleCount, 1));
+                totalDiscount += rules[r];
+            }
+            return new Cart(lines, rules, totalDiscount);
+        }
+
+        long totalAmount() {
+            long total = 0;
+            for (long line : lines) {
+                total += line;
+            }
+            return total;
+        }
+
+        DiscountAllocator.Allocation allocate() {
+            DiscountAllocator.Allocation allocation = DiscountAllocator.begin(lines.length, rules.length);
+            for (int i = 0; i < lines.length; i++) {
+                allocation.setLineAmount(i, lines[i]);
+            }
+            for (int r = 0; r < rules.length; r++) {
+                allocation.setRuleDiscount(r, rules[r]);
+            }
+            return allocation.allocate(totalDiscount);
+        }
+
+        /**
+         * 原 PricingService.calculateAllocation 的行优惠算法
+         */
+        long[] legacyLineDiscounts() {
+            BigDecimal total = BigDecimal.valueOf(totalDiscount, 2);
+            BigDecimal totalAmount = BigDecimal.valueOf(totalAmount(), 2);
+            long[] result = new long[lines.length];
+            BigDecimal allocated = BigDecimal.ZERO;
+            for (int i = 0; i < lines.length; i++) {
+                BigDecimal lineDiscount;
+                if (i == lines.length - 1) {
+                    lineDiscount = total.subtract(allocated);
+                } else {
+                    lineDiscount = totalAmount.compareTo(BigDecimal.ZERO) > 0
+                            ? total.multiply(BigDecimal.valueOf(lines[i], 2)).divide(totalAmount, 2, RoundingMode.HALF_UP)
+                            : BigDecimal.ZERO;
+                    allocated = allocated.add(lineDiscount);
+                }
+                result[i] = lineDiscount.movePointRight(2).longValueExact();
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Cart{lines=" + java.util.Arrays.toString(lines) + ", rules=" + java.util.Arrays.toString(rules)
+                    + ", totalDiscount=" + totalDiscount + "}";
+        }
+    }
+}
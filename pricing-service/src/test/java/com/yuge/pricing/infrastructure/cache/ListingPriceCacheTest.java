@@ -0,0 +1,71 @@
+package com.yuge.pricing.infrastructure.cache;
+
+import com.yuge.pricing.api.dto.ListingQuoteRequest;
+import com.yuge.pricing.api.dto.ListingQuoteResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列表页展示价缓存单元测试 - 分组与失效
+ */
+class ListingPriceCacheTest {
+
+    private final ListingPriceCache cache = new ListingPriceCache(60, 1000, 100, 1000);
+
+    @Test
+    @DisplayName("按 SKU + 单价 + 分类命中，金额小数位不同视为同一单价")
+    void group_sameSku_shouldHit() {
+        ListingQuoteResponse.SkuPrice price = new ListingQuoteResponse.SkuPrice();
+        cache.group(null).put(item(1001L, "99.00", 10L), price);
+
+        assertSame(price, cache.group(null).get(item(1001L, "99", 10L)));
+        assertNull(cache.group(null).get(item(1001L, "98.00", 10L)));
+        assertNull(cache.group(null).get(item(1001L, "99.00", 11L)));
+        assertNull(cache.group(10001L).get(item(1001L, "99.00", 10L)));
+    }
+
+    @Test
+    @DisplayName("券包变更只失效该用户，失效前取得的分组写入不可见")
+    void invalidateUser_shouldDropUserPricesOnly() {
+        ListingQuoteRequest.ItemInfo item = item(1001L, "99.00", 10L);
+        cache.group(10001L).put(item, new ListingQuoteResponse.SkuPrice());
+        cache.group(10002L).put(item, new ListingQuoteResponse.SkuPrice());
+        cache.group(null).put(item, new ListingQuoteResponse.SkuPrice());
+
+        ListingPriceCache.Group inflight = cache.group(10001L);
+        cache.invalidateUser(10001L);
+        inflight.put(item, new ListingQuoteResponse.SkuPrice());
+
+        assertNull(cache.group(10001L).get(item));
+        assertNotNull(cache.group(10002L).get(item));
+        assertNotNull(cache.group(null).get(item));
+    }
+
+    @Test
+    @DisplayName("规则版本前进时全部失效（含不带用户的分组），旧版本消息忽略")
+    void onRulesChanged_shouldInvalidateOnNewerVersion() {
+        ListingQuoteRequest.ItemInfo item = item(1001L, "99.00", 10L);
+        cache.group(null).put(item, new ListingQuoteResponse.SkuPrice());
+        cache.group(10001L).put(item, new ListingQuoteResponse.SkuPrice());
+
+        cache.onRulesChanged(5);
+        assertNull(cache.group(null).get(item));
+        assertNull(cache.group(10001L).get(item));
+
+        cache.group(null).put(item, new ListingQuoteResponse.SkuPrice());
+        cache.onRulesChanged(4);
+        assertNotNull(cache.group(null).get(item));
+    }
+
+    private ListingQuoteRequest.ItemInfo item(Long skuId, String unitPrice, Long categoryId) {
+        ListingQuoteRequest.ItemInfo item = new ListingQuoteRequest.ItemInfo();
+        item.setSkuId(skuId);
+        item.setUnitPrice(new BigDecimal(unitPrice));
+        item.setCategoryId(categoryId);
+        return item;
+    }
+}
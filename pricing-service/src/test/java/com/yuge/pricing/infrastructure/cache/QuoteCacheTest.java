@@ -0,0 +1,94 @@
+package com.yuge.pricing.infrastructure.cache;
+
+import com.yuge.pricing.api.dto.QuoteRequest;
+import com.yuge.pricing.api.dto.QuoteResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 试算缓存单元测试 - 指纹规范化与失效
+ */
+class QuoteCacheTest {
+
+    private final QuoteCache cache = new QuoteCache(60, 1000);
+
+    @Test
+    @DisplayName("商品顺序、金额小数位、券顺序不同视为同一购物车")
+    void slot_canonicalFingerprint_shouldHit() {
+        QuoteResponse response = new QuoteResponse();
+        cache.slot(request(10001L, List.of("UC1", "UC2"), item(1001L, 2, "50.00"), item(1002L, 1, "80.00")))
+                .put(response);
+
+        assertSame(response, cache.slot(request(10001L, List.of("UC2", "UC1"),
+                item(1002L, 1, "80"), item(1001L, 2, "50.0"))).get());
+        assertNull(cache.slot(request(10001L, List.of("UC1", "UC2"),
+                item(1001L, 3, "50.00"), item(1002L, 1, "80.00"))).get());
+        assertNull(cache.slot(request(10001L, List.of("UC1"),
+                item(1001L, 2, "50.00"), item(1002L, 1, "80.00"))).get());
+        assertNull(cache.slot(request(10002L, List.of("UC1", "UC2"),
+                item(1001L, 2, "50.00"), item(1002L, 1, "80.00"))).get());
+    }
+
+    @Test
+    @DisplayName("券包变更只失效该用户，失效前取得的槽位写入不可见")
+    void invalidateUser_shouldDropUserQuotesOnly() {
+        QuoteRequest first = request(10001L, null, item(1001L, 1, "10.00"));
+        QuoteRequest other = request(10002L, null, item(1001L, 1, "10.00"));
+        cache.slot(first).put(new QuoteResponse());
+        cache.slot(other).put(new QuoteResponse());
+
+        QuoteCache.Slot inflight = cache.slot(first);
+        cache.invalidateUser(10001L);
+        inflight.put(new QuoteResponse());
+
+        assertNull(cache.slot(first).get());
+        assertNotNull(cache.slot(other).get());
+    }
+
+    @Test
+    @DisplayName("规则版本前进时全部失效，旧版本消息忽略")
+    void onRulesChanged_shouldInvalidateOnNewerVersion() {
+        QuoteRequest request = request(10001L, null, item(1001L, 1, "10.00"));
+        cache.slot(request).put(new QuoteResponse());
+
+        cache.onRulesChanged(5);
+        assertEquals(5, cache.getRulesVersion());
+        assertNull(cache.slot(request).get());
+
+        cache.slot(request).put(new QuoteResponse());
+        cache.onRulesChanged(3);
+        assertEquals(5, cache.getRulesVersion());
+        assertNotNull(cache.slot(request).get());
+    }
+
+    @Test
+    @DisplayName("TTL为0时不缓存")
+    void zeroTtl_shouldNotCache() {
+        QuoteCache disabled = new QuoteCache(0, 1000);
+        QuoteRequest request = request(10001L, null, item(1001L, 1, "10.00"));
+        disabled.slot(request).put(new QuoteResponse());
+        assertNull(disabled.slot(request).get());
+    }
+
+    private static QuoteRequest request(Long userId, List<String> couponNos, QuoteRequest.ItemInfo... items) {
+        QuoteRequest request = new QuoteRequest();
+        request.setUserId(userId);
+        request.setItems(Arrays.asList(items));
+        request.setUserCouponNos(couponNos);
+        return request;
+    }
+
+    private static QuoteRequest.ItemInfo item(Long skuId, int qty, String unitPrice) {
+        QuoteRequest.ItemInfo item = new QuoteRequest.ItemInfo();
+        item.setSkuId(skuId);
+        item.setQty(qty);
+        item.setUnitPrice(new BigDecimal(unitPrice));
+        return item;
+    }
+}
@@ -0,0 +1,144 @@
+package com.yuge.pricing.infrastructure.client.impl;
+
+import com.yuge.platform.infra.common.ErrorCode;
+import com.yuge.platform.infra.common.Result;
+import com.yuge.platform.infra.exception.BizException;
+import com.yuge.pricing.api.dto.QuoteRequest;
+import com.yuge.pricing.application.PromotionResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 促销服务客户端单元测试 - 同用户同购物车试算合并
+ */
+class PromotionClientImplTest {
+
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+    }
+
+    @Test
+    @DisplayName("进行中的相同试算只发一次远程调用")
+    void applyPromotion_concurrent_shouldCoalesce() throws Exception {
+        PromotionClientImpl client = new PromotionClientImpl(restTemplate, "http://promotion", 200);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        stubApply(invocation -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return ok(result(10001L));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<PromotionResult> first = CompletableFuture.supplyAsync(
+                    () -> client.applyPromotion(10001L, items("50.00"), List.of("UC001")), executor);
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            List<CompletableFuture<PromotionResult>> followers = List.of(
+                    CompletableFuture.supplyAsync(() -> client.applyPromotion(10001L, items("50.0"), List.of("UC001")), executor),
+                    CompletableFuture.supplyAsync(() -> client.applyPromotion(10001L, items("50"), List.of("UC001")), executor));
+            Thread.sleep(100);
+            release.countDown();
+
+            PromotionResult expected = first.get(5, TimeUnit.SECONDS);
+            for (CompletableFuture<PromotionResult> follower : followers) {
+                assertSame(expected, follower.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verifyApplyCalls(1);
+    }
+
+    @Test
+    @DisplayName("窗口内复用结果，购物车内容或用户不同时不合并")
+    void applyPromotion_differentKey_shouldNotCoalesce() {
+        PromotionClientImpl client = new PromotionClientImpl(restTemplate, "http://promotion", 60_000);
+        stubApply(invocation -> ok(result(10001L)));
+
+        client.applyPromotion(10001L, items("50.00"), List.of());
+        client.applyPromotion(10001L, items("50.00"), null);
+        verifyApplyCalls(1);
+
+        client.applyPromotion(10001L, items("60.00"), List.of());
+        client.applyPromotion(10002L, items("50.00"), List.of());
+        client.applyPromotion(10001L, items("50.00"), List.of("UC001"));
+        verifyApplyCalls(4);
+    }
+
+    @Test
+    @DisplayName("失败结果不复用，超时转换为 RPC_TIMEOUT")
+    void applyPromotion_failure_shouldNotBeReused() {
+        PromotionClientImpl client = new PromotionClientImpl(restTemplate, "http://promotion", 60_000);
+        stubApply(invocation -> {
+            throw new ResourceAccessException("timeout", new java.net.SocketTimeoutException("Read timed out"));
+        });
+
+        BizException first = assertThrows(BizException.class,
+                () -> client.applyPromotion(10001L, items("50.00"), List.of()));
+        assertEquals(ErrorCode.RPC_TIMEOUT.getCode(), first.getCode());
+
+        stubApply(invocation -> ok(result(10001L)));
+        assertNotNull(client.applyPromotion(10001L, items("50.00"), List.of()));
+        verifyApplyCalls(2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubApply(org.mockito.stubbing.Answer<ResponseEntity<Result<PromotionResult>>> answer) {
+        doAnswer(answer).when(restTemplate).exchange(eq("http://promotion/promotion/apply"), eq(HttpMethod.POST),
+                any(HttpEntity.class), any(ParameterizedTypeReference.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void verifyApplyCalls(int times) {
+        verify(restTemplate, times(times)).exchange(anyString(), eq(HttpMethod.POST),
+                any(HttpEntity.class), any(ParameterizedTypeReference.class));
+    }
+
+    private static ResponseEntity<Result<PromotionResult>> ok(PromotionResult result) {
+        return ResponseEntity.ok(Result.success(result));
+    }
+
+    private static PromotionResult result(Long userId) {
+        return PromotionResult.builder()
+                .userId(userId)
+                .originalAmount(new BigDecimal("100.00"))
+                .totalDiscount(BigDecimal.ZERO)
+                .payableAmount(new BigDecimal("100.00"))
+                .hitRules(List.of())
+                .availableCoupons(List.of())
+                .build();
+    }
+
+    private static List<QuoteRequest.ItemInfo> items(String unitPrice) {
+        QuoteRequest.ItemInfo item = new QuoteRequest.ItemInfo();
+        item.setSkuId(1001L);
+        item.setQty(2);
+        item.setUnitPrice(new BigDecimal(unitPrice));
+        return List.of(item);
+    }
+}
@@ -0,0 +1,111 @@
+package com.yuge.pricing.infrastructure.mapper;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.yuge.pricing.domain.entity.PriceLock;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 价格锁Mapper测试 - 在H2测试库上加载注解SQL（含 &lt;script&gt; 语句）并执行批量过期
+ */
+class PriceLockMapperTest {
+
+    private SqlSession session;
+
+    private PriceLockMapper mapper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:price_lock_mapper;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        dataSource.setUser("sa");
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-h2.sql"));
+            connection.createStatement().execute("DELETE FROM t_price_lock");
+        }
+
+        MybatisConfiguration configuration = new MybatisConfiguration(
+                new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        // 注解SQL在此解析，<script> 内容不是合法XML时直接失败
+        configuration.addMapper(PriceLockMapper.class);
+        SqlSessionFactory sessionFactory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+        session = sessionFactory.openSession(true);
+        mapper = session.getMapper(PriceLockMapper.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        session.close();
+    }
+
+    @Test
+    @DisplayName("批量过期只处理已过期的锁定价格锁")
+    void expireByIds_shouldOnlyExpireLockedAndPastDue() {
+        LocalDateTime now = LocalDateTime.now();
+        mapper.insertBatch(List.of(
+                lock(1L, "PL1", "LOCKED", now.minusMinutes(1)),
+                lock(2L, "PL2", "LOCKED", now.plusMinutes(10)),
+                lock(3L, "PL3", "USED", now.minusMinutes(1))));
+
+        assertEquals(1, mapper.expireByIds(List.of(1L, 2L, 3L)));
+
+        assertEquals("EXPIRED", mapper.selectById(1L).getStatus());
+        assertEquals(2, mapper.selectById(1L).getVersion());
+        assertEquals("LOCKED", mapper.selectById(2L).getStatus());
+        assertEquals("USED", mapper.selectById(3L).getStatus());
+    }
+
+    @Test
+    @DisplayName("批量过期预占超时的价格锁，期间已确认的不受影响")
+    void expireReservedByIds_shouldOnlyExpireReservedBeforeCutoff() {
+        LocalDateTime now = LocalDateTime.now();
+        mapper.insertBatch(List.of(
+                lock(1L, "PL1", "RESERVED", now.minusHours(1)),
+                lock(2L, "PL2", "RESERVED", now.plusMinutes(10)),
+                lock(3L, "PL3", "USED", now.minusHours(1))));
+
+        assertEquals(1, mapper.expireReservedByIds(List.of(1L, 2L, 3L), now.minusMinutes(30)));
+
+        assertEquals("EXPIRED", mapper.selectById(1L).getStatus());
+        assertEquals("RESERVED", mapper.selectById(2L).getStatus());
+        assertEquals("USED", mapper.selectById(3L).getStatus());
+    }
+
+    private static PriceLock lock(Long id, String priceLockNo, String status, LocalDateTime expireAt) {
+        LocalDateTime now = LocalDateTime.now();
+        PriceLock lock = new PriceLock();
+        lock.setId(id);
+        lock.setPriceLockNo(priceLockNo);
+        lock.setUserId(10001L);
+        lock.setStatus(status);
+        lock.setOriginalAmount(new BigDecimal("100.00"));
+        lock.setTotalDiscount(BigDecimal.ZERO);
+        lock.setPayableAmount(new BigDecimal("100.00"));
+        lock.setSignature("sig");
+        lock.setSignVersion(1);
+        lock.setLockedAt(now.minusMinutes(15));
+        lock.setExpireAt(expireAt);
+        lock.setVersion(1);
+        lock.setCreatedAt(now);
+        lock.setUpdatedAt(now);
+        return lock;
+    }
+}
@@ -0,0 +1,207 @@
+package com.yuge.pricing.infrastructure.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yuge.pricing.domain.entity.PriceLock;
+import com.yuge.pricing.infrastructure.mapper.PriceLockMapper;
+import com.yuge.pricing.infrastructure.repository.PriceLockPersister.PendingWrite;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 价格锁异步落库单元测试 - 合批、版本合并、失败隔离与失败重试
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PriceLockPersisterTest {
+
+    private static final String RETRY_KEY = "pricing:lock:persist:retry";
+
+    @Mock
+    private PriceLockMapper priceLockMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private PriceLockPersister persister;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        persister = new PriceLockPersister(priceLockMapper, new TransactionTemplate(transactionManager),
+                redisTemplate, objectMapper);
+        ReflectionTestUtils.setField(persister, "flushIntervalMs", 20L);
+        ReflectionTestUtils.setField(persister, "maxBatch", 100);
+        ReflectionTestUtils.setField(persister, "queueCapacity", 100);
+        ReflectionTestUtils.setField(persister, "retryIntervalSeconds", 30L);
+        ReflectionTestUtils.setField(persister, "retryBatchSize", 200);
+        when(priceLockMapper.syncState(anyString(), anyString(), any(), any(), anyInt())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        persister.stop();
+    }
+
+    @Test
+    @DisplayName("同批内先插入新锁，同一价格锁的状态变更只写最新版本")
+    @SuppressWarnings("unchecked")
+    void flush_shouldInsertFirstAndKeepLatestVersion() {
+        PriceLock created = lock("PL1", "LOCKED", 1);
+        persister.flush(List.of(
+                new PendingWrite(created, true),
+                new PendingWrite(lock("PL1", "USED", 3), false),
+                new PendingWrite(lock("PL1", "RESERVED", 2), false),
+                new PendingWrite(lock("PL2", "CANCELED", 2), false)));
+
+        ArgumentCaptor<List<PriceLock>> inserted = ArgumentCaptor.forClass(List.class);
+        var inOrder = inOrder(priceLockMapper);
+        inOrder.verify(priceLockMapper).insertBatch(inserted.capture());
+        inOrder.verify(priceLockMapper).syncState("PL1", "USED", null, null, 3);
+        verify(priceLockMapper).syncState("PL2", "CANCELED", null, null, 2);
+        verify(priceLockMapper, never()).syncState(eq("PL1"), eq("RESERVED"), any(), any(), anyInt());
+        assertEquals(List.of(created), inserted.getValue());
+        assertEquals(1, persister.getBatchCount());
+        assertEquals(3, persister.getWrittenCount());
+    }
+
+    @Test
+    @DisplayName("整批失败时逐条重试，重复插入视为已落库，其他写入不受影响")
+    void flush_batchFailure_shouldRetryOneByOne() {
+        PriceLock duplicate = lock("PL1", "LOCKED", 1);
+        PriceLock fresh = lock("PL2", "LOCKED", 1);
+        when(priceLockMapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            List<PriceLock> locks = invocation.getArgument(0);
+            if (locks.contains(duplicate)) {
+                throw new DuplicateKeyException("uk_price_lock_no");
+            }
+            return locks.size();
+        });
+
+        persister.flush(List.of(new PendingWrite(duplicate, true), new PendingWrite(fresh, true),
+                new PendingWrite(lock("PL3", "CANCELED", 2), false)));
+
+        verify(priceLockMapper).insertBatch(List.of(fresh));
+        verify(priceLockMapper).syncState("PL3", "CANCELED", null, null, 2);
+        assertEquals(0, persister.getBatchCount());
+        assertEquals(2, persister.getWrittenCount());
+        assertEquals(0, persister.getFailureCount());
+    }
+
+    @Test
+    @DisplayName("启动后异步写入，调用线程不等待数据库")
+    void insertAsync_shouldBeFlushedByBackgroundThread() {
+        persister.start();
+        PriceLock priceLock = lock("PL1", "LOCKED", 1);
+
+        persister.insertAsync(priceLock);
+        persister.updateAsync(lock("PL1", "RESERVED", 2));
+
+        verify(priceLockMapper, timeout(2000)).insertBatch(List.of(priceLock));
+        verify(priceLockMapper, timeout(2000)).syncState("PL1", "RESERVED", null, null, 2);
+        assertNotNull(priceLock.getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("写入线程未启动时在调用线程同步写入")
+    void insertAsync_notStarted_shouldWriteSynchronously() {
+        PriceLock priceLock = lock("PL1", "LOCKED", 1);
+
+        persister.insertAsync(priceLock);
+
+        verify(priceLockMapper).insertBatch(List.of(priceLock));
+        assertEquals(1, persister.getWrittenCount());
+    }
+
+    @Test
+    @DisplayName("逐条重试仍失败的写入进入Redis重试队列")
+    void flush_singleFailure_shouldQueueForRetry() throws Exception {
+        PriceLock used = lock("PL1", "USED", 3);
+        when(priceLockMapper.syncState(eq("PL1"), anyString(), any(), any(), anyInt()))
+                .thenThrow(new DataAccessResourceFailureException("connection reset"));
+        long before = System.currentTimeMillis();
+
+        persister.flush(List.of(new PendingWrite(used, false), new PendingWrite(lock("PL2", "CANCELED", 2), false)));
+
+        String member = objectMapper.writeValueAsString(new PendingWrite(used, false));
+        verify(zSetOperations).add(eq(RETRY_KEY), eq(member), doubleThat(score -> score >= before + 30_000));
+        assertEquals(1, persister.getFailureCount());
+        verify(priceLockMapper, atLeastOnce()).syncState("PL2", "CANCELED", null, null, 2);
+    }
+
+    @Test
+    @DisplayName("重试时新锁先插入，状态变更按版本升序，成功后删除")
+    void retryFailed_shouldWriteInOrderAndRemove() throws Exception {
+        PriceLock created = lock("PL1", "LOCKED", 1);
+        String update3 = objectMapper.writeValueAsString(new PendingWrite(lock("PL1", "USED", 3), false));
+        String update2 = objectMapper.writeValueAsString(new PendingWrite(lock("PL1", "RESERVED", 2), false));
+        String insert = objectMapper.writeValueAsString(new PendingWrite(created, true));
+        when(zSetOperations.rangeByScore(eq(RETRY_KEY), eq(0.0), anyDouble(), eq(0L), eq(200L)))
+                .thenReturn(new LinkedHashSet<>(List.of(update3, update2, insert)));
+
+        persister.retryFailed();
+
+        var inOrder = inOrder(priceLockMapper);
+        inOrder.verify(priceLockMapper).insertBatch(List.of(created));
+        inOrder.verify(priceLockMapper).syncState("PL1", "RESERVED", null, null, 2);
+        inOrder.verify(priceLockMapper).syncState("PL1", "USED", null, null, 3);
+        verify(zSetOperations).remove(RETRY_KEY, insert);
+        verify(zSetOperations).remove(RETRY_KEY, update2);
+        verify(zSetOperations).remove(RETRY_KEY, update3);
+        assertEquals(3, persister.getRetriedCount());
+    }
+
+    @Test
+    @DisplayName("重试仍失败时保留记录并推迟下次重试")
+    void retryFailed_stillFailing_shouldPostpone() throws Exception {
+        String update = objectMapper.writeValueAsString(new PendingWrite(lock("PL1", "USED", 3), false));
+        when(zSetOperations.rangeByScore(eq(RETRY_KEY), eq(0.0), anyDouble(), eq(0L), eq(200L)))
+                .thenReturn(new LinkedHashSet<>(List.of(update)));
+        when(priceLockMapper.syncState(anyString(), anyString(), any(), any(), anyInt()))
+                .thenThrow(new DataAccessResourceFailureException("connection reset"));
+
+        persister.retryFailed();
+
+        verify(zSetOperations, never()).remove(anyString(), any());
+        verify(zSetOperations).add(eq(RETRY_KEY), eq(update), anyDouble());
+        assertEquals(0, persister.getRetriedCount());
+    }
+
+    private PriceLock lock(String priceLockNo, String status, int version) {
+        PriceLock priceLock = new PriceLock();
+        priceLock.setPriceLockNo(priceLockNo);
+        priceLock.setStatus(status);
+        priceLock.setVersion(version);
+        return priceLock;
+    }
+}
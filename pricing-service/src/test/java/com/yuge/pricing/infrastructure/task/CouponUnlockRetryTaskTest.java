@@ -0,0 +1,100 @@
+package com.yuge.pricing.infrastructure.task;
+
+import com.yuge.pricing.application.PromotionClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 解券失败重试单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CouponUnlockRetryTaskTest {
+
+    private static final String RETRY_KEY = "pricing:coupon:unlock:retry";
+
+    @Mock
+    private PromotionClient promotionClient;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    private CouponUnlockRetryTask task;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        task = new CouponUnlockRetryTask(promotionClient, redisTemplate);
+        ReflectionTestUtils.setField(task, "retryIntervalSeconds", 30L);
+        ReflectionTestUtils.setField(task, "batchSize", 200);
+    }
+
+    @Test
+    @DisplayName("登记：价格锁编号与券编号写入同一成员")
+    void enqueue_shouldAddMemberWithNextAttempt() {
+        long before = System.currentTimeMillis();
+
+        task.enqueue("PL1", List.of("UC1", "UC2"));
+
+        verify(zSetOperations).add(eq(RETRY_KEY), eq("PL1|UC1,UC2"), doubleThat(score -> score >= before + 30_000));
+    }
+
+    @Test
+    @DisplayName("到期记录一次批量解券，成功后删除")
+    void retry_success_shouldRemoveMembers() {
+        Set<String> due = new LinkedHashSet<>(List.of("PL1|UC1", "PL2|UC2,UC3"));
+        when(zSetOperations.rangeByScore(eq(RETRY_KEY), eq(0.0), anyDouble(), eq(0L), eq(200L))).thenReturn(due);
+        when(promotionClient.batchUnlockCoupons(anyMap())).thenReturn(true);
+
+        task.retry();
+
+        verify(promotionClient).batchUnlockCoupons(Map.of("PL1", List.of("UC1"), "PL2", List.of("UC2", "UC3")));
+        verify(zSetOperations).remove(RETRY_KEY, "PL1|UC1", "PL2|UC2,UC3");
+        assertEquals(2, task.getRetriedCount());
+    }
+
+    @Test
+    @DisplayName("解券仍失败时保留记录并推迟下次重试")
+    void retry_failed_shouldPostpone() {
+        Set<String> due = new LinkedHashSet<>(List.of("PL1|UC1"));
+        when(zSetOperations.rangeByScore(eq(RETRY_KEY), eq(0.0), anyDouble(), eq(0L), eq(200L))).thenReturn(due);
+        when(promotionClient.batchUnlockCoupons(anyMap())).thenReturn(false);
+
+        task.retry();
+
+        verify(zSetOperations, never()).remove(anyString(), any());
+        verify(zSetOperations).add(eq(RETRY_KEY), eq("PL1|UC1"), anyDouble());
+        assertEquals(0, task.getRetriedCount());
+    }
+
+    @Test
+    @DisplayName("没有到期记录时不调用促销服务")
+    void retry_nothingDue_shouldSkip() {
+        when(zSetOperations.rangeByScore(eq(RETRY_KEY), eq(0.0), anyDouble(), eq(0L), eq(200L))).thenReturn(Set.of());
+
+        task.retry();
+
+        verifyNoInteractions(promotionClient);
+    }
+}
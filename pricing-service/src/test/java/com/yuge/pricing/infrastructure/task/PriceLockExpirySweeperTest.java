@@ -0,0 +1,176 @@
+package com.yuge.pricing.infrastructure.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.platform.infra.lease.RedisLeaseService;
+import com.yuge.pricing.application.PromotionClient;
+import com.yuge.pricing.domain.entity.PriceLock;
+import com.yuge.pricing.infrastructure.redis.PriceLockRedisStore;
+import com.yuge.pricing.infrastructure.repository.PriceLockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 价格锁过期清理单元测试 - 键集分页、批量解券、失败重试与跳过Redis中仍存在的锁
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PriceLockExpirySweeperTest {
+
+    private static final LocalDateTime RANGE_START = LocalDateTime.of(2026, 1, 1, 12, 0);
+    private static final LocalDateTime RANGE_END = RANGE_START.plusMinutes(1);
+
+    @Mock
+    private PriceLockRepository priceLockRepository;
+
+    @Mock
+    private PriceLockRedisStore priceLockRedisStore;
+
+    @Mock
+    private PromotionClient promotionClient;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisLeaseService leaseService;
+
+    private PriceLockExpirySweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        sweeper = new PriceLockExpirySweeper(priceLockRepository, priceLockRedisStore, promotionClient,
+                redisTemplate, leaseService, new ObjectMapper());
+        ReflectionTestUtils.setField(sweeper, "pageSize", 2);
+        ReflectionTestUtils.setField(sweeper, "unlockBatchSize", 1);
+        when(priceLockRepository.expireByIds(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+        when(promotionClient.batchUnlockCoupons(anyMap())).thenReturn(true);
+        when(priceLockRedisStore.findLive(anyList())).thenReturn(Set.of());
+    }
+
+    @Test
+    @DisplayName("按 (expire_at, id) 翻页，每页先批量解券再批量置过期")
+    @SuppressWarnings("unchecked")
+    void sweepRange_shouldPageByKeysetAndUnlockInBatches() {
+        PriceLock first = lock(1L, 0, "[\"UC1\"]");
+        PriceLock second = lock(2L, 0, null);
+        PriceLock third = lock(3L, 10, "[\"UC3\",\"UC4\"]");
+        when(priceLockRepository.findExpiredPage(RANGE_START, RANGE_END, RANGE_START, 0L, 2))
+                .thenReturn(List.of(first, second));
+        when(priceLockRepository.findExpiredPage(RANGE_START, RANGE_END, second.getExpireAt(), 2L, 2))
+                .thenReturn(List.of(third));
+
+        boolean completed = sweeper.sweepRange(RANGE_START, RANGE_END, () -> true);
+
+        assertTrue(completed);
+        ArgumentCaptor<List<Long>> ids = ArgumentCaptor.forClass(List.class);
+        verify(priceLockRepository, times(2)).expireByIds(ids.capture());
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L)), ids.getAllValues());
+        verify(promotionClient).batchUnlockCoupons(Map.of("PL1", List.of("UC1")));
+        verify(promotionClient).batchUnlockCoupons(Map.of("PL3", List.of("UC3", "UC4")));
+        assertEquals(3, sweeper.getExpiredCount());
+        assertEquals(2, sweeper.getUnlockCallCount());
+    }
+
+    @Test
+    @DisplayName("解券失败时不置过期，区间未完成留待下一轮")
+    void sweepRange_unlockFailed_shouldNotExpire() {
+        when(priceLockRepository.findExpiredPage(any(), any(), any(), anyLong(), anyInt()))
+                .thenReturn(List.of(lock(1L, 0, "[\"UC1\"]")));
+        when(promotionClient.batchUnlockCoupons(anyMap())).thenReturn(false);
+
+        boolean completed = sweeper.sweepRange(RANGE_START, RANGE_END, () -> true);
+
+        assertFalse(completed);
+        verify(priceLockRepository, never()).expireByIds(anyList());
+    }
+
+    @Test
+    @DisplayName("租约丢失时停止翻页")
+    void sweepRange_leaseLost_shouldStop() {
+        List<PriceLock> fullPage = new ArrayList<>(List.of(lock(1L, 0, null), lock(2L, 0, null)));
+        when(priceLockRepository.findExpiredPage(any(), any(), any(), anyLong(), anyInt())).thenReturn(fullPage);
+
+        boolean completed = sweeper.sweepRange(RANGE_START, RANGE_END, () -> false);
+
+        assertFalse(completed);
+        verify(priceLockRepository, times(1)).findExpiredPage(any(), any(), any(), anyLong(), anyInt());
+        verify(priceLockRepository, times(1)).expireByIds(List.of(1L, 2L));
+        verifyNoInteractions(promotionClient);
+    }
+
+    @Test
+    @DisplayName("预占超时的锁解券后置过期，过期条件带上截止时间")
+    void sweepReserved_shouldUnlockAndExpire() {
+        LocalDateTime before = RANGE_END;
+        PriceLock reserved = lock(1L, 0, "[\"UC1\"]");
+        reserved.setUsedOrderNo("O1");
+        when(priceLockRepository.findExpiredReservedPage(before, LocalDateTime.of(1970, 1, 1, 0, 0), 0L, 2))
+                .thenReturn(List.of(reserved));
+        when(priceLockRepository.expireReservedByIds(anyList(), any())).thenReturn(1);
+
+        boolean completed = sweeper.sweepReserved(before, () -> true);
+
+        assertTrue(completed);
+        verify(promotionClient).batchUnlockCoupons(Map.of("PL1", List.of("UC1")));
+        verify(priceLockRepository).expireReservedByIds(List.of(1L), before);
+        verify(priceLockRepository, never()).expireByIds(anyList());
+    }
+
+    @Test
+    @DisplayName("Redis中仍存在的锁不解券不置过期，区间不算完成")
+    void sweepRange_liveInRedis_shouldSkip() {
+        when(priceLockRepository.findExpiredPage(any(), any(), any(), anyLong(), anyInt()))
+                .thenReturn(List.of(lock(1L, 0, "[\"UC1\"]"), lock(2L, 0, "[\"UC2\"]")))
+                .thenReturn(List.of());
+        when(priceLockRedisStore.findLive(List.of("PL1", "PL2"))).thenReturn(Set.of("PL1"));
+
+        boolean completed = sweeper.sweepRange(RANGE_START, RANGE_END, () -> true);
+
+        assertFalse(completed);
+        verify(promotionClient).batchUnlockCoupons(Map.of("PL2", List.of("UC2")));
+        verify(promotionClient, never()).batchUnlockCoupons(Map.of("PL1", List.of("UC1")));
+        verify(priceLockRepository).expireByIds(List.of(2L));
+        assertEquals(1, sweeper.getSkippedLiveCount());
+    }
+
+    @Test
+    @DisplayName("整页都在Redis中时不调用置过期")
+    void sweepRange_allLive_shouldNotExpire() {
+        when(priceLockRepository.findExpiredPage(any(), any(), any(), anyLong(), anyInt()))
+                .thenReturn(List.of(lock(1L, 0, "[\"UC1\"]")));
+        when(priceLockRedisStore.findLive(anyList())).thenReturn(Set.of("PL1"));
+
+        assertFalse(sweeper.sweepRange(RANGE_START, RANGE_END, () -> true));
+
+        verify(priceLockRepository, never()).expireByIds(anyList());
+        verifyNoInteractions(promotionClient);
+    }
+
+    private PriceLock lock(Long id, int expireSecond, String couponNosJson) {
+        PriceLock priceLock = new PriceLock();
+        priceLock.setId(id);
+        priceLock.setPriceLockNo("PL" + id);
+        priceLock.setExpireAt(RANGE_START.plusSeconds(expireSecond));
+        priceLock.setCouponNosJson(couponNosJson);
+        return priceLock;
+    }
+}
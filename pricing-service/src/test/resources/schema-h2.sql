@@ -9,8 +9,9 @@ CREATE TABLE IF NOT EXISTS `t_price_lock` (
     `original_amount` DECIMAL(12,2) NOT NULL,
     `total_discount` DECIMAL(12,2) NOT NULL DEFAULT 0.00,
     `payable_amount` DECIMAL(12,2) NOT NULL,
-    `snapshot_json` CLOB NOT NULL,
-    `allocation_json` CLOB NOT NULL,
+    `snapshot_json` CLOB,
+    `allocation_json` CLOB,
+    `snapshot_bin` BLOB,
     `coupon_nos_json` CLOB,
     `signature` VARCHAR(128) NOT NULL,
     `sign_version` INT NOT NULL DEFAULT 1,
@@ -0,0 +1,163 @@
+package com.yuge.promotion.domain.rule;
+
+import com.yuge.promotion.domain.entity.Coupon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 适用范围匹配基准：逐行逐规则判断 vs 预编译倒排索引（只比较求每条规则适用小计，不含优惠计算）
+ *
+ * 规则 1% 全场、49% 分类（每条 1~3 个分类）、50% SKU（每条 1~20 个SKU）；
+ * 购物车行的 SKU 取自 10 万个SKU、分类取自 500 个分类
+ *
+ * 运行：mvn -pl promotion-service -Pbenchmark package -DskipTests，然后
+ * java -jar promotion-service/target/benchmarks.jar CouponRuleIndexBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CouponRuleIndexBenchmark {
+
+    private static final int SKUS = 100_000;
+    private static final int CATEGORIES = 500;
+
+    @Param({"100", "300"})
+    private int lines;
+
+    @Param({"1000", "10000"})
+    private int rules;
+
+    private List<Coupon> coupons;
+    private String[] scopes;
+    private List<Set<Long>> parsedItems;
+    private CouponRuleIndex index;
+
+    private long[] skuIds;
+    private long[] categoryIds;
+    private long[] amounts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1L);
+        coupons = new ArrayList<>(rules);
+        scopes = new String[rules];
+        parsedItems = new ArrayList<>(rules);
+        for (int r = 0; r < rules; r++) {
+            int bucket = random.nextInt(100);
+            String scope;
+            int itemCount;
+            int itemBound;
+            if (bucket == 0) {
+                scope = CouponRuleIndex.SCOPE_ALL;
+                itemCount = 0;
+                itemBound = 1;
+            } else if (bucket < 50) {
+                scope = CouponRuleIndex.SCOPE_CATEGORY;
+                itemCount = 1 + random.nextInt(3);
+                itemBound = CATEGORIES;
+            } else {
+                scope = CouponRuleIndex.SCOPE_SKU;
+                itemCount = 1 + random.nextInt(20);
+                itemBound = SKUS;
+            }
+            Set<Long> items = new HashSet<>();
+            StringBuilder json = new StringBuilder("[");
+            for (int k = 0; k < itemCount; k++) {
+                long item = random.nextInt(itemBound);
+                items.add(item);
+                json.append(k > 0 ? "," : "").append(item);
+            }
+            json.append(']');
+
+            Coupon coupon = new Coupon();
+            coupon.setId((long) r + 1);
+            coupon.setApplicableScope(scope);
+            coupon.setApplicableItems(itemCount > 0 ? json.toString() : null);
+            coupons.add(coupon);
+            scopes[r] = scope;
+            parsedItems.add(items);
+        }
+        index = CouponRuleIndex.compile(coupons);
+
+        skuIds = new long[lines];
+        categoryIds = new long[lines];
+        amounts = new long[lines];
+        for (int i = 0; i < lines; i++) {
+            skuIds[i] = random.nextInt(SKUS);
+            categoryIds[i] = random.nextInt(CATEGORIES);
+            amounts[i] = 100 + random.nextInt(100_000);
+        }
+    }
+
+    /**
+     * 逐行逐规则判断（适用商品已预先解析为 Set，只计匹配成本）
+     */
+    @Benchmark
+    public void naiveScan(Blackhole blackhole) {
+        long total = 0;
+        for (int i = 0; i < lines; i++) {
+            total += amounts[i];
+        }
+        for (int r = 0; r < rules; r++) {
+            String scope = scopes[r];
+            long subtotal;
+            if (CouponRuleIndex.SCOPE_ALL.equals(scope)) {
+                subtotal = total;
+            } else {
+                boolean bySku = CouponRuleIndex.SCOPE_SKU.equals(scope);
+                Set<Long> items = parsedItems.get(r);
+                subtotal = 0;
+                for (int i = 0; i < lines; i++) {
+                    if (items.contains(bySku ? skuIds[i] : categoryIds[i])) {
+                        subtotal += amounts[i];
+                    }
+                }
+            }
+            blackhole.consume(subtotal);
+        }
+    }
+
+    @Benchmark
+    public void indexedMatch(Blackhole blackhole) {
+        CouponRuleIndex.Cart cart = new CouponRuleIndex.Cart(lines);
+        for (int i = 0; i < lines; i++) {
+            cart.add(skuIds[i], categoryIds[i], amounts[i]);
+        }
+        index.match(cart).forEach((coupon, subtotal) -> blackhole.consume(subtotal));
+    }
+
+    /**
+     * 规则变更后的重新编译（模板快照更新时执行一次）
+     */
+    @Benchmark
+    public CouponRuleIndex compile() {
+        return CouponRuleIndex.compile(coupons);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CouponRuleIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
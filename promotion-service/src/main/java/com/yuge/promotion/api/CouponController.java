@@ -3,6 +3,7 @@ package com.yuge.promotion.api;
 import com.yuge.platform.infra.common.Result;
 import com.yuge.promotion.api.dto.*;
 import com.yuge.promotion.application.CouponService;
+import com.yuge.promotion.application.DisplayPriceService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
@@ -18,6 +19,7 @@ import java.util.List;
 public class CouponController {
 
     private final CouponService couponService;
+    private final DisplayPriceService displayPriceService;
 
     /**
      * 创建优惠券活动
@@ -59,6 +61,34 @@ public class CouponController {
         return Result.success(couponService.redeemCoupon(request));
     }
 
+    /**
+     * 锁定优惠券（锁价时由定价服务调用）
+     */
+    @PostMapping("/coupon/lock")
+    public Result<Void> lockCoupons(@Valid @RequestBody LockCouponRequest request) {
+        couponService.lockCoupons(request);
+        return Result.success();
+    }
+
+    /**
+     * 解锁优惠券（价格锁取消时由定价服务调用）
+     */
+    @PostMapping("/coupon/unlock")
+    public Result<Void> unlockCoupons(@Valid @RequestBody UnlockCouponRequest request) {
+        couponService.unlockCoupons(request);
+        return Result.success();
+    }
+
+    /**
+     * 批量解锁优惠券（价格锁过期清理时由定价服务调用）
+     *
+     * @return 实际解锁的优惠券数量
+     */
+    @PostMapping("/coupon/unlock/batch")
+    public Result<Integer> batchUnlockCoupons(@Valid @RequestBody BatchUnlockCouponRequest request) {
+        return Result.success(couponService.batchUnlockCoupons(request));
+    }
+
     /**
      * 查询用户可用优惠券
      */
@@ -74,4 +104,12 @@ public class CouponController {
     public Result<PromotionApplyResult> applyPromotion(@Valid @RequestBody PromotionApplyRequest request) {
         return Result.success(couponService.applyPromotion(request));
     }
+
+    /**
+     * 批量展示价（列表页/搜索页由定价服务调用，单次最多200个SKU）
+     */
+    @PostMapping("/display-price/batch")
+    public Result<List<DisplayPriceResult>> displayPrices(@Valid @RequestBody DisplayPriceRequest request) {
+        return Result.success(displayPriceService.displayPrices(request));
+    }
 }
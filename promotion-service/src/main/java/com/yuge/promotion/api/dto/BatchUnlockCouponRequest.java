@@ -0,0 +1,20 @@
+package com.yuge.promotion.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量解锁优惠券请求（价格锁过期清理时调用，每个价格锁一项）
+ */
+@Data
+public class BatchUnlockCouponRequest {
+
+    @Valid
+    @NotEmpty(message = "解锁列表不能为空")
+    @Size(max = 500, message = "单次最多解锁500个价格锁")
+    private List<UnlockCouponRequest> locks;
+}
@@ -0,0 +1,57 @@
+package com.yuge.promotion.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 单个SKU的展示价（最优的一张优惠券，未命中时展示价 = 单价）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisplayPriceResult {
+
+    private Long skuId;
+
+    /**
+     * 单价
+     */
+    private BigDecimal unitPrice;
+
+    /**
+     * 展示价（券后价）
+     */
+    private BigDecimal displayPrice;
+
+    /**
+     * 优惠金额
+     */
+    private BigDecimal discountAmount;
+
+    /**
+     * 规则类型: COUPON，未命中为空
+     */
+    private String ruleType;
+
+    /**
+     * 规则ID（优惠券ID）
+     */
+    private Long ruleId;
+
+    private String ruleName;
+
+    /**
+     * 用户优惠券编号（按券包计算时），为空表示可领取的优惠券
+     */
+    private String userCouponNo;
+
+    /**
+     * 优惠明细描述
+     */
+    private String description;
+}
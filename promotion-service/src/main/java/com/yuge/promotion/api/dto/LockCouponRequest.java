@@ -0,0 +1,40 @@
+package com.yuge.promotion.api.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 锁定优惠券请求（定价服务锁价时调用）
+ */
+@Data
+public class LockCouponRequest {
+
+    /**
+     * 用户ID（只能锁定本人的优惠券）
+     */
+    @NotNull(message = "用户ID不能为空")
+    private Long userId;
+
+    /**
+     * 用户优惠券编号列表
+     */
+    @NotEmpty(message = "优惠券编号不能为空")
+    private List<String> userCouponNos;
+
+    /**
+     * 价格锁编号
+     */
+    @NotBlank(message = "价格锁编号不能为空")
+    private String priceLockNo;
+
+    /**
+     * 锁定过期时间
+     */
+    @NotNull(message = "锁定过期时间不能为空")
+    private LocalDateTime lockExpireTime;
+}
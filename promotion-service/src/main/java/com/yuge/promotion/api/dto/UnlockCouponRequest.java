@@ -0,0 +1,26 @@
+package com.yuge.promotion.api.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 解锁优惠券请求（价格锁取消时调用）
+ */
+@Data
+public class UnlockCouponRequest {
+
+    /**
+     * 用户优惠券编号列表
+     */
+    @NotEmpty(message = "优惠券编号不能为空")
+    private List<String> userCouponNos;
+
+    /**
+     * 价格锁编号（只解锁被该价格锁锁定的优惠券）
+     */
+    @NotBlank(message = "价格锁编号不能为空")
+    private String priceLockNo;
+}
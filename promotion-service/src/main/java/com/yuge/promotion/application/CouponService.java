@@ -9,20 +9,33 @@ import com.yuge.promotion.domain.entity.CouponUser;
 import com.yuge.promotion.domain.enums.CouponStatus;
 import com.yuge.promotion.domain.enums.CouponType;
 import com.yuge.promotion.domain.enums.UserCouponStatus;
+import com.yuge.promotion.domain.rule.CouponRuleIndex;
+import com.yuge.promotion.infrastructure.cache.CouponTemplateCache;
+import com.yuge.promotion.infrastructure.mq.PromotionChangePublisher;
+import com.yuge.promotion.infrastructure.redis.CouponClaimRedisStore;
+import com.yuge.promotion.infrastructure.repository.CouponClaimPersister;
 import com.yuge.promotion.infrastructure.repository.CouponRepository;
 import com.yuge.promotion.infrastructure.repository.CouponUserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -35,6 +48,22 @@ public class CouponService {
 
     private final CouponRepository couponRepository;
     private final CouponUserRepository couponUserRepository;
+    private final CouponTemplateCache couponTemplateCache;
+    private final PromotionChangePublisher promotionChangePublisher;
+    private final CouponClaimRedisStore couponClaimRedisStore;
+    private final CouponClaimPersister couponClaimPersister;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 正在预热的优惠券（couponId -> 锁）
+     */
+    private final Map<Long, Object> warmUpLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 是否通过Redis领券
+     */
+    @Value("${promotion.claim.redis-enabled:true}")
+    private boolean claimRedisEnabled;
 
     /**
      * 创建优惠券活动
@@ -65,6 +94,7 @@ public class CouponService {
         coupon.setRemark(request.getRemark());
 
         couponRepository.save(coupon);
+        promotionChangePublisher.rulesChangedAfterCommit("CREATE", List.of(coupon.getId()));
         log.info("[CouponService] Coupon created, couponCode={}, name={}", couponCode, request.getName());
 
         return buildCouponResponse(coupon);
@@ -84,6 +114,7 @@ public class CouponService {
 
         coupon.setStatus(CouponStatus.ACTIVE.getCode());
         couponRepository.save(coupon);
+        promotionChangePublisher.rulesChangedAfterCommit("ACTIVATE", List.of(coupon.getId()));
         log.info("[CouponService] Coupon activated, couponCode={}", couponCode);
 
         return buildCouponResponse(coupon);
@@ -91,9 +122,126 @@ public class CouponService {
 
     /**
      * 领取优惠券（幂等）
+     *
+     * 默认走 Redis：幂等、库存、每人限领在一次Lua调用中完成，领取记录异步批量落库，落库后广播券包变更；
+     * promotion.claim.redis-enabled=false 时走数据库CAS扣减
      */
-    @Transactional(rollbackFor = Exception.class)
     public UserCouponResponse receiveCoupon(ReceiveCouponRequest request) {
+        if (!claimRedisEnabled) {
+            return transactionTemplate.execute(status -> receiveCouponFromDb(request));
+        }
+        Long userId = request.getUserId();
+        String couponCode = request.getCouponCode();
+        String requestId = request.getRequestId();
+
+        // 1. 查询优惠券（本地缓存）
+        Coupon coupon = couponTemplateCache.getByCode(couponCode)
+                .orElseThrow(() -> new BizException(ErrorCode.RESOURCE_NOT_FOUND, "优惠券不存在: " + couponCode));
+        if (!CouponStatus.ACTIVE.getCode().equals(coupon.getStatus())) {
+            throw new BizException(ErrorCode.INVALID_PARAM, "优惠券不可领取，当前状态: " + coupon.getStatus());
+        }
+
+        // 2. Redis领取，未预热时预热后重试一次
+        String userCouponNo = generateUserCouponNo();
+        LocalDateTime receiveTime = LocalDateTime.now();
+        CouponClaimRedisStore.ClaimResult result = couponClaimRedisStore.claim(
+                coupon.getId(), userId, requestId, coupon.getPerUserLimit(), userCouponNo, receiveTime);
+        if (result.getCode() == CouponClaimRedisStore.Code.NOT_WARMED) {
+            warmUpClaim(coupon);
+            result = couponClaimRedisStore.claim(
+                    coupon.getId(), userId, requestId, coupon.getPerUserLimit(), userCouponNo, receiveTime);
+        }
+
+        switch (result.getCode()) {
+            case OK:
+                break;
+            case DUPLICATE:
+                log.info("[CouponService] Coupon already received, userId={}, requestId={}", userId, requestId);
+                // 尚未落库时按Redis中的领取记录返回
+                CouponClaimRedisStore.ClaimResult received = result;
+                return couponUserRepository.findByUserIdAndReceiveRequestId(userId, requestId)
+                        .map(existing -> buildUserCouponResponse(existing, coupon))
+                        .orElseGet(() -> buildUserCouponResponse(buildCouponUser(coupon, userId, requestId,
+                                received.getUserCouponNo(), receiveTimeOrNow(received.getReceiveTime())), coupon));
+            case SOLD_OUT:
+                throw new BizException(ErrorCode.INVALID_PARAM, "优惠券已发完");
+            case LIMIT:
+                throw new BizException(ErrorCode.INVALID_PARAM, "已达到领取上限");
+            default:
+                throw new BizException(ErrorCode.CACHE_ERROR, "领券服务繁忙，请重试");
+        }
+
+        // 3. 创建用户优惠券，异步落库（丢失时由对账任务按Redis领取记录补写）
+        CouponUser couponUser = buildCouponUser(coupon, userId, requestId, userCouponNo, receiveTime);
+        couponClaimPersister.submit(couponUser);
+        log.info("[CouponService] Coupon received, userId={}, userCouponNo={}", userId, userCouponNo);
+
+        return buildUserCouponResponse(couponUser, coupon);
+    }
+
+    /**
+     * 从数据库预热领券库存（本实例内同一优惠券只有一个线程执行，其他线程等待其完成）
+     */
+    private void warmUpClaim(Coupon coupon) {
+        Object lock = warmUpLocks.computeIfAbsent(coupon.getId(), k -> new Object());
+        try {
+            synchronized (lock) {
+                if (couponClaimRedisStore.remaining(coupon.getId()) != null) {
+                    return;
+                }
+                int persisted = couponUserRepository.countByCouponId(coupon.getId());
+                couponClaimRedisStore.warmUp(coupon.getId(), (long) coupon.getTotalQuantity() - persisted,
+                        couponUserRepository.countClaimedByUser(coupon.getId()), coupon.getValidEndTime());
+            }
+        } finally {
+            warmUpLocks.remove(coupon.getId(), lock);
+        }
+    }
+
+    /**
+     * 补写Redis中已领取但未落库的记录（领券对账调用；已落库的按唯一键跳过）
+     */
+    public void restoreClaims(Coupon coupon, List<CouponClaimRedisStore.Claim> claims) {
+        List<CouponUser> couponUsers = new ArrayList<>(claims.size());
+        for (CouponClaimRedisStore.Claim claim : claims) {
+            couponUsers.add(buildCouponUser(coupon, claim.getUserId(), claim.getRequestId(),
+                    claim.getUserCouponNo(), receiveTimeOrNow(claim.getReceiveTime())));
+        }
+        couponClaimPersister.persistNow(couponUsers);
+        log.warn("[CouponService] Unpersisted claims restored, couponId={}, claims={}", coupon.getId(), claims.size());
+    }
+
+    private static LocalDateTime receiveTimeOrNow(LocalDateTime receiveTime) {
+        return receiveTime != null ? receiveTime : LocalDateTime.now();
+    }
+
+    private CouponUser buildCouponUser(Coupon coupon, Long userId, String requestId, String userCouponNo,
+                                       LocalDateTime now) {
+        CouponUser couponUser = new CouponUser();
+        couponUser.setId(IdUtil.getSnowflakeNextId());
+        couponUser.setUserCouponNo(userCouponNo);
+        couponUser.setUserId(userId);
+        couponUser.setCouponId(coupon.getId());
+        couponUser.setCouponCode(coupon.getCouponCode());
+        couponUser.setStatus(UserCouponStatus.AVAILABLE.getCode());
+        couponUser.setReceiveRequestId(requestId);
+        couponUser.setReceiveTime(now);
+
+        // 计算有效期
+        if (coupon.getValidDays() != null && coupon.getValidDays() > 0) {
+            couponUser.setValidStartTime(now);
+            couponUser.setValidEndTime(now.plusDays(coupon.getValidDays()));
+        } else {
+            couponUser.setValidStartTime(coupon.getValidStartTime());
+            couponUser.setValidEndTime(coupon.getValidEndTime());
+        }
+        return couponUser;
+    }
+
+    /**
+     * 领取优惠券（数据库CAS扣减，需在事务中调用）
+     */
+    private UserCouponResponse receiveCouponFromDb(ReceiveCouponRequest request) {
         Long userId = request.getUserId();
         String couponCode = request.getCouponCode();
         String requestId = request.getRequestId();
@@ -133,26 +281,9 @@ public class CouponService {
         }
 
         // 7. 创建用户优惠券
-        CouponUser couponUser = new CouponUser();
-        couponUser.setId(IdUtil.getSnowflakeNextId());
-        couponUser.setUserCouponNo(generateUserCouponNo());
-        couponUser.setUserId(userId);
-        couponUser.setCouponId(coupon.getId());
-        couponUser.setCouponCode(couponCode);
-        couponUser.setStatus(UserCouponStatus.AVAILABLE.getCode());
-        couponUser.setReceiveRequestId(requestId);
-        couponUser.setReceiveTime(LocalDateTime.now());
-
-        // 计算有效期
-        if (coupon.getValidDays() != null && coupon.getValidDays() > 0) {
-            couponUser.setValidStartTime(LocalDateTime.now());
-            couponUser.setValidEndTime(LocalDateTime.now().plusDays(coupon.getValidDays()));
-        } else {
-            couponUser.setValidStartTime(coupon.getValidStartTime());
-            couponUser.setValidEndTime(coupon.getValidEndTime());
-        }
-
+        CouponUser couponUser = buildCouponUser(coupon, userId, requestId, generateUserCouponNo(), LocalDateTime.now());
         couponUserRepository.save(couponUser);
+        promotionChangePublisher.walletChangedAfterCommit(userId, "RECEIVE");
         log.info("[CouponService] Coupon received, userId={}, userCouponNo={}", userId, couponUser.getUserCouponNo());
 
         return buildUserCouponResponse(couponUser, coupon);
@@ -200,6 +331,7 @@ public class CouponService {
         if (!success) {
             throw new BizException(ErrorCode.DB_OPTIMISTIC_LOCK, "核销失败，请重试");
         }
+        promotionChangePublisher.walletChangedAfterCommit(couponUser.getUserId(), "REDEEM");
 
         log.info("[CouponService] Coupon redeemed, userCouponNo={}, orderNo={}, discountAmount={}",
                 userCouponNo, orderNo, discountAmount);
@@ -217,23 +349,43 @@ public class CouponService {
         List<PromotionApplyRequest.ItemInfo> items = request.getItems();
         List<String> userCouponNos = request.getUserCouponNos();
 
-        // 1. 计算商品原价总额
-        BigDecimal originalAmount = items.stream()
-                .map(item -> item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQty())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // 1. 计算商品原价总额（按行累计，范围规则按命中行的小计计算）
+        CouponRuleIndex.Cart cart = new CouponRuleIndex.Cart(items.size());
+        for (PromotionApplyRequest.ItemInfo item : items) {
+            cart.add(item.getSkuId(), item.getCategoryId(),
+                    CouponRuleIndex.toCents(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQty()))));
+        }
+        BigDecimal originalAmount = CouponRuleIndex.fromCents(cart.total());
 
-        // 2. 查询用户可用优惠券
+        // 2. 查询用户可用优惠券、指定使用的优惠券（各一次查询），模板走本地缓存
         List<CouponUser> availableCouponUsers = couponUserRepository.findAvailableByUserId(userId);
-
-        // 3. 构建可用优惠券列表
+        List<CouponUser> selectedCouponUsers = userCouponNos != null && !userCouponNos.isEmpty()
+                ? couponUserRepository.findByUserCouponNos(userCouponNos)
+                : List.of();
+        Set<Long> couponIds = new HashSet<>();
+        availableCouponUsers.forEach(cu -> couponIds.add(cu.getCouponId()));
+        selectedCouponUsers.forEach(cu -> couponIds.add(cu.getCouponId()));
+        Map<Long, Coupon> templates = couponTemplateCache.getAll(couponIds);
+
+        // 3. 按适用范围匹配：每行按 SKU、分类查倒排表，得到每张券的适用小计
+        CouponRuleIndex.Match match = CouponRuleIndex.compile(templates.values()).match(cart);
+
+        // 4. 构建可用优惠券列表
         List<PromotionApplyResult.AvailableCoupon> availableCoupons = new ArrayList<>();
         for (CouponUser cu : availableCouponUsers) {
-            Coupon coupon = couponRepository.findById(cu.getCouponId()).orElse(null);
+            Coupon coupon = templates.get(cu.getCouponId());
             if (coupon == null) continue;
 
-            boolean eligible = originalAmount.compareTo(coupon.getThresholdAmount()) >= 0;
-            String ineligibleReason = eligible ? null : 
-                    String.format("订单金额%.2f未达到门槛%.2f", originalAmount, coupon.getThresholdAmount());
+            long subtotal = match.subtotal(coupon.getId());
+            boolean eligible = subtotal >= 0
+                    && CouponRuleIndex.fromCents(subtotal).compareTo(coupon.getThresholdAmount()) >= 0;
+            String ineligibleReason = null;
+            if (subtotal < 0) {
+                ineligibleReason = "订单中没有适用商品";
+            } else if (!eligible) {
+                ineligibleReason = String.format(isAllScope(coupon) ? "订单金额%.2f未达到门槛%.2f" : "适用商品金额%.2f未达到门槛%.2f",
+                        CouponRuleIndex.fromCents(subtotal), coupon.getThresholdAmount());
+            }
 
             availableCoupons.add(PromotionApplyResult.AvailableCoupon.builder()
                     .userCouponNo(cu.getUserCouponNo())
@@ -249,13 +401,15 @@ public class CouponService {
                     .build());
         }
 
-        // 4. 计算优惠（如果指定了优惠券）
+        // 5. 计算优惠（如果指定了优惠券）
         BigDecimal totalDiscount = BigDecimal.ZERO;
         List<PromotionApplyResult.PromotionRuleHit> hitRules = new ArrayList<>();
 
-        if (userCouponNos != null && !userCouponNos.isEmpty()) {
+        if (!selectedCouponUsers.isEmpty()) {
+            Map<String, CouponUser> selectedByNo = selectedCouponUsers.stream()
+                    .collect(Collectors.toMap(CouponUser::getUserCouponNo, Function.identity()));
             for (String userCouponNo : userCouponNos) {
-                CouponUser couponUser = couponUserRepository.findByUserCouponNo(userCouponNo).orElse(null);
+                CouponUser couponUser = selectedByNo.get(userCouponNo);
                 if (couponUser == null || !couponUser.getUserId().equals(userId)) {
                     continue;
                 }
@@ -264,16 +418,21 @@ public class CouponService {
                     continue;
                 }
 
-                Coupon coupon = couponRepository.findById(couponUser.getCouponId()).orElse(null);
+                Coupon coupon = templates.get(couponUser.getCouponId());
                 if (coupon == null) continue;
 
-                // 检查门槛
-                if (originalAmount.compareTo(coupon.getThresholdAmount()) < 0) {
+                // 检查适用范围与门槛（按适用小计）
+                long subtotal = match.subtotal(coupon.getId());
+                if (subtotal < 0) {
+                    continue;
+                }
+                BigDecimal applicableAmount = CouponRuleIndex.fromCents(subtotal);
+                if (applicableAmount.compareTo(coupon.getThresholdAmount()) < 0) {
                     continue;
                 }
 
-                // 计算优惠金额
-                BigDecimal discount = calculateDiscount(coupon, originalAmount);
+                // 计算优惠金额（折扣、封顶均以适用小计为基数）
+                BigDecimal discount = calculateDiscount(coupon, applicableAmount);
                 totalDiscount = totalDiscount.add(discount);
 
                 hitRules.add(PromotionApplyResult.PromotionRuleHit.builder()
@@ -304,13 +463,105 @@ public class CouponService {
                 .build();
     }
 
+    /**
+     * 锁定优惠券（幂等：已被同一价格锁锁定的跳过；不属于该用户的券拒绝锁定）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void lockCoupons(LockCouponRequest request) {
+        String priceLockNo = request.getPriceLockNo();
+        Map<String, CouponUser> couponUsers = couponUserRepository.findByUserCouponNos(request.getUserCouponNos())
+                .stream()
+                .collect(Collectors.toMap(CouponUser::getUserCouponNo, Function.identity()));
+
+        Set<Long> userIds = new HashSet<>();
+        for (String userCouponNo : request.getUserCouponNos()) {
+            CouponUser couponUser = couponUsers.get(userCouponNo);
+            if (couponUser == null) {
+                throw new BizException(ErrorCode.RESOURCE_NOT_FOUND, "用户优惠券不存在: " + userCouponNo);
+            }
+            if (!couponUser.getUserId().equals(request.getUserId())) {
+                throw new BizException(ErrorCode.PERMISSION_DENIED, "优惠券不属于该用户: " + userCouponNo);
+            }
+            if (UserCouponStatus.LOCKED.getCode().equals(couponUser.getStatus())
+                    && priceLockNo.equals(couponUser.getPriceLockNo())) {
+                continue;
+            }
+            if (!UserCouponStatus.AVAILABLE.getCode().equals(couponUser.getStatus())) {
+                throw new BizException(ErrorCode.STATE_INVALID, "优惠券状态不可锁定: " + couponUser.getStatus());
+            }
+            boolean success = couponUserRepository.casLockCoupon(
+                    couponUser.getId(), priceLockNo, request.getLockExpireTime(), couponUser.getVersion());
+            if (!success) {
+                throw new BizException(ErrorCode.DB_OPTIMISTIC_LOCK, "锁定优惠券失败，请重试");
+            }
+            userIds.add(couponUser.getUserId());
+        }
+        userIds.forEach(userId -> promotionChangePublisher.walletChangedAfterCommit(userId, "LOCK"));
+        log.info("[CouponService] Coupons locked, priceLockNo={}, userCouponNos={}",
+                priceLockNo, request.getUserCouponNos());
+    }
+
+    /**
+     * 解锁优惠券（只解锁被该价格锁锁定的，重复调用无副作用）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void unlockCoupons(UnlockCouponRequest request) {
+        String priceLockNo = request.getPriceLockNo();
+        Set<Long> userIds = new HashSet<>();
+        for (CouponUser couponUser : couponUserRepository.findByUserCouponNos(request.getUserCouponNos())) {
+            if (couponUserRepository.casUnlockCoupon(couponUser.getId(), priceLockNo)) {
+                userIds.add(couponUser.getUserId());
+                log.info("[CouponService] Coupon unlocked, userCouponNo={}, priceLockNo={}",
+                        couponUser.getUserCouponNo(), priceLockNo);
+            }
+        }
+        userIds.forEach(userId -> promotionChangePublisher.walletChangedAfterCommit(userId, "UNLOCK"));
+    }
+
+    /**
+     * 批量解锁优惠券（价格锁过期清理，一次查询 + 一条UPDATE，重复调用无副作用）
+     *
+     * @return 实际解锁的优惠券数量
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int batchUnlockCoupons(BatchUnlockCouponRequest request) {
+        Map<String, String> priceLockNoByCoupon = new HashMap<>();
+        for (UnlockCouponRequest lock : request.getLocks()) {
+            for (String userCouponNo : lock.getUserCouponNos()) {
+                priceLockNoByCoupon.put(userCouponNo, lock.getPriceLockNo());
+            }
+        }
+
+        List<CouponUser> targets = new ArrayList<>();
+        Set<Long> userIds = new HashSet<>();
+        for (CouponUser couponUser : couponUserRepository.findByUserCouponNos(priceLockNoByCoupon.keySet())) {
+            if (UserCouponStatus.LOCKED.getCode().equals(couponUser.getStatus())
+                    && couponUser.getPriceLockNo() != null
+                    && couponUser.getPriceLockNo().equals(priceLockNoByCoupon.get(couponUser.getUserCouponNo()))) {
+                targets.add(couponUser);
+                userIds.add(couponUser.getUserId());
+            }
+        }
+        if (targets.isEmpty()) {
+            return 0;
+        }
+
+        int unlocked = couponUserRepository.batchUnlockCoupons(targets);
+        userIds.forEach(userId -> promotionChangePublisher.walletChangedAfterCommit(userId, "UNLOCK"));
+        log.info("[CouponService] Coupons batch unlocked, locks={}, coupons={}, unlocked={}",
+                request.getLocks().size(), targets.size(), unlocked);
+        return unlocked;
+    }
+
     /**
      * 查询用户可用优惠券
      */
     public List<UserCouponResponse> getUserAvailableCoupons(Long userId) {
         List<CouponUser> couponUsers = couponUserRepository.findAvailableByUserId(userId);
+        Map<Long, Coupon> templates = couponTemplateCache.getAll(
+                couponUsers.stream().map(CouponUser::getCouponId).collect(Collectors.toSet()));
         return couponUsers.stream()
-                .map(this::buildUserCouponResponse)
+                .map(cu -> buildUserCouponResponse(cu, templates.get(cu.getCouponId())))
                 .collect(Collectors.toList());
     }
 
@@ -326,7 +577,7 @@ public class CouponService {
     /**
      * 计算优惠金额
      */
-    private BigDecimal calculateDiscount(Coupon coupon, BigDecimal orderAmount) {
+    static BigDecimal calculateDiscount(Coupon coupon, BigDecimal orderAmount) {
         CouponType type = CouponType.of(coupon.getType());
         BigDecimal discount;
 
@@ -357,7 +608,12 @@ public class CouponService {
         return discount;
     }
 
-    private String buildDiscountDescription(Coupon coupon, BigDecimal discount) {
+    private static boolean isAllScope(Coupon coupon) {
+        return !CouponRuleIndex.SCOPE_CATEGORY.equals(coupon.getApplicableScope())
+                && !CouponRuleIndex.SCOPE_SKU.equals(coupon.getApplicableScope());
+    }
+
+    static String buildDiscountDescription(Coupon coupon, BigDecimal discount) {
         CouponType type = CouponType.of(coupon.getType());
         switch (type) {
             case FULL_REDUCTION:
@@ -378,10 +634,11 @@ public class CouponService {
         return "CPN" + timestamp + random;
     }
 
+    /**
+     * 用户券编号（雪花ID，高并发领取下不重复）
+     */
     private String generateUserCouponNo() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String random = String.valueOf((int) ((Math.random() * 9000) + 1000));
-        return "UC" + timestamp + random;
+        return "UC" + IdUtil.getSnowflakeNextIdStr();
     }
 
     private CouponResponse buildCouponResponse(Coupon coupon) {
@@ -415,7 +672,7 @@ public class CouponService {
     }
 
     private UserCouponResponse buildUserCouponResponse(CouponUser couponUser) {
-        Coupon coupon = couponRepository.findById(couponUser.getCouponId()).orElse(null);
+        Coupon coupon = couponTemplateCache.get(couponUser.getCouponId()).orElse(null);
         return buildUserCouponResponse(couponUser, coupon);
     }
 
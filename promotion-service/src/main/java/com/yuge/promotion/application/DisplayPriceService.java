@@ -0,0 +1,172 @@
+package com.yuge.promotion.application;
+
+import com.yuge.promotion.api.dto.DisplayPriceRequest;
+import com.yuge.promotion.api.dto.DisplayPriceResult;
+import com.yuge.promotion.domain.entity.Coupon;
+import com.yuge.promotion.domain.entity.CouponUser;
+import com.yuge.promotion.domain.rule.CouponRuleIndex;
+import com.yuge.promotion.infrastructure.cache.CouponTemplateCache;
+import com.yuge.promotion.infrastructure.repository.CouponUserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 列表页展示价（批量）
+ *
+ * 1. 一次请求内候选券只加载一次：未登录/不带用户时取可领取的模板（ACTIVE、未发完、未过期，本地缓存），
+ *    带用户时取该用户券包（一次查询，模板走本地缓存）
+ * 2. 候选券按适用范围编译为 CouponRuleIndex（进行中模板的索引随模板快照缓存），
+ *    每个SKU只评估全场券与按 SKU/分类命中的范围券
+ * 3. 每个SKU按单件金额在适用券中取优惠最大的一张，门槛与优惠计算与试算一致
+ * 4. SKU数 × 候选券数 超过 parallel-threshold 时在独立 ForkJoinPool 中并行计算，不占用公共池
+ */
+@Slf4j
+@Service
+public class DisplayPriceService {
+
+    private static final String RULE_TYPE_COUPON = "COUPON";
+
+    private final CouponUserRepository couponUserRepository;
+    private final CouponTemplateCache couponTemplateCache;
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+
+    public DisplayPriceService(CouponUserRepository couponUserRepository,
+                               CouponTemplateCache couponTemplateCache,
+                               @Value("${promotion.display-price.parallelism:0}") int parallelism,
+                               @Value("${promotion.display-price.parallel-threshold:2000}") int parallelThreshold) {
+        this.couponUserRepository = couponUserRepository;
+        this.couponTemplateCache = couponTemplateCache;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * 批量计算展示价，结果与请求中的商品一一对应
+     */
+    public List<DisplayPriceResult> displayPrices(DisplayPriceRequest request) {
+        Candidates candidates = request.getUserId() != null
+                ? walletCandidates(request.getUserId())
+                : claimableCandidates();
+        List<DisplayPriceRequest.ItemInfo> items = request.getItems();
+
+        if (candidates.index.size() == 0 || (long) items.size() * candidates.index.size() < parallelThreshold) {
+            List<DisplayPriceResult> results = new ArrayList<>(items.size());
+            for (DisplayPriceRequest.ItemInfo item : items) {
+                results.add(evaluate(item, candidates));
+            }
+            return results;
+        }
+        return pool.submit(() -> items.parallelStream()
+                .map(item -> evaluate(item, candidates))
+                .toList()).join();
+    }
+
+    private Candidates walletCandidates(Long userId) {
+        List<CouponUser> couponUsers = couponUserRepository.findAvailableByUserId(userId);
+        Set<Long> couponIds = new HashSet<>();
+        couponUsers.forEach(cu -> couponIds.add(cu.getCouponId()));
+        Map<Long, Coupon> templates = couponTemplateCache.getAll(couponIds);
+
+        // 同一模板的多张券等价，取第一张
+        Map<Long, String> userCouponNos = new HashMap<>();
+        for (CouponUser cu : couponUsers) {
+            if (templates.containsKey(cu.getCouponId())) {
+                userCouponNos.putIfAbsent(cu.getCouponId(), cu.getUserCouponNo());
+            }
+        }
+        return new Candidates(CouponRuleIndex.compile(templates.values()), userCouponNos, null);
+    }
+
+    private Candidates claimableCandidates() {
+        return new Candidates(couponTemplateCache.getActiveRuleIndex(), null, LocalDateTime.now());
+    }
+
+    private DisplayPriceResult evaluate(DisplayPriceRequest.ItemInfo item, Candidates candidates) {
+        BigDecimal unitPrice = item.getUnitPrice();
+        CouponRuleIndex.Match match = candidates.index.match(new CouponRuleIndex.Cart(1)
+                .add(item.getSkuId(), item.getCategoryId(), CouponRuleIndex.toCents(unitPrice)));
+
+        // 只遍历全场规则与该SKU/分类命中的范围规则
+        Best best = new Best();
+        match.forEach((coupon, subtotal) -> {
+            if (!candidates.accepts(coupon)) {
+                return;
+            }
+            BigDecimal applicableAmount = CouponRuleIndex.fromCents(subtotal);
+            if (applicableAmount.compareTo(coupon.getThresholdAmount()) < 0) {
+                return;
+            }
+            BigDecimal discount = CouponService.calculateDiscount(coupon, applicableAmount);
+            if (discount.compareTo(best.discount) > 0) {
+                best.coupon = coupon;
+                best.discount = discount;
+            }
+        });
+
+        DisplayPriceResult.DisplayPriceResultBuilder result = DisplayPriceResult.builder()
+                .skuId(item.getSkuId())
+                .unitPrice(unitPrice)
+                .displayPrice(unitPrice.subtract(best.discount))
+                .discountAmount(best.discount);
+        if (best.coupon != null) {
+            result.ruleType(RULE_TYPE_COUPON)
+                    .ruleId(best.coupon.getId())
+                    .ruleName(best.coupon.getName())
+                    .userCouponNo(candidates.userCouponNos != null ? candidates.userCouponNos.get(best.coupon.getId()) : null)
+                    .description(CouponService.buildDiscountDescription(best.coupon, best.discount));
+        }
+        return result.build();
+    }
+
+    /**
+     * 一次请求的候选券：券包（编译后的模板索引 + 模板对应的用户券）或可领取的进行中模板
+     */
+    private static final class Candidates {
+        private final CouponRuleIndex index;
+        private final Map<Long, String> userCouponNos;
+        private final LocalDateTime claimableAt;
+
+        private Candidates(CouponRuleIndex index, Map<Long, String> userCouponNos, LocalDateTime claimableAt) {
+            this.index = index;
+            this.userCouponNos = userCouponNos;
+            this.claimableAt = claimableAt;
+        }
+
+        /**
+         * 可领取模板需未发完、未过期
+         */
+        private boolean accepts(Coupon coupon) {
+            if (claimableAt == null) {
+                return true;
+            }
+            if (coupon.getIssuedQuantity() != null && coupon.getTotalQuantity() != null
+                    && coupon.getIssuedQuantity() >= coupon.getTotalQuantity()) {
+                return false;
+            }
+            return coupon.getValidEndTime() == null || !coupon.getValidEndTime().isBefore(claimableAt);
+        }
+    }
+
+    private static final class Best {
+        private Coupon coupon;
+        private BigDecimal discount = BigDecimal.ZERO;
+    }
+}
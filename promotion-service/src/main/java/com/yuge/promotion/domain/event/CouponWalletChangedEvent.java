@@ -0,0 +1,30 @@
+package com.yuge.promotion.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 用户券包变更事件（领取、核销、锁定、解锁，广播）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponWalletChangedEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long userId;
+
+    /**
+     * 变更原因: RECEIVE/REDEEM/LOCK/UNLOCK
+     */
+    private String reason;
+
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,39 @@
+package com.yuge.promotion.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 促销规则变更事件（广播，下游据此失效本地试算缓存）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromotionRulesChangedEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 变更后的规则版本（单调递增）
+     */
+    private Long rulesVersion;
+
+    /**
+     * 变更的优惠券模板ID
+     */
+    private List<Long> couponIds;
+
+    /**
+     * 变更原因
+     */
+    private String reason;
+
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,313 @@
+package com.yuge.promotion.domain.rule;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONUtil;
+import com.yuge.promotion.domain.entity.Coupon;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 优惠券规则索引（按适用范围预编译）
+ *
+ * 逐行逐规则判断适用范围在规则数多时不可行（100行 × 1万规则 = 100万次判断），预编译后：
+ *
+ * 1. applicableScope = ALL（或为空）的规则单独列出，适用金额即订单总额，不参与逐行匹配
+ * 2. CATEGORY / SKU 规则按 applicableItems 建倒排表：categoryId -> 规则下标[]、skuId -> 规则下标[]，
+ *    每行按 skuId、categoryId 各一次哈希查找取得候选规则
+ * 3. 同一规则只有一种范围，一行对同一规则最多命中一次，无需去重
+ * 4. 按规则累加命中行的金额（分），得到每条规则的适用小计；门槛与优惠按适用小计计算
+ *
+ * 索引不可变，可在线程间共享；金额单位为分
+ */
+@Slf4j
+public final class CouponRuleIndex {
+
+    public static final String SCOPE_ALL = "ALL";
+    public static final String SCOPE_CATEGORY = "CATEGORY";
+    public static final String SCOPE_SKU = "SKU";
+
+    private static final int[] NO_RULES = new int[0];
+
+    private final Coupon[] rules;
+    private final Map<Long, Integer> ruleIndexById;
+    private final boolean[] allScope;
+    private final int[] allScopeRules;
+    private final Map<Long, int[]> rulesBySku;
+    private final Map<Long, int[]> rulesByCategory;
+
+    private CouponRuleIndex(Coupon[] rules, Map<Long, Integer> ruleIndexById, boolean[] allScope,
+                            int[] allScopeRules, Map<Long, int[]> rulesBySku, Map<Long, int[]> rulesByCategory) {
+        this.rules = rules;
+        this.ruleIndexById = ruleIndexById;
+        this.allScope = allScope;
+        this.allScopeRules = allScopeRules;
+        this.rulesBySku = rulesBySku;
+        this.rulesByCategory = rulesByCategory;
+    }
+
+    /**
+     * 编译规则索引（同一 couponId 只保留一条）
+     */
+    public static CouponRuleIndex compile(Collection<Coupon> coupons) {
+        Map<Long, Coupon> distinct = new LinkedHashMap<>();
+        for (Coupon coupon : coupons) {
+            distinct.putIfAbsent(coupon.getId(), coupon);
+        }
+        Coupon[] rules = distinct.values().toArray(new Coupon[0]);
+
+        Map<Long, Integer> ruleIndexById = new HashMap<>(rules.length * 2);
+        boolean[] allScope = new boolean[rules.length];
+        List<Integer> allScopeRules = new ArrayList<>();
+        Map<Long, IntList> bySku = new HashMap<>();
+        Map<Long, IntList> byCategory = new HashMap<>();
+        for (int r = 0; r < rules.length; r++) {
+            Coupon coupon = rules[r];
+            ruleIndexById.put(coupon.getId(), r);
+            String scope = coupon.getApplicableScope();
+            if (SCOPE_CATEGORY.equals(scope)) {
+                for (Long categoryId : parseItems(coupon)) {
+                    byCategory.computeIfAbsent(categoryId, k -> new IntList()).add(r);
+                }
+            } else if (SCOPE_SKU.equals(scope)) {
+                for (Long skuId : parseItems(coupon)) {
+                    bySku.computeIfAbsent(skuId, k -> new IntList()).add(r);
+                }
+            } else {
+                allScope[r] = true;
+                allScopeRules.add(r);
+            }
+        }
+        return new CouponRuleIndex(rules, ruleIndexById, allScope,
+                allScopeRules.stream().mapToInt(Integer::intValue).toArray(),
+                freeze(bySku), freeze(byCategory));
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    /**
+     * 计算购物车对各规则的适用小计
+     */
+    public Match match(Cart cart) {
+        // 1. 统计命中的倒排项数，确定累加表容量
+        int postings = 0;
+        for (int i = 0; i < cart.size; i++) {
+            postings += rulesOf(rulesBySku, cart.skuIds[i]).length + rulesOf(rulesByCategory, cart.categoryIds[i]).length;
+        }
+        int capacity = Integer.highestOneBit(Math.max(postings, 1) * 2 - 1) << 1;
+        int[] keys = new int[capacity];
+        Arrays.fill(keys, -1);
+        long[] subtotals = new long[capacity];
+
+        // 2. 逐行按 SKU、分类取候选规则，累加行金额
+        int matched = 0;
+        for (int i = 0; i < cart.size; i++) {
+            long amount = cart.amounts[i];
+            matched += accumulate(keys, subtotals, rulesOf(rulesBySku, cart.skuIds[i]), amount);
+            matched += accumulate(keys, subtotals, rulesOf(rulesByCategory, cart.categoryIds[i]), amount);
+        }
+        return new Match(this, cart.total, keys, subtotals, matched);
+    }
+
+    /**
+     * 金额转为分
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static int accumulate(int[] keys, long[] subtotals, int[] ruleIndexes, long amount) {
+        int added = 0;
+        int mask = keys.length - 1;
+        for (int r : ruleIndexes) {
+            int slot = mix(r) & mask;
+            while (keys[slot] != -1 && keys[slot] != r) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == -1) {
+                keys[slot] = r;
+                added++;
+            }
+            subtotals[slot] += amount;
+        }
+        return added;
+    }
+
+    private static int mix(int r) {
+        return r * 0x9E3779B9 >>> 7;
+    }
+
+    private static int[] rulesOf(Map<Long, int[]> postings, Long key) {
+        if (key == null) {
+            return NO_RULES;
+        }
+        int[] ruleIndexes = postings.get(key);
+        return ruleIndexes != null ? ruleIndexes : NO_RULES;
+    }
+
+    /**
+     * 解析适用商品（去重，重复ID不重复累加）
+     */
+    private static Set<Long> parseItems(Coupon coupon) {
+        String json = coupon.getApplicableItems();
+        if (json == null || json.isBlank()) {
+            return Set.of();
+        }
+        try {
+            JSONArray array = JSONUtil.parseArray(json);
+            Set<Long> items = new LinkedHashSet<>(array.size() * 2);
+            for (int i = 0; i < array.size(); i++) {
+                Long item = array.getLong(i);
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+            return items;
+        } catch (Exception e) {
+            // 无法解析时该规则不适用任何商品，不放大到全场
+            log.warn("[CouponRuleIndex] Invalid applicable_items, couponId={}, items={}", coupon.getId(), json);
+            return Set.of();
+        }
+    }
+
+    private static Map<Long, int[]> freeze(Map<Long, IntList> postings) {
+        Map<Long, int[]> frozen = new HashMap<>(postings.size() * 2);
+        postings.forEach((key, list) -> frozen.put(key, list.toArray()));
+        return frozen;
+    }
+
+    /**
+     * 购物车（按行的 skuId、categoryId、行金额）
+     */
+    public static final class Cart {
+        private final Long[] skuIds;
+        private final Long[] categoryIds;
+        private final long[] amounts;
+        private int size;
+        private long total;
+
+        public Cart(int lines) {
+            this.skuIds = new Long[lines];
+            this.categoryIds = new Long[lines];
+            this.amounts = new long[lines];
+        }
+
+        /**
+         * @param amount 行金额（分）
+         */
+        public Cart add(Long skuId, Long categoryId, long amount) {
+            skuIds[size] = skuId;
+            categoryIds[size] = categoryId;
+            amounts[size] = amount;
+            size++;
+            total += amount;
+            return this;
+        }
+
+        public long total() {
+            return total;
+        }
+    }
+
+    /**
+     * 一次匹配的结果
+     */
+    public static final class Match {
+        private final CouponRuleIndex index;
+        private final long total;
+        private final int[] keys;
+        private final long[] subtotals;
+        private final int matched;
+
+        private Match(CouponRuleIndex index, long total, int[] keys, long[] subtotals, int matched) {
+            this.index = index;
+            this.total = total;
+            this.keys = keys;
+            this.subtotals = subtotals;
+            this.matched = matched;
+        }
+
+        public long total() {
+            return total;
+        }
+
+        /**
+         * 规则的适用小计（分）：全场规则为订单总额，范围规则为命中行金额之和，不适用或不在索引中为 -1
+         */
+        public long subtotal(Long couponId) {
+            Integer r = index.ruleIndexById.get(couponId);
+            if (r == null) {
+                return -1L;
+            }
+            if (index.allScope[r]) {
+                return total;
+            }
+            int mask = keys.length - 1;
+            int slot = mix(r) & mask;
+            while (keys[slot] != -1) {
+                if (keys[slot] == r) {
+                    return subtotals[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1L;
+        }
+
+        /**
+         * 遍历适用的规则：先全场规则，再命中的范围规则
+         */
+        public void forEach(RuleConsumer consumer) {
+            for (int r : index.allScopeRules) {
+                consumer.accept(index.rules[r], total);
+            }
+            if (matched == 0) {
+                return;
+            }
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != -1) {
+                    consumer.accept(index.rules[keys[slot]], subtotals[slot]);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface RuleConsumer {
+        /**
+         * @param subtotal 适用小计（分）
+         */
+        void accept(Coupon coupon, long subtotal);
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.yuge.promotion.infrastructure.cache;
+
+import com.yuge.promotion.domain.entity.Coupon;
+import com.yuge.promotion.domain.enums.CouponStatus;
+import com.yuge.promotion.domain.rule.CouponRuleIndex;
+import com.yuge.promotion.infrastructure.mq.PromotionChangePublisher;
+import com.yuge.promotion.infrastructure.repository.CouponRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 优惠券模板本地缓存（带版本的全量快照）
+ *
+ * 模板（面额、门槛、折扣率）创建后极少变化，试算时每张用户券都要查一次模板，
+ * 全量放在内存后试算、券包查询只查用户券，模板在内存中关联
+ *
+ * 1. 首次使用时一次查询全量加载，快照不可变，读无锁
+ * 2. 版本即规则版本（Redis promotion:rules:version），模板创建/激活后递增并广播变更的 couponId，
+ *    各实例只重新加载这些模板（本实例在事务提交后同步刷新，其他实例由 PromotionRulesChangeConsumer 刷新）
+ * 3. 收到的版本不连续（丢消息）时全量重新加载；定时检查 Redis 版本兜底，
+ *    并每 full-refresh-seconds 全量刷新一次（已发放数量等非规则字段的兜底）
+ * 4. 快照中不存在的模板（其他实例刚创建、广播未到）按ID批量补加载
+ * 5. 进行中模板的适用范围索引（CouponRuleIndex）随快照首次使用时编译
+ *
+ * 返回的 Coupon 为共享对象，只读
+ */
+@Slf4j
+@Component
+public class CouponTemplateCache {
+
+    private final CouponRepository couponRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final long fullRefreshNanos;
+
+    private volatile Snapshot snapshot;
+
+    public CouponTemplateCache(CouponRepository couponRepository,
+                               StringRedisTemplate redisTemplate,
+                               @Value("${promotion.template-cache.full-refresh-seconds:300}") long fullRefreshSeconds) {
+        this.couponRepository = couponRepository;
+        this.redisTemplate = redisTemplate;
+        this.fullRefreshNanos = TimeUnit.SECONDS.toNanos(fullRefreshSeconds);
+    }
+
+    public Optional<Coupon> get(Long couponId) {
+        return Optional.ofNullable(getAll(List.of(couponId)).get(couponId));
+    }
+
+    /**
+     * 按编码获取模板
+     */
+    public Optional<Coupon> getByCode(String couponCode) {
+        Long couponId = current().idsByCode.get(couponCode);
+        if (couponId != null) {
+            return get(couponId);
+        }
+        Optional<Coupon> coupon = couponRepository.findByCode(couponCode);
+        coupon.ifPresent(c -> merge(List.of(c), null));
+        return coupon;
+    }
+
+    /**
+     * 批量获取模板，不存在的不返回
+     */
+    public Map<Long, Coupon> getAll(Collection<Long> couponIds) {
+        Map<Long, Coupon> result = new HashMap<>();
+        if (couponIds.isEmpty()) {
+            return result;
+        }
+        Snapshot current = current();
+        Set<Long> missing = null;
+        for (Long couponId : couponIds) {
+            Coupon coupon = current.byId.get(couponId);
+            if (coupon != null) {
+                result.put(couponId, coupon);
+            } else {
+                if (missing == null) {
+                    missing = new HashSet<>();
+                }
+                missing.add(couponId);
+            }
+        }
+        if (missing != null) {
+            List<Coupon> loaded = couponRepository.findByIds(missing);
+            loaded.forEach(coupon -> result.put(coupon.getId(), coupon));
+            merge(loaded, null);
+        }
+        return result;
+    }
+
+    /**
+     * 状态为 ACTIVE 的模板
+     */
+    public List<Coupon> getActive() {
+        return current().active;
+    }
+
+    /**
+     * 状态为 ACTIVE 的模板的适用范围索引
+     */
+    public CouponRuleIndex getActiveRuleIndex() {
+        Snapshot current = current();
+        CouponRuleIndex index = current.activeRuleIndex;
+        if (index == null) {
+            index = CouponRuleIndex.compile(current.active);
+            current.activeRuleIndex = index;
+        }
+        return index;
+    }
+
+    public long getVersion() {
+        return current().version;
+    }
+
+    /**
+     * 规则变更：版本连续时只重新加载变更的模板，不连续时全量加载，旧版本忽略
+     *
+     * @param couponIds 变更的模板，为空时全量加载
+     */
+    public synchronized void onRulesChanged(long version, Collection<Long> couponIds) {
+        Snapshot current = current();
+        if (version <= current.version) {
+            return;
+        }
+        if (version != current.version + 1 || couponIds == null || couponIds.isEmpty()) {
+            reload(version);
+            return;
+        }
+        merge(couponRepository.findByIds(couponIds), version);
+        log.info("[CouponTemplateCache] Templates refreshed, version={}, couponIds={}", version, couponIds);
+    }
+
+    /**
+     * 定时兜底：Redis 版本领先于本地（丢消息）或到达全量刷新周期时全量加载
+     */
+    @Scheduled(fixedDelayString = "${promotion.template-cache.version-check-ms:5000}")
+    public void checkVersion() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        try {
+            long latest = readVersion();
+            if (latest > current.version || System.nanoTime() - current.loadedAt >= fullRefreshNanos) {
+                synchronized (this) {
+                    if (snapshot == current) {
+                        reload(latest);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[CouponTemplateCache] Version check failed, error={}", e.getMessage());
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                long version;
+                try {
+                    version = readVersion();
+                } catch (Exception e) {
+                    // 版本为0，之后的定时检查会按 Redis 版本重新加载
+                    log.warn("[CouponTemplateCache] Read version failed, error={}", e.getMessage());
+                    version = 0L;
+                }
+                reload(version);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * 全量加载（调用方持有锁；版本在加载前读取，加载期间的变更会以更高版本再次到达）
+     */
+    private void reload(long version) {
+        List<Coupon> coupons = couponRepository.findAll();
+        snapshot = new Snapshot(coupons, version, System.nanoTime());
+        log.info("[CouponTemplateCache] Templates loaded, version={}, templates={}", version, coupons.size());
+    }
+
+    /**
+     * 合并部分模板生成新快照
+     *
+     * @param version 新版本；为空表示补加载，保持当前版本且不覆盖已有模板（可能已被更新的版本替换）
+     */
+    private synchronized void merge(List<Coupon> coupons, Long version) {
+        Snapshot current = snapshot;
+        if (current == null || (coupons.isEmpty() && version == null)) {
+            return;
+        }
+        Map<Long, Coupon> byId = new HashMap<>(current.byId);
+        for (Coupon coupon : coupons) {
+            if (version != null) {
+                byId.put(coupon.getId(), coupon);
+            } else {
+                byId.putIfAbsent(coupon.getId(), coupon);
+            }
+        }
+        snapshot = new Snapshot(byId.values(), version != null ? version : current.version, current.loadedAt);
+    }
+
+    private long readVersion() {
+        String value = redisTemplate.opsForValue().get(PromotionChangePublisher.RULES_VERSION_KEY);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    private static final class Snapshot {
+        private final Map<Long, Coupon> byId;
+        private final Map<String, Long> idsByCode;
+        private final List<Coupon> active;
+        private final long version;
+        private final long loadedAt;
+        private volatile CouponRuleIndex activeRuleIndex;
+
+        private Snapshot(Collection<Coupon> coupons, long version, long loadedAt) {
+            Map<Long, Coupon> byId = new HashMap<>(coupons.size() * 2);
+            Map<String, Long> idsByCode = new HashMap<>(coupons.size() * 2);
+            List<Coupon> active = new ArrayList<>();
+            for (Coupon coupon : coupons) {
+                byId.put(coupon.getId(), coupon);
+                idsByCode.put(coupon.getCouponCode(), coupon.getId());
+                if (CouponStatus.ACTIVE.getCode().equals(coupon.getStatus())) {
+                    active.add(coupon);
+                }
+            }
+            this.byId = byId;
+            this.idsByCode = idsByCode;
+            this.active = List.copyOf(active);
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -22,4 +22,18 @@ public interface CouponMapper extends BaseMapper<Coupon> {
     int casIncrementIssuedQuantity(@Param("couponId") Long couponId,
                                    @Param("count") Integer count,
                                    @Param("version") Integer version);
+
+    /**
+     * 增加已发放数量（领券异步落库，库存已在Redis中扣减）
+     */
+    @Update("UPDATE t_coupon SET issued_quantity = issued_quantity + #{count}, " +
+            "version = version + 1, updated_at = NOW() WHERE id = #{couponId}")
+    int incrementIssuedQuantity(@Param("couponId") Long couponId, @Param("count") Integer count);
+
+    /**
+     * 对账：已发放数量以领取记录数为准
+     */
+    @Update("UPDATE t_coupon SET issued_quantity = #{issued}, version = version + 1, updated_at = NOW() " +
+            "WHERE id = #{couponId} AND issued_quantity <> #{issued}")
+    int syncIssuedQuantity(@Param("couponId") Long couponId, @Param("issued") Integer issued);
 }
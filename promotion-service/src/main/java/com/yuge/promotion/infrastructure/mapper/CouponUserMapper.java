@@ -2,10 +2,15 @@ package com.yuge.promotion.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yuge.promotion.domain.entity.CouponUser;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 用户优惠券Mapper
  */
@@ -50,6 +55,21 @@ public interface CouponUserMapper extends BaseMapper<CouponUser> {
             "WHERE id = #{id} AND status = 'LOCKED' AND price_lock_no = #{priceLockNo}")
     int casUnlockCoupon(@Param("id") Long id, @Param("priceLockNo") String priceLockNo);
 
+    /**
+     * 批量解锁（每张券只解锁被其所属价格锁锁定的）
+     */
+    @Update("<script>" +
+            "UPDATE t_coupon_user SET status = 'AVAILABLE', " +
+            "locked_time = NULL, lock_expire_time = NULL, " +
+            "price_lock_no = NULL, " +
+            "version = version + 1, updated_at = NOW() " +
+            "WHERE status = 'LOCKED' AND (" +
+            "<foreach collection='coupons' item='c' separator=' OR '>" +
+            "(id = #{c.id} AND price_lock_no = #{c.priceLockNo})" +
+            "</foreach>)" +
+            "</script>")
+    int batchUnlockCoupons(@Param("coupons") List<CouponUser> coupons);
+
     /**
      * 释放过期锁定的优惠券
      */
@@ -59,4 +79,25 @@ public interface CouponUserMapper extends BaseMapper<CouponUser> {
             "version = version + 1, updated_at = NOW() " +
             "WHERE status = 'LOCKED' AND lock_expire_time < NOW()")
     int releaseExpiredLocks();
+
+    /**
+     * 多行插入（领券异步落库）
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_coupon_user (id, user_coupon_no, user_id, coupon_id, coupon_code, status, " +
+            "receive_request_id, receive_time, valid_start_time, valid_end_time, version, created_at, updated_at) VALUES " +
+            "<foreach collection='coupons' item='c' separator=','>" +
+            "(#{c.id}, #{c.userCouponNo}, #{c.userId}, #{c.couponId}, #{c.couponCode}, #{c.status}, " +
+            "#{c.receiveRequestId}, #{c.receiveTime}, #{c.validStartTime}, #{c.validEndTime}, 1, " +
+            "#{c.createdAt}, #{c.updatedAt})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("coupons") List<CouponUser> coupons);
+
+    /**
+     * 每人已领数量（领券预热）
+     */
+    @Select("SELECT user_id AS userId, COUNT(*) AS claimed FROM t_coupon_user " +
+            "WHERE coupon_id = #{couponId} GROUP BY user_id")
+    List<Map<String, Object>> countClaimedByUser(@Param("couponId") Long couponId);
 }
@@ -0,0 +1,106 @@
+package com.yuge.promotion.infrastructure.mq;
+
+import com.yuge.platform.infra.mq.ProducerTemplate;
+import com.yuge.promotion.domain.event.CouponWalletChangedEvent;
+import com.yuge.promotion.domain.event.PromotionRulesChangedEvent;
+import com.yuge.promotion.infrastructure.cache.CouponTemplateCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 促销变更广播
+ *
+ * 规则变更、用户券包变更在事务提交后异步发送到 PROMOTION_TOPIC，
+ * 定价服务等下游、促销服务其他实例（模板缓存）按广播模式消费并失效本地缓存；
+ * 发送失败只记日志，下游缓存TTL、模板缓存的版本检查兜底
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PromotionChangePublisher {
+
+    public static final String PROMOTION_TOPIC = "PROMOTION_TOPIC";
+    public static final String TAG_RULES_CHANGED = "RULES_CHANGED";
+    public static final String TAG_WALLET_CHANGED = "WALLET_CHANGED";
+
+    public static final String RULES_VERSION_KEY = "promotion:rules:version";
+
+    private final ProducerTemplate producerTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CouponTemplateCache couponTemplateCache;
+
+    /**
+     * 规则变更：递增全局规则版本并广播，本实例模板缓存同步刷新（不等广播回到本实例）
+     *
+     * @param couponIds 变更的优惠券模板
+     */
+    public void rulesChangedAfterCommit(String reason, List<Long> couponIds) {
+        afterCommit(() -> {
+            Long rulesVersion = stringRedisTemplate.opsForValue().increment(RULES_VERSION_KEY);
+            PromotionRulesChangedEvent event = PromotionRulesChangedEvent.builder()
+                    .rulesVersion(rulesVersion)
+                    .couponIds(couponIds)
+                    .reason(reason)
+                    .changedAt(LocalDateTime.now())
+                    .build();
+            send(TAG_RULES_CHANGED, String.valueOf(rulesVersion), event);
+            couponTemplateCache.onRulesChanged(rulesVersion, couponIds);
+        });
+    }
+
+    public void walletChangedAfterCommit(Long userId, String reason) {
+        afterCommit(() -> {
+            CouponWalletChangedEvent event = CouponWalletChangedEvent.builder()
+                    .userId(userId)
+                    .reason(reason)
+                    .changedAt(LocalDateTime.now())
+                    .build();
+            send(TAG_WALLET_CHANGED, String.valueOf(userId), event);
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runQuietly(action);
+                }
+            });
+        } else {
+            runQuietly(action);
+        }
+    }
+
+    private void runQuietly(Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            log.warn("[PromotionChangePublisher] publish failed, error={}", e.getMessage());
+        }
+    }
+
+    private void send(String tag, String businessKey, Object event) {
+        producerTemplate.asyncSend(PROMOTION_TOPIC, tag, businessKey, event, new SendCallback() {
+            @Override
+            public void onSuccess(SendResult sendResult) {
+                log.debug("[PromotionChangePublisher] Sent, tag={}, key={}", tag, businessKey);
+            }
+
+            @Override
+            public void onException(Throwable e) {
+                log.warn("[PromotionChangePublisher] Send failed, tag={}, key={}, error={}",
+                        tag, businessKey, e.getMessage());
+            }
+        });
+    }
+}
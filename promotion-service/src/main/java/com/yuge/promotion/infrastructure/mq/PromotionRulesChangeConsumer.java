@@ -0,0 +1,55 @@
+package com.yuge.promotion.infrastructure.mq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuge.platform.infra.mq.BaseEvent;
+import com.yuge.promotion.domain.event.PromotionRulesChangedEvent;
+import com.yuge.promotion.infrastructure.cache.CouponTemplateCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.spring.annotation.MessageModel;
+import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
+import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 规则变更消费者（广播模式，每个促销实例按变更的模板刷新自己的模板缓存）
+ *
+ * 不继承 ConsumerTemplate：其按消息ID的Redis幂等在实例间共享，广播时只有一个实例会处理；
+ * 刷新按版本判断，重复和乱序消息忽略
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@RocketMQMessageListener(
+        topic = PromotionChangePublisher.PROMOTION_TOPIC,
+        selectorExpression = PromotionChangePublisher.TAG_RULES_CHANGED,
+        consumerGroup = "promotion-template-cache-group",
+        messageModel = MessageModel.BROADCASTING
+)
+public class PromotionRulesChangeConsumer implements RocketMQListener<MessageExt> {
+
+    private final CouponTemplateCache couponTemplateCache;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void onMessage(MessageExt messageExt) {
+        try {
+            BaseEvent event = objectMapper.readValue(
+                    new String(messageExt.getBody(), StandardCharsets.UTF_8), BaseEvent.class);
+            PromotionRulesChangedEvent changed = objectMapper.readValue(
+                    event.getPayload(), PromotionRulesChangedEvent.class);
+            if (changed.getRulesVersion() == null) {
+                return;
+            }
+            couponTemplateCache.onRulesChanged(changed.getRulesVersion(), changed.getCouponIds());
+            log.debug("[PromotionRulesChangeConsumer] Rules changed, version={}, couponIds={}, reason={}",
+                    changed.getRulesVersion(), changed.getCouponIds(), changed.getReason());
+        } catch (Exception e) {
+            log.warn("[PromotionRulesChangeConsumer] Failed to handle message, msgId={}, error={}",
+                    messageExt.getMsgId(), e.getMessage());
+        }
+    }
+}
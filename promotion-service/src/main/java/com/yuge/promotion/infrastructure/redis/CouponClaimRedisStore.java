@@ -0,0 +1,243 @@
+package com.yuge.promotion.infrastructure.redis;
+
+import com.yuge.platform.infra.common.ErrorCode;
+import com.yuge.platform.infra.exception.BizException;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 优惠券领取Redis存储（抢券）
+ *
+ * 1. 每张优惠券三个key（同一 hash tag）：剩余库存、每人已领数量、领取请求记录（userId:requestId -> 编号:领取时间）
+ * 2. 领取为一次Lua脚本调用：幂等 -> 库存 -> 每人限领 -> 扣减，不再竞争 t_coupon 行版本号
+ * 3. 库存key不存在时由调用方从数据库预热：每人已领数量与库存在一次Lua调用中写入，库存已存在时不做修改
+ * 4. 优惠券有固定结束时间时，key 在结束时间后一天过期
+ *
+ * 领取记录与已发放数量由 CouponClaimPersister 异步批量落库；领取请求记录同时是领取的持久日志，
+ * 进程内队列丢失或落库失败的记录由 CouponClaimReconciler 按其补写
+ */
+@Slf4j
+@Component
+public class CouponClaimRedisStore {
+
+    private static final String KEY_PREFIX = "promotion:coupon:claim:{";
+
+    private final StringRedisTemplate redisTemplate;
+
+    @SuppressWarnings("rawtypes")
+    private DefaultRedisScript<List> claimScript;
+    private DefaultRedisScript<Long> revertScript;
+    private DefaultRedisScript<Long> warmUpScript;
+
+    public CouponClaimRedisStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        claimScript = new DefaultRedisScript<>();
+        claimScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/coupon_claim.lua")));
+        claimScript.setResultType(List.class);
+
+        revertScript = new DefaultRedisScript<>();
+        revertScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/coupon_claim_revert.lua")));
+        revertScript.setResultType(Long.class);
+
+        warmUpScript = new DefaultRedisScript<>();
+        warmUpScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/coupon_claim_warmup.lua")));
+        warmUpScript.setResultType(Long.class);
+
+        log.info("[CouponClaimRedisStore] Lua scripts initialized");
+    }
+
+    /**
+     * 领取
+     *
+     * @param userCouponNo 领取成功时使用的用户券编号
+     */
+    public ClaimResult claim(Long couponId, Long userId, String requestId, int perUserLimit, String userCouponNo,
+                             LocalDateTime receiveTime) {
+        List<?> result;
+        try {
+            result = redisTemplate.execute(claimScript, keys(couponId),
+                    String.valueOf(userId), requestId, String.valueOf(perUserLimit), userCouponNo,
+                    String.valueOf(toMillis(receiveTime)));
+        } catch (Exception e) {
+            log.error("[CouponClaimRedisStore] claim failed, couponId={}, userId={}, error={}",
+                    couponId, userId, e.getMessage(), e);
+            throw new BizException(ErrorCode.CACHE_ERROR, "领券服务繁忙，请重试");
+        }
+        if (result == null || result.size() < 2) {
+            throw new BizException(ErrorCode.CACHE_ERROR, "领券脚本返回为空");
+        }
+        Code code = Code.valueOf((String) result.get(0));
+        if (code == Code.OK) {
+            return new ClaimResult(code, userCouponNo, receiveTime);
+        }
+        Claim claimed = code == Code.DUPLICATE ? parseClaim(userId, requestId, (String) result.get(1)) : null;
+        return new ClaimResult(code, claimed != null ? claimed.getUserCouponNo() : null,
+                claimed != null ? claimed.getReceiveTime() : null);
+    }
+
+    /**
+     * 分批遍历领取请求记录（对账补写未落库的领取）
+     */
+    public void scanClaims(Long couponId, int batchSize, Consumer<List<Claim>> consumer) {
+        ScanOptions options = ScanOptions.scanOptions().count(batchSize).build();
+        List<Claim> batch = new ArrayList<>(batchSize);
+        try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash().scan(keys(couponId).get(2), options)) {
+            while (cursor.hasNext()) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                String field = (String) entry.getKey();
+                int sep = field.indexOf(':');
+                if (sep <= 0) {
+                    continue;
+                }
+                batch.add(parseClaim(Long.valueOf(field.substring(0, sep)), field.substring(sep + 1),
+                        (String) entry.getValue()));
+                if (batch.size() >= batchSize) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
+
+    /**
+     * 预热（已预热时不做修改）
+     * 库存检查、每人已领数量、库存写入在一次Lua调用中完成，多个实例同时预热时只有一个生效
+     *
+     * @param remaining    剩余可领数量（总量 - 已落库数量）
+     * @param claimedByUser 每人已领数量
+     * @param expireAt     key 过期时间，为空则不过期
+     * @return 本次是否写入了库存
+     */
+    public boolean warmUp(Long couponId, long remaining, Map<Long, Integer> claimedByUser, LocalDateTime expireAt) {
+        List<String> args = new ArrayList<>(2 + claimedByUser.size() * 2);
+        args.add(String.valueOf(Math.max(remaining, 0)));
+        args.add(expireAt != null ? String.valueOf(toMillis(expireAt.plusDays(1))) : "");
+        claimedByUser.forEach((userId, claimed) -> {
+            args.add(String.valueOf(userId));
+            args.add(String.valueOf(claimed));
+        });
+        Long written = redisTemplate.execute(warmUpScript, keys(couponId), args.toArray());
+        log.info("[CouponClaimRedisStore] Warmed up, couponId={}, remaining={}, users={}, written={}",
+                couponId, remaining, claimedByUser.size(), written);
+        return written != null && written == 1L;
+    }
+
+    /**
+     * 剩余库存，未预热时为空
+     */
+    public Long remaining(Long couponId) {
+        String value = redisTemplate.opsForValue().get(keys(couponId).get(0));
+        return value != null ? Long.valueOf(value) : null;
+    }
+
+    /**
+     * 对账修正库存
+     */
+    public void adjustRemaining(Long couponId, long delta) {
+        redisTemplate.opsForValue().increment(keys(couponId).get(0), delta);
+    }
+
+    /**
+     * 回滚一次领取（落库时发现同一请求已有记录）
+     *
+     * @param persistedUserCouponNo 已落库的用户券编号
+     */
+    public boolean revert(Long couponId, Long userId, String requestId, String userCouponNo,
+                          String persistedUserCouponNo) {
+        Long result = redisTemplate.execute(revertScript, keys(couponId),
+                String.valueOf(userId), requestId, userCouponNo, persistedUserCouponNo);
+        return result != null && result == 1L;
+    }
+
+    /**
+     * 领取请求记录的值为 编号:领取时间；回滚后只有已落库的编号，领取时间为空
+     */
+    private static Claim parseClaim(Long userId, String requestId, String value) {
+        int sep = value.indexOf(':');
+        if (sep < 0) {
+            return new Claim(userId, requestId, value, null);
+        }
+        LocalDateTime receiveTime = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(Long.parseLong(value.substring(sep + 1))), ZoneId.systemDefault());
+        return new Claim(userId, requestId, value.substring(0, sep), receiveTime);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static List<String> keys(Long couponId) {
+        String prefix = KEY_PREFIX + couponId + "}:";
+        return List.of(prefix + "stock", prefix + "users", prefix + "requests");
+    }
+
+    /**
+     * 脚本结果码
+     */
+    public enum Code {
+        OK,
+        /** 同一请求已领取 */
+        DUPLICATE,
+        /** 未预热 */
+        NOT_WARMED,
+        SOLD_OUT,
+        LIMIT
+    }
+
+    /**
+     * 领取结果（OK/DUPLICATE 时带领取的编号，领取时间可能为空）
+     */
+    @Getter
+    public static class ClaimResult {
+        private final Code code;
+        private final String userCouponNo;
+        private final LocalDateTime receiveTime;
+
+        public ClaimResult(Code code, String userCouponNo, LocalDateTime receiveTime) {
+            this.code = code;
+            this.userCouponNo = userCouponNo;
+            this.receiveTime = receiveTime;
+        }
+    }
+
+    /**
+     * Redis中的一次领取
+     */
+    @Getter
+    public static class Claim {
+        private final Long userId;
+        private final String requestId;
+        private final String userCouponNo;
+        private final LocalDateTime receiveTime;
+
+        public Claim(Long userId, String requestId, String userCouponNo, LocalDateTime receiveTime) {
+            this.userId = userId;
+            this.requestId = requestId;
+            this.userCouponNo = userCouponNo;
+            this.receiveTime = receiveTime;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.yuge.promotion.infrastructure.repository;
+
+import com.yuge.promotion.domain.entity.CouponUser;
+import com.yuge.promotion.infrastructure.mq.PromotionChangePublisher;
+import com.yuge.promotion.infrastructure.redis.CouponClaimRedisStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 领券记录异步落库
+ *
+ * 1. Redis领取成功后入队，调用线程不等待数据库
+ * 2. 单个写入线程按 flush-interval-ms 窗口（最多 max-batch 条）合批：
+ *    领取记录一条多行INSERT，已发放数量按优惠券合并为一条UPDATE，同一事务提交
+ * 3. 整批失败时逐条重试（各自事务）；同一领取请求已有记录时回滚该次Redis领取
+ * 4. 记录提交后再广播券包变更，下游不会在落库前重算并缓存不含新券的券包
+ * 5. 队列满或写入线程未启动时在调用线程同步写入
+ *
+ * 队列只是写缓冲，不是领取的持久记录：进程崩溃丢失的、逐条重试仍失败的记录，
+ * 由 CouponClaimReconciler 按Redis领取请求记录补写
+ */
+@Slf4j
+@Component
+public class CouponClaimPersister {
+
+    private final CouponUserRepository couponUserRepository;
+    private final CouponRepository couponRepository;
+    private final CouponClaimRedisStore couponClaimRedisStore;
+    private final PromotionChangePublisher promotionChangePublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private BlockingQueue<CouponUser> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder reverted = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * 收集窗口（毫秒）
+     */
+    @Value("${promotion.claim.persist.flush-interval-ms:20}")
+    private long flushIntervalMs;
+
+    /**
+     * 单批最大条数
+     */
+    @Value("${promotion.claim.persist.max-batch:500}")
+    private int maxBatch;
+
+    /**
+     * 队列容量，队列满时调用线程同步写入
+     */
+    @Value("${promotion.claim.persist.queue-capacity:100000}")
+    private int queueCapacity;
+
+    public CouponClaimPersister(CouponUserRepository couponUserRepository,
+                                CouponRepository couponRepository,
+                                CouponClaimRedisStore couponClaimRedisStore,
+                                PromotionChangePublisher promotionChangePublisher,
+                                TransactionTemplate transactionTemplate) {
+        this.couponUserRepository = couponUserRepository;
+        this.couponRepository = couponRepository;
+        this.couponClaimRedisStore = couponClaimRedisStore;
+        this.promotionChangePublisher = promotionChangePublisher;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        running = true;
+        flusher = new Thread(this::runLoop, "coupon-claim-persister");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("[CouponClaimPersister] Started, flushIntervalMs={}, maxBatch={}, queueCapacity={}",
+                flushIntervalMs, maxBatch, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 停止后剩余记录逐批写完
+        List<CouponUser> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int i = 0; i < rest.size(); i += maxBatch) {
+            flush(rest.subList(i, Math.min(i + maxBatch, rest.size())));
+        }
+        log.info("[CouponClaimPersister] Stopped, batches={}, written={}, reverted={}, failures={}",
+                batches.sum(), written.sum(), reverted.sum(), failures.sum());
+    }
+
+    /**
+     * 领取记录落库（入参之后不得再修改）
+     */
+    public void submit(CouponUser couponUser) {
+        stamp(couponUser);
+        if (!running || !queue.offer(couponUser)) {
+            writeSingle(couponUser);
+        }
+    }
+
+    /**
+     * 在调用线程同步落库（对账补写），已落库的记录按唯一键跳过
+     */
+    public void persistNow(List<CouponUser> couponUsers) {
+        couponUsers.forEach(CouponClaimPersister::stamp);
+        for (int i = 0; i < couponUsers.size(); i += maxBatch) {
+            flush(couponUsers.subList(i, Math.min(i + maxBatch, couponUsers.size())));
+        }
+    }
+
+    private static void stamp(CouponUser couponUser) {
+        LocalDateTime now = LocalDateTime.now();
+        couponUser.setCreatedAt(now);
+        couponUser.setUpdatedAt(now);
+    }
+
+    /**
+     * 尚未落库的记录数（本实例）
+     */
+    public int getPendingCount() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    private void runLoop() {
+        List<CouponUser> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                CouponUser first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < maxBatch) {
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    CouponUser next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                failures.add(batch.size());
+                log.error("[CouponClaimPersister] Flush loop error, size={}, error={}", batch.size(), e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void flush(List<CouponUser> batch) {
+        // 1. 已发放数量按优惠券合并
+        Map<Long, Integer> issuedByCoupon = new LinkedHashMap<>();
+        for (CouponUser couponUser : batch) {
+            issuedByCoupon.merge(couponUser.getCouponId(), 1, Integer::sum);
+        }
+
+        // 2. 整批一个事务
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                couponUserRepository.insertBatch(batch);
+                issuedByCoupon.forEach(couponRepository::incrementIssuedQuantity);
+            });
+            batches.increment();
+            written.add(batch.size());
+            publishWalletChanged(batch);
+            log.debug("[CouponClaimPersister] Batch committed, claims={}, coupons={}", batch.size(), issuedByCoupon.size());
+            return;
+        } catch (RuntimeException e) {
+            log.warn("[CouponClaimPersister] Batch failed, retry one by one, claims={}, error={}",
+                    batch.size(), e.getMessage());
+        }
+
+        // 3. 逐条重试，失败只影响该条
+        for (CouponUser couponUser : batch) {
+            writeSingle(couponUser);
+        }
+    }
+
+    private void writeSingle(CouponUser couponUser) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                couponUserRepository.insertBatch(List.of(couponUser));
+                couponRepository.incrementIssuedQuantity(couponUser.getCouponId(), 1);
+            });
+            written.increment();
+            publishWalletChanged(List.of(couponUser));
+        } catch (DuplicateKeyException e) {
+            revertDuplicate(couponUser);
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.error("[CouponClaimPersister] Persist failed, left to reconciler, userCouponNo={}, userId={}, couponId={}, error={}",
+                    couponUser.getUserCouponNo(), couponUser.getUserId(), couponUser.getCouponId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 已提交记录的用户券包变更（同一用户合并为一条）
+     */
+    private void publishWalletChanged(List<CouponUser> committed) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        committed.forEach(couponUser -> userIds.add(couponUser.getUserId()));
+        userIds.forEach(userId -> promotionChangePublisher.walletChangedAfterCommit(userId, "RECEIVE"));
+    }
+
+    /**
+     * 同一领取请求已有记录（Redis预热前已落库）：归还本次在Redis中扣减的库存与限领数量
+     */
+    private void revertDuplicate(CouponUser couponUser) {
+        CouponUser persisted = couponUserRepository
+                .findByUserIdAndReceiveRequestId(couponUser.getUserId(), couponUser.getReceiveRequestId())
+                .orElse(null);
+        if (persisted == null || persisted.getUserCouponNo().equals(couponUser.getUserCouponNo())) {
+            log.info("[CouponClaimPersister] Claim already persisted, userCouponNo={}", couponUser.getUserCouponNo());
+            return;
+        }
+        try {
+            couponClaimRedisStore.revert(couponUser.getCouponId(), couponUser.getUserId(),
+                    couponUser.getReceiveRequestId(), couponUser.getUserCouponNo(), persisted.getUserCouponNo());
+            reverted.increment();
+            log.warn("[CouponClaimPersister] Duplicate claim reverted, userId={}, requestId={}, persisted={}",
+                    couponUser.getUserId(), couponUser.getReceiveRequestId(), persisted.getUserCouponNo());
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.error("[CouponClaimPersister] Revert failed, userCouponNo={}, error={}",
+                    couponUser.getUserCouponNo(), e.getMessage(), e);
+        }
+    }
+}
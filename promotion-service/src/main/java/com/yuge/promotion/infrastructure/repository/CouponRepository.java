@@ -6,6 +6,7 @@ import com.yuge.promotion.infrastructure.mapper.CouponMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +31,14 @@ public class CouponRepository {
         return Optional.ofNullable(couponMapper.selectById(id));
     }
 
+    public List<Coupon> findByIds(Collection<Long> ids) {
+        return couponMapper.selectBatchIds(ids);
+    }
+
+    public List<Coupon> findAll() {
+        return couponMapper.selectList(null);
+    }
+
     public Optional<Coupon> findByCode(String couponCode) {
         LambdaQueryWrapper<Coupon> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(Coupon::getCouponCode, couponCode);
@@ -51,4 +60,12 @@ public class CouponRepository {
     public boolean casIncrementIssuedQuantity(Long couponId, Integer count, Integer version) {
         return couponMapper.casIncrementIssuedQuantity(couponId, count, version) > 0;
     }
+
+    public int incrementIssuedQuantity(Long couponId, int count) {
+        return couponMapper.incrementIssuedQuantity(couponId, count);
+    }
+
+    public boolean syncIssuedQuantity(Long couponId, int issued) {
+        return couponMapper.syncIssuedQuantity(couponId, issued) > 0;
+    }
 }
@@ -8,8 +8,13 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 用户优惠券仓储
@@ -38,6 +43,24 @@ public class CouponUserRepository {
         return Optional.ofNullable(couponUserMapper.selectOne(wrapper));
     }
 
+    public List<CouponUser> findByUserCouponNos(Collection<String> userCouponNos) {
+        LambdaQueryWrapper<CouponUser> wrapper = new LambdaQueryWrapper<>();
+        wrapper.in(CouponUser::getUserCouponNo, userCouponNos);
+        return couponUserMapper.selectList(wrapper);
+    }
+
+    /**
+     * 已落库的用户券编号（对账补写前过滤）
+     */
+    public Set<String> findPersistedUserCouponNos(Collection<String> userCouponNos) {
+        LambdaQueryWrapper<CouponUser> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(CouponUser::getUserCouponNo)
+               .in(CouponUser::getUserCouponNo, userCouponNos);
+        return couponUserMapper.selectList(wrapper).stream()
+                .map(CouponUser::getUserCouponNo)
+                .collect(Collectors.toSet());
+    }
+
     public Optional<CouponUser> findByUserIdAndReceiveRequestId(Long userId, String receiveRequestId) {
         LambdaQueryWrapper<CouponUser> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(CouponUser::getUserId, userId)
@@ -81,7 +104,32 @@ public class CouponUserRepository {
         return couponUserMapper.casUnlockCoupon(id, priceLockNo) > 0;
     }
 
+    public int batchUnlockCoupons(List<CouponUser> coupons) {
+        return couponUserMapper.batchUnlockCoupons(coupons);
+    }
+
     public int releaseExpiredLocks() {
         return couponUserMapper.releaseExpiredLocks();
     }
+
+    public int insertBatch(List<CouponUser> coupons) {
+        return couponUserMapper.insertBatch(coupons);
+    }
+
+    public int countByCouponId(Long couponId) {
+        LambdaQueryWrapper<CouponUser> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(CouponUser::getCouponId, couponId);
+        return Math.toIntExact(couponUserMapper.selectCount(wrapper));
+    }
+
+    /**
+     * 每人已领数量（userId -> 数量）
+     */
+    public Map<Long, Integer> countClaimedByUser(Long couponId) {
+        Map<Long, Integer> claimed = new HashMap<>();
+        for (Map<String, Object> row : couponUserMapper.countClaimedByUser(couponId)) {
+            claimed.put(((Number) row.get("userId")).longValue(), ((Number) row.get("claimed")).intValue());
+        }
+        return claimed;
+    }
 }
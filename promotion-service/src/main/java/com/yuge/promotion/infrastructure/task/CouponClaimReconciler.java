@@ -0,0 +1,175 @@
+package com.yuge.promotion.infrastructure.task;
+
+import com.yuge.platform.infra.lease.RedisLeaseService;
+import com.yuge.promotion.application.CouponService;
+import com.yuge.promotion.domain.entity.Coupon;
+import com.yuge.promotion.infrastructure.redis.CouponClaimRedisStore;
+import com.yuge.promotion.infrastructure.repository.CouponRepository;
+import com.yuge.promotion.infrastructure.repository.CouponUserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 领券对账任务
+ *
+ * 1. 通过 Redis 租约（SET NX PX）由唯一实例执行
+ * 2. 进行中的优惠券：已发放数量以领取记录数为准回写 t_coupon
+ * 3. 比较 Redis 已发放（总量 - 剩余库存）与领取记录数：
+ *    - Redis 多于记录数：遍历 Redis 领取请求记录，领取时间早于 restore-grace-seconds 且未落库的
+ *      （进程崩溃丢失、落库失败）按原编号补写 t_coupon_user；用户已拿到券号，不归还库存
+ *    - Redis 少于记录数：连续两轮差值相同时按差值扣减 Redis 库存，避免超发
+ */
+@Slf4j
+@Component
+public class CouponClaimReconciler {
+
+    private static final String LEASE_KEY = "promotion:coupon:claim:reconcile:lease";
+
+    private final CouponRepository couponRepository;
+    private final CouponUserRepository couponUserRepository;
+    private final CouponClaimRedisStore couponClaimRedisStore;
+    private final CouponService couponService;
+    private final RedisLeaseService leaseService;
+    private final String instanceId;
+
+    /**
+     * 上一轮的差值（couponId -> Redis已发放 - 领取记录数）
+     */
+    private final Map<Long, Long> lastDrift = new HashMap<>();
+
+    @Value("${promotion.claim.reconcile.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 租约时长（秒），应大于一轮对账耗时
+     */
+    @Value("${promotion.claim.reconcile.lease-seconds:50}")
+    private long leaseSeconds;
+
+    /**
+     * 领取后多久仍未落库视为丢失（秒），应大于落库队列的正常积压时长
+     */
+    @Value("${promotion.claim.reconcile.restore-grace-seconds:30}")
+    private long restoreGraceSeconds;
+
+    /**
+     * 补写时每批遍历的领取记录数
+     */
+    @Value("${promotion.claim.reconcile.scan-batch:500}")
+    private int scanBatch;
+
+    public CouponClaimReconciler(CouponRepository couponRepository,
+                                 CouponUserRepository couponUserRepository,
+                                 CouponClaimRedisStore couponClaimRedisStore,
+                                 CouponService couponService,
+                                 RedisLeaseService leaseService) {
+        this.couponRepository = couponRepository;
+        this.couponUserRepository = couponUserRepository;
+        this.couponClaimRedisStore = couponClaimRedisStore;
+        this.couponService = couponService;
+        this.leaseService = leaseService;
+        this.instanceId = RedisLeaseService.newHolderId();
+    }
+
+    @Scheduled(fixedDelayString = "${promotion.claim.reconcile.interval-ms:60000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        if (!leaseService.tryAcquire(LEASE_KEY, instanceId, TimeUnit.SECONDS.toMillis(leaseSeconds))) {
+            lastDrift.clear();
+            return;
+        }
+        try {
+            List<Coupon> coupons = couponRepository.findActiveCoupons();
+            Map<Long, Long> drifts = new HashMap<>();
+            for (Coupon coupon : coupons) {
+                try {
+                    Long drift = reconcileCoupon(coupon);
+                    if (drift != null && drift != 0) {
+                        drifts.put(coupon.getId(), drift);
+                    }
+                } catch (Exception e) {
+                    log.warn("[CouponClaimReconciler] Reconcile failed, couponId={}, error={}",
+                            coupon.getId(), e.getMessage(), e);
+                }
+            }
+            lastDrift.clear();
+            lastDrift.putAll(drifts);
+        } finally {
+            leaseService.release(LEASE_KEY, instanceId);
+        }
+    }
+
+    /**
+     * @return 本轮 Redis已发放 - 领取记录数（已修正的为0），未预热时为空
+     */
+    private Long reconcileCoupon(Coupon coupon) {
+        Long couponId = coupon.getId();
+
+        // 1. 回写已发放数量
+        int persisted = couponUserRepository.countByCouponId(couponId);
+        if (couponRepository.syncIssuedQuantity(couponId, persisted)) {
+            log.info("[CouponClaimReconciler] Issued quantity synced, couponId={}, issued={}", couponId, persisted);
+        }
+
+        // 2. Redis库存与领取记录比较
+        Long remaining = couponClaimRedisStore.remaining(couponId);
+        if (remaining == null) {
+            return null;
+        }
+        long drift = coupon.getTotalQuantity() - remaining - persisted;
+        if (drift > 0) {
+            int restored = restoreMissingClaims(coupon);
+            if (restored > 0) {
+                log.error("[CouponClaimReconciler] Lost claims restored, couponId={}, redisIssued={}, persisted={}, restored={}",
+                        couponId, coupon.getTotalQuantity() - remaining, persisted, restored);
+            }
+            return drift;
+        }
+        if (drift == 0 || !Long.valueOf(drift).equals(lastDrift.get(couponId))) {
+            return drift;
+        }
+        couponClaimRedisStore.adjustRemaining(couponId, drift);
+        log.error("[CouponClaimReconciler] Stock drift corrected, couponId={}, redisIssued={}, persisted={}, drift={}",
+                couponId, coupon.getTotalQuantity() - remaining, persisted, drift);
+        return 0L;
+    }
+
+    /**
+     * 按Redis领取请求记录补写超过宽限期仍未落库的领取
+     *
+     * @return 补写条数
+     */
+    private int restoreMissingClaims(Coupon coupon) {
+        LocalDateTime settledBefore = LocalDateTime.now().minusSeconds(restoreGraceSeconds);
+        int[] restored = {0};
+        couponClaimRedisStore.scanClaims(coupon.getId(), scanBatch, claims -> {
+            List<CouponClaimRedisStore.Claim> settled = claims.stream()
+                    .filter(c -> c.getReceiveTime() == null || c.getReceiveTime().isBefore(settledBefore))
+                    .toList();
+            if (settled.isEmpty()) {
+                return;
+            }
+            Set<String> persisted = couponUserRepository.findPersistedUserCouponNos(
+                    settled.stream().map(CouponClaimRedisStore.Claim::getUserCouponNo).toList());
+            List<CouponClaimRedisStore.Claim> missing = settled.stream()
+                    .filter(c -> !persisted.contains(c.getUserCouponNo()))
+                    .toList();
+            if (!missing.isEmpty()) {
+                couponService.restoreClaims(coupon, missing);
+                restored[0] += missing.size();
+            }
+        });
+        return restored[0];
+    }
+}
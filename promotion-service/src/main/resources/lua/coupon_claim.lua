@@ -0,0 +1,48 @@
+--[[
+    优惠券领取 Lua 脚本
+
+    功能：原子性完成 幂等检查 -> 库存检查 -> 每人限领检查 -> 扣库存 + 记录领取
+
+    KEYS[1] = promotion:coupon:claim:{couponId}:stock     (String) 剩余可领数量
+    KEYS[2] = promotion:coupon:claim:{couponId}:users     (Hash)   userId -> 已领数量
+    KEYS[3] = promotion:coupon:claim:{couponId}:requests  (Hash)   userId:requestId -> userCouponNo:领取时间
+              领取记录的持久日志：进程内落库队列丢失时，对账任务按此补写 t_coupon_user
+
+    ARGV[1] = userId
+    ARGV[2] = requestId
+    ARGV[3] = 每人限领数量
+    ARGV[4] = 本次领取生成的用户券编号
+    ARGV[5] = 领取时间（毫秒时间戳）
+
+    返回值 {code, userCouponNo}:
+    OK         - 领取成功，userCouponNo 为 ARGV[4]
+    DUPLICATE  - 同一请求已领取，userCouponNo 为首次领取的记录（编号:领取时间）
+    NOT_WARMED - 库存未加载到Redis，由调用方预热后重试
+    SOLD_OUT   - 已发完
+    LIMIT      - 已达到每人限领数量
+--]]
+
+local requestField = ARGV[1] .. ':' .. ARGV[2]
+
+local existing = redis.call('HGET', KEYS[3], requestField)
+if existing then
+    return {'DUPLICATE', existing}
+end
+
+local stock = redis.call('GET', KEYS[1])
+if not stock then
+    return {'NOT_WARMED', ''}
+end
+if tonumber(stock) <= 0 then
+    return {'SOLD_OUT', ''}
+end
+
+local claimed = tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0')
+if claimed >= tonumber(ARGV[3]) then
+    return {'LIMIT', ''}
+end
+
+redis.call('DECR', KEYS[1])
+redis.call('HINCRBY', KEYS[2], ARGV[1], 1)
+redis.call('HSET', KEYS[3], requestField, ARGV[4] .. ':' .. ARGV[5])
+return {'OK', ARGV[4]}
@@ -0,0 +1,35 @@
+--[[
+    优惠券领取回滚 Lua 脚本
+
+    功能：领取记录落库时发现同一请求已有记录（Redis 预热前已落库），归还库存与每人已领数量，
+          并把幂等记录改为已落库的用户券编号，之后的重试返回已有的券
+
+    KEYS[1] = promotion:coupon:claim:{couponId}:stock
+    KEYS[2] = promotion:coupon:claim:{couponId}:users
+    KEYS[3] = promotion:coupon:claim:{couponId}:requests
+
+    ARGV[1] = userId
+    ARGV[2] = requestId
+    ARGV[3] = 要回滚的用户券编号
+    ARGV[4] = 已落库的用户券编号
+
+    返回值:
+    1: 已回滚
+    0: 领取记录不是该编号（已回滚或已被覆盖），未做修改
+--]]
+
+local requestField = ARGV[1] .. ':' .. ARGV[2]
+
+local existing = redis.call('HGET', KEYS[3], requestField)
+if not existing or string.match(existing, '^[^:]*') ~= ARGV[3] then
+    return 0
+end
+
+redis.call('HSET', KEYS[3], requestField, ARGV[4])
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    redis.call('INCR', KEYS[1])
+end
+if tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0') > 0 then
+    redis.call('HINCRBY', KEYS[2], ARGV[1], -1)
+end
+return 1
@@ -0,0 +1,35 @@
+--[[
+    优惠券领取预热 Lua 脚本
+
+    功能：库存不存在时原子写入每人已领数量与库存；库存已存在（其他实例已预热、领取已开始）时不做任何修改，
+          避免用数据库中落后的已领数量覆盖领取中的计数
+
+    KEYS[1] = promotion:coupon:claim:{couponId}:stock
+    KEYS[2] = promotion:coupon:claim:{couponId}:users
+    KEYS[3] = promotion:coupon:claim:{couponId}:requests
+
+    ARGV[1] = 剩余可领数量
+    ARGV[2] = key 过期时间（毫秒时间戳），空串表示不过期
+    ARGV[3..] = userId, 已领数量, userId, 已领数量, ...
+
+    返回值:
+    1: 已预热
+    0: 库存已存在，未做修改
+--]]
+
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return 0
+end
+
+redis.call('DEL', KEYS[2])
+for i = 3, #ARGV, 2 do
+    redis.call('HSET', KEYS[2], ARGV[i], ARGV[i + 1])
+end
+redis.call('SET', KEYS[1], ARGV[1])
+
+if ARGV[2] ~= '' then
+    for i = 1, 3 do
+        redis.call('PEXPIREAT', KEYS[i], ARGV[2])
+    end
+end
+return 1
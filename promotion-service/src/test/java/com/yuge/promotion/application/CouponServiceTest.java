@@ -0,0 +1,267 @@
+package com.yuge.promotion.application;
+
+import com.yuge.platform.infra.exception.BizException;
+import com.yuge.promotion.api.dto.ReceiveCouponRequest;
+import com.yuge.promotion.api.dto.UserCouponResponse;
+import com.yuge.promotion.domain.entity.Coupon;
+import com.yuge.promotion.domain.entity.CouponUser;
+import com.yuge.promotion.infrastructure.cache.CouponTemplateCache;
+import com.yuge.promotion.infrastructure.mq.PromotionChangePublisher;
+import com.yuge.promotion.infrastructure.redis.CouponClaimRedisStore;
+import com.yuge.promotion.infrastructure.redis.CouponClaimRedisStore.ClaimResult;
+import com.yuge.promotion.infrastructure.redis.CouponClaimRedisStore.Code;
+import com.yuge.promotion.infrastructure.repository.CouponClaimPersister;
+import com.yuge.promotion.infrastructure.repository.CouponRepository;
+import com.yuge.promotion.infrastructure.repository.CouponUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 领券单元测试 - Redis领取、预热、重复请求与售罄
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CouponServiceTest {
+
+    private static final Long COUPON_ID = 1L;
+    private static final Long USER_ID = 1001L;
+    private static final LocalDateTime VALID_END = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private CouponUserRepository couponUserRepository;
+
+    @Mock
+    private CouponTemplateCache couponTemplateCache;
+
+    @Mock
+    private PromotionChangePublisher promotionChangePublisher;
+
+    @Mock
+    private CouponClaimRedisStore couponClaimRedisStore;
+
+    @Mock
+    private CouponClaimPersister couponClaimPersister;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private CouponService couponService;
+
+    @BeforeEach
+    void setUp() {
+        couponService = new CouponService(couponRepository, couponUserRepository, couponTemplateCache,
+                promotionChangePublisher, couponClaimRedisStore, couponClaimPersister, transactionTemplate);
+        ReflectionTestUtils.setField(couponService, "claimRedisEnabled", true);
+        when(couponTemplateCache.getByCode("CPN001")).thenReturn(Optional.of(coupon()));
+        when(couponUserRepository.countByCouponId(COUPON_ID)).thenReturn(30);
+        when(couponUserRepository.countClaimedByUser(COUPON_ID)).thenReturn(Map.of(USER_ID, 1));
+        when(couponUserRepository.findByUserIdAndReceiveRequestId(anyLong(), anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    @DisplayName("Redis领取成功：按领取编号异步落库")
+    void receiveCoupon_ok_shouldSubmit() {
+        stubClaim(Code.OK);
+
+        UserCouponResponse response = couponService.receiveCoupon(request("R1"));
+
+        ArgumentCaptor<CouponUser> submitted = ArgumentCaptor.forClass(CouponUser.class);
+        verify(couponClaimPersister).submit(submitted.capture());
+        assertEquals(response.getUserCouponNo(), submitted.getValue().getUserCouponNo());
+        assertEquals(USER_ID, submitted.getValue().getUserId());
+        assertEquals(COUPON_ID, submitted.getValue().getCouponId());
+        assertEquals("R1", submitted.getValue().getReceiveRequestId());
+        verify(couponClaimRedisStore, never()).warmUp(any(), anyLong(), anyMap(), any());
+        verifyNoInteractions(transactionTemplate);
+    }
+
+    @Test
+    @DisplayName("未预热：按 总量-已落库数量 与每人已领数量预热后，用同一编号重试领取")
+    void receiveCoupon_notWarmed_shouldWarmUpAndRetry() {
+        ClaimResult notWarmed = new ClaimResult(Code.NOT_WARMED, null, null);
+        when(couponClaimRedisStore.claim(eq(COUPON_ID), eq(USER_ID), eq("R1"), eq(2), anyString(), any()))
+                .thenReturn(notWarmed)
+                .thenAnswer(invocation -> new ClaimResult(Code.OK, invocation.getArgument(4), invocation.getArgument(5)));
+        when(couponClaimRedisStore.remaining(COUPON_ID)).thenReturn(null);
+
+        couponService.receiveCoupon(request("R1"));
+
+        verify(couponClaimRedisStore).warmUp(COUPON_ID, 70L, Map.of(USER_ID, 1), VALID_END);
+        ArgumentCaptor<String> userCouponNos = ArgumentCaptor.forClass(String.class);
+        verify(couponClaimRedisStore, times(2)).claim(eq(COUPON_ID), eq(USER_ID), eq("R1"), eq(2),
+                userCouponNos.capture(), any());
+        assertEquals(userCouponNos.getAllValues().get(0), userCouponNos.getAllValues().get(1));
+        verify(couponClaimPersister).submit(any(CouponUser.class));
+    }
+
+    @Test
+    @DisplayName("未预热但其他线程/实例已预热：不重复预热")
+    void receiveCoupon_alreadyWarmed_shouldNotWarmUpAgain() {
+        when(couponClaimRedisStore.claim(eq(COUPON_ID), eq(USER_ID), eq("R1"), eq(2), anyString(), any()))
+                .thenReturn(new ClaimResult(Code.NOT_WARMED, null, null))
+                .thenAnswer(invocation -> new ClaimResult(Code.OK, invocation.getArgument(4), invocation.getArgument(5)));
+        when(couponClaimRedisStore.remaining(COUPON_ID)).thenReturn(69L);
+
+        couponService.receiveCoupon(request("R1"));
+
+        verify(couponClaimRedisStore, never()).warmUp(any(), anyLong(), anyMap(), any());
+        verify(couponUserRepository, never()).countByCouponId(any());
+        verify(couponClaimPersister).submit(any(CouponUser.class));
+    }
+
+    @Test
+    @DisplayName("并发领取同时发现未预热：只预热一次")
+    void receiveCoupon_concurrentNotWarmed_shouldWarmUpOnce() throws Exception {
+        AtomicBoolean warmed = new AtomicBoolean();
+        when(couponClaimRedisStore.claim(eq(COUPON_ID), eq(USER_ID), anyString(), eq(2), anyString(), any()))
+                .thenAnswer(invocation -> warmed.get()
+                        ? new ClaimResult(Code.OK, invocation.getArgument(4), invocation.getArgument(5))
+                        : new ClaimResult(Code.NOT_WARMED, null, null));
+        when(couponClaimRedisStore.remaining(COUPON_ID)).thenAnswer(invocation -> warmed.get() ? 70L : null);
+        when(couponClaimRedisStore.warmUp(eq(COUPON_ID), anyLong(), anyMap(), any())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            warmed.set(true);
+            return true;
+        });
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<UserCouponResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String requestId = "R" + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return couponService.receiveCoupon(request(requestId));
+                }));
+            }
+            start.countDown();
+            for (Future<UserCouponResponse> future : futures) {
+                assertNotNull(future.get(5, TimeUnit.SECONDS).getUserCouponNo());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(couponClaimRedisStore, times(1)).warmUp(eq(COUPON_ID), anyLong(), anyMap(), any());
+        verify(couponClaimPersister, times(threads)).submit(any(CouponUser.class));
+    }
+
+    @Test
+    @DisplayName("重复请求且尚未落库：按Redis领取记录返回原编号，不再落库")
+    void receiveCoupon_duplicateNotPersisted_shouldReturnRedisClaim() {
+        LocalDateTime receivedAt = LocalDateTime.of(2026, 10, 1, 12, 0);
+        when(couponClaimRedisStore.claim(eq(COUPON_ID), eq(USER_ID), eq("R1"), eq(2), anyString(), any()))
+                .thenReturn(new ClaimResult(Code.DUPLICATE, "UC_FIRST", receivedAt));
+
+        UserCouponResponse response = couponService.receiveCoupon(request("R1"));
+
+        assertEquals("UC_FIRST", response.getUserCouponNo());
+        assertEquals(receivedAt, response.getReceiveTime());
+        verify(couponClaimPersister, never()).submit(any());
+    }
+
+    @Test
+    @DisplayName("重复请求且已落库：返回数据库中的记录，不再落库")
+    void receiveCoupon_duplicatePersisted_shouldReturnDbRecord() {
+        when(couponClaimRedisStore.claim(eq(COUPON_ID), eq(USER_ID), eq("R1"), eq(2), anyString(), any()))
+                .thenReturn(new ClaimResult(Code.DUPLICATE, "UC_FIRST", null));
+        CouponUser persisted = new CouponUser();
+        persisted.setUserCouponNo("UC_DB");
+        persisted.setUserId(USER_ID);
+        persisted.setCouponId(COUPON_ID);
+        persisted.setStatus("AVAILABLE");
+        persisted.setReceiveRequestId("R1");
+        when(couponUserRepository.findByUserIdAndReceiveRequestId(USER_ID, "R1")).thenReturn(Optional.of(persisted));
+
+        UserCouponResponse response = couponService.receiveCoupon(request("R1"));
+
+        assertEquals("UC_DB", response.getUserCouponNo());
+        verify(couponClaimPersister, never()).submit(any());
+    }
+
+    @Test
+    @DisplayName("已发完/超出每人限领：抛出业务异常，不落库")
+    void receiveCoupon_soldOutOrLimit_shouldThrow() {
+        stubClaim(Code.SOLD_OUT);
+        BizException soldOut = assertThrows(BizException.class, () -> couponService.receiveCoupon(request("R1")));
+        assertEquals("优惠券已发完", soldOut.getMessage());
+
+        stubClaim(Code.LIMIT);
+        BizException limit = assertThrows(BizException.class, () -> couponService.receiveCoupon(request("R2")));
+        assertEquals("已达到领取上限", limit.getMessage());
+
+        verify(couponClaimPersister, never()).submit(any());
+    }
+
+    @Test
+    @DisplayName("预热后仍未预热（key 被删除）：返回繁忙，不落库")
+    void receiveCoupon_stillNotWarmed_shouldThrowBusy() {
+        stubClaim(Code.NOT_WARMED);
+        when(couponClaimRedisStore.remaining(COUPON_ID)).thenReturn(null);
+
+        assertThrows(BizException.class, () -> couponService.receiveCoupon(request("R1")));
+
+        verify(couponClaimRedisStore, times(1)).warmUp(any(), anyLong(), anyMap(), any());
+        verify(couponClaimPersister, never()).submit(any());
+    }
+
+    private void stubClaim(Code code) {
+        when(couponClaimRedisStore.claim(eq(COUPON_ID), eq(USER_ID), anyString(), eq(2), anyString(), any()))
+                .thenAnswer(invocation -> code == Code.OK
+                        ? new ClaimResult(code, invocation.getArgument(4), invocation.getArgument(5))
+                        : new ClaimResult(code, null, null));
+    }
+
+    private static ReceiveCouponRequest request(String requestId) {
+        ReceiveCouponRequest request = new ReceiveCouponRequest();
+        request.setUserId(USER_ID);
+        request.setCouponCode("CPN001");
+        request.setRequestId(requestId);
+        return request;
+    }
+
+    private static Coupon coupon() {
+        Coupon coupon = new Coupon();
+        coupon.setId(COUPON_ID);
+        coupon.setCouponCode("CPN001");
+        coupon.setName("满100减20");
+        coupon.setType("FULL_REDUCTION");
+        coupon.setStatus("ACTIVE");
+        coupon.setTotalQuantity(100);
+        coupon.setIssuedQuantity(30);
+        coupon.setPerUserLimit(2);
+        coupon.setValidStartTime(LocalDateTime.of(2026, 1, 1, 0, 0));
+        coupon.setValidEndTime(VALID_END);
+        return coupon;
+    }
+}
@@ -0,0 +1,170 @@
+package com.yuge.promotion.application;
+
+import com.yuge.promotion.api.dto.DisplayPriceRequest;
+import com.yuge.promotion.api.dto.DisplayPriceResult;
+import com.yuge.promotion.domain.entity.Coupon;
+import com.yuge.promotion.domain.entity.CouponUser;
+import com.yuge.promotion.domain.rule.CouponRuleIndex;
+import com.yuge.promotion.infrastructure.cache.CouponTemplateCache;
+import com.yuge.promotion.infrastructure.repository.CouponUserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 列表页展示价单元测试 - 券包/可领取两条候选路径与并行计算
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DisplayPriceServiceTest {
+
+    @Mock
+    private CouponUserRepository couponUserRepository;
+
+    @Mock
+    private CouponTemplateCache couponTemplateCache;
+
+    @Test
+    @DisplayName("带用户：按券包计算，同一模板取第一张用户券，未达门槛不优惠")
+    void displayPrices_wallet_shouldUseUserCoupons() {
+        Coupon skuCoupon = coupon(1L, "FULL_REDUCTION", "SKU", "[100]", "50", "20");
+        Coupon allCoupon = coupon(2L, "FULL_REDUCTION", "ALL", null, "50", "5");
+        when(couponUserRepository.findAvailableByUserId(1001L)).thenReturn(List.of(
+                couponUser("UC1", 1L), couponUser("UC2", 1L), couponUser("UC3", 2L), couponUser("UC4", 9L)));
+        when(couponTemplateCache.getAll(anyCollection())).thenReturn(Map.of(1L, skuCoupon, 2L, allCoupon));
+        DisplayPriceService service = newService(Integer.MAX_VALUE);
+
+        List<DisplayPriceResult> results = service.displayPrices(request(1001L,
+                item(100L, 10L, "100.00"), item(200L, 10L, "80.00"), item(300L, 10L, "30.00")));
+
+        assertEquals(3, results.size());
+        assertResult(results.get(0), 100L, "80.00", 1L, "UC1");
+        assertResult(results.get(1), 200L, "75.00", 2L, "UC3");
+        assertResult(results.get(2), 300L, "30.00", null, null);
+        assertEquals("满50.00减20.00", results.get(0).getDescription());
+        verify(couponTemplateCache, never()).getActiveRuleIndex();
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("不带用户：按可领取模板计算，跳过已发完和已过期的模板，不返回用户券")
+    void displayPrices_claimable_shouldSkipSoldOutAndExpired() {
+        Coupon soldOut = coupon(1L, "FIXED_AMOUNT", "ALL", null, "0", "50");
+        soldOut.setTotalQuantity(100);
+        soldOut.setIssuedQuantity(100);
+        Coupon expired = coupon(2L, "FIXED_AMOUNT", "ALL", null, "0", "40");
+        expired.setValidEndTime(LocalDateTime.now().minusDays(1));
+        Coupon discount = coupon(3L, "DISCOUNT", "CATEGORY", "[10]", "0", null);
+        discount.setDiscountRate(new BigDecimal("0.80"));
+        discount.setMaxDiscountAmount(new BigDecimal("30"));
+        Coupon valid = coupon(4L, "FIXED_AMOUNT", "ALL", null, "0", "10");
+        valid.setTotalQuantity(100);
+        valid.setIssuedQuantity(99);
+        valid.setValidEndTime(LocalDateTime.now().plusDays(1));
+        when(couponTemplateCache.getActiveRuleIndex())
+                .thenReturn(CouponRuleIndex.compile(List.of(soldOut, expired, discount, valid)));
+        DisplayPriceService service = newService(Integer.MAX_VALUE);
+
+        List<DisplayPriceResult> results = service.displayPrices(request(null,
+                item(100L, 10L, "200.00"), item(200L, 20L, "200.00")));
+
+        assertResult(results.get(0), 100L, "170.00", 3L, null);
+        assertResult(results.get(1), 200L, "190.00", 4L, null);
+        verifyNoInteractions(couponUserRepository);
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("SKU数 × 候选券数 达到并行阈值时并行计算，结果与顺序计算一致且保持请求顺序")
+    void displayPrices_parallel_shouldMatchSequential() {
+        Random random = new Random(47L);
+        List<Coupon> coupons = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            String scope = id % 3 == 0 ? "ALL" : id % 3 == 1 ? "SKU" : "CATEGORY";
+            String items = "ALL".equals(scope) ? null
+                    : "[" + random.nextInt(200) + "," + random.nextInt(200) + "," + random.nextInt(20) + "]";
+            coupons.add(coupon(id, "FULL_REDUCTION", scope, items,
+                    String.valueOf(random.nextInt(100)), String.valueOf(1 + random.nextInt(30))));
+        }
+        when(couponTemplateCache.getActiveRuleIndex()).thenReturn(CouponRuleIndex.compile(coupons));
+        DisplayPriceRequest.ItemInfo[] items = new DisplayPriceRequest.ItemInfo[200];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = item((long) i, (long) random.nextInt(20), random.nextInt(20_000) / 100 + ".00");
+        }
+        DisplayPriceService sequential = newService(Integer.MAX_VALUE);
+        DisplayPriceService parallel = newService(1);
+
+        List<DisplayPriceResult> expected = sequential.displayPrices(request(null, items));
+        List<DisplayPriceResult> actual = parallel.displayPrices(request(null, items));
+
+        assertEquals(expected, actual);
+        for (int i = 0; i < items.length; i++) {
+            assertEquals((long) i, actual.get(i).getSkuId());
+        }
+        sequential.shutdown();
+        parallel.shutdown();
+    }
+
+    private DisplayPriceService newService(int parallelThreshold) {
+        return new DisplayPriceService(couponUserRepository, couponTemplateCache, 4, parallelThreshold);
+    }
+
+    private static void assertResult(DisplayPriceResult result, Long skuId, String displayPrice,
+                                     Long ruleId, String userCouponNo) {
+        assertEquals(skuId, result.getSkuId());
+        assertEquals(0, new BigDecimal(displayPrice).compareTo(result.getDisplayPrice()),
+                "skuId=" + skuId + ", displayPrice=" + result.getDisplayPrice());
+        assertEquals(ruleId, result.getRuleId());
+        assertEquals(userCouponNo, result.getUserCouponNo());
+    }
+
+    private static DisplayPriceRequest request(Long userId, DisplayPriceRequest.ItemInfo... items) {
+        DisplayPriceRequest request = new DisplayPriceRequest();
+        request.setUserId(userId);
+        request.setItems(List.of(items));
+        return request;
+    }
+
+    private static DisplayPriceRequest.ItemInfo item(Long skuId, Long categoryId, String unitPrice) {
+        DisplayPriceRequest.ItemInfo item = new DisplayPriceRequest.ItemInfo();
+        item.setSkuId(skuId);
+        item.setCategoryId(categoryId);
+        item.setUnitPrice(new BigDecimal(unitPrice));
+        return item;
+    }
+
+    private static Coupon coupon(Long id, String type, String scope, String items,
+                                 String threshold, String discountAmount) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setName("券" + id);
+        coupon.setType(type);
+        coupon.setApplicableScope(scope);
+        coupon.setApplicableItems(items);
+        coupon.setThresholdAmount(new BigDecimal(threshold));
+        coupon.setDiscountAmount(discountAmount != null ? new BigDecimal(discountAmount) : null);
+        return coupon;
+    }
+
+    private static CouponUser couponUser(String userCouponNo, Long couponId) {
+        CouponUser couponUser = new CouponUser();
+        couponUser.setUserCouponNo(userCouponNo);
+        couponUser.setCouponId(couponId);
+        return couponUser;
+    }
+}
@@ -0,0 +1,248 @@
+package com.yuge.promotion.domain.rule;
+
+import com.yuge.promotion.domain.entity.Coupon;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 优惠券规则索引测试
+ *
+ * 固定用例覆盖三种适用范围与异常的 applicable_items，随机用例与逐行逐规则的朴素扫描对照
+ */
+class CouponRuleIndexTest {
+
+    private static final int ROUNDS = 2000;
+
+    @Test
+    @DisplayName("全场规则的适用小计为订单总额")
+    void match_allScope_shouldUseCartTotal() {
+        CouponRuleIndex index = CouponRuleIndex.compile(List.of(
+                coupon(1L, CouponRuleIndex.SCOPE_ALL, null),
+                coupon(2L, null, null)));
+        CouponRuleIndex.Cart cart = new CouponRuleIndex.Cart(2)
+                .add(100L, 10L, 1999)
+                .add(200L, 20L, 501);
+
+        CouponRuleIndex.Match match = index.match(cart);
+
+        assertEquals(2500, match.total());
+        assertEquals(2500, match.subtotal(1L));
+        assertEquals(2500, match.subtotal(2L));
+    }
+
+    @Test
+    @DisplayName("分类规则累加命中分类的行金额")
+    void match_categoryScope_shouldSumMatchedLines() {
+        CouponRuleIndex index = CouponRuleIndex.compile(List.of(
+                coupon(1L, CouponRuleIndex.SCOPE_CATEGORY, "[10,30]")));
+        CouponRuleIndex.Cart cart = new CouponRuleIndex.Cart(3)
+                .add(100L, 10L, 1000)
+                .add(200L, 20L, 2000)
+                .add(300L, 30L, 300);
+
+        assertEquals(1300, index.match(cart).subtotal(1L));
+    }
+
+    @Test
+    @DisplayName("SKU规则累加命中SKU的行金额，未命中任何行时为 -1")
+    void match_skuScope_shouldSumMatchedLines() {
+        CouponRuleIndex index = CouponRuleIndex.compile(List.of(
+                coupon(1L, CouponRuleIndex.SCOPE_SKU, "[100,200]"),
+                coupon(2L, CouponRuleIndex.SCOPE_SKU, "[999]")));
+        CouponRuleIndex.Cart cart = new CouponRuleIndex.Cart(3)
+                .add(100L, 10L, 1000)
+                .add(200L, 10L, 2000)
+                .add(300L, 10L, 300);
+
+        CouponRuleIndex.Match match = index.match(cart);
+
+        assertEquals(3000, match.subtotal(1L));
+        assertEquals(-1, match.subtotal(2L));
+        assertEquals(-1, match.subtotal(3L));
+    }
+
+    @Test
+    @DisplayName("applicable_items 中的重复ID不重复累加")
+    void match_duplicateItems_shouldCountOnce() {
+        CouponRuleIndex index = CouponRuleIndex.compile(List.of(
+                coupon(1L, CouponRuleIndex.SCOPE_SKU, "[100,100,100]"),
+                coupon(2L, CouponRuleIndex.SCOPE_CATEGORY, "[10,10]")));
+        CouponRuleIndex.Cart cart = new CouponRuleIndex.Cart(1).add(100L, 10L, 1000);
+
+        CouponRuleIndex.Match match = index.match(cart);
+
+        assertEquals(1000, match.subtotal(1L));
+        assertEquals(1000, match.subtotal(2L));
+    }
+
+    @Test
+    @DisplayName("无法解析的 applicable_items 不适用任何商品，不放大到全场")
+    void match_malformedItems_shouldMatchNothing() {
+        CouponRuleIndex index = CouponRuleIndex.compile(List.of(
+                coupon(1L, CouponRuleIndex.SCOPE_SKU, "not-json"),
+                coupon(2L, CouponRuleIndex.SCOPE_CATEGORY, "[\"abc\""),
+                coupon(3L, CouponRuleIndex.SCOPE_SKU, ""),
+                coupon(4L, CouponRuleIndex.SCOPE_SKU, "[null,100]")));
+        CouponRuleIndex.Cart cart = new CouponRuleIndex.Cart(1).add(100L, 10L, 1000);
+
+        CouponRuleIndex.Match match = index.match(cart);
+
+        assertEquals(-1, match.subtotal(1L));
+        assertEquals(-1, match.subtotal(2L));
+        assertEquals(-1, match.subtotal(3L));
+        assertEquals(1000, match.subtotal(4L));
+        assertEquals(Map.of(4L, 1000L), collect(match));
+    }
+
+    @Test
+    @DisplayName("分类为空的行只按SKU匹配")
+    void match_nullCategory_shouldOnlyMatchBySku() {
+        CouponRuleIndex index = CouponRuleIndex.compile(List.of(
+                coupon(1L, CouponRuleIndex.SCOPE_CATEGORY, "[10]"),
+                coupon(2L, CouponRuleIndex.SCOPE_SKU, "[100]"),
+                coupon(3L, CouponRuleIndex.SCOPE_ALL, null)));
+        CouponRuleIndex.Cart cart = new CouponRuleIndex.Cart(2)
+                .add(100L, null, 1000)
+                .add(200L, 10L, 500);
+
+        CouponRuleIndex.Match match = index.match(cart);
+
+        assertEquals(500, match.subtotal(1L));
+        assertEquals(1000, match.subtotal(2L));
+        assertEquals(1500, match.subtotal(3L));
+    }
+
+    @Test
+    @DisplayName("同一 couponId 只保留第一条规则")
+    void compile_duplicateCoupon_shouldKeepFirst() {
+        CouponRuleIndex index = CouponRuleIndex.compile(List.of(
+                coupon(1L, CouponRuleIndex.SCOPE_SKU, "[100]"),
+                coupon(1L, CouponRuleIndex.SCOPE_ALL, null)));
+        CouponRuleIndex.Cart cart = new CouponRuleIndex.Cart(2)
+                .add(100L, 10L, 1000)
+                .add(200L, 10L, 500);
+
+        assertEquals(1, index.size());
+        assertEquals(1000, index.match(cart).subtotal(1L));
+    }
+
+    @Test
+    @DisplayName("随机规则与购物车：与逐行逐规则的朴素扫描结果一致")
+    void match_random_shouldEqualNaiveScan() {
+        Random random = new Random(20260601L);
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Coupon> coupons = randomCoupons(random);
+            int lines = 1 + random.nextInt(30);
+            Long[] skuIds = new Long[lines];
+            Long[] categoryIds = new Long[lines];
+            long[] amounts = new long[lines];
+            CouponRuleIndex.Cart cart = new CouponRuleIndex.Cart(lines);
+            for (int i = 0; i < lines; i++) {
+                skuIds[i] = (long) random.nextInt(40);
+                categoryIds[i] = random.nextInt(8) == 0 ? null : (long) random.nextInt(10);
+                amounts[i] = 1 + random.nextInt(100_000);
+                cart.add(skuIds[i], categoryIds[i], amounts[i]);
+            }
+
+            CouponRuleIndex.Match match = CouponRuleIndex.compile(coupons).match(cart);
+
+            Map<Long, Long> expected = new HashMap<>();
+            for (Coupon coupon : coupons) {
+                long subtotal = naiveSubtotal(coupon, skuIds, categoryIds, amounts);
+                assertEquals(subtotal, match.subtotal(coupon.getId()), "round=" + round + ", couponId=" + coupon.getId());
+                if (subtotal >= 0) {
+                    expected.put(coupon.getId(), subtotal);
+                }
+            }
+            assertEquals(expected, collect(match), "round=" + round);
+        }
+    }
+
+    /**
+     * 朴素扫描：逐行判断规则是否适用
+     */
+    private static long naiveSubtotal(Coupon coupon, Long[] skuIds, Long[] categoryIds, long[] amounts) {
+        String scope = coupon.getApplicableScope();
+        boolean bySku = CouponRuleIndex.SCOPE_SKU.equals(scope);
+        boolean byCategory = CouponRuleIndex.SCOPE_CATEGORY.equals(scope);
+        long sum = 0;
+        boolean matched = false;
+        Set<Long> items = parse(coupon.getApplicableItems());
+        for (int i = 0; i < amounts.length; i++) {
+            boolean applies = bySku ? items.contains(skuIds[i])
+                    : byCategory ? categoryIds[i] != null && items.contains(categoryIds[i])
+                    : true;
+            if (applies) {
+                sum += amounts[i];
+                matched = true;
+            }
+        }
+        return matched ? sum : -1;
+    }
+
+    private static Set<Long> parse(String json) {
+        Set<Long> items = new HashSet<>();
+        if (json == null || json.length() < 2) {
+            return items;
+        }
+        String body = json.substring(1, json.length() - 1);
+        if (body.isEmpty()) {
+            return items;
+        }
+        for (String item : body.split(",")) {
+            items.add(Long.parseLong(item.trim()));
+        }
+        return items;
+    }
+
+    private static List<Coupon> randomCoupons(Random random) {
+        int count = random.nextInt(60);
+        List<Coupon> coupons = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            int kind = random.nextInt(3);
+            String scope = kind == 0 ? CouponRuleIndex.SCOPE_ALL
+                    : kind == 1 ? CouponRuleIndex.SCOPE_CATEGORY : CouponRuleIndex.SCOPE_SKU;
+            String items = null;
+            if (kind != 0) {
+                int bound = kind == 1 ? 10 : 40;
+                StringBuilder json = new StringBuilder("[");
+                int size = random.nextInt(6);
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    // 允许重复ID
+                    json.append(random.nextInt(bound));
+                }
+                items = json.append(']').toString();
+            }
+            coupons.add(coupon((long) c + 1, scope, items));
+        }
+        return coupons;
+    }
+
+    private static Map<Long, Long> collect(CouponRuleIndex.Match match) {
+        Map<Long, Long> subtotals = new HashMap<>();
+        match.forEach((coupon, subtotal) -> assertNull(subtotals.put(coupon.getId(), subtotal),
+                "rule visited twice, couponId=" + coupon.getId()));
+        return subtotals;
+    }
+
+    private static Coupon coupon(Long id, String scope, String applicableItems) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setApplicableScope(scope);
+        coupon.setApplicableItems(applicableItems);
+        return coupon;
+    }
+}
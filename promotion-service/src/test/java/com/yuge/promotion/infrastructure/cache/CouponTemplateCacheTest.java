@@ -0,0 +1,245 @@
+package com.yuge.promotion.infrastructure.cache;
+
+import com.yuge.promotion.domain.entity.Coupon;
+import com.yuge.promotion.infrastructure.mq.PromotionChangePublisher;
+import com.yuge.promotion.infrastructure.repository.CouponRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 优惠券模板缓存单元测试 - 版本连续性、丢消息全量加载、旧版本忽略与补加载
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CouponTemplateCacheTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private CouponTemplateCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(PromotionChangePublisher.RULES_VERSION_KEY)).thenReturn("5");
+        when(couponRepository.findAll()).thenReturn(List.of(
+                coupon(1L, "CPN1", "ACTIVE", "10"), coupon(2L, "CPN2", "DRAFT", "20")));
+        cache = new CouponTemplateCache(couponRepository, redisTemplate, 300);
+    }
+
+    @Test
+    @DisplayName("首次使用：按Redis版本全量加载，之后读不再查库")
+    void firstUse_shouldLoadAllWithRedisVersion() {
+        assertEquals(5, cache.getVersion());
+        assertEquals("10", cache.get(1L).orElseThrow().getDiscountAmount().toPlainString());
+        assertEquals(List.of(1L), cache.getActive().stream().map(Coupon::getId).toList());
+
+        cache.getAll(List.of(1L, 2L));
+
+        verify(couponRepository, times(1)).findAll();
+        verify(couponRepository, never()).findByIds(anyCollection());
+    }
+
+    @Test
+    @DisplayName("首次加载读版本失败：版本为0，下次定时检查按Redis版本全量加载")
+    void firstUse_versionReadFailed_shouldStartAtZero() {
+        when(valueOperations.get(PromotionChangePublisher.RULES_VERSION_KEY))
+                .thenThrow(new RedisConnectionFailureException("down"))
+                .thenReturn("5");
+
+        assertEquals(0, cache.getVersion());
+
+        cache.checkVersion();
+
+        assertEquals(5, cache.getVersion());
+        verify(couponRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("版本连续：只重新加载变更的模板，其他模板保留")
+    void onRulesChanged_consecutive_shouldMergeChangedOnly() {
+        cache.getVersion();
+        when(couponRepository.findByIds(List.of(2L))).thenReturn(List.of(coupon(2L, "CPN2", "ACTIVE", "25")));
+
+        cache.onRulesChanged(6, List.of(2L));
+
+        assertEquals(6, cache.getVersion());
+        assertEquals("25", cache.get(2L).orElseThrow().getDiscountAmount().toPlainString());
+        assertEquals("10", cache.get(1L).orElseThrow().getDiscountAmount().toPlainString());
+        assertEquals(Set.of(1L, 2L), Set.copyOf(cache.getActive().stream().map(Coupon::getId).toList()));
+        verify(couponRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("版本不连续（丢消息）：全量重新加载，版本跳到收到的版本")
+    void onRulesChanged_gap_shouldReloadAll() {
+        cache.getVersion();
+        when(couponRepository.findAll()).thenReturn(List.of(
+                coupon(1L, "CPN1", "ACTIVE", "10"), coupon(2L, "CPN2", "ACTIVE", "20"),
+                coupon(3L, "CPN3", "ACTIVE", "30")));
+
+        cache.onRulesChanged(8, List.of(3L));
+
+        assertEquals(8, cache.getVersion());
+        assertEquals(3, cache.getActive().size());
+        verify(couponRepository, times(2)).findAll();
+        verify(couponRepository, never()).findByIds(anyCollection());
+    }
+
+    @Test
+    @DisplayName("未带变更模板：全量重新加载")
+    void onRulesChanged_withoutIds_shouldReloadAll() {
+        cache.getVersion();
+
+        cache.onRulesChanged(6, List.of());
+
+        assertEquals(6, cache.getVersion());
+        verify(couponRepository, times(2)).findAll();
+        verify(couponRepository, never()).findByIds(anyCollection());
+    }
+
+    @Test
+    @DisplayName("旧版本或重复版本：忽略，不查库")
+    void onRulesChanged_staleVersion_shouldIgnore() {
+        cache.getVersion();
+
+        cache.onRulesChanged(5, List.of(1L));
+        cache.onRulesChanged(3, List.of(1L));
+        cache.onRulesChanged(3, null);
+
+        assertEquals(5, cache.getVersion());
+        verify(couponRepository, times(1)).findAll();
+        verify(couponRepository, never()).findByIds(anyCollection());
+    }
+
+    @Test
+    @DisplayName("补加载快照中不存在的模板：按ID批量查询一次，保持当前版本，之后从缓存读取")
+    void getAll_unknownIds_shouldBackFill() {
+        when(couponRepository.findByIds(anyCollection())).thenReturn(List.of(coupon(9L, "CPN9", "ACTIVE", "90")));
+
+        Map<Long, Coupon> result = cache.getAll(List.of(1L, 9L, 10L));
+
+        assertEquals(Set.of(1L, 9L), result.keySet());
+        verify(couponRepository).findByIds(Set.of(9L, 10L));
+        assertEquals(5, cache.getVersion());
+        assertTrue(cache.getActive().stream().anyMatch(c -> c.getId().equals(9L)));
+
+        cache.getAll(List.of(1L, 9L));
+        verify(couponRepository, times(1)).findByIds(anyCollection());
+    }
+
+    @Test
+    @DisplayName("补加载未知编码：按编码查询后合并，之后按编码从缓存读取")
+    void getByCode_unknownCode_shouldBackFill() {
+        when(couponRepository.findByCode("CPN9")).thenReturn(Optional.of(coupon(9L, "CPN9", "ACTIVE", "90")));
+
+        assertEquals(9L, cache.getByCode("CPN9").orElseThrow().getId());
+        assertEquals(9L, cache.getByCode("CPN9").orElseThrow().getId());
+
+        verify(couponRepository, times(1)).findByCode("CPN9");
+        assertTrue(cache.getByCode("NONE").isEmpty());
+    }
+
+    @Test
+    @DisplayName("补加载期间模板以更高版本更新：补加载的旧数据不覆盖新模板")
+    void backFill_shouldNotOverwriteNewerTemplate() {
+        cache.getVersion();
+        AtomicInteger calls = new AtomicInteger();
+        when(couponRepository.findByIds(anyCollection())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                // 补加载查询返回前，广播的新版本先到达并合并了同一模板
+                cache.onRulesChanged(6, List.of(9L));
+                return List.of(coupon(9L, "CPN9", "DRAFT", "90"));
+            }
+            return List.of(coupon(9L, "CPN9", "ACTIVE", "95"));
+        });
+
+        cache.getAll(List.of(9L));
+
+        Coupon cached = cache.get(9L).orElseThrow();
+        assertEquals("ACTIVE", cached.getStatus());
+        assertEquals("95", cached.getDiscountAmount().toPlainString());
+        assertEquals(6, cache.getVersion());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("定时检查：Redis版本领先时全量加载，版本相同且未到全量刷新周期时不加载")
+    void checkVersion_shouldReloadOnlyWhenBehind() {
+        cache.getVersion();
+
+        cache.checkVersion();
+        verify(couponRepository, times(1)).findAll();
+
+        when(valueOperations.get(PromotionChangePublisher.RULES_VERSION_KEY)).thenReturn("9");
+        cache.checkVersion();
+
+        assertEquals(9, cache.getVersion());
+        verify(couponRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("定时检查：到达全量刷新周期时即使版本相同也全量加载")
+    void checkVersion_fullRefreshDue_shouldReload() {
+        cache = new CouponTemplateCache(couponRepository, redisTemplate, 0);
+        cache.getVersion();
+
+        cache.checkVersion();
+
+        assertEquals(5, cache.getVersion());
+        verify(couponRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("定时检查：未使用时不加载，Redis异常时保留当前快照")
+    void checkVersion_notLoadedOrRedisDown_shouldKeepSnapshot() {
+        cache.checkVersion();
+        verify(couponRepository, never()).findAll();
+
+        cache.getVersion();
+        when(valueOperations.get(PromotionChangePublisher.RULES_VERSION_KEY))
+                .thenThrow(new RedisConnectionFailureException("down"));
+        cache.checkVersion();
+
+        assertEquals(5, cache.getVersion());
+        verify(couponRepository, times(1)).findAll();
+    }
+
+    private static Coupon coupon(Long id, String code, String status, String discountAmount) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setCouponCode(code);
+        coupon.setStatus(status);
+        coupon.setType("FULL_REDUCTION");
+        coupon.setApplicableScope("ALL");
+        coupon.setThresholdAmount(new BigDecimal("100"));
+        coupon.setDiscountAmount(new BigDecimal(discountAmount));
+        return coupon;
+    }
+}
@@ -0,0 +1,184 @@
+package com.yuge.promotion.infrastructure.redis;
+
+import com.yuge.platform.infra.common.ErrorCode;
+import com.yuge.platform.infra.exception.BizException;
+import com.yuge.promotion.infrastructure.redis.CouponClaimRedisStore.ClaimResult;
+import com.yuge.promotion.infrastructure.redis.CouponClaimRedisStore.Code;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 领券Redis存储单元测试 - 脚本参数与结果解析
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CouponClaimRedisStoreTest {
+
+    private static final Long COUPON_ID = 1L;
+    private static final List<String> KEYS = List.of(
+            "promotion:coupon:claim:{1}:stock",
+            "promotion:coupon:claim:{1}:users",
+            "promotion:coupon:claim:{1}:requests");
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private CouponClaimRedisStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new CouponClaimRedisStore(redisTemplate);
+        store.init();
+    }
+
+    @Test
+    @DisplayName("领取成功：传入用户、请求、限领、编号与领取时间，返回本次编号")
+    void claim_ok_shouldReturnGivenNo() {
+        LocalDateTime receiveTime = LocalDateTime.of(2026, 10, 1, 12, 0);
+        AtomicReference<List<Object>> args = captureArgs(List.of("OK", ""));
+
+        ClaimResult result = store.claim(COUPON_ID, 1001L, "R1", 2, "UC1", receiveTime);
+
+        assertEquals(Code.OK, result.getCode());
+        assertEquals("UC1", result.getUserCouponNo());
+        assertEquals(receiveTime, result.getReceiveTime());
+        assertEquals(List.of("1001", "R1", "2", "UC1", String.valueOf(millis(receiveTime))), args.get());
+    }
+
+    @Test
+    @DisplayName("重复请求：解析已领取的 编号:领取时间")
+    void claim_duplicate_shouldParseClaim() {
+        LocalDateTime firstTime = LocalDateTime.of(2026, 10, 1, 11, 0);
+        captureArgs(List.of("DUPLICATE", "UC_FIRST:" + millis(firstTime)));
+
+        ClaimResult result = store.claim(COUPON_ID, 1001L, "R1", 2, "UC2", LocalDateTime.now());
+
+        assertEquals(Code.DUPLICATE, result.getCode());
+        assertEquals("UC_FIRST", result.getUserCouponNo());
+        assertEquals(firstTime, result.getReceiveTime());
+    }
+
+    @Test
+    @DisplayName("重复请求且已回滚：只有已落库编号，领取时间为空")
+    void claim_duplicateReverted_shouldParseBareNo() {
+        captureArgs(List.of("DUPLICATE", "UC_DB"));
+
+        ClaimResult result = store.claim(COUPON_ID, 1001L, "R1", 2, "UC2", LocalDateTime.now());
+
+        assertEquals("UC_DB", result.getUserCouponNo());
+        assertNull(result.getReceiveTime());
+    }
+
+    @Test
+    @DisplayName("售罄/限领/未预热：不带编号")
+    void claim_rejected_shouldNotCarryNo() {
+        captureArgs(List.of("SOLD_OUT", ""));
+
+        ClaimResult result = store.claim(COUPON_ID, 1001L, "R1", 2, "UC1", LocalDateTime.now());
+
+        assertEquals(Code.SOLD_OUT, result.getCode());
+        assertNull(result.getUserCouponNo());
+    }
+
+    @Test
+    @DisplayName("Redis异常或脚本无返回：抛出缓存错误")
+    void claim_redisFailure_shouldThrowCacheError() {
+        doThrow(new RedisConnectionFailureException("down"))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        BizException failure = assertThrows(BizException.class,
+                () -> store.claim(COUPON_ID, 1001L, "R1", 2, "UC1", LocalDateTime.now()));
+        assertEquals(ErrorCode.CACHE_ERROR.getCode(), failure.getCode());
+
+        captureArgs(null);
+        BizException empty = assertThrows(BizException.class,
+                () -> store.claim(COUPON_ID, 1001L, "R1", 2, "UC1", LocalDateTime.now()));
+        assertEquals(ErrorCode.CACHE_ERROR.getCode(), empty.getCode());
+    }
+
+    @Test
+    @DisplayName("预热：剩余数量不小于0，过期时间为结束时间后一天，随后为每人已领数量")
+    void warmUp_shouldPassRemainingExpireAndUsers() {
+        LocalDateTime validEnd = LocalDateTime.of(2026, 12, 31, 0, 0);
+        AtomicReference<List<Object>> args = captureArgs(1L);
+        Map<Long, Integer> claimedByUser = new LinkedHashMap<>();
+        claimedByUser.put(1001L, 1);
+        claimedByUser.put(1002L, 2);
+
+        assertTrue(store.warmUp(COUPON_ID, 70, claimedByUser, validEnd));
+        assertEquals(List.of("70", String.valueOf(millis(validEnd.plusDays(1))), "1001", "1", "1002", "2"),
+                args.get());
+    }
+
+    @Test
+    @DisplayName("预热：总量小于已落库数量时库存写0，不过期时过期参数为空；库存已存在时返回未写入")
+    void warmUp_negativeRemaining_shouldClampToZero() {
+        AtomicReference<List<Object>> args = captureArgs(0L);
+
+        assertFalse(store.warmUp(COUPON_ID, -3, Map.of(), null));
+        assertEquals(List.of("0", ""), args.get());
+    }
+
+    @Test
+    @DisplayName("回滚：脚本返回1才视为已回滚")
+    void revert_shouldReturnScriptResult() {
+        AtomicReference<List<Object>> args = captureArgs(1L);
+        assertTrue(store.revert(COUPON_ID, 1001L, "R1", "UC2", "UC_DB"));
+        assertEquals(List.of("1001", "R1", "UC2", "UC_DB"), args.get());
+
+        captureArgs(0L);
+        assertFalse(store.revert(COUPON_ID, 1001L, "R1", "UC2", "UC_DB"));
+    }
+
+    @Test
+    @DisplayName("剩余库存：未预热为空")
+    @SuppressWarnings("unchecked")
+    void remaining_shouldReadStockKey() {
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(KEYS.get(0))).thenReturn("42");
+        assertEquals(42L, store.remaining(COUPON_ID));
+
+        when(valueOperations.get(KEYS.get(0))).thenReturn(null);
+        assertNull(store.remaining(COUPON_ID));
+    }
+
+    /**
+     * 脚本调用返回 result，并记录传入的参数（校验 key 为同一 hash tag 下的三个key）
+     */
+    private AtomicReference<List<Object>> captureArgs(Object result) {
+        AtomicReference<List<Object>> args = new AtomicReference<>();
+        doAnswer(invocation -> {
+            assertEquals(KEYS, invocation.getArgument(1));
+            Object[] all = invocation.getArguments();
+            args.set(Arrays.asList(Arrays.copyOfRange(all, 2, all.length)));
+            return result;
+        }).when(redisTemplate).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        return args;
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
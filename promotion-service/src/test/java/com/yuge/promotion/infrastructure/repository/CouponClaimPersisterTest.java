@@ -0,0 +1,166 @@
+package com.yuge.promotion.infrastructure.repository;
+
+import com.yuge.promotion.domain.entity.CouponUser;
+import com.yuge.promotion.infrastructure.mq.PromotionChangePublisher;
+import com.yuge.promotion.infrastructure.redis.CouponClaimRedisStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 领券记录异步落库单元测试 - 合批、逐条重试与重复领取回滚
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CouponClaimPersisterTest {
+
+    @Mock
+    private CouponUserRepository couponUserRepository;
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private CouponClaimRedisStore couponClaimRedisStore;
+
+    @Mock
+    private PromotionChangePublisher promotionChangePublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CouponClaimPersister persister;
+
+    @BeforeEach
+    void setUp() {
+        persister = new CouponClaimPersister(couponUserRepository, couponRepository, couponClaimRedisStore,
+                promotionChangePublisher, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(persister, "flushIntervalMs", 20L);
+        ReflectionTestUtils.setField(persister, "maxBatch", 100);
+        ReflectionTestUtils.setField(persister, "queueCapacity", 100);
+    }
+
+    @Test
+    @DisplayName("整批一次插入，已发放数量按优惠券合并，同一用户只广播一次券包变更")
+    void flush_shouldMergeIssuedAndPublishPerUser() {
+        List<CouponUser> batch = List.of(
+                couponUser("UC1", 1001L, 1L, "R1"),
+                couponUser("UC2", 1001L, 1L, "R2"),
+                couponUser("UC3", 1002L, 2L, "R3"));
+
+        persister.flush(batch);
+
+        verify(couponUserRepository).insertBatch(batch);
+        verify(couponRepository).incrementIssuedQuantity(1L, 2);
+        verify(couponRepository).incrementIssuedQuantity(2L, 1);
+        verify(promotionChangePublisher, times(1)).walletChangedAfterCommit(1001L, "RECEIVE");
+        verify(promotionChangePublisher, times(1)).walletChangedAfterCommit(1002L, "RECEIVE");
+        assertEquals(3, persister.getWrittenCount());
+        assertEquals(1, persister.getBatchCount());
+        verify(couponClaimRedisStore, never()).revert(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("同一请求已有其他编号的记录：整批失败后逐条写入，重复的一条回滚Redis领取")
+    void flush_duplicateRequest_shouldRevertRedisClaim() {
+        CouponUser fresh = couponUser("UC1", 1001L, 1L, "R1");
+        CouponUser duplicate = couponUser("UC2", 1002L, 1L, "R2");
+        when(couponUserRepository.insertBatch(anyList())).thenAnswer(invocation -> {
+            List<CouponUser> coupons = invocation.getArgument(0);
+            if (coupons.contains(duplicate)) {
+                throw new DuplicateKeyException("uk_user_request");
+            }
+            return coupons.size();
+        });
+        when(couponUserRepository.findByUserIdAndReceiveRequestId(1002L, "R2"))
+                .thenReturn(Optional.of(couponUser("UC_OLD", 1002L, 1L, "R2")));
+
+        persister.flush(List.of(fresh, duplicate));
+
+        verify(couponClaimRedisStore).revert(1L, 1002L, "R2", "UC2", "UC_OLD");
+        verify(couponRepository, times(1)).incrementIssuedQuantity(1L, 1);
+        verify(promotionChangePublisher).walletChangedAfterCommit(1001L, "RECEIVE");
+        verify(promotionChangePublisher, never()).walletChangedAfterCommit(eq(1002L), anyString());
+        assertEquals(1, persister.getWrittenCount());
+        assertEquals(0, persister.getFailureCount());
+    }
+
+    @Test
+    @DisplayName("重复的是同一编号（对账已补写）：不回滚")
+    void flush_samePersistedNo_shouldNotRevert() {
+        CouponUser restored = couponUser("UC1", 1001L, 1L, "R1");
+        when(couponUserRepository.insertBatch(anyList())).thenThrow(new DuplicateKeyException("uk_user_coupon_no"));
+        when(couponUserRepository.findByUserIdAndReceiveRequestId(1001L, "R1"))
+                .thenReturn(Optional.of(couponUser("UC1", 1001L, 1L, "R1")));
+
+        persister.flush(List.of(restored));
+
+        verify(couponClaimRedisStore, never()).revert(any(), any(), any(), any(), any());
+        assertEquals(0, persister.getWrittenCount());
+        assertEquals(0, persister.getFailureCount());
+    }
+
+    @Test
+    @DisplayName("重复键但查不到记录：不回滚")
+    void flush_duplicateWithoutRecord_shouldNotRevert() {
+        when(couponUserRepository.insertBatch(anyList())).thenThrow(new DuplicateKeyException("uk_user_coupon_no"));
+        when(couponUserRepository.findByUserIdAndReceiveRequestId(1001L, "R1")).thenReturn(Optional.empty());
+
+        persister.flush(List.of(couponUser("UC1", 1001L, 1L, "R1")));
+
+        verify(couponClaimRedisStore, never()).revert(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("非重复键失败：计入失败数，不回滚Redis（留给对账补写）")
+    void flush_otherFailure_shouldCountAndKeepClaim() {
+        when(couponUserRepository.insertBatch(anyList())).thenThrow(new DataAccessResourceFailureException("db down"));
+
+        persister.flush(List.of(couponUser("UC1", 1001L, 1L, "R1"), couponUser("UC2", 1002L, 1L, "R2")));
+
+        assertEquals(2, persister.getFailureCount());
+        assertEquals(0, persister.getWrittenCount());
+        verify(couponClaimRedisStore, never()).revert(any(), any(), any(), any(), any());
+        verify(promotionChangePublisher, never()).walletChangedAfterCommit(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("写入线程未启动时在调用线程同步写入")
+    void submit_notStarted_shouldWriteSynchronously() {
+        CouponUser couponUser = couponUser("UC1", 1001L, 1L, "R1");
+
+        persister.submit(couponUser);
+
+        verify(couponUserRepository).insertBatch(List.of(couponUser));
+        verify(couponRepository).incrementIssuedQuantity(1L, 1);
+        assertNotNull(couponUser.getCreatedAt());
+        assertEquals(1, persister.getWrittenCount());
+    }
+
+    private static CouponUser couponUser(String userCouponNo, Long userId, Long couponId, String requestId) {
+        CouponUser couponUser = new CouponUser();
+        couponUser.setUserCouponNo(userCouponNo);
+        couponUser.setUserId(userId);
+        couponUser.setCouponId(couponId);
+        couponUser.setReceiveRequestId(requestId);
+        couponUser.setStatus("AVAILABLE");
+        return couponUser;
+    }
+}
@@ -0,0 +1,230 @@
+package com.yuge.promotion.infrastructure.task;
+
+import com.yuge.platform.infra.lease.RedisLeaseService;
+import com.yuge.promotion.application.CouponService;
+import com.yuge.promotion.domain.entity.Coupon;
+import com.yuge.promotion.infrastructure.redis.CouponClaimRedisStore;
+import com.yuge.promotion.infrastructure.redis.CouponClaimRedisStore.Claim;
+import com.yuge.promotion.infrastructure.repository.CouponRepository;
+import com.yuge.promotion.infrastructure.repository.CouponUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 领券对账单元测试 - 租约、丢失领取补写与库存差值修正
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CouponClaimReconcilerTest {
+
+    private static final Long COUPON_ID = 1L;
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private CouponUserRepository couponUserRepository;
+
+    @Mock
+    private CouponClaimRedisStore couponClaimRedisStore;
+
+    @Mock
+    private CouponService couponService;
+
+    @Mock
+    private RedisLeaseService leaseService;
+
+    private CouponClaimReconciler reconciler;
+
+    private final Coupon coupon = coupon();
+
+    @BeforeEach
+    void setUp() {
+        reconciler = new CouponClaimReconciler(couponRepository, couponUserRepository, couponClaimRedisStore,
+                couponService, leaseService);
+        ReflectionTestUtils.setField(reconciler, "enabled", true);
+        ReflectionTestUtils.setField(reconciler, "leaseSeconds", 50L);
+        ReflectionTestUtils.setField(reconciler, "restoreGraceSeconds", 30L);
+        ReflectionTestUtils.setField(reconciler, "scanBatch", 500);
+        when(leaseService.tryAcquire(anyString(), anyString(), anyLong())).thenReturn(true);
+        when(couponRepository.findActiveCoupons()).thenReturn(List.of(coupon));
+    }
+
+    @Test
+    @DisplayName("未拿到租约：不对账")
+    void reconcile_leaseHeldByOther_shouldSkip() {
+        when(leaseService.tryAcquire(anyString(), anyString(), anyLong())).thenReturn(false);
+
+        reconciler.reconcile();
+
+        verifyNoInteractions(couponRepository, couponUserRepository, couponClaimRedisStore, couponService);
+        verify(leaseService, never()).release(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("回写已发放数量，结束后释放租约")
+    void reconcile_shouldSyncIssuedAndReleaseLease() {
+        stubCounts(60L, 40);
+
+        reconciler.reconcile();
+
+        verify(couponRepository).syncIssuedQuantity(COUPON_ID, 40);
+        verify(leaseService).release(eq("promotion:coupon:claim:reconcile:lease"), anyString());
+    }
+
+    @Test
+    @DisplayName("未预热：只回写已发放数量，不比较库存")
+    void reconcile_notWarmed_shouldSkipDrift() {
+        stubCounts(null, 40);
+
+        reconciler.reconcile();
+        reconciler.reconcile();
+
+        verify(couponRepository, times(2)).syncIssuedQuantity(COUPON_ID, 40);
+        verify(couponClaimRedisStore, never()).scanClaims(any(), anyInt(), any());
+        verify(couponClaimRedisStore, never()).adjustRemaining(any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Redis已发放多于记录数：补写超过宽限期且未落库的领取，不修改库存")
+    @SuppressWarnings("unchecked")
+    void reconcile_positiveDrift_shouldRestoreSettledMissingClaims() {
+        stubCounts(60L, 37);
+        LocalDateTime old = LocalDateTime.now().minusMinutes(5);
+        Claim persisted = new Claim(1001L, "R1", "UC1", old);
+        Claim lost = new Claim(1002L, "R2", "UC2", old);
+        Claim reverted = new Claim(1003L, "R3", "UC3", null);
+        Claim recent = new Claim(1004L, "R4", "UC4", LocalDateTime.now());
+        doAnswer(invocation -> {
+            Consumer<List<Claim>> consumer = invocation.getArgument(2);
+            consumer.accept(List.of(persisted, lost, reverted, recent));
+            return null;
+        }).when(couponClaimRedisStore).scanClaims(eq(COUPON_ID), eq(500), any());
+        when(couponUserRepository.findPersistedUserCouponNos(anyCollection())).thenReturn(Set.of("UC1"));
+
+        reconciler.reconcile();
+
+        ArgumentCaptor<Collection<String>> checked = ArgumentCaptor.forClass(Collection.class);
+        verify(couponUserRepository).findPersistedUserCouponNos(checked.capture());
+        assertEquals(List.of("UC1", "UC2", "UC3"), List.copyOf(checked.getValue()));
+        verify(couponService).restoreClaims(coupon, List.of(lost, reverted));
+        verify(couponClaimRedisStore, never()).adjustRemaining(any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Redis已发放多于记录数但都已落库或在宽限期内：不补写")
+    void reconcile_positiveDrift_nothingMissing_shouldNotRestore() {
+        stubCounts(60L, 39);
+        doAnswer(invocation -> {
+            Consumer<List<Claim>> consumer = invocation.getArgument(2);
+            consumer.accept(List.of(new Claim(1004L, "R4", "UC4", LocalDateTime.now())));
+            return null;
+        }).when(couponClaimRedisStore).scanClaims(eq(COUPON_ID), eq(500), any());
+
+        reconciler.reconcile();
+
+        verify(couponUserRepository, never()).findPersistedUserCouponNos(anyCollection());
+        verify(couponService, never()).restoreClaims(any(), anyList());
+    }
+
+    @Test
+    @DisplayName("Redis已发放少于记录数：第一轮只记录差值，第二轮差值相同才扣减库存")
+    void reconcile_negativeDrift_shouldCorrectOnSecondIdenticalRound() {
+        stubCounts(65L, 40);
+
+        reconciler.reconcile();
+        verify(couponClaimRedisStore, never()).adjustRemaining(any(), anyLong());
+
+        reconciler.reconcile();
+        verify(couponClaimRedisStore, times(1)).adjustRemaining(COUPON_ID, -5L);
+        verify(couponClaimRedisStore, never()).scanClaims(any(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Redis已发放少于记录数但差值变化（落库追赶中）：不扣减，直到连续两轮相同")
+    void reconcile_negativeDriftChanging_shouldWait() {
+        stubCounts(65L, 40);
+        reconciler.reconcile();
+
+        stubCounts(63L, 40);
+        reconciler.reconcile();
+        verify(couponClaimRedisStore, never()).adjustRemaining(any(), anyLong());
+
+        reconciler.reconcile();
+        verify(couponClaimRedisStore).adjustRemaining(COUPON_ID, -3L);
+    }
+
+    @Test
+    @DisplayName("修正后差值清零：下一轮差值相同也不会再次扣减")
+    void reconcile_negativeDriftCorrected_shouldNotAdjustTwice() {
+        stubCounts(65L, 40);
+        reconciler.reconcile();
+        reconciler.reconcile();
+
+        reconciler.reconcile();
+
+        verify(couponClaimRedisStore, times(1)).adjustRemaining(COUPON_ID, -5L);
+    }
+
+    @Test
+    @DisplayName("中间一轮未拿到租约：差值记录清空，重新计数")
+    void reconcile_leaseLost_shouldResetDrift() {
+        stubCounts(65L, 40);
+        reconciler.reconcile();
+
+        when(leaseService.tryAcquire(anyString(), anyString(), anyLong())).thenReturn(false);
+        reconciler.reconcile();
+
+        when(leaseService.tryAcquire(anyString(), anyString(), anyLong())).thenReturn(true);
+        reconciler.reconcile();
+        verify(couponClaimRedisStore, never()).adjustRemaining(any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("单个优惠券对账失败：不影响其他优惠券，仍释放租约")
+    void reconcile_couponFailure_shouldContinue() {
+        Coupon other = coupon();
+        other.setId(2L);
+        when(couponRepository.findActiveCoupons()).thenReturn(List.of(coupon, other));
+        when(couponUserRepository.countByCouponId(COUPON_ID)).thenThrow(new IllegalStateException("db down"));
+        when(couponUserRepository.countByCouponId(2L)).thenReturn(40);
+
+        reconciler.reconcile();
+
+        verify(couponRepository).syncIssuedQuantity(2L, 40);
+        verify(leaseService).release(anyString(), anyString());
+    }
+
+    private void stubCounts(Long remaining, int persisted) {
+        when(couponClaimRedisStore.remaining(COUPON_ID)).thenReturn(remaining);
+        when(couponUserRepository.countByCouponId(COUPON_ID)).thenReturn(persisted);
+    }
+
+    private static Coupon coupon() {
+        Coupon coupon = new Coupon();
+        coupon.setId(COUPON_ID);
+        coupon.setCouponCode("CPN001");
+        coupon.setStatus("ACTIVE");
+        coupon.setTotalQuantity(100);
+        coupon.setPerUserLimit(2);
+        return coupon;
+    }
+}